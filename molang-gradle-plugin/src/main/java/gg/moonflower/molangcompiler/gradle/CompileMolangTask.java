@@ -0,0 +1,101 @@
+package gg.moonflower.molangcompiler.gradle;
+
+import gg.moonflower.molangcompiler.api.CompilerFlag;
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangVersion;
+import gg.moonflower.molangcompiler.api.aot.MolangAotCompiler;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.api.exception.UnsupportedMolangVersionException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Compiles every {@code .molang} file in a directory into class files and an expression index.
+ *
+ * @author Ocelot
+ * @see MolangAotCompiler
+ * @since 4.1.0
+ */
+@CacheableTask
+public abstract class CompileMolangTask extends DefaultTask {
+
+    /**
+     * @return The directory containing MoLang source files
+     */
+    @Internal
+    public abstract DirectoryProperty getSourceDirectory();
+
+    /**
+     * @return The directory to write generated classes and the index to
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    /**
+     * @return The Java package to put generated classes in
+     */
+    @Input
+    public abstract Property<String> getPackageName();
+
+    /**
+     * @return The MoLang version to compile sources with
+     */
+    @Input
+    public abstract Property<Integer> getMolangVersion();
+
+    /**
+     * @return Whether to reduce constant expressions at compile time
+     */
+    @Input
+    public abstract Property<Boolean> getOptimize();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    /**
+     * @return All MoLang source files in the source directory
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getSources() {
+        return this.getSourceDirectory().getAsFileTree().matching(pattern -> pattern.include("**/*" + MolangAotCompiler.EXTENSION));
+    }
+
+    @TaskAction
+    public void compile() throws IOException {
+        // Remove classes of sources that were deleted since the last run
+        this.getFileSystemOperations().delete(spec -> spec.delete(this.getOutputDirectory()));
+
+        MolangVersion version;
+        try {
+            version = MolangVersion.get(this.getMolangVersion().get());
+        } catch (UnsupportedMolangVersionException e) {
+            throw new GradleException("Unsupported MoLang version: " + this.getMolangVersion().get(), e);
+        }
+
+        CompilerFlags flags = this.getOptimize().get() ? CompilerFlags.of(CompilerFlag.OPTIMIZE) : CompilerFlags.NONE;
+        MolangAotCompiler compiler = new MolangAotCompiler(flags, version, this.getPackageName().get());
+        Map<String, String> sources = MolangAotCompiler.collectSources(this.getSourceDirectory().get().getAsFile().toPath());
+        Path output = this.getOutputDirectory().get().getAsFile().toPath();
+
+        Map<String, MolangSyntaxException> errors = compiler.compile(sources, output);
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Failed to compile ").append(errors.size()).append(" MoLang source(s):");
+            errors.forEach((name, error) -> message.append("\n  ").append(name).append(MolangAotCompiler.EXTENSION).append(": ").append(error.getMessage()));
+            throw new GradleException(message.toString());
+        }
+        this.getLogger().info("Compiled {} MoLang expressions", sources.size());
+    }
+}
@@ -0,0 +1,27 @@
+package gg.moonflower.molangcompiler.gradle;
+
+import org.gradle.api.provider.Property;
+
+/**
+ * Configures how MoLang sources are compiled ahead of time. Registered as the {@code molang} extension.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public abstract class MolangAotExtension {
+
+    /**
+     * @return The Java package to put generated classes in. Defaults to {@code molang.generated}
+     */
+    public abstract Property<String> getPackageName();
+
+    /**
+     * @return The MoLang version to compile sources with. Defaults to the latest version
+     */
+    public abstract Property<Integer> getVersion();
+
+    /**
+     * @return Whether to reduce constant expressions at compile time. Defaults to <code>true</code>
+     */
+    public abstract Property<Boolean> getOptimize();
+}
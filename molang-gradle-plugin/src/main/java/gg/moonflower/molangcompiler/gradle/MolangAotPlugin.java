@@ -0,0 +1,44 @@
+package gg.moonflower.molangcompiler.gradle;
+
+import gg.moonflower.molangcompiler.api.MolangVersion;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.Map;
+
+/**
+ * Compiles MoLang sources into class files at build time.
+ * <p>
+ * For every source set, {@code .molang} files in {@code src/<source set>/molang} are compiled by a {@code compile<SourceSet>Molang} task.
+ * The output is added to the source set output, so the classes and index are packaged into the jar.
+ * At runtime, the expressions are loaded with {@link gg.moonflower.molangcompiler.api.aot.MolangAotLoader}.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public class MolangAotPlugin implements Plugin<Project> {
+
+    @Override
+    public void apply(Project project) {
+        MolangAotExtension extension = project.getExtensions().create("molang", MolangAotExtension.class);
+        extension.getPackageName().convention("molang.generated");
+        extension.getVersion().convention(MolangVersion.LATEST.getVersion());
+        extension.getOptimize().convention(true);
+
+        project.getPlugins().withType(JavaPlugin.class, javaPlugin -> project.getExtensions().getByType(SourceSetContainer.class).all(sourceSet -> {
+            TaskProvider<CompileMolangTask> task = project.getTasks().register(sourceSet.getTaskName("compile", "Molang"), CompileMolangTask.class, compile -> {
+                compile.setGroup("build");
+                compile.setDescription("Compiles the " + sourceSet.getName() + " MoLang sources into classes.");
+                compile.getSourceDirectory().convention(project.getLayout().getProjectDirectory().dir("src/" + sourceSet.getName() + "/molang"));
+                compile.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("molang/" + sourceSet.getName()));
+                compile.getPackageName().convention(extension.getPackageName());
+                compile.getMolangVersion().convention(extension.getVersion());
+                compile.getOptimize().convention(extension.getOptimize());
+            });
+            sourceSet.getOutput().dir(Map.of("builtBy", task), task.flatMap(CompileMolangTask::getOutputDirectory));
+        }));
+    }
+}
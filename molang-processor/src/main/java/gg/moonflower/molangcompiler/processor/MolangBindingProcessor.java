@@ -0,0 +1,484 @@
+package gg.moonflower.molangcompiler.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a <code>MolangObject</code> for every class with members annotated with <code>@MolangQuery</code>,
+ * <code>@MolangFunction</code>, or <code>@MolangVariable</code>.
+ * <p>
+ * The generated class is named <code>&lt;Class&gt;MolangBindings</code> and placed in the same package. It accesses every
+ * member directly, so nothing is looked up by reflection at runtime. Its <code>INTRINSICS</code> list the public
+ * queries and functions that only use numbers, which compilers created with
+ * <code>CompilerFlags#withIntrinsics</code> call directly instead of through the object.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@SupportedAnnotationTypes({
+        MolangBindingProcessor.QUERY,
+        MolangBindingProcessor.FUNCTION,
+        MolangBindingProcessor.VARIABLE
+})
+public class MolangBindingProcessor extends AbstractProcessor {
+
+    static final String QUERY = "gg.moonflower.molangcompiler.api.annotation.MolangQuery";
+    static final String FUNCTION = "gg.moonflower.molangcompiler.api.annotation.MolangFunction";
+    static final String VARIABLE = "gg.moonflower.molangcompiler.api.annotation.MolangVariable";
+    private static final String MOLANG_VALUE = "gg.moonflower.molangcompiler.api.MolangValue";
+    private static final String MOLANG_RUNTIME_EXCEPTION = "gg.moonflower.molangcompiler.api.exception.MolangRuntimeException";
+    private static final Pattern NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final String[] PARAMETER_NAMES = {"a", "b", "c", "d"};
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, Map<String, Member>> types = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            Kind kind = switch (annotation.getQualifiedName().toString()) {
+                case QUERY -> Kind.QUERY;
+                case FUNCTION -> Kind.FUNCTION;
+                case VARIABLE -> Kind.VARIABLE;
+                default -> null;
+            };
+            if (kind == null) {
+                continue;
+            }
+
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                TypeElement owner = (TypeElement) element.getEnclosingElement();
+                // Annotations on record components are copied to the private field and the accessor
+                if (element.getKind() == ElementKind.FIELD && owner.getKind() == ElementKind.RECORD && !element.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+
+                Member member = this.createMember(kind, annotation, owner, element);
+                if (member == null) {
+                    continue;
+                }
+
+                Member existing = types.computeIfAbsent(owner, unused -> new LinkedHashMap<>()).putIfAbsent(member.name(), member);
+                if (existing != null && !existing.javaName().equals(member.javaName())) {
+                    this.error(element, "Duplicate MoLang name '" + member.name() + "', also used by " + existing.javaName());
+                }
+            }
+        }
+
+        for (Map.Entry<TypeElement, Map<String, Member>> entry : types.entrySet()) {
+            try {
+                this.write(entry.getKey(), List.copyOf(entry.getValue().values()));
+            } catch (IOException e) {
+                this.error(entry.getKey(), "Failed to write MoLang bindings: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private Member createMember(Kind kind, TypeElement annotation, TypeElement owner, Element element) {
+        if (owner.getKind() != ElementKind.CLASS && owner.getKind() != ElementKind.RECORD) {
+            this.error(element, "MoLang bindings can only be generated for classes and records");
+            return null;
+        }
+        if (owner.getNestingKind() == NestingKind.LOCAL || owner.getNestingKind() == NestingKind.ANONYMOUS ||
+                (owner.getNestingKind() == NestingKind.MEMBER && !owner.getModifiers().contains(Modifier.STATIC) && owner.getKind() != ElementKind.RECORD)) {
+            this.error(element, "MoLang bindings can only be generated for top-level and static nested classes");
+            return null;
+        }
+        if (!owner.getTypeParameters().isEmpty()) {
+            this.error(element, "MoLang bindings can't be generated for generic classes");
+            return null;
+        }
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            this.error(element, "MoLang members must not be private");
+            return null;
+        }
+
+        String javaName = element.getSimpleName().toString();
+        String name = this.getName(annotation, element);
+        if (!NAME.matcher(name).matches()) {
+            this.error(element, "Invalid MoLang name '" + name + "'");
+            return null;
+        }
+
+        boolean isStatic = element.getModifiers().contains(Modifier.STATIC);
+        boolean isPublic = element.getModifiers().contains(Modifier.PUBLIC) || element.getKind() == ElementKind.RECORD_COMPONENT;
+        switch (element.getKind()) {
+            case FIELD, RECORD_COMPONENT -> {
+                if (kind == Kind.VARIABLE && element.getModifiers().contains(Modifier.FINAL)) {
+                    this.error(element, "MoLang variables must not be final");
+                    return null;
+                }
+                String type = this.getType(element.asType());
+                if (type == null) {
+                    this.error(element, "Unsupported MoLang type: " + element.asType());
+                    return null;
+                }
+                // Record components are read through their accessor
+                boolean isField = element.getKind() == ElementKind.FIELD;
+                return new Member(kind, name, javaName, isStatic, isPublic, isField, List.of(), type);
+            }
+            case METHOD -> {
+                ExecutableElement method = (ExecutableElement) element;
+                if (kind == Kind.QUERY && !method.getParameters().isEmpty()) {
+                    this.error(element, "MoLang queries must not have parameters");
+                    return null;
+                }
+                for (TypeMirror thrown : method.getThrownTypes()) {
+                    // Queries are read through a Supplier, which can't throw checked exceptions
+                    if (!this.isUnchecked(thrown, kind == Kind.FUNCTION)) {
+                        this.error(element, kind == Kind.FUNCTION ? "MoLang functions may only throw MolangRuntimeException" : "MoLang queries must not throw checked exceptions");
+                        return null;
+                    }
+                }
+
+                List<String> parameters = new ArrayList<>(method.getParameters().size());
+                for (VariableElement parameter : method.getParameters()) {
+                    String type = this.getType(parameter.asType());
+                    if (type == null) {
+                        this.error(parameter, "Unsupported MoLang type: " + parameter.asType());
+                        return null;
+                    }
+                    parameters.add(type);
+                }
+
+                String returnType = method.getReturnType().getKind() == TypeKind.VOID && kind == Kind.FUNCTION ? "void" : this.getType(method.getReturnType());
+                if (returnType == null) {
+                    this.error(element, "Unsupported MoLang type: " + method.getReturnType());
+                    return null;
+                }
+                return new Member(kind, name, javaName, isStatic, isPublic, false, parameters, returnType);
+            }
+            default -> {
+                this.error(element, "Unsupported MoLang member");
+                return null;
+            }
+        }
+    }
+
+    private String getName(TypeElement annotation, Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value") && !entry.getValue().getValue().toString().isEmpty()) {
+                    return entry.getValue().getValue().toString();
+                }
+            }
+        }
+        return toSnakeCase(element.getSimpleName().toString());
+    }
+
+    private String getType(TypeMirror type) {
+        return switch (type.getKind()) {
+            case FLOAT -> "float";
+            case DOUBLE -> "double";
+            case INT -> "int";
+            case LONG -> "long";
+            case BOOLEAN -> "boolean";
+            case DECLARED -> switch (this.processingEnv.getTypeUtils().erasure(type).toString()) {
+                case "java.lang.String" -> "String";
+                case MOLANG_VALUE -> "MolangValue";
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+
+    private boolean isUnchecked(TypeMirror thrown, boolean allowRuntimeException) {
+        List<String> allowed = allowRuntimeException ?
+                List.of("java.lang.RuntimeException", "java.lang.Error", MOLANG_RUNTIME_EXCEPTION) :
+                List.of("java.lang.RuntimeException", "java.lang.Error");
+        for (String name : allowed) {
+            TypeElement element = this.processingEnv.getElementUtils().getTypeElement(name);
+            if (element != null && this.processingEnv.getTypeUtils().isAssignable(thrown, element.asType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void write(TypeElement owner, List<Member> members) throws IOException {
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+        String ownerName = owner.getQualifiedName().toString();
+        String simpleName = this.getFlatName(owner) + "MolangBindings";
+        String bindingInternalName = packageName.isEmpty() ? simpleName : packageName.replace('.', '/') + "/" + simpleName;
+        String ownerInternalName = this.processingEnv.getElementUtils().getBinaryName(owner).toString().replace('.', '/');
+        boolean hasInstance = members.stream().anyMatch(member -> !member.isStatic());
+        boolean accessible = this.isAccessible(owner);
+
+        List<String> intrinsics = new ArrayList<>();
+        for (Member member : members) {
+            String descriptor = member.getDescriptor();
+            if (accessible && member.isPublic() && member.kind() != Kind.VARIABLE && descriptor != null) {
+                intrinsics.add("new MolangIntrinsic(\"" + member.name() + "\", " + (member.kind() == Kind.FUNCTION) + ", \"" +
+                        bindingInternalName + "\", \"" + ownerInternalName + "\", \"" + member.javaName() + "\", \"" + descriptor + "\", " + member.isStatic() + ")");
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createSourceFile((packageName.isEmpty() ? "" : packageName + ".") + simpleName, owner).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import gg.moonflower.molangcompiler.api.MolangExpression;");
+            out.println("import gg.moonflower.molangcompiler.api.MolangValue;");
+            out.println("import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;");
+            out.println("import gg.moonflower.molangcompiler.api.bridge.MolangVariable;");
+            out.println("import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;");
+            out.println("import gg.moonflower.molangcompiler.api.object.MolangObject;");
+            out.println();
+            out.println("import java.util.Collection;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Objects;");
+            out.println();
+            out.println("/**");
+            out.println(" * MoLang bindings for {@link " + ownerName + "}.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + MolangBindingProcessor.class.getName() + "\")");
+            out.println("public final class " + simpleName + " implements MolangObject {");
+            out.println();
+            out.println("    /**");
+            out.println("     * The members compiled expressions can access directly.");
+            out.println("     *");
+            out.println("     * @see gg.moonflower.molangcompiler.api.CompilerFlags#withIntrinsics(String, Collection)");
+            out.println("     */");
+            out.println("    public static final List<MolangIntrinsic> INTRINSICS = List.of(" + (intrinsics.isEmpty() ? ");" : ""));
+            for (int i = 0; i < intrinsics.size(); i++) {
+                out.println("            " + intrinsics.get(i) + (i < intrinsics.size() - 1 ? "," : ""));
+            }
+            if (!intrinsics.isEmpty()) {
+                out.println("    );");
+            }
+            out.println("    private static final List<String> KEYS = List.of(" + members.stream().map(member -> "\"" + member.name() + "\"").collect(Collectors.joining(", ")) + ");");
+            out.println();
+            if (hasInstance) {
+                out.println("    private final " + ownerName + " instance;");
+            }
+            out.println("    private final MolangExpression[] expressions;");
+            out.println();
+            if (hasInstance) {
+                out.println("    public " + simpleName + "(" + ownerName + " instance) {");
+                out.println("        this.instance = Objects.requireNonNull(instance, \"instance\");");
+            } else {
+                out.println("    public " + simpleName + "() {");
+            }
+            out.println("        this.expressions = new MolangExpression[" + members.size() + "];");
+            out.println("    }");
+            out.println();
+            if (hasInstance) {
+                out.println("    /**");
+                out.println("     * @return The object the members are accessed on");
+                out.println("     */");
+                out.println("    public " + ownerName + " instance() {");
+                out.println("        return this.instance;");
+                out.println("    }");
+                out.println();
+            }
+            out.println("    private static int indexOf(String name) {");
+            out.println("        return switch (name) {");
+            for (int i = 0; i < members.size(); i++) {
+                out.println("            case \"" + members.get(i).name() + "\" -> " + i + ";");
+            }
+            out.println("            default -> -1;");
+            out.println("        };");
+            out.println("    }");
+            out.println();
+            out.println("    private MolangExpression create(int index) {");
+            out.println("        return switch (index) {");
+            for (int i = 0; i < members.size(); i++) {
+                out.println("            case " + i + " -> " + members.get(i).getExpression(members.get(i).isStatic() ? ownerName : "this.instance") + ";");
+            }
+            out.println("            default -> throw new IndexOutOfBoundsException(index);");
+            out.println("        };");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public MolangExpression get(String name) throws MolangRuntimeException {");
+            out.println("        int index = indexOf(name);");
+            out.println("        if (index == -1) {");
+            out.println("            throw new MolangRuntimeException(\"Unknown MoLang expression: \" + name);");
+            out.println("        }");
+            out.println("        MolangExpression expression = this.expressions[index];");
+            out.println("        if (expression == null) {");
+            out.println("            expression = this.create(index);");
+            out.println("            this.expressions[index] = expression;");
+            out.println("        }");
+            out.println("        return expression;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void set(String name, MolangExpression value) throws MolangRuntimeException {");
+            out.println("        throw new MolangRuntimeException(\"Cannot set values to " + owner.getSimpleName() + "\");");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void remove(String name) throws MolangRuntimeException {");
+            out.println("        throw new MolangRuntimeException(\"Cannot remove values from " + owner.getSimpleName() + "\");");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public boolean has(String name) {");
+            out.println("        return indexOf(name) != -1;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Collection<String> getKeys() {");
+            out.println("        return KEYS;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public boolean isMutable() {");
+            out.println("        return false;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String toString() {");
+            out.println("        return \"" + simpleName + "\" + KEYS;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private String getFlatName(TypeElement type) {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement outer) {
+            return this.getFlatName(outer) + "_" + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    /**
+     * Classes in other packages, like the classes compiled expressions are defined in, can only access public members of public classes.
+     */
+    private boolean isAccessible(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toSnakeCase(String name) {
+        StringBuilder builder = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0 && name.charAt(i - 1) != '_') {
+                    builder.append('_');
+                }
+                builder.append(Character.toLowerCase(c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private enum Kind {
+        QUERY, FUNCTION, VARIABLE
+    }
+
+    /**
+     * @param parameters The type of each parameter
+     * @param type       The type of the field or the return type of the method
+     */
+    private record Member(Kind kind, String name, String javaName, boolean isStatic, boolean isPublic, boolean isField,
+                          List<String> parameters, String type) {
+
+        /**
+         * @return The JVM descriptor of the member, or <code>null</code> if compiled code can't access it directly
+         */
+        String getDescriptor() {
+            String type = this.type.equals("boolean") ? "Z" : getNumberDescriptor(this.type);
+            if (type == null) {
+                return null;
+            }
+            if (this.isField) {
+                return type;
+            }
+
+            StringBuilder builder = new StringBuilder("(");
+            for (String parameter : this.parameters) {
+                String descriptor = getNumberDescriptor(parameter);
+                if (descriptor == null) {
+                    return null;
+                }
+                builder.append(descriptor);
+            }
+            return builder.append(')').append(type).toString();
+        }
+
+        private static String getNumberDescriptor(String type) {
+            return switch (type) {
+                case "float" -> "F";
+                case "double" -> "D";
+                case "int" -> "I";
+                case "long" -> "J";
+                default -> null;
+            };
+        }
+
+        String getExpression(String receiver) {
+            String access = receiver + "." + this.javaName + (this.isField ? "" : "()");
+            return switch (this.kind) {
+                case QUERY -> "MolangExpression.of(() -> " + toValue(this.type, access) + ")";
+                case VARIABLE -> "MolangExpression.of(MolangVariable.of(() -> " + toValue(this.type, access) + ", value -> " + access + " = " + fromValue(this.type, "value") + "))";
+                case FUNCTION -> {
+                    int count = this.parameters.size();
+                    if (count <= PARAMETER_NAMES.length && this.type.equals("float") && this.parameters.stream().allMatch("float"::equals)) {
+                        String names = String.join(", ", Arrays.copyOf(PARAMETER_NAMES, count));
+                        yield "MolangExpression.floatFunction((" + names + ") -> " + receiver + "." + this.javaName + "(" + names + "))";
+                    }
+
+                    StringJoiner arguments = new StringJoiner(", ", receiver + "." + this.javaName + "(", ")");
+                    for (int i = 0; i < count; i++) {
+                        arguments.add(fromValue(this.parameters.get(i), "context.get(" + i + ")"));
+                    }
+                    if (this.type.equals("void")) {
+                        yield "MolangExpression.function(" + count + ", context -> {\n                " + arguments + ";\n                return MolangValue.NULL;\n            })";
+                    }
+                    yield "MolangExpression.function(" + count + ", context -> " + toValue(this.type, arguments.toString()) + ")";
+                }
+            };
+        }
+
+        private static String toValue(String type, String value) {
+            return switch (type) {
+                case "double", "int", "long" -> "MolangValue.of((float) " + value + ")";
+                case "MolangValue" -> value;
+                default -> "MolangValue.of(" + value + ")";
+            };
+        }
+
+        private static String fromValue(String type, String value) {
+            return switch (type) {
+                case "float" -> value + ".asFloat()";
+                case "double", "int", "long" -> "(" + type + ") " + value + ".asFloat()";
+                case "boolean" -> value + ".asBoolean()";
+                case "String" -> value + ".asString()";
+                default -> value;
+            };
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package gg.moonflower.molangcompiler.benchmark;
+
+import gg.moonflower.molangcompiler.api.CompilerFlag;
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangCompiler;
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangRuntime;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating animation expressions with {@link MolangEnvironment#resolve(MolangExpression)} followed by
+ * {@code asFloat()} against {@link MolangEnvironment#resolveFloat(MolangExpression)}.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=FloatEvaluationBenchmark -PjmhProfilers=gc}. Pure math expressions
+ * should report a {@code gc.alloc.rate.norm} of 0 bytes per operation for {@code resolveFloat}.
+ *
+ * @author Ocelot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloatEvaluationBenchmark {
+
+    @Param({
+            "math.sin(q.anim_time * 90) * 30",
+            "math.clamp(q.anim_time / 4, 0, 1) * math.lerp(10, -10, q.anim_time - q.delta)",
+            "q.anim_time > 2 ? math.cos(q.anim_time * 45) * 12 : -math.abs(q.delta)"
+    })
+    public String source;
+
+    private MolangEnvironment runtime;
+    private MolangExpression expression;
+
+    @Setup
+    public void setup() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE), FloatEvaluationBenchmark.class.getClassLoader());
+        this.expression = compiler.compile(this.source);
+        this.runtime = MolangRuntime.runtime()
+                .setQuery("anim_time", 3.25F)
+                .setQuery("delta", 0.05F)
+                .create();
+    }
+
+    @Benchmark
+    public float resolve() throws MolangException {
+        return this.runtime.resolve(this.expression).asFloat();
+    }
+
+    @Benchmark
+    public float resolveFloat() throws MolangException {
+        return this.runtime.resolveFloat(this.expression);
+    }
+}
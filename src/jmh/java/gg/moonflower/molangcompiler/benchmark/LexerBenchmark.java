@@ -0,0 +1,87 @@
+package gg.moonflower.molangcompiler.benchmark;
+
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.impl.compiler.MolangLexer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link MolangLexer} against the old {@link RegexMolangLexer} on a corpus of real expressions.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=LexerBenchmark}.
+ *
+ * @author Ocelot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    /**
+     * How many times the corpus is concatenated into a single script. Larger scripts expose the
+     * quadratic cost of copying the remaining input for every token.
+     */
+    @Param({"1", "4"})
+    public int repeat;
+
+    private String[] corpus;
+    private String script;
+
+    @Setup
+    public void setup() throws IOException, MolangSyntaxException {
+        this.corpus = loadCorpus();
+        this.script = String.join("\n", Arrays.stream(this.corpus).map(line -> line.endsWith(";") ? line : line + ";").toArray(String[]::new)).repeat(this.repeat);
+
+        for (String line : this.corpus) {
+            if (!Arrays.equals(MolangLexer.createTokens(line), RegexMolangLexer.createTokens(line))) {
+                throw new IllegalStateException("Lexers disagree on: " + line);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scannerCorpus(Blackhole blackhole) throws MolangSyntaxException {
+        for (String line : this.corpus) {
+            blackhole.consume(MolangLexer.createTokens(line));
+        }
+    }
+
+    @Benchmark
+    public void regexCorpus(Blackhole blackhole) throws MolangSyntaxException {
+        for (String line : this.corpus) {
+            blackhole.consume(RegexMolangLexer.createTokens(line));
+        }
+    }
+
+    @Benchmark
+    public MolangLexer.Token[] scannerScript() throws MolangSyntaxException {
+        return MolangLexer.createTokens(this.script);
+    }
+
+    @Benchmark
+    public MolangLexer.Token[] regexScript() throws MolangSyntaxException {
+        return RegexMolangLexer.createTokens(this.script);
+    }
+
+    static String[] loadCorpus() throws IOException {
+        try (InputStream stream = LexerBenchmark.class.getResourceAsStream("/corpus.molang")) {
+            if (stream == null) {
+                throw new IOException("Missing corpus.molang");
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                return reader.lines().filter(line -> !line.isBlank()).toArray(String[]::new);
+            }
+        }
+    }
+}
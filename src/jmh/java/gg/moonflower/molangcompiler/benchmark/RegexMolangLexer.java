@@ -0,0 +1,89 @@
+package gg.moonflower.molangcompiler.benchmark;
+
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.impl.compiler.MolangLexer;
+import gg.moonflower.molangcompiler.impl.reader.StringReader;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-driven lexer used before 4.1.0, kept as a baseline for {@link LexerBenchmark}.
+ *
+ * @author Ocelot
+ */
+public final class RegexMolangLexer {
+
+    private static final Map<MolangLexer.TokenType, Pattern> PATTERNS = new EnumMap<>(MolangLexer.TokenType.class);
+
+    static {
+        PATTERNS.put(MolangLexer.TokenType.RETURN, Pattern.compile("return(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.LOOP, Pattern.compile("loop(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.CONTINUE, Pattern.compile("continue(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.BREAK, Pattern.compile("break(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.IF, Pattern.compile("if(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.ELSE, Pattern.compile("else(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.THIS, Pattern.compile("this(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.TRUE, Pattern.compile("true(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.FALSE, Pattern.compile("false(?![A-Za-z0-9_])"));
+        PATTERNS.put(MolangLexer.TokenType.STRING, Pattern.compile("\"([^\"\\\\]|\\\\.)*\"|'([^'\\\\]|\\\\.)*'"));
+        PATTERNS.put(MolangLexer.TokenType.NUMERAL, Pattern.compile("\\d+"));
+        PATTERNS.put(MolangLexer.TokenType.ALPHANUMERIC, Pattern.compile("[A-Za-z_][A-Za-z0-9_]*"));
+        PATTERNS.put(MolangLexer.TokenType.NULL_COALESCING, Pattern.compile("\\?\\?"));
+        PATTERNS.put(MolangLexer.TokenType.INCREMENT, Pattern.compile("\\+\\+"));
+        PATTERNS.put(MolangLexer.TokenType.DECREMENT, Pattern.compile("\\-\\-"));
+        PATTERNS.put(MolangLexer.TokenType.SPECIAL, Pattern.compile("[<>&|!?:]"));
+        PATTERNS.put(MolangLexer.TokenType.BINARY_OPERATION, Pattern.compile("[-+*/]"));
+        PATTERNS.put(MolangLexer.TokenType.LEFT_PARENTHESIS, Pattern.compile("\\("));
+        PATTERNS.put(MolangLexer.TokenType.RIGHT_PARENTHESIS, Pattern.compile("\\)"));
+        PATTERNS.put(MolangLexer.TokenType.LEFT_BRACE, Pattern.compile("\\{"));
+        PATTERNS.put(MolangLexer.TokenType.RIGHT_BRACE, Pattern.compile("\\}"));
+        PATTERNS.put(MolangLexer.TokenType.LEFT_BRACKET, Pattern.compile("\\["));
+        PATTERNS.put(MolangLexer.TokenType.RIGHT_BRACKET, Pattern.compile("\\]"));
+        PATTERNS.put(MolangLexer.TokenType.DOT, Pattern.compile("\\."));
+        PATTERNS.put(MolangLexer.TokenType.COMMA, Pattern.compile("\\,"));
+        PATTERNS.put(MolangLexer.TokenType.EQUAL, Pattern.compile("="));
+        PATTERNS.put(MolangLexer.TokenType.SEMICOLON, Pattern.compile(";"));
+    }
+
+    public static MolangLexer.Token[] createTokens(String input) throws MolangSyntaxException {
+        StringReader reader = new StringReader(input);
+        List<MolangLexer.Token> tokens = new ArrayList<>();
+
+        while (reader.canRead()) {
+            reader.skipWhitespace();
+            MolangLexer.Token token = getToken(reader);
+            if (token == null) {
+                continue;
+            }
+            if (!tokens.isEmpty()) {
+                MolangLexer.Token lastToken = tokens.get(tokens.size() - 1);
+                if (lastToken.type() == MolangLexer.TokenType.RIGHT_BRACE && token.type() != MolangLexer.TokenType.SEMICOLON) {
+                    tokens.add(new MolangLexer.Token(MolangLexer.TokenType.SEMICOLON, ";"));
+                }
+            }
+            tokens.add(token);
+        }
+
+        return tokens.toArray(MolangLexer.Token[]::new);
+    }
+
+    private static MolangLexer.Token getToken(StringReader reader) throws MolangSyntaxException {
+        String word = reader.getString().substring(reader.getCursor());
+        if (word.isBlank()) {
+            return null;
+        }
+        for (Map.Entry<MolangLexer.TokenType, Pattern> entry : PATTERNS.entrySet()) {
+            Matcher matcher = entry.getValue().matcher(word);
+            if (matcher.find() && matcher.start() == 0) {
+                reader.skip(matcher.end());
+                return new MolangLexer.Token(entry.getKey(), word.substring(0, matcher.end()));
+            }
+        }
+        throw new MolangSyntaxException("Unknown Token", reader.getString(), reader.getCursor());
+    }
+}
@@ -0,0 +1,78 @@
+package gg.moonflower.molangcompiler.benchmark;
+
+import gg.moonflower.molangcompiler.api.CompilerFlag;
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangCompiler;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a fresh compiler takes to load a pack of expressions, with and without the persistent class cache.
+ * <ul>
+ *     <li>{@code none} compiles every expression from scratch</li>
+ *     <li>{@code cold} compiles every expression and writes it to an empty cache directory</li>
+ *     <li>{@code warm} defines every expression from a cache directory filled by a previous run</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=StartupBenchmark}.
+ *
+ * @author Ocelot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final CompilerFlags FLAGS = CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE);
+    private static final int PACK_SIZE = 2000;
+
+    @Param({"none", "cold", "warm"})
+    public String cache;
+
+    private String[] sources;
+    private Path warmDirectory;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException, MolangSyntaxException {
+        String[] corpus = LexerBenchmark.loadCorpus();
+        this.sources = new String[PACK_SIZE];
+        for (int i = 0; i < PACK_SIZE; i++) {
+            // Every source must be unique to generate a new class
+            this.sources[i] = "v.pack_index = " + i + "; " + corpus[i % corpus.length];
+        }
+
+        this.warmDirectory = Files.createTempDirectory("molang-startup");
+        MolangCompiler compiler = MolangCompiler.create(FLAGS, StartupBenchmark.class.getClassLoader(), this.warmDirectory);
+        for (String source : this.sources) {
+            compiler.compile(source);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() throws IOException {
+        this.directory = switch (this.cache) {
+            case "cold" -> Files.createTempDirectory("molang-startup");
+            case "warm" -> this.warmDirectory;
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public void compilePack(Blackhole blackhole) throws IOException, MolangSyntaxException {
+        MolangCompiler compiler = this.directory != null ?
+                MolangCompiler.create(FLAGS, StartupBenchmark.class.getClassLoader(), this.directory) :
+                MolangCompiler.create(FLAGS, StartupBenchmark.class.getClassLoader());
+        for (String source : this.sources) {
+            blackhole.consume(compiler.compile(source));
+        }
+    }
+}
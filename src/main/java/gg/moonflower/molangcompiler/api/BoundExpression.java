@@ -0,0 +1,133 @@
+package gg.moonflower.molangcompiler.api;
+
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.MolangUtil;
+import gg.moonflower.molangcompiler.impl.node.MolangFunctionNode;
+import gg.moonflower.molangcompiler.impl.object.MolangSlots;
+
+import java.util.Locale;
+
+/**
+ * An expression that has been checked against an environment with {@link MolangExpression#bind(MolangEnvironment)}.
+ * <p>
+ * Binding looks up every object, function, and variable the expression uses, so a missing library or function is
+ * reported once instead of on every evaluation. Compiled expressions cache these lookups by the layout of each object,
+ * so evaluating in any environment with the same libraries and variables never looks up a name again.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public final class BoundExpression {
+
+    private final MolangExpression expression;
+    private final MolangEnvironment environment;
+
+    BoundExpression(MolangExpression expression, MolangEnvironment environment) throws MolangRuntimeException {
+        this.expression = expression;
+        this.environment = environment;
+        for (String reference : expression.getReferences()) {
+            try {
+                resolve(environment, reference);
+            } catch (MolangException e) {
+                throw new MolangRuntimeException("Failed to bind '" + expression + "': " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void resolve(MolangEnvironment environment, String reference) throws MolangException {
+        int dot = reference.indexOf('.');
+        MolangObject object = getObject(environment, reference.substring(0, dot));
+
+        int bracket = reference.indexOf('(', dot);
+        if (bracket == -1) {
+            object.get(reference.substring(dot + 1));
+            return;
+        }
+
+        String function = reference.substring(dot + 1, bracket);
+        int arguments = Integer.parseInt(reference.substring(bracket + 1, reference.length() - 1));
+        MolangExpression expression = MolangUtil.getFunction(object, function, function + "$" + arguments);
+        if (expression instanceof MolangFunctionNode functionNode && functionNode.getParameters() > arguments) {
+            throw new MolangRuntimeException("Function requires " + functionNode.getParameters() + " parameters");
+        }
+    }
+
+    private static MolangObject getObject(MolangEnvironment environment, String name) throws MolangRuntimeException {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        return switch (lowerName) {
+            case "context", "c" -> environment.getContext();
+            case "query", "q" -> environment.getQuery();
+            case "global" -> environment.getGlobal();
+            case "variable", "v" -> environment.getVariable();
+            // Also fills the object cache used by compiled expressions
+            default -> environment instanceof MolangRuntime runtime ?
+                    runtime.getObject(MolangSlots.getObject(lowerName), name) :
+                    environment.get(name);
+        };
+    }
+
+    /**
+     * Evaluates the expression in the bound environment.
+     *
+     * @return The resulting value
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     */
+    public MolangValue get() throws MolangRuntimeException {
+        return this.environment.resolve(this.expression);
+    }
+
+    /**
+     * Evaluates the expression in the bound environment as a float.
+     *
+     * @return The resulting value as a float
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     */
+    public float getFloat() throws MolangRuntimeException {
+        return this.environment.resolveFloat(this.expression);
+    }
+
+    /**
+     * Evaluates the expression in another environment. The environment should have the same libraries as the bound
+     * environment, since they are not checked again.
+     *
+     * @param environment The environment to evaluate in
+     * @return The resulting value
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     */
+    public MolangValue get(MolangEnvironment environment) throws MolangRuntimeException {
+        return environment.resolve(this.expression);
+    }
+
+    /**
+     * Evaluates the expression in another environment as a float. The environment should have the same libraries as
+     * the bound environment, since they are not checked again.
+     *
+     * @param environment The environment to evaluate in
+     * @return The resulting value as a float
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     */
+    public float getFloat(MolangEnvironment environment) throws MolangRuntimeException {
+        return environment.resolveFloat(this.expression);
+    }
+
+    /**
+     * @return The expression that was bound
+     */
+    public MolangExpression getExpression() {
+        return this.expression;
+    }
+
+    /**
+     * @return The environment the expression was bound to
+     */
+    public MolangEnvironment getEnvironment() {
+        return this.environment;
+    }
+
+    @Override
+    public String toString() {
+        return this.expression.toString();
+    }
+}
@@ -3,12 +3,64 @@ package gg.moonflower.molangcompiler.api;
 public enum CompilerFlag {
     /**
      * Whether to reduce math to constant values if possible. E.g. <code>4 * 4 + 2</code> would become <code>18</code>. This should almost always be on.
+     * Math that is repeated in a single expression, like <code>math.sin(q.anim_time * 90)</code>, is also only computed once.
      */
     OPTIMIZE,
     /**
      * Whether to write the java bytecode to a class file. This is only for debugging.
      */
     WRITE_CLASSES,
-    PRINT_CLASSES
+    PRINT_CLASSES,
+    /**
+     * Whether to skip the compiled expression cache. Every call to {@link MolangCompiler#compile(String)} will lex, parse, and generate a new expression.
+     *
+     * @since 4.1.0
+     */
+    DISABLE_CACHE,
+    /**
+     * Whether to define each generated class as a hidden class instead of through the compiler's class loader.
+     * Hidden classes are unloaded as soon as the expressions using them are no longer reachable, instead of when the whole compiler is.
+     * <p>
+     * Expressions held by the compiled expression cache stay reachable, so this should be combined with {@link #DISABLE_CACHE}
+     * or {@link MolangCompiler#clearCache()} when classes need to be unloaded.
+     * <p>
+     * Hidden classes are defined next to the compiler itself, so they only see classes visible to the library's class loader.
+     * The parent class loader passed to {@link MolangCompiler#create(CompilerFlags, ClassLoader)} is not used, and
+     * {@linkplain CompilerFlags#withIntrinsics(String, java.util.Collection) intrinsics} for classes only that loader can see
+     * are silently looked up by name instead.
+     *
+     * @since 4.1.0
+     */
+    HIDDEN_CLASSES,
+    /**
+     * Whether to interpret expressions until they are hot enough to be worth compiling.
+     * Expressions start out walking the parsed source and are compiled once they have been evaluated {@link CompilerFlags#getTierUpThreshold()} times.
+     * This avoids generating classes for expressions that only run a few times.
+     *
+     * @see MolangCompiler#addTierUpListener(java.util.function.Consumer)
+     * @since 4.1.0
+     */
+    TIERED,
+    /**
+     * Whether {@link #TIERED} expressions are compiled on a background thread. The expression keeps being interpreted until compilation finishes.
+     * This has no effect unless {@link #TIERED} is also set.
+     *
+     * @since 4.1.0
+     */
+    BACKGROUND_TIER_UP,
+    /**
+     * Whether to evaluate every expression with an interpreter instead of generating classes.
+     * This is intended for environments where defining classes is slow or not allowed, and for expressions that are only evaluated a few times.
+     * Interpreted expressions give the same results as compiled ones, with a few known differences:
+     * <ul>
+     *     <li>Expressions the compiler can't generate valid classes for, like reading a variable that is only set after a <code>continue</code>
+     *     in a loop, are evaluated anyway. A variable whose store never ran is read from its object again, or {@link MolangValue#NULL} if it was never set.</li>
+     *     <li>Expressions are slower to evaluate, but nothing is generated, so the first evaluation is faster.</li>
+     * </ul>
+     * {@link #TIERED} and the persistent cache have no effect when this is set.
+     *
+     * @since 4.1.0
+     */
+    INTERPRET
 
 }
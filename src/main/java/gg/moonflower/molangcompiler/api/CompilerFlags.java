@@ -1,8 +1,9 @@
 package gg.moonflower.molangcompiler.api;
 
-import java.util.EnumSet;
-import java.util.Objects;
-import java.util.Set;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
 
 /**
  * Immutable set of compiler flags that control compilation behavior.
@@ -30,18 +31,31 @@ public class CompilerFlags {
      */
     public static final CompilerFlags DEFAULT = of(CompilerFlag.OPTIMIZE);
 
+    /**
+     * The default number of times a {@link CompilerFlag#TIERED tiered} expression is interpreted before it is compiled.
+     *
+     * @since 4.1.0
+     */
+    public static final int DEFAULT_TIER_UP_THRESHOLD = 1000;
+
     private final Set<CompilerFlag> set;
+    private final int tierUpThreshold;
+    private final Set<String> floatHints;
+    private final Map<String, MolangIntrinsic> intrinsics;
 
     private CompilerFlags() {
-        this.set = EnumSet.noneOf(CompilerFlag.class);
+        this(EnumSet.noneOf(CompilerFlag.class), DEFAULT_TIER_UP_THRESHOLD, Collections.emptySet(), Collections.emptyMap());
     }
 
     private CompilerFlags(CompilerFlag first, CompilerFlag... flags) {
-        this.set = EnumSet.of(first, flags);
+        this(EnumSet.of(first, flags), DEFAULT_TIER_UP_THRESHOLD, Collections.emptySet(), Collections.emptyMap());
     }
 
-    private CompilerFlags(Set<CompilerFlag> set) {
+    private CompilerFlags(Set<CompilerFlag> set, int tierUpThreshold, Set<String> floatHints, Map<String, MolangIntrinsic> intrinsics) {
         this.set = set;
+        this.tierUpThreshold = tierUpThreshold;
+        this.floatHints = floatHints;
+        this.intrinsics = intrinsics;
     }
 
     /**
@@ -56,7 +70,137 @@ public class CompilerFlags {
     public CompilerFlags add(CompilerFlag flag) {
         var newFlags = EnumSet.copyOf(set);
         newFlags.add(flag);
-        return new CompilerFlags(newFlags);
+        return new CompilerFlags(newFlags, this.tierUpThreshold, this.floatHints, this.intrinsics);
+    }
+
+    /**
+     * Creates a new {@link CompilerFlags} instance with a different tier-up threshold.
+     * <p>
+     * This method does not modify the current instance.
+     * </p>
+     *
+     * @param tierUpThreshold The number of times a {@link CompilerFlag#TIERED tiered} expression is interpreted before it is compiled.
+     *                        <code>1</code> compiles expressions the first time they are evaluated
+     * @return A new CompilerFlags instance with the threshold changed
+     * @throws IllegalArgumentException If the threshold is less than <code>1</code>
+     * @since 4.1.0
+     */
+    public CompilerFlags withTierUpThreshold(int tierUpThreshold) {
+        if (tierUpThreshold < 1) {
+            throw new IllegalArgumentException("Tier-up threshold must be at least 1");
+        }
+        return new CompilerFlags(set, tierUpThreshold, floatHints, intrinsics);
+    }
+
+    /**
+     * @return The number of times a {@link CompilerFlag#TIERED tiered} expression is interpreted before it is compiled
+     * @since 4.1.0
+     */
+    public int getTierUpThreshold() {
+        return tierUpThreshold;
+    }
+
+    /**
+     * Creates a new {@link CompilerFlags} instance that declares the specified variables as always being floats.
+     * <p>
+     * Arithmetic and comparisons on hinted variables are compiled to primitive float instructions instead of
+     * calling into {@link MolangValue}. Reading a hinted variable always produces a float, so any other value the
+     * host stores in it is converted with {@link MolangValue#asFloat()}.
+     * Variables are specified as <code>object.name</code>, for example <code>query.anim_time</code> or <code>q.anim_time</code>.
+     * </p>
+     * <p>
+     * This method does not modify the current instance.
+     * </p>
+     *
+     * @param variables The variables to declare as floats
+     * @return A new CompilerFlags instance with the hints added
+     * @throws IllegalArgumentException If a variable is not in the form <code>object.name</code>
+     * @since 4.1.0
+     */
+    public CompilerFlags withFloatHints(String... variables) {
+        Set<String> hints = new TreeSet<>(this.floatHints);
+        for (String variable : variables) {
+            int dot = variable.indexOf('.');
+            if (dot <= 0 || dot == variable.length() - 1) {
+                throw new IllegalArgumentException("Expected object.name, got '" + variable + "'");
+            }
+            hints.add(normalizeVariable(variable.substring(0, dot), variable.substring(dot + 1)));
+        }
+        return new CompilerFlags(set, tierUpThreshold, Collections.unmodifiableSet(hints), intrinsics);
+    }
+
+    /**
+     * @return The variables declared as always being floats, with their objects in their full form
+     * @since 4.1.0
+     */
+    public Set<String> getFloatHints() {
+        return floatHints;
+    }
+
+    /**
+     * Checks if a variable was declared as always being a float with {@link #withFloatHints(String...)}.
+     *
+     * @param object The object the variable is in, for example <code>q</code> or <code>query</code>
+     * @param name   The name of the variable
+     * @return Whether reading the variable always produces a float
+     * @since 4.1.0
+     */
+    public boolean hasFloatHint(String object, String name) {
+        return !floatHints.isEmpty() && floatHints.contains(normalizeVariable(object, name));
+    }
+
+    /**
+     * Creates a new {@link CompilerFlags} instance that lets compiled expressions access the specified members directly.
+     * <p>
+     * The intrinsics are usually the <code>INTRINSICS</code> of a binding generated by the <code>molang-processor</code>
+     * annotation processor, and the object is the name the binding is loaded into the runtime as. Compiled code checks
+     * that the object is the binding before every access, and otherwise looks the name up normally. Members of classes
+     * the compiler's class loader can't see are never accessed directly, and no error is reported for them. With
+     * {@link CompilerFlag#HIDDEN_CLASSES} that is the class loader of this library rather than the parent passed to
+     * {@link MolangCompiler#create(CompilerFlags, ClassLoader)}, so intrinsics for classes loaded by a plugin or mod
+     * loader are usually skipped.
+     * </p>
+     * <p>
+     * Queries are read each time they appear instead of once per evaluation.
+     * </p>
+     * <p>
+     * This method does not modify the current instance.
+     * </p>
+     *
+     * @param object     The name of the object the intrinsics are accessed through, for example <code>query</code> or <code>entity</code>
+     * @param intrinsics The members to access directly
+     * @return A new CompilerFlags instance with the intrinsics added
+     * @since 4.1.0
+     */
+    public CompilerFlags withIntrinsics(String object, Collection<MolangIntrinsic> intrinsics) {
+        Map<String, MolangIntrinsic> map = new TreeMap<>(this.intrinsics);
+        for (MolangIntrinsic intrinsic : intrinsics) {
+            map.put(normalizeVariable(object, intrinsic.name()), intrinsic);
+        }
+        return new CompilerFlags(set, tierUpThreshold, floatHints, Collections.unmodifiableMap(map));
+    }
+
+    /**
+     * Retrieves the intrinsic added with {@link #withIntrinsics(String, Collection)} for a name.
+     *
+     * @param object The object the name is in, for example <code>q</code> or <code>query</code>
+     * @param name   The name of the value or function
+     * @return The intrinsic or <code>null</code> if the name must be looked up
+     * @since 4.1.0
+     */
+    public @Nullable MolangIntrinsic getIntrinsic(String object, String name) {
+        return intrinsics.isEmpty() ? null : intrinsics.get(normalizeVariable(object, name));
+    }
+
+    private static String normalizeVariable(String object, String name) {
+        String fullObject = switch (object.toLowerCase(Locale.ROOT)) {
+            case "q" -> "query";
+            case "v" -> "variable";
+            case "t" -> "temp";
+            case "c" -> "context";
+            default -> object.toLowerCase(Locale.ROOT);
+        };
+        return fullObject + "." + name;
     }
 
     /**
@@ -96,11 +240,31 @@ public class CompilerFlags {
     public boolean equals(Object object) {
         if (object == null || getClass() != object.getClass()) return false;
         CompilerFlags that = (CompilerFlags) object;
-        return Objects.equals(set, that.set);
+        return tierUpThreshold == that.tierUpThreshold && Objects.equals(set, that.set) && Objects.equals(floatHints, that.floatHints) && Objects.equals(intrinsics, that.intrinsics);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(set);
+        return Objects.hash(set, tierUpThreshold, floatHints, intrinsics);
+    }
+
+    @Override
+    public String toString() {
+        if (this.tierUpThreshold == DEFAULT_TIER_UP_THRESHOLD && this.floatHints.isEmpty() && this.intrinsics.isEmpty()) {
+            return "CompilerFlags" + this.set;
+        }
+
+        // Part of the name of every generated class, so everything that changes the generated code must be included
+        StringJoiner joiner = new StringJoiner(", ", "CompilerFlags" + this.set + "{", "}");
+        if (this.tierUpThreshold != DEFAULT_TIER_UP_THRESHOLD) {
+            joiner.add("tierUpThreshold=" + this.tierUpThreshold);
+        }
+        if (!this.floatHints.isEmpty()) {
+            joiner.add("floatHints=" + this.floatHints);
+        }
+        if (!this.intrinsics.isEmpty()) {
+            joiner.add("intrinsics=" + this.intrinsics);
+        }
+        return joiner.toString();
     }
 }
@@ -0,0 +1,48 @@
+package gg.moonflower.molangcompiler.api;
+
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of compiling many expressions at once with {@link MolangCompiler#compileAll(Map)}.
+ * <p>
+ * Both maps iterate in the same order as the sources passed to the compiler. Every source appears in exactly one of them.
+ *
+ * @param expressions All sources that compiled successfully
+ * @param errors      The reason each remaining source failed to compile
+ * @param classSizes  The size in bytes of each class generated to hold the expressions
+ * @param <K>         The type of key used to identify each source
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public record MolangBatchResult<K>(Map<K, MolangExpression> expressions,
+                                   Map<K, MolangSyntaxException> errors,
+                                   List<Integer> classSizes) {
+
+    /**
+     * @return Whether any source failed to compile
+     */
+    public boolean hasErrors() {
+        return !this.errors.isEmpty();
+    }
+
+    /**
+     * @return The number of classes that were defined for this batch
+     */
+    public int classCount() {
+        return this.classSizes.size();
+    }
+
+    /**
+     * @return The total size in bytes of all classes defined for this batch
+     */
+    public long totalClassSize() {
+        long size = 0;
+        for (int classSize : this.classSizes) {
+            size += classSize;
+        }
+        return size;
+    }
+}
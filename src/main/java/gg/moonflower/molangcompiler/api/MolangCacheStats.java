@@ -0,0 +1,35 @@
+package gg.moonflower.molangcompiler.api;
+
+/**
+ * A snapshot of the compiled expression cache of a {@link MolangCompiler}.
+ *
+ * @param hitCount      The number of compilations that were served from the cache
+ * @param missCount     The number of compilations that had to lex, parse, and generate a new expression
+ * @param evictionCount The number of expressions removed to keep the cache within its bounds
+ * @param size          The number of expressions currently cached
+ * @param weight        The total weight of all cached expressions, measured in source characters
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public record MolangCacheStats(long hitCount, long missCount, long evictionCount, int size, long weight) {
+
+    /**
+     * Statistics of a compiler that does not cache expressions.
+     */
+    public static final MolangCacheStats EMPTY = new MolangCacheStats(0, 0, 0, 0, 0);
+
+    /**
+     * @return The total number of compilations requested
+     */
+    public long requestCount() {
+        return this.hitCount + this.missCount;
+    }
+
+    /**
+     * @return The ratio of requests that were served from the cache, or <code>1.0</code> if nothing was requested yet
+     */
+    public double hitRate() {
+        long requests = this.requestCount();
+        return requests == 0 ? 1.0 : (double) this.hitCount / requests;
+    }
+}
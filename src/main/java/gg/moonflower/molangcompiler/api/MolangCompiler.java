@@ -3,6 +3,16 @@ package gg.moonflower.molangcompiler.api;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import gg.moonflower.molangcompiler.impl.MolangCompilerImpl;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
 /**
  * <p>Compiles a {@link MolangExpression} from a string input.</p>
  * <p>A compiler instance must be created to allow garbage collection of generated classes when no longer in use.</p>
@@ -11,7 +21,14 @@ import gg.moonflower.molangcompiler.impl.MolangCompilerImpl;
  * @see GlobalMolangCompiler
  * @since 3.0.0
  */
-public interface MolangCompiler {
+public interface MolangCompiler extends AutoCloseable {
+
+    /**
+     * The default number of expressions {@link #compileAll(Map)} packs into a single generated class.
+     *
+     * @since 4.1.0
+     */
+    int DEFAULT_BATCH_SIZE = 256;
 
     /**
      * Compiles a {@link MolangExpression} from the specified string input.
@@ -33,6 +50,141 @@ public interface MolangCompiler {
         return compile(input, MolangVersion.LATEST);
     }
 
+    /**
+     * Compiles many expressions at once with the {@linkplain MolangVersion#LATEST latest version}.
+     *
+     * @param sources The sources to compile
+     * @param <K>     The type of key used to identify each source
+     * @return The compiled expressions and the errors for any sources that failed, in the same order as the sources
+     * @see #compileAll(Map, MolangVersion, int)
+     * @since 4.1.0
+     */
+    default <K> MolangBatchResult<K> compileAll(Map<K, String> sources) {
+        return compileAll(sources, MolangVersion.LATEST);
+    }
+
+    /**
+     * Compiles many expressions at once.
+     *
+     * @param sources The sources to compile
+     * @param version The version to compile all sources with
+     * @param <K>     The type of key used to identify each source
+     * @return The compiled expressions and the errors for any sources that failed, in the same order as the sources
+     * @see #compileAll(Map, MolangVersion, int)
+     * @since 4.1.0
+     */
+    default <K> MolangBatchResult<K> compileAll(Map<K, String> sources, MolangVersion version) {
+        return compileAll(sources, version, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * <p>Compiles many expressions at once.</p>
+     * <p>Instead of defining a class for every expression, up to {@code batchSize} expressions are packed into each generated class.
+     * This greatly reduces the number of classes loaded for large packs. A source that fails to compile does not affect the others.</p>
+     *
+     * @param sources   The sources to compile
+     * @param version   The version to compile all sources with
+     * @param batchSize The maximum number of expressions to put into a single class
+     * @param <K>       The type of key used to identify each source
+     * @return The compiled expressions and the errors for any sources that failed, in the same order as the sources
+     * @since 4.1.0
+     */
+    default <K> MolangBatchResult<K> compileAll(Map<K, String> sources, MolangVersion version, int batchSize) {
+        Map<K, MolangExpression> expressions = new LinkedHashMap<>();
+        Map<K, MolangSyntaxException> errors = new LinkedHashMap<>();
+        for (Map.Entry<K, String> entry : sources.entrySet()) {
+            try {
+                expressions.put(entry.getKey(), compile(entry.getValue(), version));
+            } catch (MolangSyntaxException e) {
+                errors.put(entry.getKey(), e);
+            }
+        }
+        return new MolangBatchResult<>(Collections.unmodifiableMap(expressions), Collections.unmodifiableMap(errors), List.of());
+    }
+
+    /**
+     * Compiles many expressions at once with the {@linkplain MolangVersion#LATEST latest version}, spreading the work across the specified executor.
+     *
+     * @param sources  The sources to compile
+     * @param executor The executor to lex, parse, and generate code on, for example {@link ForkJoinPool#commonPool()}
+     * @param <K>      The type of key used to identify each source
+     * @return The compiled expressions and the errors for any sources that failed, in the same order as the sources
+     * @see #compileAll(Map, MolangVersion, int, Executor)
+     * @since 4.1.0
+     */
+    default <K> MolangBatchResult<K> compileAll(Map<K, String> sources, Executor executor) {
+        return compileAll(sources, MolangVersion.LATEST, DEFAULT_BATCH_SIZE, executor);
+    }
+
+    /**
+     * <p>Compiles many expressions at once, spreading the work across the specified executor.</p>
+     * <p>The sources are split into batches of up to {@code batchSize} expressions. Each batch is lexed, parsed, compiled,
+     * and defined as a class by a separate task, so large packs compile on as many threads as the executor provides.
+     * Smaller batches create more tasks at the cost of more classes.</p>
+     * <p>The calling thread blocks until all tasks are complete.</p>
+     *
+     * @param sources   The sources to compile
+     * @param version   The version to compile all sources with
+     * @param batchSize The maximum number of expressions to put into a single class
+     * @param executor  The executor to lex, parse, and generate code on, for example {@link ForkJoinPool#commonPool()}
+     * @param <K>       The type of key used to identify each source
+     * @return The compiled expressions and the errors for any sources that failed, in the same order as the sources
+     * @since 4.1.0
+     */
+    default <K> MolangBatchResult<K> compileAll(Map<K, String> sources, MolangVersion version, int batchSize, Executor executor) {
+        return compileAll(sources, version, batchSize);
+    }
+
+    /**
+     * <p>Retrieves statistics about the compiled expression cache.</p>
+     * <p>Identical sources compiled with the same version are only compiled once and share the same expression instance.
+     * The cache can be disabled with {@link CompilerFlag#DISABLE_CACHE}.</p>
+     *
+     * @return A snapshot of the cache statistics or {@link MolangCacheStats#EMPTY} if this compiler does not cache
+     * @since 4.1.0
+     */
+    default MolangCacheStats getCacheStats() {
+        return MolangCacheStats.EMPTY;
+    }
+
+    /**
+     * Removes all expressions from the compiled expression cache. Expressions that were already returned stay valid.
+     *
+     * @since 4.1.0
+     */
+    default void clearCache() {
+    }
+
+    /**
+     * Adds a listener that is notified every time a {@linkplain CompilerFlag#TIERED tiered} expression is compiled.
+     * Listeners may be called from background threads if {@link CompilerFlag#BACKGROUND_TIER_UP} is set.
+     *
+     * @param listener The listener to add
+     * @since 4.1.0
+     */
+    default void addTierUpListener(Consumer<MolangTierUpEvent> listener) {
+    }
+
+    /**
+     * Removes a listener previously added with {@link #addTierUpListener(Consumer)}.
+     *
+     * @param listener The listener to remove
+     * @since 4.1.0
+     */
+    default void removeTierUpListener(Consumer<MolangTierUpEvent> listener) {
+    }
+
+    /**
+     * Releases the directory opened by {@link #create(CompilerFlags, ClassLoader, Path)}. The files are closed once
+     * every compiler using the directory is closed. Afterward, this compiler no longer reads or writes the directory,
+     * but it can still compile expressions. Compilers without a directory hold nothing to release.
+     *
+     * @since 4.1.0
+     */
+    @Override
+    default void close() {
+    }
+
     /**
      * Creates a compiler with the {@linkplain CompilerFlags#DEFAULT default flags}.
      *
@@ -65,4 +217,40 @@ public interface MolangCompiler {
     static MolangCompiler create(CompilerFlags flags, ClassLoader parent) {
         return new MolangCompilerImpl(flags, parent);
     }
+
+    /**
+     * Creates a compiler with the specified flags and compiled expression cache bounds.
+     *
+     * @param flags       The compiler flags to use
+     * @param parent      The classloader to use as the parent.
+     *                    This should only be set when the current class is not using the system class loader
+     * @param cacheSize   The maximum number of compiled expressions to cache
+     * @param cacheWeight The maximum number of source characters to cache across all expressions
+     * @return The compiler instance
+     * @see CompilerFlag#DISABLE_CACHE
+     * @since 4.1.0
+     */
+    static MolangCompiler create(CompilerFlags flags, ClassLoader parent, int cacheSize, long cacheWeight) {
+        return new MolangCompilerImpl(flags, parent, cacheSize, cacheWeight);
+    }
+
+    /**
+     * <p>Creates a compiler that stores generated classes in the specified directory.</p>
+     * <p>When the same source is compiled again in a later run, the stored class is defined directly without lexing, parsing, or generating code.
+     * Entries are keyed by the source, MoLang version, compiler flags, and compiler version, so stale classes are never loaded.
+     * Constant expressions are not stored since they don't generate a class. Only {@link #compile(String, MolangVersion)} uses the directory.</p>
+     * <p>Only one process can add classes to a directory at a time. Other processes can still load classes that are already stored.
+     * The directory is used until the compiler is {@linkplain #close() closed}.</p>
+     *
+     * @param flags          The compiler flags to use
+     * @param parent         The classloader to use as the parent.
+     *                       This should only be set when the current class is not using the system class loader
+     * @param cacheDirectory The directory to store generated classes in
+     * @return The compiler instance
+     * @throws IOException If the cache directory could not be opened
+     * @since 4.1.0
+     */
+    static MolangCompiler create(CompilerFlags flags, ClassLoader parent, Path cacheDirectory) throws IOException {
+        return new MolangCompilerImpl(flags, parent, cacheDirectory);
+    }
 }
@@ -208,6 +208,37 @@ public interface MolangEnvironment {
         return expression.get(this);
     }
 
+    /**
+     * <p>Resolves the value of the specified expression in this environment as a float.</p>
+     * <p>This allows environments to fine-tune how expressions are evaluated. Environments that override {@link #resolve(MolangExpression)}
+     * should override this as well, or numeric expressions will skip their changes.</p>
+     *
+     * @param expression The expression to evaluate
+     * @return The resulting value as a float
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     * @since 4.1.0
+     */
+    default float resolveFloat(MolangExpression expression) throws MolangRuntimeException {
+        return expression.getFloat(this);
+    }
+
+    /**
+     * <p>Resolves the value of the specified expression in this environment as a float. Catches any exception thrown and returns zero.</p>
+     * <p>This allows environments to fine-tune how expressions are evaluated.</p>
+     *
+     * @param expression The expression to evaluate
+     * @return The resulting value as a float
+     * @since 4.1.0
+     */
+    default float safeResolveFloat(MolangExpression expression) {
+        try {
+            return this.resolveFloat(expression);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            return 0.0f;
+        }
+    }
+
     /**
      * <p>Resolves the value of the specified expression in this environment. Catches any exception thrown and returns a zero float.</p>
      * <p>This allows environments to fine-tune how expressions are evaluated.</p>
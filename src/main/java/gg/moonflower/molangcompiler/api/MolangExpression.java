@@ -33,6 +33,22 @@ public interface MolangExpression {
     @ApiStatus.Internal
     MolangValue get(MolangEnvironment environment) throws MolangRuntimeException;
 
+    /**
+     * Resolves the value of this expression as a float. Prefer calling MolangEnvironment#resolveFloat instead.
+     * <p>
+     * This always returns the same result as <code>get(environment).asFloat()</code>,
+     * but compiled expressions implement it without allocating a {@link MolangValue} for numeric results.
+     *
+     * @param environment The environment to execute in
+     * @return The resulting value as a float
+     * @throws MolangRuntimeException If any error occurs when resolving the value
+     * @since 4.1.0
+     */
+    @ApiStatus.Internal
+    default float getFloat(MolangEnvironment environment) throws MolangRuntimeException {
+        return this.get(environment).asFloat();
+    }
+
     /**
      * Resolves the constant value of this expression if {@link #isConstant()} returns <code>true</code>.
      *
@@ -54,6 +70,31 @@ public interface MolangExpression {
         return false;
     }
 
+    /**
+     * Lists the variables and functions this expression looks up in its environment.
+     *
+     * @return Every variable as <code>object.name</code> and every function as <code>object.name(arguments)</code>
+     * @see #bind(MolangEnvironment)
+     * @since 4.1.0
+     */
+    @ApiStatus.Internal
+    default String[] getReferences() {
+        return new String[0];
+    }
+
+    /**
+     * Binds this expression to an environment. Every object, function, and variable the expression uses is looked up
+     * immediately, so missing libraries and functions fail here instead of in the first evaluation.
+     *
+     * @param environment The environment to evaluate in
+     * @return An expression that evaluates in the specified environment
+     * @throws MolangRuntimeException If the environment is missing an object or function used by this expression
+     * @since 4.1.0
+     */
+    default BoundExpression bind(MolangEnvironment environment) throws MolangRuntimeException {
+        return new BoundExpression(this, environment);
+    }
+
     /**
      * Creates a copy of this expression if there is an internal state.
      *
@@ -147,6 +188,68 @@ public interface MolangExpression {
         return new MolangFunctionNode(-1, consumer);
     }
 
+    /**
+     * Creates a {@link MolangExpression} that calls the specified java code with no parameters.
+     * <p>
+     * When every argument is known to be a float, compiled expressions call float functions directly instead of
+     * creating a {@link MolangJavaFunction.Context}.
+     *
+     * @param function The implementation of the MoLang call
+     * @return A new expression that calls the java function
+     * @since 4.1.0
+     */
+    static MolangExpression floatFunction(MolangJavaFunction.Float0 function) {
+        return new MolangFloatFunctionNode.Of0(function);
+    }
+
+    /**
+     * Creates a {@link MolangExpression} that calls the specified java code with one float parameter.
+     *
+     * @param function The implementation of the MoLang call
+     * @return A new expression that calls the java function
+     * @see #floatFunction(MolangJavaFunction.Float0)
+     * @since 4.1.0
+     */
+    static MolangExpression floatFunction(MolangJavaFunction.Float1 function) {
+        return new MolangFloatFunctionNode.Of1(function);
+    }
+
+    /**
+     * Creates a {@link MolangExpression} that calls the specified java code with two float parameters.
+     *
+     * @param function The implementation of the MoLang call
+     * @return A new expression that calls the java function
+     * @see #floatFunction(MolangJavaFunction.Float0)
+     * @since 4.1.0
+     */
+    static MolangExpression floatFunction(MolangJavaFunction.Float2 function) {
+        return new MolangFloatFunctionNode.Of2(function);
+    }
+
+    /**
+     * Creates a {@link MolangExpression} that calls the specified java code with three float parameters.
+     *
+     * @param function The implementation of the MoLang call
+     * @return A new expression that calls the java function
+     * @see #floatFunction(MolangJavaFunction.Float0)
+     * @since 4.1.0
+     */
+    static MolangExpression floatFunction(MolangJavaFunction.Float3 function) {
+        return new MolangFloatFunctionNode.Of3(function);
+    }
+
+    /**
+     * Creates a {@link MolangExpression} that calls the specified java code with four float parameters.
+     *
+     * @param function The implementation of the MoLang call
+     * @return A new expression that calls the java function
+     * @see #floatFunction(MolangJavaFunction.Float0)
+     * @since 4.1.0
+     */
+    static MolangExpression floatFunction(MolangJavaFunction.Float4 function) {
+        return new MolangFloatFunctionNode.Of4(function);
+    }
+
     /**
      * Creates a {@link MolangExpression} of the specified value that will be computed after every call.
      *
@@ -4,7 +4,9 @@ import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import gg.moonflower.molangcompiler.api.object.ImmutableMolangObject;
 import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.object.MolangSlots;
 import gg.moonflower.molangcompiler.impl.object.MolangVariableStorage;
+import org.jetbrains.annotations.ApiStatus;
 
 import java.util.*;
 
@@ -16,6 +18,8 @@ import java.util.*;
  */
 public class MolangRuntime implements MolangEnvironment {
 
+    private static final MolangObject[] NO_OBJECTS = new MolangObject[0];
+
     private MolangValue thisValue;
     private final Map<String, MolangObject> objects;
     private final Map<String, String> aliases;
@@ -24,11 +28,16 @@ public class MolangRuntime implements MolangEnvironment {
     private final ImmutableMolangObject query;
     private final ImmutableMolangObject global;
     private final MolangObject variable;
+    /**
+     * Objects already looked up by compiled expressions, indexed by {@link MolangSlots#getObject(String) object slot}.
+     */
+    private MolangObject[] objectCache;
 
     private MolangRuntime(ImmutableMolangObject query, ImmutableMolangObject global, MolangObject variable, Map<String, MolangObject> libraries) {
         this.thisValue = MolangValue.of(0.0f);
         this.objects = new HashMap<>();
         this.aliases = new HashMap<>();
+        this.objectCache = NO_OBJECTS;
         this.objects.putAll(libraries);
         this.loadLibrary("context", query, "c"); // This is static accesses
         this.loadLibrary("query", query, "q"); // This is static accesses
@@ -69,12 +78,17 @@ public class MolangRuntime implements MolangEnvironment {
         return builder.toString();
     }
 
+    private void invalidateObjects() {
+        this.objectCache = NO_OBJECTS;
+    }
+
     @Override
     public void loadLibrary(String name, MolangObject object, String... aliases) {
         this.objects.put(name.toLowerCase(Locale.ROOT), object);
         for (String alias : aliases) {
             this.aliases.put(alias, name);
         }
+        this.invalidateObjects();
     }
 
     @Override
@@ -87,6 +101,7 @@ public class MolangRuntime implements MolangEnvironment {
         for (String alias : aliases) {
             this.aliases.put(alias, name);
         }
+        this.invalidateObjects();
     }
 
     @Override
@@ -114,6 +129,31 @@ public class MolangRuntime implements MolangEnvironment {
         throw new MolangRuntimeException("Unknown MoLang object: " + name);
     }
 
+    /**
+     * Retrieves an object the same way as {@link #get(String)}, but remembers the result until the libraries or aliases
+     * in this runtime change. Compiled expressions call this for every object that has no dedicated getter.
+     *
+     * @param slot The {@link MolangSlots#getObject(String) object slot} of the lowercase name
+     * @param name The name of the object
+     * @return The object
+     * @throws MolangRuntimeException If the object does not exist
+     */
+    @ApiStatus.Internal
+    public MolangObject getObject(int slot, String name) throws MolangRuntimeException {
+        MolangObject[] cache = this.objectCache;
+        if (slot < cache.length && cache[slot] != null) {
+            return cache[slot];
+        }
+
+        MolangObject object = this.get(name);
+        if (slot >= cache.length) {
+            cache = Arrays.copyOf(cache, slot + 1);
+        }
+        cache[slot] = object;
+        this.objectCache = cache;
+        return object;
+    }
+
     @Override
     public MolangObject getContext() {
         return this.query;
@@ -400,6 +440,7 @@ public class MolangRuntime implements MolangEnvironment {
             }
 
             this.runtime.objects.remove(name);
+            this.runtime.invalidateObjects();
             return this;
         }
 
@@ -454,6 +495,7 @@ public class MolangRuntime implements MolangEnvironment {
         @Override
         public MolangEnvironmentBuilder<MolangRuntime> clearLibraries() {
             this.runtime.objects.values().retainAll(List.of(this.query, this.global, this.variable));
+            this.runtime.invalidateObjects();
             return this;
         }
 
@@ -495,6 +537,7 @@ public class MolangRuntime implements MolangEnvironment {
             } catch (MolangException e) {
                 throw new RuntimeException("Failed to copy environment data", e);
             }
+            this.runtime.invalidateObjects();
             return this;
         }
 
@@ -0,0 +1,26 @@
+package gg.moonflower.molangcompiler.api;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Fired when a {@linkplain CompilerFlag#TIERED tiered} expression has been evaluated enough times to be compiled.
+ *
+ * @param source       The source of the expression, as returned by {@link MolangExpression#toString()}
+ * @param invocations  The number of times the expression was interpreted before compilation started
+ * @param compileNanos The time spent compiling the expression in nanoseconds
+ * @param background   Whether the expression was compiled on a background thread
+ * @param error        The reason compilation failed or <code>null</code> if the expression is now compiled.
+ *                     Expressions that fail to compile keep being interpreted
+ * @author Ocelot
+ * @see MolangCompiler#addTierUpListener(java.util.function.Consumer)
+ * @since 4.1.0
+ */
+public record MolangTierUpEvent(String source, int invocations, long compileNanos, boolean background, @Nullable Throwable error) {
+
+    /**
+     * @return Whether the expression was compiled
+     */
+    public boolean successful() {
+        return this.error == null;
+    }
+}
@@ -11,6 +11,11 @@ import java.util.Objects;
  * A condition in MoLang that can be a float, string, or other types.
  * This class provides type-safe access to different condition types while maintaining
  * backward compatibility with float-only operations.
+ * <p>
+ * Values are immutable, so booleans, null, and whole floats from {@value #DEFAULT_FLOAT_CACHE_LOW} to {@value #DEFAULT_FLOAT_CACHE_HIGH}
+ * are shared instead of allocated. The range of cached floats can be changed with the
+ * {@code molangcompiler.floatCache.low} and {@code molangcompiler.floatCache.high} system properties.
+ * Values must still be compared with {@link #equals(Object)}, since other values are not shared.
  *
  * @author irrelevantdev
  * @since 4.0.0
@@ -18,7 +23,31 @@ import java.util.Objects;
 @ApiStatus.NonExtendable
 public final class MolangValue {
 
+    /**
+     * The default lowest whole float that is cached by {@link #of(float)}.
+     *
+     * @since 4.1.0
+     */
+    public static final int DEFAULT_FLOAT_CACHE_LOW = -128;
+    /**
+     * The default highest whole float that is cached by {@link #of(float)}.
+     *
+     * @since 4.1.0
+     */
+    public static final int DEFAULT_FLOAT_CACHE_HIGH = 1024;
+
+    private static final int FLOAT_CACHE_LOW = Integer.getInteger("molangcompiler.floatCache.low", DEFAULT_FLOAT_CACHE_LOW);
+    private static final MolangValue[] FLOAT_CACHE = createFloatCache(FLOAT_CACHE_LOW, Integer.getInteger("molangcompiler.floatCache.high", DEFAULT_FLOAT_CACHE_HIGH));
+
     public static final MolangValue NULL = new MolangValue(Type.NULL, 0.0f, null, false, null);
+    /**
+     * @since 4.1.0
+     */
+    public static final MolangValue TRUE = new MolangValue(Type.BOOLEAN, 0.0f, null, true, null);
+    /**
+     * @since 4.1.0
+     */
+    public static final MolangValue FALSE = new MolangValue(Type.BOOLEAN, 0.0f, null, false, null);
     public static final MolangValue MATH_PI = of((float) Math.PI);
     public static final MolangValue MATH_E = of((float) Math.E);
 
@@ -36,6 +65,17 @@ public final class MolangValue {
         this.arrayValue = arrayValue;
     }
 
+    private static MolangValue[] createFloatCache(int low, int high) {
+        if (high < low) {
+            return new MolangValue[0];
+        }
+        MolangValue[] cache = new MolangValue[high - low + 1];
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new MolangValue(Type.FLOAT, low + i, null, false, null);
+        }
+        return cache;
+    }
+
     public static MolangValue ofObject(Object value) {
         if (value instanceof Number f) {
             return of(f.floatValue());
@@ -67,17 +107,28 @@ public final class MolangValue {
     }
 
     /**
-     * Creates a MolangValue from a float.
+     * Creates a MolangValue from a float. Whole numbers in the cached range return a shared instance.
      *
      * @param value The float condition
-     * @return A new MolangValue containing the float
+     * @return A MolangValue containing the float
      */
     public static MolangValue of(float value) {
+        int index = (int) value - FLOAT_CACHE_LOW;
+        // -0.0 is not equal to 0.0, so it can't be shared with it
+        if (index >= 0 && index < FLOAT_CACHE.length && (int) value == value && (value != 0.0f || Float.floatToRawIntBits(value) == 0)) {
+            return FLOAT_CACHE[index];
+        }
         return new MolangValue(Type.FLOAT, value, null, false, null);
     }
 
+    /**
+     * Retrieves the MolangValue for a boolean.
+     *
+     * @param value The boolean condition
+     * @return {@link #TRUE} or {@link #FALSE}
+     */
     public static MolangValue of(boolean value) {
-        return new MolangValue(Type.BOOLEAN, 0.0f, null, value, null);
+        return value ? TRUE : FALSE;
     }
 
     /**
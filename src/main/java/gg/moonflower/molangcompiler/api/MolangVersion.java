@@ -5,11 +5,13 @@ import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompilerV12;
 import gg.moonflower.molangcompiler.impl.compiler.MolangParser;
 import gg.moonflower.molangcompiler.impl.compiler.MolangParserV12;
+import gg.moonflower.molangcompiler.impl.interpreter.MolangInterpreter;
 import lombok.Getter;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -30,10 +32,12 @@ public final class MolangVersion {
     static {
         register(12,
                 MolangParserV12::new,
-                BytecodeCompilerV12::new);
+                BytecodeCompilerV12::new,
+                MolangInterpreter::new);
         LATEST = register(13,
                 MolangParserV12::new,
-                BytecodeCompilerV12::new);
+                BytecodeCompilerV12::new,
+                MolangInterpreter::new);
     }
 
     @Getter
@@ -41,34 +45,40 @@ public final class MolangVersion {
     @Getter
     private final MolangParser parser;
     private final BiFunction<CompilerFlags, ClassLoader, BytecodeCompiler> compilerFactory;
+    private final Function<CompilerFlags, MolangInterpreter> interpreterFactory;
 
     /**
      * Creates a new MolangVersion with the specified version number and version-specific components.
      *
-     * @param version         The version number
-     * @param parserFactory   Factory to create the version-specific parser
-     * @param compilerFactory Factory to create the version-specific bytecode compiler
+     * @param version            The version number
+     * @param parserFactory      Factory to create the version-specific parser
+     * @param compilerFactory    Factory to create the version-specific bytecode compiler
+     * @param interpreterFactory Factory to create the version-specific interpreter
      */
     private MolangVersion(int version,
                           Supplier<MolangParser> parserFactory,
-                          BiFunction<CompilerFlags, ClassLoader, BytecodeCompiler> compilerFactory) {
+                          BiFunction<CompilerFlags, ClassLoader, BytecodeCompiler> compilerFactory,
+                          Function<CompilerFlags, MolangInterpreter> interpreterFactory) {
         this.version = version;
         this.parser = parserFactory.get();
         this.compilerFactory = compilerFactory;
+        this.interpreterFactory = interpreterFactory;
     }
 
     /**
      * Registers a new version with its version-specific components.no
      *
-     * @param version         The version number
-     * @param parserFactory   Factory to create the version-specific parser
-     * @param compilerFactory Factory to create the version-specific bytecode compiler
+     * @param version            The version number
+     * @param parserFactory      Factory to create the version-specific parser
+     * @param compilerFactory    Factory to create the version-specific bytecode compiler
+     * @param interpreterFactory Factory to create the version-specific interpreter
      * @return The registered MolangVersion instance
      */
     private static MolangVersion register(int version,
                                           Supplier<MolangParser> parserFactory,
-                                          BiFunction<CompilerFlags, ClassLoader, BytecodeCompiler> compilerFactory) {
-        MolangVersion molangVersion = new MolangVersion(version, parserFactory, compilerFactory);
+                                          BiFunction<CompilerFlags, ClassLoader, BytecodeCompiler> compilerFactory,
+                                          Function<CompilerFlags, MolangInterpreter> interpreterFactory) {
+        MolangVersion molangVersion = new MolangVersion(version, parserFactory, compilerFactory, interpreterFactory);
         VERSIONS.put(version, molangVersion);
         return molangVersion;
     }
@@ -84,6 +94,17 @@ public final class MolangVersion {
         return this.compilerFactory.apply(flags, parent);
     }
 
+    /**
+     * Creates a version-specific interpreter with the specified flags. Interpreters evaluate expressions without defining any classes.
+     *
+     * @param flags Compilation flags
+     * @return A new interpreter instance
+     * @since 4.1.0
+     */
+    public MolangInterpreter createInterpreter(CompilerFlags flags) {
+        return this.interpreterFactory.apply(flags);
+    }
+
     /**
      * Creates a MolangVersion from the specified version number.
      *
@@ -0,0 +1,25 @@
+package gg.moonflower.molangcompiler.api.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Exposes a method as a MoLang function.
+ * <p>
+ * Parameters may be <code>float</code>, <code>double</code>, <code>int</code>, <code>long</code>, <code>boolean</code>,
+ * {@link String}, or {@link gg.moonflower.molangcompiler.api.MolangValue}. The method may return any of those or
+ * <code>void</code>. Public methods that only use numbers and return a number or <code>boolean</code> are called
+ * directly by compiled expressions with intrinsics enabled. See {@link MolangQuery}.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface MolangFunction {
+
+    /**
+     * @return The name of the function in MoLang. Defaults to the name of the method in <code>snake_case</code>
+     */
+    String value() default "";
+}
@@ -0,0 +1,26 @@
+package gg.moonflower.molangcompiler.api.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Exposes a field, a method without parameters, or a record component as a read-only MoLang value.
+ * <p>
+ * The <code>molang-processor</code> annotation processor generates a {@link gg.moonflower.molangcompiler.api.object.MolangObject}
+ * named <code>&lt;Class&gt;MolangBindings</code> next to every class with annotated members. Queries of type
+ * <code>float</code>, <code>double</code>, <code>int</code>, <code>long</code>, or <code>boolean</code> on public
+ * members are also listed in its <code>INTRINSICS</code>, so compiled expressions can read them without going through the object.
+ *
+ * @author Ocelot
+ * @see gg.moonflower.molangcompiler.api.CompilerFlags#withIntrinsics(String, java.util.Collection)
+ * @since 4.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.RECORD_COMPONENT})
+public @interface MolangQuery {
+
+    /**
+     * @return The name of the value in MoLang. Defaults to the name of the member in <code>snake_case</code>
+     */
+    String value() default "";
+}
@@ -0,0 +1,25 @@
+package gg.moonflower.molangcompiler.api.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Exposes a field as a MoLang variable that expressions can read and write.
+ * <p>
+ * The field may be a <code>float</code>, <code>double</code>, <code>int</code>, <code>long</code>, <code>boolean</code>,
+ * {@link String}, or {@link gg.moonflower.molangcompiler.api.MolangValue}, and must not be <code>final</code>.
+ * Compiled expressions write variables back when they finish, so variables are always accessed through the generated
+ * object instead of as intrinsics. See {@link MolangQuery}.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface MolangVariable {
+
+    /**
+     * @return The name of the variable in MoLang. Defaults to the name of the field in <code>snake_case</code>
+     */
+    String value() default "";
+}
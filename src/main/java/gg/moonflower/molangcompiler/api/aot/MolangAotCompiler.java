@@ -0,0 +1,166 @@
+package gg.moonflower.molangcompiler.api.aot;
+
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangVersion;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.impl.aot.MolangAotIndex;
+import gg.moonflower.molangcompiler.impl.ast.Node;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
+import gg.moonflower.molangcompiler.impl.compiler.MolangLexer;
+import gg.moonflower.molangcompiler.impl.compiler.MolangTypeHints;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * <p>Compiles MoLang expressions into class files at build time.</p>
+ * <p>Every expression is written as a regular <code>.class</code> file in the output directory, along with an index at {@link MolangAotLoader#INDEX_RESOURCE}.
+ * When the output directory is packaged into a jar, {@link MolangAotLoader} can create the expressions without ASM or the compiler.</p>
+ * <p>The output should be loaded with exactly the same version of this library, since the generated code calls into it directly.</p>
+ *
+ * @author Ocelot
+ * @see MolangAotLoader
+ * @since 4.1.0
+ */
+public final class MolangAotCompiler {
+
+    /**
+     * The file extension of MoLang source files.
+     */
+    public static final String EXTENSION = ".molang";
+
+    private final CompilerFlags flags;
+    private final MolangVersion version;
+    private final String packagePath;
+    private final BytecodeCompiler compiler;
+
+    /**
+     * Creates a new ahead-of-time compiler.
+     *
+     * @param flags       The flags to compile expressions with
+     * @param version     The MoLang version to parse and compile expressions with
+     * @param packageName The Java package to put the generated classes in
+     */
+    public MolangAotCompiler(CompilerFlags flags, MolangVersion version, String packageName) {
+        for (String part : packageName.split("\\.", -1)) {
+            if (part.isEmpty() || !Character.isJavaIdentifierStart(part.charAt(0)) || !part.chars().allMatch(Character::isJavaIdentifierPart)) {
+                throw new IllegalArgumentException("Invalid package name: " + packageName);
+            }
+        }
+        this.flags = flags;
+        this.version = version;
+        this.packagePath = packageName.replace('.', '/');
+        this.compiler = version.createBytecodeCompiler(flags, MolangAotCompiler.class.getClassLoader());
+    }
+
+    /**
+     * Compiles all sources into the output directory. Sources that fail to compile are skipped and reported in the result.
+     * <p>
+     * Sources with identical code share a single class.
+     *
+     * @param sources         The name and source code of each expression. The name is used to retrieve the expression with {@link MolangAotLoader#get(String)}
+     * @param outputDirectory The directory to write classes and the index to
+     * @return The reason each source failed to compile. This is empty if every source compiled
+     * @throws IOException If an error occurs writing the output
+     */
+    public Map<String, MolangSyntaxException> compile(Map<String, String> sources, Path outputDirectory) throws IOException {
+        Map<String, MolangSyntaxException> errors = new LinkedHashMap<>();
+        Map<String, String> classNames = new HashMap<>();
+        List<MolangAotIndex.Entry> entries = new ArrayList<>(sources.size());
+
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            String name = entry.getKey();
+            String source = entry.getValue();
+            try {
+                String className = classNames.get(source);
+                if (className == null) {
+                    className = this.writeClass(source, outputDirectory);
+                    classNames.put(source, className);
+                }
+                entries.add(new MolangAotIndex.Entry(name, source, this.version.getVersion(), className));
+            } catch (MolangSyntaxException e) {
+                errors.put(name, e);
+            }
+        }
+
+        Path index = outputDirectory.resolve(MolangAotLoader.INDEX_RESOURCE);
+        Files.createDirectories(index.getParent());
+        try (OutputStream stream = Files.newOutputStream(index)) {
+            MolangAotIndex.write(stream, entries);
+        }
+        return errors;
+    }
+
+    private String writeClass(String source, Path outputDirectory) throws MolangSyntaxException, IOException {
+        MolangLexer.Token[] tokens = MolangLexer.createTokens(source);
+        Node node = MolangTypeHints.apply(this.version.getParser().parseTokens(tokens), this.flags);
+
+        String name = this.compiler.createClassName("Expression", source);
+        BytecodeCompiler.GeneratedClass generatedClass = this.compiler.generate(node, source, this.packagePath + "/" + name.substring(name.lastIndexOf('/') + 1));
+
+        Path path = outputDirectory.resolve(generatedClass.name() + ".class");
+        Files.createDirectories(path.getParent());
+        Files.write(path, generatedClass.data());
+        return generatedClass.name();
+    }
+
+    /**
+     * Finds all MoLang source files in a directory. Each source is named after its path relative to the directory,
+     * using <code>/</code> as the separator and without the {@value #EXTENSION} extension.
+     *
+     * @param directory The directory to search
+     * @return The name and source code of every file, sorted by name
+     * @throws IOException If an error occurs reading the files
+     */
+    public static Map<String, String> collectSources(Path directory) throws IOException {
+        Map<String, String> sources = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return sources;
+        }
+
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                String fileName = path.getFileName().toString();
+                if (!fileName.endsWith(EXTENSION) || !Files.isRegularFile(path)) {
+                    continue;
+                }
+
+                String relative = directory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                sources.put(relative.substring(0, relative.length() - EXTENSION.length()), Files.readString(path, StandardCharsets.UTF_8));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Compiles every source file in a directory from the command line.
+     * <p>
+     * Usage: <code>MolangAotCompiler &lt;source directory&gt; &lt;output directory&gt; &lt;package name&gt; [MoLang version]</code>
+     *
+     * @param args The command line arguments
+     * @throws Exception If the sources could not be read or the output could not be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: MolangAotCompiler <source directory> <output directory> <package name> [MoLang version]");
+            System.exit(2);
+            return;
+        }
+
+        MolangVersion version = args.length > 3 ? MolangVersion.get(Integer.parseInt(args[3])) : MolangVersion.LATEST;
+        MolangAotCompiler compiler = new MolangAotCompiler(CompilerFlags.DEFAULT, version, args[2]);
+        Map<String, String> sources = collectSources(Paths.get(args[0]));
+        Map<String, MolangSyntaxException> errors = compiler.compile(sources, Paths.get(args[1]));
+        errors.forEach((name, error) -> System.err.println(name + ": " + error.getMessage()));
+        System.out.println("Compiled " + (sources.size() - errors.size()) + "/" + sources.size() + " expressions");
+        if (!errors.isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
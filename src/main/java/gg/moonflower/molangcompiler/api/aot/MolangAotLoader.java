@@ -0,0 +1,108 @@
+package gg.moonflower.molangcompiler.api.aot;
+
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.impl.aot.MolangAotIndex;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Loads expressions compiled ahead of time by {@link MolangAotCompiler}.</p>
+ * <p>Expressions are plain classes on the classpath, so the loader doesn't need ASM or the compiler.
+ * Jars that only use precompiled expressions can exclude ASM entirely.</p>
+ * <p>Each class is only loaded the first time its expression is requested.</p>
+ *
+ * @author Ocelot
+ * @see MolangAotCompiler
+ * @since 4.1.0
+ */
+public final class MolangAotLoader {
+
+    /**
+     * The location of the expression index in the compiled output.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/molang/expressions.index";
+
+    private final ClassLoader classLoader;
+    private final Map<String, MolangAotIndex.Entry> names;
+    private final Map<String, MolangAotIndex.Entry> sources;
+    private final Map<String, MolangExpression> expressions;
+
+    private MolangAotLoader(ClassLoader classLoader, Map<String, MolangAotIndex.Entry> names, Map<String, MolangAotIndex.Entry> sources) {
+        this.classLoader = classLoader;
+        this.names = names;
+        this.sources = sources;
+        this.expressions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Reads every expression index visible to the specified class loader. If several indices contain the same name, the first one on the classpath is used.
+     *
+     * @param classLoader The class loader to find indices and load expression classes with
+     * @return A loader for all precompiled expressions
+     * @throws IOException If an index could not be read or was compiled for a different version of the compiler
+     */
+    public static MolangAotLoader load(ClassLoader classLoader) throws IOException {
+        Map<String, MolangAotIndex.Entry> names = new LinkedHashMap<>();
+        Map<String, MolangAotIndex.Entry> sources = new HashMap<>();
+        Enumeration<URL> resources = classLoader.getResources(INDEX_RESOURCE);
+        while (resources.hasMoreElements()) {
+            URL url = resources.nextElement();
+            try (InputStream stream = url.openStream()) {
+                for (MolangAotIndex.Entry entry : MolangAotIndex.read(stream)) {
+                    names.putIfAbsent(entry.name(), entry);
+                    sources.putIfAbsent(entry.source(), entry);
+                }
+            } catch (IOException e) {
+                throw new IOException("Failed to read expression index " + url, e);
+            }
+        }
+        return new MolangAotLoader(classLoader, Collections.unmodifiableMap(names), sources);
+    }
+
+    /**
+     * Retrieves an expression by the name it was compiled with.
+     *
+     * @param name The name of the expression. For source files, this is the path relative to the source directory without the extension
+     * @return The expression or <code>null</code> if no expression was compiled with that name
+     * @throws IllegalStateException If the class of the expression is missing or could not be created
+     */
+    public @Nullable MolangExpression get(String name) {
+        MolangAotIndex.Entry entry = this.names.get(name);
+        return entry != null ? this.create(entry) : null;
+    }
+
+    /**
+     * Retrieves an expression by its source code. This allows precompiled expressions to be used in place of compiling the same source at runtime.
+     *
+     * @param source The exact MoLang source code of the expression
+     * @return The expression or <code>null</code> if the source was not compiled ahead of time
+     * @throws IllegalStateException If the class of the expression is missing or could not be created
+     */
+    public @Nullable MolangExpression getBySource(String source) {
+        MolangAotIndex.Entry entry = this.sources.get(source);
+        return entry != null ? this.create(entry) : null;
+    }
+
+    /**
+     * @return The names of all precompiled expressions
+     */
+    public Set<String> getNames() {
+        return this.names.keySet();
+    }
+
+    private MolangExpression create(MolangAotIndex.Entry entry) {
+        return this.expressions.computeIfAbsent(entry.className(), className -> {
+            try {
+                Class<?> expressionClass = Class.forName(className.replace('/', '.'), true, this.classLoader);
+                return (MolangExpression) expressionClass.getConstructor().newInstance();
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to load precompiled expression " + entry.name(), t);
+            }
+        });
+    }
+}
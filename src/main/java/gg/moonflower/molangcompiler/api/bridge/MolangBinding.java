@@ -0,0 +1,288 @@
+package gg.moonflower.molangcompiler.api.bridge;
+
+import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.compiler.MolangAccessors;
+import gg.moonflower.molangcompiler.impl.object.MolangAccessor;
+import gg.moonflower.molangcompiler.impl.object.MolangBoundObject;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Exposes fields and methods of a Java class to MoLang without creating a {@link java.util.function.Supplier} or
+ * {@link MolangVariable} for every value of every object.
+ * <p>
+ * Building a binding generates a single accessor class for all members. {@link #bind(Object)} then only wraps the
+ * object, and compiled expressions read every member through the shared accessor.
+ * <p>
+ * Binding is not free. Every call to {@link #bind(Object)} allocates a new object, and the first time an expression
+ * reads a member of that object a small expression for the member is created and kept for as long as the bound object
+ * is. Compiled expressions still evaluate members through that expression rather than calling the accessor directly.
+ * Binding each instance once and keeping the result is much cheaper than binding it again every frame.
+ * <pre>{@code
+ * MolangBinding<Entity> binding = MolangBinding.builder(MethodHandles.lookup(), Entity.class)
+ *         .query("health", "health")
+ *         .query("is_on_ground", "isOnGround")
+ *         .variable("speed", "speed")
+ *         .build();
+ *
+ * MolangRuntime runtime = MolangRuntime.runtime().loadLibrary("entity", binding.bind(entity)).create();
+ * }</pre>
+ *
+ * @param <T> The type of object to bind
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public final class MolangBinding<T> {
+
+    private static final Pattern NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final Class<T> type;
+    private final MolangAccessor accessor;
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+    private final boolean[] variables;
+
+    private MolangBinding(Class<T> type, MolangAccessor accessor, List<String> names, boolean[] variables) {
+        this.type = type;
+        this.accessor = accessor;
+        this.names = List.copyOf(names);
+        this.indices = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            this.indices.put(names.get(i), i);
+        }
+        this.variables = variables;
+    }
+
+    /**
+     * Creates an object that reads the members of the specified instance. The returned object should be kept and
+     * reused for as long as the instance is, since every call allocates a new object.
+     *
+     * @param instance The object to access
+     * @return A new MoLang object for the instance
+     */
+    public MolangObject bind(T instance) {
+        return new MolangBoundObject(this, Objects.requireNonNull(instance, "instance"));
+    }
+
+    /**
+     * @return The type of object this binding accesses
+     */
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * @return The MoLang names of all members in index order
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /**
+     * @return The generated accessor for the members
+     */
+    @ApiStatus.Internal
+    public MolangAccessor getAccessor() {
+        return this.accessor;
+    }
+
+    /**
+     * Retrieves the index of a member.
+     *
+     * @param name The MoLang name of the member
+     * @return The index of the member or <code>-1</code> if there is no member with that name
+     */
+    @ApiStatus.Internal
+    public int indexOf(String name) {
+        Integer index = this.indices.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Checks if a member can be written.
+     *
+     * @param index The index of the member
+     * @return Whether the member was added with {@link Builder#variable(String, String)}
+     */
+    @ApiStatus.Internal
+    public boolean isVariable(int index) {
+        return this.variables[index];
+    }
+
+    @Override
+    public String toString() {
+        return "MolangBinding[type=" + this.type.getName() + ", names=" + this.names + "]";
+    }
+
+    /**
+     * Creates a builder for a binding.
+     *
+     * @param lookup A lookup with full privilege access, usually <code>MethodHandles.lookup()</code>. Members are
+     *               accessed with the same access as the lookup class
+     * @param type   The type of object to bind
+     * @param <T>    The type of object to bind
+     * @return A new builder
+     * @throws IllegalArgumentException If the lookup cannot access the type
+     */
+    public static <T> Builder<T> builder(MethodHandles.Lookup lookup, Class<T> type) throws IllegalArgumentException {
+        if (!lookup.hasFullPrivilegeAccess()) {
+            throw new IllegalArgumentException("Lookup must have full privilege access: " + lookup);
+        }
+        if (type.isPrimitive() || type.isArray()) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName());
+        }
+        try {
+            lookup.accessClass(type);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + type.getName(), e);
+        }
+        return new Builder<>(lookup, type);
+    }
+
+    /**
+     * Builds a {@link MolangBinding}.
+     *
+     * @param <T> The type of object to bind
+     * @author Ocelot
+     * @since 4.1.0
+     */
+    public static final class Builder<T> {
+
+        private final MethodHandles.Lookup lookup;
+        private final Class<T> type;
+        private final List<String> names;
+        private final List<Member> members;
+        private final List<Boolean> variables;
+
+        private Builder(MethodHandles.Lookup lookup, Class<T> type) {
+            this.lookup = lookup;
+            this.type = type;
+            this.names = new ArrayList<>();
+            this.members = new ArrayList<>();
+            this.variables = new ArrayList<>();
+        }
+
+        /**
+         * Adds a read-only value. Fields are preferred over methods with the same name.
+         *
+         * @param name   The name of the value in MoLang
+         * @param member The name of a field or a method without parameters
+         * @return This builder
+         * @throws IllegalArgumentException If the member does not exist, cannot be accessed, or has an unsupported type
+         */
+        public Builder<T> query(String name, String member) throws IllegalArgumentException {
+            Field field = this.findField(member);
+            if (field != null) {
+                return this.add(name, field, false);
+            }
+            Method method = this.findMethod(member);
+            if (method != null) {
+                return this.add(name, method, false);
+            }
+            throw new IllegalArgumentException("Unknown member: " + this.type.getName() + "." + member);
+        }
+
+        /**
+         * Adds a value that expressions can also assign to.
+         *
+         * @param name  The name of the value in MoLang
+         * @param field The name of a non-final field
+         * @return This builder
+         * @throws IllegalArgumentException If the field does not exist, cannot be accessed, or has an unsupported type
+         */
+        public Builder<T> variable(String name, String field) throws IllegalArgumentException {
+            Field variable = this.findField(field);
+            if (variable == null) {
+                throw new IllegalArgumentException("Unknown field: " + this.type.getName() + "." + field);
+            }
+            if (Modifier.isFinal(variable.getModifiers())) {
+                throw new IllegalArgumentException("Variable field cannot be final: " + this.type.getName() + "." + field);
+            }
+            return this.add(name, variable, true);
+        }
+
+        private Builder<T> add(String name, Member member, boolean variable) {
+            if (!NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid MoLang name: " + name);
+            }
+            if (this.names.contains(name)) {
+                throw new IllegalArgumentException("Duplicate MoLang name: " + name);
+            }
+
+            Class<?> valueType = member instanceof Field field ? field.getType() : ((Method) member).getReturnType();
+            if (!MolangAccessors.isSupported(valueType)) {
+                throw new IllegalArgumentException("Unsupported type " + valueType.getName() + " for " + this.type.getName() + "." + member.getName());
+            }
+
+            try {
+                if (member instanceof Field field) {
+                    this.lookup.unreflectGetter(field);
+                    if (variable) {
+                        this.lookup.unreflectSetter(field);
+                    }
+                } else {
+                    this.lookup.unreflect((Method) member);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access " + this.type.getName() + "." + member.getName(), e);
+            }
+
+            this.names.add(name);
+            this.members.add(member);
+            this.variables.add(variable);
+            return this;
+        }
+
+        private Field findField(String name) {
+            for (Class<?> c = this.type; c != null; c = c.getSuperclass()) {
+                try {
+                    return c.getDeclaredField(name);
+                } catch (NoSuchFieldException ignored) {
+                }
+            }
+            return null;
+        }
+
+        private Method findMethod(String name) {
+            for (Class<?> c = this.type; c != null; c = c.getSuperclass()) {
+                try {
+                    return c.getDeclaredMethod(name);
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+            try {
+                return this.type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Generates the accessor and creates the binding. The binding should be kept and reused for every object of
+         * the type.
+         *
+         * @return A new binding
+         * @throws IllegalStateException If the accessor could not be generated
+         */
+        public MolangBinding<T> build() throws IllegalStateException {
+            boolean[] variables = new boolean[this.variables.size()];
+            for (int i = 0; i < variables.length; i++) {
+                variables[i] = this.variables.get(i);
+            }
+
+            try {
+                MolangAccessor accessor = MolangAccessors.define(this.lookup, this.type, this.members, variables);
+                return new MolangBinding<>(this.type, accessor, this.names, variables);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to generate accessor for " + this.type.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package gg.moonflower.molangcompiler.api.bridge;
+
+/**
+ * Describes a Java member that compiled expressions can access directly instead of looking it up in a
+ * {@link gg.moonflower.molangcompiler.api.object.MolangObject}.
+ * <p>
+ * Intrinsics are generated by the <code>molang-processor</code> annotation processor for members annotated with
+ * {@link gg.moonflower.molangcompiler.api.annotation.MolangQuery} and {@link gg.moonflower.molangcompiler.api.annotation.MolangFunction}.
+ * Compiled code only uses the member when the object is an instance of the binding class, so environments with any
+ * other object still behave the same.
+ *
+ * @param name       The name of the value or function in MoLang
+ * @param function   Whether this is a function. Queries can be read as variables or called without arguments
+ * @param binding    The internal name of the generated object. Instance members are accessed through its
+ *                   <code>instance()</code> method
+ * @param owner      The internal name of the class declaring the member
+ * @param member     The name of the field or method
+ * @param descriptor The descriptor of the field or method. Parameters and the return type must be numbers, or
+ *                   <code>boolean</code> for the return type
+ * @param isStatic   Whether the member is static
+ * @author Ocelot
+ * @since 4.1.0
+ */
+public record MolangIntrinsic(String name,
+                              boolean function,
+                              String binding,
+                              String owner,
+                              String member,
+                              String descriptor,
+                              boolean isStatic) {
+}
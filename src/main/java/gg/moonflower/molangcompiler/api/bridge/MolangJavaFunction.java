@@ -22,6 +22,64 @@ public interface MolangJavaFunction {
      */
     MolangValue resolve(Context context) throws MolangRuntimeException;
 
+    /**
+     * A function that takes no parameters and returns a float.
+     * <p>
+     * Float functions are called directly by compiled expressions without creating a {@link Context}. See
+     * {@link gg.moonflower.molangcompiler.api.MolangExpression#floatFunction(Float0)}.
+     *
+     * @since 4.1.0
+     */
+    @FunctionalInterface
+    interface Float0 {
+
+        float apply() throws MolangRuntimeException;
+    }
+
+    /**
+     * A function that takes one float parameter and returns a float.
+     *
+     * @since 4.1.0
+     */
+    @FunctionalInterface
+    interface Float1 {
+
+        float apply(float a) throws MolangRuntimeException;
+    }
+
+    /**
+     * A function that takes two float parameters and returns a float.
+     *
+     * @since 4.1.0
+     */
+    @FunctionalInterface
+    interface Float2 {
+
+        float apply(float a, float b) throws MolangRuntimeException;
+    }
+
+    /**
+     * A function that takes three float parameters and returns a float.
+     *
+     * @since 4.1.0
+     */
+    @FunctionalInterface
+    interface Float3 {
+
+        float apply(float a, float b, float c) throws MolangRuntimeException;
+    }
+
+    /**
+     * A function that takes four float parameters and returns a float.
+     *
+     * @since 4.1.0
+     */
+    @FunctionalInterface
+    interface Float4 {
+
+        float apply(float a, float b, float c, float d) throws MolangRuntimeException;
+    }
+
     /**
      * Provides parameters for MoLang Java functions.
      *
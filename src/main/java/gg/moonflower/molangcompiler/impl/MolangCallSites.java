@@ -0,0 +1,215 @@
+package gg.moonflower.molangcompiler.impl;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangRuntime;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import gg.moonflower.molangcompiler.api.object.ImmutableMolangObject;
+import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.object.MolangBoundObject;
+import gg.moonflower.molangcompiler.impl.object.MolangSlots;
+import gg.moonflower.molangcompiler.impl.object.MolangVariableStorage;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.*;
+import java.util.Locale;
+
+/**
+ * Bootstrap methods for the <code>invokedynamic</code> instructions compiled expressions use to look up objects,
+ * variables, and functions by name.
+ * <p>
+ * Variable and function sites are inline caches. The first time a site sees an object it looks the name up normally
+ * and links a guard in front of the current target, so the next lookup in the same object is an identity check:
+ * <ul>
+ *     <li>{@link MolangVariableStorage} is keyed by its shape, so every storage with the same layout shares one entry
+ *     and reads the value from its own array.</li>
+ *     <li>{@link MolangBoundObject} is keyed by its binding, so every object bound with the same binding shares one
+ *     entry and looks the member up by index.</li>
+ *     <li>Objects that are not {@link MolangObject#isMutable() mutable}, like libraries, are keyed by identity and
+ *     return the expression found the first time.</li>
+ *     <li>Other objects can change at any time, so they are never cached.</li>
+ * </ul>
+ * A site that misses more than {@link #MAX_DEPTH} times is megamorphic and falls back to looking up every time.
+ * Storages are then still read by {@link MolangSlots slot}.
+ * <p>
+ * Object sites are linked once to {@link MolangRuntime#getObject(int, String)}, which remembers each object until the
+ * libraries in the runtime change.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangCallSites {
+
+    /**
+     * The number of times a site may miss before it stops caching.
+     */
+    private static final int MAX_DEPTH = 4;
+
+    private static final MethodHandle GET_OBJECT;
+    private static final MethodHandle LOOKUP;
+    private static final MethodHandle MISS;
+    private static final MethodHandle IS_SAME;
+    private static final MethodHandle HAS_SHAPE;
+    private static final MethodHandle GET_INDEX;
+    private static final MethodHandle HAS_BINDING;
+    private static final MethodHandle GET_BOUND;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            GET_OBJECT = lookup.findStatic(MolangCallSites.class, "getObject", MethodType.methodType(MolangObject.class, MolangEnvironment.class, int.class, String.class));
+            LOOKUP = lookup.findVirtual(FieldSite.class, "lookup", MethodType.methodType(MolangExpression.class, MolangObject.class));
+            MISS = lookup.findVirtual(FieldSite.class, "miss", MethodType.methodType(MolangExpression.class, MolangObject.class));
+            IS_SAME = lookup.findStatic(MolangCallSites.class, "isSame", MethodType.methodType(boolean.class, Object.class, MolangObject.class));
+            HAS_SHAPE = lookup.findStatic(MolangCallSites.class, "hasShape", MethodType.methodType(boolean.class, Object.class, MolangObject.class));
+            GET_INDEX = lookup.findStatic(MolangCallSites.class, "getIndex", MethodType.methodType(MolangExpression.class, MolangObject.class, int.class));
+            HAS_BINDING = lookup.findStatic(MolangCallSites.class, "hasBinding", MethodType.methodType(boolean.class, Object.class, MolangObject.class));
+            GET_BOUND = lookup.findStatic(MolangCallSites.class, "getBound", MethodType.methodType(MolangExpression.class, MolangObject.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MolangCallSites() {
+    }
+
+    /**
+     * Links a site of type <code>(MolangEnvironment)MolangObject</code> that retrieves an object by name.
+     *
+     * @param lookup Unused
+     * @param name   Unused
+     * @param type   The type of the call site
+     * @param object The name of the object
+     * @return The call site
+     */
+    public static CallSite bootstrapObject(MethodHandles.Lookup lookup, String name, MethodType type, String object) {
+        int slot = MolangSlots.getObject(object.toLowerCase(Locale.ROOT));
+        return new ConstantCallSite(MethodHandles.insertArguments(GET_OBJECT, 1, slot, object).asType(type));
+    }
+
+    /**
+     * Links a site of type <code>(MolangObject)MolangExpression</code> that retrieves a variable.
+     *
+     * @param lookup   Unused
+     * @param name     Unused
+     * @param type     The type of the call site
+     * @param variable The name of the variable
+     * @return The call site
+     */
+    public static CallSite bootstrapVariable(MethodHandles.Lookup lookup, String name, MethodType type, String variable) {
+        return new FieldSite(type, variable, null);
+    }
+
+    /**
+     * Links a site of type <code>(MolangObject)MolangExpression</code> that retrieves a function the same way as
+     * {@link MolangUtil#getFunction(MolangObject, String, String)}.
+     *
+     * @param lookup   Unused
+     * @param name     Unused
+     * @param type     The type of the call site
+     * @param function The short name of the function
+     * @param fullKey  The name of the function including the number of parameters
+     * @return The call site
+     */
+    public static CallSite bootstrapFunction(MethodHandles.Lookup lookup, String name, MethodType type, String function, String fullKey) {
+        return new FieldSite(type, function, fullKey);
+    }
+
+    private static MolangObject getObject(MolangEnvironment environment, int slot, String name) throws MolangRuntimeException {
+        if (environment instanceof MolangRuntime runtime) {
+            return runtime.getObject(slot, name);
+        }
+        return environment.get(name);
+    }
+
+    private static @Nullable MolangVariableStorage getStorage(MolangObject object) {
+        if (object instanceof MolangVariableStorage storage) {
+            return storage;
+        }
+        if (object instanceof ImmutableMolangObject immutable && immutable.parent() instanceof MolangVariableStorage storage) {
+            return storage;
+        }
+        return null;
+    }
+
+    private static boolean isSame(Object expected, MolangObject object) {
+        return expected == object;
+    }
+
+    private static boolean hasShape(Object shape, MolangObject object) {
+        MolangVariableStorage storage = getStorage(object);
+        return storage != null && storage.getShape() == shape;
+    }
+
+    private static MolangExpression getIndex(MolangObject object, int index) {
+        return getStorage(object).getIndex(index);
+    }
+
+    private static boolean hasBinding(Object binding, MolangObject object) {
+        return object instanceof MolangBoundObject bound && bound.binding() == binding;
+    }
+
+    private static MolangExpression getBound(MolangObject object, int index) {
+        return ((MolangBoundObject) object).getIndex(index);
+    }
+
+    private static final class FieldSite extends MutableCallSite {
+
+        private final String name;
+        @Nullable
+        private final String fullKey;
+        private final int slot;
+        private int misses;
+
+        private FieldSite(MethodType type, String name, @Nullable String fullKey) {
+            super(type);
+            this.name = name;
+            this.fullKey = fullKey;
+            this.slot = MolangSlots.get(name);
+            this.setTarget(MISS.bindTo(this).asType(type));
+        }
+
+        private MolangExpression lookup(MolangObject object) throws MolangException {
+            if (this.fullKey != null) {
+                return MolangUtil.getFunction(object, this.name, this.fullKey);
+            }
+            MolangVariableStorage storage = getStorage(object);
+            return storage != null ? storage.get(this.slot) : object.get(this.name);
+        }
+
+        private MolangExpression miss(MolangObject object) throws MolangException {
+            MolangExpression expression = this.lookup(object);
+            synchronized (this) {
+                if (++this.misses > MAX_DEPTH) {
+                    this.setTarget(LOOKUP.bindTo(this).asType(this.type()));
+                    return expression;
+                }
+
+                MethodHandle test;
+                MethodHandle hit;
+                MolangVariableStorage storage = getStorage(object);
+                if (storage != null) {
+                    int index = this.fullKey != null && storage.indexOf(this.fullKey) != -1 ? storage.indexOf(this.fullKey) : storage.indexOf(this.name);
+                    test = MethodHandles.insertArguments(HAS_SHAPE, 0, storage.getShape());
+                    hit = index != -1 ?
+                            MethodHandles.insertArguments(GET_INDEX, 1, index) :
+                            MethodHandles.dropArguments(MethodHandles.constant(MolangExpression.class, expression), 0, MolangObject.class);
+                } else if (object instanceof MolangBoundObject bound) {
+                    // Bound names cannot contain the argument count, so functions are always found by their short name
+                    test = MethodHandles.insertArguments(HAS_BINDING, 0, bound.binding());
+                    hit = MethodHandles.insertArguments(GET_BOUND, 1, bound.binding().indexOf(this.name));
+                } else if (!object.isMutable()) {
+                    test = MethodHandles.insertArguments(IS_SAME, 0, object);
+                    hit = MethodHandles.dropArguments(MethodHandles.constant(MolangExpression.class, expression), 0, MolangObject.class);
+                } else {
+                    return expression;
+                }
+                this.setTarget(MethodHandles.guardWithTest(test.asType(this.type().changeReturnType(boolean.class)), hit.asType(this.type()), this.getTarget()));
+            }
+            return expression;
+        }
+    }
+}
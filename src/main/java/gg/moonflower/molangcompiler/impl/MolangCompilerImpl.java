@@ -1,18 +1,41 @@
 package gg.moonflower.molangcompiler.impl;
 
+import gg.moonflower.molangcompiler.api.CompilerFlag;
 import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangBatchResult;
+import gg.moonflower.molangcompiler.api.MolangCacheStats;
 import gg.moonflower.molangcompiler.api.MolangCompiler;
 import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangTierUpEvent;
 import gg.moonflower.molangcompiler.api.MolangVersion;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import gg.moonflower.molangcompiler.impl.ast.Node;
+import gg.moonflower.molangcompiler.impl.cache.MolangDiskCache;
+import gg.moonflower.molangcompiler.impl.cache.MolangExpressionCache;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
 import gg.moonflower.molangcompiler.impl.compiler.MolangLexer;
 import gg.moonflower.molangcompiler.impl.compiler.MolangParser;
+import gg.moonflower.molangcompiler.impl.compiler.MolangTypeHints;
+import gg.moonflower.molangcompiler.impl.interpreter.MolangInterpreter;
+import gg.moonflower.molangcompiler.impl.interpreter.TieredExpression;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -23,30 +46,292 @@ public class MolangCompilerImpl implements MolangCompiler {
 
     private final CompilerFlags flags;
     private final ClassLoader classLoader;
-    private final Map<MolangVersion, BytecodeCompiler> compilerCache = new HashMap<>();
+    private final Map<MolangVersion, BytecodeCompiler> compilerCache = new ConcurrentHashMap<>();
     private final Function<MolangVersion, BytecodeCompiler> mappingFunction;
+    private final Map<MolangVersion, MolangInterpreter> interpreterCache = new ConcurrentHashMap<>();
+    private final Function<MolangVersion, MolangInterpreter> interpreterMappingFunction;
+    private final boolean interpret;
+    private final boolean tiered;
+    @Nullable
+    private final MolangExpressionCache expressionCache;
+    @Nullable
+    private volatile MolangDiskCache diskCache;
+    private final List<Consumer<MolangTierUpEvent>> tierUpListeners = new CopyOnWriteArrayList<>();
 
     public MolangCompilerImpl(CompilerFlags flags) {
         this(flags, ClassLoader.getSystemClassLoader());
     }
 
     public MolangCompilerImpl(CompilerFlags flags, ClassLoader classLoader) {
+        this(flags, classLoader, MolangExpressionCache.DEFAULT_MAXIMUM_SIZE, MolangExpressionCache.DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    public MolangCompilerImpl(CompilerFlags flags, ClassLoader classLoader, int cacheSize, long cacheWeight) {
+        this(flags, classLoader, cacheSize, cacheWeight, null);
+    }
+
+    public MolangCompilerImpl(CompilerFlags flags, ClassLoader classLoader, Path cacheDirectory) throws IOException {
+        this(flags, classLoader, MolangExpressionCache.DEFAULT_MAXIMUM_SIZE, MolangExpressionCache.DEFAULT_MAXIMUM_WEIGHT, MolangDiskCache.open(cacheDirectory));
+    }
+
+    private MolangCompilerImpl(CompilerFlags flags, ClassLoader classLoader, int cacheSize, long cacheWeight, @Nullable MolangDiskCache diskCache) {
         this.flags = flags;
         this.classLoader = classLoader;
         this.mappingFunction = v -> v.createBytecodeCompiler(this.flags, this.classLoader);
+        this.expressionCache = flags.contains(CompilerFlag.DISABLE_CACHE) ? null : new MolangExpressionCache(cacheSize, cacheWeight);
+        this.diskCache = diskCache;
+        this.interpreterMappingFunction = v -> v.createInterpreter(this.flags);
+        this.interpret = flags.contains(CompilerFlag.INTERPRET);
+        this.tiered = !this.interpret && flags.contains(CompilerFlag.TIERED);
     }
 
     @Override
     public MolangExpression compile(String input, MolangVersion version) throws MolangSyntaxException {
+        if (this.expressionCache == null) {
+            return this.compileUncached(input, version);
+        }
+
+        MolangExpressionCache.Key key = new MolangExpressionCache.Key(input, version, this.flags);
+        MolangExpression cached = this.expressionCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return this.expressionCache.put(key, this.compileUncached(input, version));
+    }
+
+    private MolangExpression compileUncached(String input, MolangVersion version) throws MolangSyntaxException {
+        if (this.interpret) {
+            // Never create a bytecode compiler, since it is also a class loader
+            return this.getInterpreter(version).build(this.parse(input, version));
+        }
+
+        BytecodeCompiler compiler = this.getCompiler(version);
+        MolangDiskCache diskCache = this.diskCache;
+        if (diskCache == null) {
+            Node node = this.parse(input, version);
+            if (this.tiered && !(compiler.isOptimizationEnabled() && node.isConstant())) {
+                return this.createTiered(node, version, n -> compiler.build(n, input));
+            }
+            return compiler.build(node, input);
+        }
+
+        // Classes from a previous run can be defined directly
+        MolangDiskCache.Key key = MolangDiskCache.key(input, version, this.flags);
+        BytecodeCompiler.GeneratedClass cached = diskCache.get(key);
+        if (cached != null) {
+            try {
+                return compiler.define(cached);
+            } catch (MolangSyntaxException ignored) {
+                // Fall back to compiling the source again
+            }
+        }
+
+        Node node = this.parse(input, version);
+        if (compiler.isOptimizationEnabled() && node.isConstant()) {
+            return compiler.build(node, input);
+        }
+        if (this.tiered) {
+            return this.createTiered(node, version, n -> this.generateAndStore(compiler, key, n, input));
+        }
+        return this.generateAndStore(compiler, key, node, input);
+    }
+
+    private MolangExpression generateAndStore(BytecodeCompiler compiler, MolangDiskCache.Key key, Node node, String source) throws MolangSyntaxException {
+        BytecodeCompiler.GeneratedClass generatedClass = compiler.generate(node, source);
+        // Tiered expressions are generated later, so the compiler may have been closed since
+        MolangDiskCache diskCache = this.diskCache;
+        if (diskCache != null) {
+            diskCache.put(key, generatedClass);
+        }
+        return compiler.define(generatedClass);
+    }
+
+    private MolangExpression createTiered(Node node, MolangVersion version, TieredExpression.Compiler compiler) throws MolangSyntaxException {
+        return new TieredExpression(node, this.getInterpreter(version).interpret(node), compiler, this.flags.getTierUpThreshold(), this.flags.contains(CompilerFlag.BACKGROUND_TIER_UP), this::fireTierUp);
+    }
+
+    private void fireTierUp(MolangTierUpEvent event) {
+        for (Consumer<MolangTierUpEvent> listener : this.tierUpListeners) {
+            listener.accept(event);
+        }
+    }
+
+    @Override
+    public <K> MolangBatchResult<K> compileAll(Map<K, String> sources, MolangVersion version, int batchSize) {
+        if (this.interpret) {
+            if (batchSize < 1 || batchSize > BytecodeCompiler.MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("Batch size must be between 1 and " + BytecodeCompiler.MAX_BATCH_SIZE);
+            }
+            // There are no classes to share, so every source is interpreted on its own
+            return MolangCompiler.super.compileAll(sources, version, batchSize);
+        }
+
+        int size = sources.size();
+        List<K> keys = new ArrayList<>(size);
+        MolangExpression[] expressions = new MolangExpression[size];
+        MolangSyntaxException[] errors = new MolangSyntaxException[size];
+        int[] nodeIndices = new int[size];
+        Arrays.fill(nodeIndices, -1);
+
+        // Parse everything that isn't cached. Identical sources are only compiled once
+        List<Node> nodes = new ArrayList<>();
+        List<String> nodeSources = new ArrayList<>();
+        Map<String, Integer> parsed = new HashMap<>();
+        int i = 0;
+        for (Map.Entry<K, String> entry : sources.entrySet()) {
+            keys.add(entry.getKey());
+            String source = entry.getValue();
+
+            Integer nodeIndex = parsed.get(source);
+            if (nodeIndex != null) {
+                nodeIndices[i++] = nodeIndex;
+                continue;
+            }
+
+            MolangExpression cached = this.expressionCache != null ? this.expressionCache.get(new MolangExpressionCache.Key(source, version, this.flags)) : null;
+            if (cached != null) {
+                expressions[i++] = cached;
+                continue;
+            }
+
+            try {
+                Node node = this.parse(source, version);
+                parsed.put(source, nodes.size());
+                nodeIndices[i] = nodes.size();
+                nodes.add(node);
+                nodeSources.add(source);
+            } catch (MolangSyntaxException e) {
+                errors[i] = e;
+            }
+            i++;
+        }
+
+        BytecodeCompiler.Batch batch = this.getCompiler(version).buildAll(nodes, nodeSources, batchSize);
+        MolangExpression[] compiled = batch.expressions();
+        if (this.expressionCache != null) {
+            for (int j = 0; j < compiled.length; j++) {
+                if (compiled[j] != null) {
+                    compiled[j] = this.expressionCache.put(new MolangExpressionCache.Key(nodeSources.get(j), version, this.flags), compiled[j]);
+                }
+            }
+        }
+
+        Map<K, MolangExpression> expressionMap = new LinkedHashMap<>();
+        Map<K, MolangSyntaxException> errorMap = new LinkedHashMap<>();
+        for (int j = 0; j < size; j++) {
+            int nodeIndex = nodeIndices[j];
+            MolangExpression expression = nodeIndex != -1 ? compiled[nodeIndex] : expressions[j];
+            MolangSyntaxException error = nodeIndex != -1 ? batch.errors()[nodeIndex] : errors[j];
+            if (expression != null) {
+                expressionMap.put(keys.get(j), expression);
+            } else {
+                errorMap.put(keys.get(j), error);
+            }
+        }
+        return new MolangBatchResult<>(Collections.unmodifiableMap(expressionMap), Collections.unmodifiableMap(errorMap), List.copyOf(batch.classSizes()));
+    }
+
+    @Override
+    public <K> MolangBatchResult<K> compileAll(Map<K, String> sources, MolangVersion version, int batchSize, Executor executor) {
+        if (batchSize < 1 || batchSize > BytecodeCompiler.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + BytecodeCompiler.MAX_BATCH_SIZE);
+        }
+        if (sources.size() <= batchSize) {
+            return this.compileAll(sources, version, batchSize);
+        }
+
+        // Each task compiles and defines a single batch. Batches are contiguous, so joining them in order keeps the input order
+        List<CompletableFuture<MolangBatchResult<K>>> tasks = new ArrayList<>((sources.size() + batchSize - 1) / batchSize);
+        Map<K, String> batch = new LinkedHashMap<>();
+        for (Map.Entry<K, String> entry : sources.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() == batchSize) {
+                Map<K, String> batchSources = batch;
+                tasks.add(CompletableFuture.supplyAsync(() -> this.compileAll(batchSources, version, batchSize), executor));
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            Map<K, String> batchSources = batch;
+            tasks.add(CompletableFuture.supplyAsync(() -> this.compileAll(batchSources, version, batchSize), executor));
+        }
+
+        Map<K, MolangExpression> expressions = new LinkedHashMap<>();
+        Map<K, MolangSyntaxException> errors = new LinkedHashMap<>();
+        List<Integer> classSizes = new ArrayList<>();
+        for (CompletableFuture<MolangBatchResult<K>> task : tasks) {
+            MolangBatchResult<K> result;
+            try {
+                result = task.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            expressions.putAll(result.expressions());
+            errors.putAll(result.errors());
+            classSizes.addAll(result.classSizes());
+        }
+        return new MolangBatchResult<>(Collections.unmodifiableMap(expressions), Collections.unmodifiableMap(errors), List.copyOf(classSizes));
+    }
+
+    private Node parse(String input, MolangVersion version) throws MolangSyntaxException {
         // Lex the input into tokens
         MolangLexer.Token[] tokens = MolangLexer.createTokens(input);
 
         // Use the version-specific parser to parse tokens into an AST
         MolangParser parser = version.getParser();
-        Node node = parser.parseTokens(tokens);
+        return MolangTypeHints.apply(parser.parseTokens(tokens), this.flags);
+    }
 
+    private BytecodeCompiler getCompiler(MolangVersion version) {
         // Use the version-specific bytecode compiler to compile the AST
-        BytecodeCompiler compiler = compilerCache.computeIfAbsent(version, mappingFunction);
-        return compiler.build(node);
+        return this.compilerCache.computeIfAbsent(version, this.mappingFunction);
+    }
+
+    private MolangInterpreter getInterpreter(MolangVersion version) {
+        return this.interpreterCache.computeIfAbsent(version, this.interpreterMappingFunction);
+    }
+
+    @Override
+    public MolangCacheStats getCacheStats() {
+        return this.expressionCache != null ? this.expressionCache.stats() : MolangCacheStats.EMPTY;
+    }
+
+    @Override
+    public void clearCache() {
+        if (this.expressionCache != null) {
+            this.expressionCache.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        MolangDiskCache diskCache;
+        synchronized (this) {
+            diskCache = this.diskCache;
+            this.diskCache = null;
+        }
+        if (diskCache != null) {
+            try {
+                diskCache.close();
+            } catch (IOException ignored) {
+                // The class bytes are already written, so there is nothing to lose
+            }
+        }
+    }
+
+    @Override
+    public void addTierUpListener(Consumer<MolangTierUpEvent> listener) {
+        this.tierUpListeners.add(listener);
+    }
+
+    @Override
+    public void removeTierUpListener(Consumer<MolangTierUpEvent> listener) {
+        this.tierUpListeners.remove(listener);
     }
 }
@@ -1,5 +1,6 @@
 package gg.moonflower.molangcompiler.impl;
 
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
 import gg.moonflower.molangcompiler.api.MolangExpression;
 import gg.moonflower.molangcompiler.api.MolangValue;
 import gg.moonflower.molangcompiler.api.bridge.MolangVariable;
@@ -7,7 +8,10 @@ import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import gg.moonflower.molangcompiler.api.object.MolangObject;
 import gg.moonflower.molangcompiler.impl.node.MolangConstantNode;
+import gg.moonflower.molangcompiler.impl.node.MolangFunctionNode;
 import gg.moonflower.molangcompiler.impl.node.MolangVariableNode;
+import gg.moonflower.molangcompiler.impl.object.MolangSlots;
+import gg.moonflower.molangcompiler.impl.object.MolangVariableStorage;
 import org.jetbrains.annotations.ApiStatus;
 
 /**
@@ -163,6 +167,133 @@ public class MolangUtil {
         return (Math.abs(x % wavelength - wavelength * 0.5F) - wavelength * 0.25F) / (wavelength * 0.25F);
     }
 
+    /**
+     * Converts an array index into a valid index. Negative indices are clamped to 0 and indices past the end wrap around.
+     * <p>
+     * This is called by generated code, so it lives here instead of in the AST to keep ASM off the runtime classpath.
+     *
+     * @param idx    The index to convert
+     * @param length The length of the array
+     * @return A valid index into the array
+     * @throws ArrayIndexOutOfBoundsException if the array is empty
+     */
+    public static int clampAndWrapIndex(int idx, int length) {
+        if (length == 0) {
+            throw new ArrayIndexOutOfBoundsException("Cannot index empty array");
+        }
+        if (idx < 0) {
+            return 0;
+        }
+        if (idx >= length) {
+            return idx % length;
+        }
+        return idx;
+    }
+
+    /**
+     * Adds two values and converts the result to a float.
+     * <p>
+     * This is the same as {@code left.internalAdd(right).asFloat()}, but only allocates when a string is concatenated.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The sum as a float
+     */
+    public static float addFloat(MolangValue left, MolangValue right) {
+        if (left.isString() || right.isString()) {
+            return safeStringToFloat(left.asString() + right.asString());
+        }
+        return left.asFloat() + right.asFloat();
+    }
+
+    /**
+     * Adds a value and a float and converts the result to a float.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The sum as a float
+     * @see #addFloat(MolangValue, MolangValue)
+     */
+    public static float addFloat(MolangValue left, float right) {
+        if (left.isString()) {
+            return safeStringToFloat(left.getString() + right);
+        }
+        return left.asFloat() + right;
+    }
+
+    /**
+     * Adds a float and a value and converts the result to a float.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The sum as a float
+     * @see #addFloat(MolangValue, MolangValue)
+     */
+    public static float addFloat(float left, MolangValue right) {
+        if (right.isString()) {
+            return safeStringToFloat(left + right.getString());
+        }
+        return left + right.asFloat();
+    }
+
+    /**
+     * Subtracts two values and converts the result to a float.
+     * <p>
+     * This is the same as {@code left.internalSubtract(right).asFloat()}, but only allocates when both values are strings.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The difference as a float
+     */
+    public static float subtractFloat(MolangValue left, MolangValue right) {
+        if (left.isString() && right.isString()) {
+            return safeStringToFloat(left.getString().replace(right.getString(), ""));
+        }
+        return left.asFloat() - right.asFloat();
+    }
+
+    /**
+     * Multiplies two values and converts the result to a float.
+     * <p>
+     * This is the same as {@code left.internalMultiply(right).asFloat()}, but only allocates when a string is repeated.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The product as a float
+     */
+    public static float multiplyFloat(MolangValue left, MolangValue right) {
+        if (left.isString() && right.isFloat()) {
+            return safeStringToFloat(left.getString().repeat(Math.max(0, (int) right.getFloat())));
+        }
+        return left.asFloat() * right.asFloat();
+    }
+
+    /**
+     * Multiplies a value and a float and converts the result to a float.
+     *
+     * @param left  The first value
+     * @param right The second value
+     * @return The product as a float
+     * @see #multiplyFloat(MolangValue, MolangValue)
+     */
+    public static float multiplyFloat(MolangValue left, float right) {
+        if (left.isString()) {
+            return safeStringToFloat(left.getString().repeat(Math.max(0, (int) right)));
+        }
+        return left.asFloat() * right;
+    }
+
+    /**
+     * Converts a value into a float value for variables the host has declared as floats.
+     *
+     * @param value The value to convert
+     * @return The value if it is already a float, otherwise a new float value with {@link MolangValue#asFloat()}
+     * @see gg.moonflower.molangcompiler.api.CompilerFlags#withFloatHints(String...)
+     */
+    public static MolangValue toFloatValue(MolangValue value) {
+        return value.isFloat() ? value : MolangValue.of(value.asFloat());
+    }
+
     /**
      * Retrieves a function from a MolangObject, checking both the full key and short name.
      * <p>
@@ -185,6 +316,123 @@ public class MolangUtil {
         }
     }
 
+    /**
+     * Calls a function with the specified arguments.
+     * <p>
+     * Java functions receive the arguments directly, so nested calls never see each other's arguments. Any other
+     * expression is resolved with the arguments loaded as environment parameters.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @param arguments   The arguments to pass into the function
+     * @return The result of the function
+     * @throws MolangRuntimeException if the function fails
+     */
+    public static MolangValue invokeFunction(MolangExpression function, MolangEnvironment environment, MolangValue[] arguments) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invoke(arguments);
+        }
+
+        for (MolangValue argument : arguments) {
+            environment.loadParameter(argument);
+        }
+        try {
+            return function.get(environment);
+        } finally {
+            environment.clearParameters();
+        }
+    }
+
+    /**
+     * Calls a function with no arguments, returning a float.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @return The result of the function as a float
+     * @throws MolangRuntimeException if the function fails
+     * @see #invokeFunction(MolangExpression, MolangEnvironment, MolangValue[])
+     */
+    public static float invokeFloatFunction(MolangExpression function, MolangEnvironment environment) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invokeFloat();
+        }
+        return invokeFunction(function, environment, new MolangValue[0]).asFloat();
+    }
+
+    /**
+     * Calls a function with one float argument, returning a float.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @param a           The first argument
+     * @return The result of the function as a float
+     * @throws MolangRuntimeException if the function fails
+     * @see #invokeFunction(MolangExpression, MolangEnvironment, MolangValue[])
+     */
+    public static float invokeFloatFunction(MolangExpression function, MolangEnvironment environment, float a) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invokeFloat(a);
+        }
+        return invokeFunction(function, environment, new MolangValue[]{MolangValue.of(a)}).asFloat();
+    }
+
+    /**
+     * Calls a function with two float arguments, returning a float.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @param a           The first argument
+     * @param b           The second argument
+     * @return The result of the function as a float
+     * @throws MolangRuntimeException if the function fails
+     * @see #invokeFunction(MolangExpression, MolangEnvironment, MolangValue[])
+     */
+    public static float invokeFloatFunction(MolangExpression function, MolangEnvironment environment, float a, float b) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invokeFloat(a, b);
+        }
+        return invokeFunction(function, environment, new MolangValue[]{MolangValue.of(a), MolangValue.of(b)}).asFloat();
+    }
+
+    /**
+     * Calls a function with three float arguments, returning a float.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @param a           The first argument
+     * @param b           The second argument
+     * @param c           The third argument
+     * @return The result of the function as a float
+     * @throws MolangRuntimeException if the function fails
+     * @see #invokeFunction(MolangExpression, MolangEnvironment, MolangValue[])
+     */
+    public static float invokeFloatFunction(MolangExpression function, MolangEnvironment environment, float a, float b, float c) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invokeFloat(a, b, c);
+        }
+        return invokeFunction(function, environment, new MolangValue[]{MolangValue.of(a), MolangValue.of(b), MolangValue.of(c)}).asFloat();
+    }
+
+    /**
+     * Calls a function with four float arguments, returning a float.
+     *
+     * @param function    The function to call
+     * @param environment The environment to call in
+     * @param a           The first argument
+     * @param b           The second argument
+     * @param c           The third argument
+     * @param d           The fourth argument
+     * @return The result of the function as a float
+     * @throws MolangRuntimeException if the function fails
+     * @see #invokeFunction(MolangExpression, MolangEnvironment, MolangValue[])
+     */
+    public static float invokeFloatFunction(MolangExpression function, MolangEnvironment environment, float a, float b, float c, float d) throws MolangRuntimeException {
+        if (function instanceof MolangFunctionNode node) {
+            return node.invokeFloat(a, b, c, d);
+        }
+        return invokeFunction(function, environment, new MolangValue[]{MolangValue.of(a), MolangValue.of(b), MolangValue.of(c), MolangValue.of(d)}).asFloat();
+    }
+
     /**
      * Sets a condition in a MolangObject, creating a new variable if necessary or updating an existing one.
      * <p>
@@ -211,6 +459,24 @@ public class MolangUtil {
         }
     }
 
+    /**
+     * Sets a condition in a MolangObject the same way as {@link #setValue(MolangObject, String, MolangValue)}, writing
+     * {@link MolangVariableStorage} directly by slot.
+     *
+     * @param object The MolangObject to modify
+     * @param slot   The {@link MolangSlots slot} of the field
+     * @param name   The name of the field to set
+     * @param value  The condition to assign
+     * @throws MolangRuntimeException if the condition cannot be set
+     */
+    public static void setValue(MolangObject object, int slot, String name, MolangValue value) throws MolangRuntimeException {
+        if (object instanceof MolangVariableStorage storage) {
+            storage.setValue(slot, name, value);
+            return;
+        }
+        setValue(object, name, value);
+    }
+
     /**
      * Converts a MolangValue to a string representation.
      *
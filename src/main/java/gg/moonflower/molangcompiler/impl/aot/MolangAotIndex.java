@@ -0,0 +1,119 @@
+package gg.moonflower.molangcompiler.impl.aot;
+
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the index of expressions compiled ahead of time.
+ * <p>
+ * The index starts with a header of the magic number, format version, and {@link BytecodeCompiler#CODEGEN_VERSION}, followed by the number of entries.
+ * Each entry stores the name, source, MoLang version, and internal class name of an expression.
+ * <p>
+ * This class is used at runtime, so it must never load any class that depends on ASM.
+ * {@link BytecodeCompiler#CODEGEN_VERSION} is a compile-time constant and does not load the compiler.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangAotIndex {
+
+    private static final int MAGIC = 0x4D4C414F; // MLAO
+    private static final int FORMAT_VERSION = 1;
+
+    private MolangAotIndex() {
+    }
+
+    /**
+     * Writes an index containing the specified entries.
+     *
+     * @param stream  The stream to write to
+     * @param entries The expressions in the index
+     * @throws IOException If an error occurs writing to the stream
+     */
+    public static void write(OutputStream stream, Collection<Entry> entries) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(BytecodeCompiler.CODEGEN_VERSION);
+        output.writeInt(entries.size());
+        for (Entry entry : entries) {
+            writeString(output, entry.name());
+            writeString(output, entry.source());
+            output.writeInt(entry.version());
+            writeString(output, entry.className());
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads all entries from an index.
+     *
+     * @param stream The stream to read from
+     * @return The expressions in the index
+     * @throws IOException If the index is invalid or was compiled for a different version of the compiler
+     */
+    public static List<Entry> read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a MoLang expression index");
+        }
+        int formatVersion = input.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported expression index format: " + formatVersion);
+        }
+        int codegenVersion = input.readInt();
+        if (codegenVersion != BytecodeCompiler.CODEGEN_VERSION) {
+            throw new IOException("Expressions were compiled for code generation version " + codegenVersion + ", but this version of the compiler uses " + BytecodeCompiler.CODEGEN_VERSION + ". Recompile them with the same version as the runtime");
+        }
+
+        int count = input.readInt();
+        List<Entry> entries = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            String name = readString(input);
+            String source = readString(input);
+            int version = input.readInt();
+            String className = readString(input);
+            entries.add(new Entry(name, source, version, className));
+        }
+        return entries;
+    }
+
+    // DataOutput#writeUTF is limited to 64KB, which very large scripts can exceed
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A single expression in the index.
+     *
+     * @param name      The name the expression was compiled with, usually the path of its source file
+     * @param source    The MoLang source code of the expression
+     * @param version   The MoLang version the expression was compiled with
+     * @param className The internal name of the generated class
+     */
+    public record Entry(String name, String source, int version, String className) {
+    }
+}
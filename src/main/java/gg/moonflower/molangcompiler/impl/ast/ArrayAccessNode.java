@@ -2,6 +2,7 @@ package gg.moonflower.molangcompiler.impl.ast;
 
 import gg.moonflower.molangcompiler.api.MolangValue;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.impl.MolangUtil;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeEnvironment;
 import org.jetbrains.annotations.ApiStatus;
@@ -20,24 +21,6 @@ import org.objectweb.asm.tree.MethodNode;
 @ApiStatus.Internal
 public record ArrayAccessNode(Node array, Node index) implements Node {
 
-    /**
-     * Helper method to clamp and wrap array indices.
-     * Negative indices are clamped to 0.
-     * Indices >= length are wrapped using modulo.
-     */
-    public static int clampAndWrapIndex(int idx, int length) {
-        if (length == 0) {
-            throw new ArrayIndexOutOfBoundsException("Cannot index empty array");
-        }
-        if (idx < 0) {
-            return 0;
-        }
-        if (idx >= length) {
-            return idx % length;
-        }
-        return idx;
-    }
-
     @Override
     public String toString() {
         return array.toString() + "[" + index.toString() + "]";
@@ -65,7 +48,7 @@ public record ArrayAccessNode(Node array, Node index) implements Node {
         int idx = (int) indexValue.asFloat();
         MolangValue[] elements = arrayValue.getArray();
 
-        idx = clampAndWrapIndex(idx, elements.length);
+        idx = MolangUtil.clampAndWrapIndex(idx, elements.length);
 
         return elements[idx];
     }
@@ -104,7 +87,7 @@ public record ArrayAccessNode(Node array, Node index) implements Node {
         // Call clampAndWrapIndex(idx, length) to get the wrapped index
         method.visitMethodInsn(
                 Opcodes.INVOKESTATIC,
-                "gg/moonflower/molangcompiler/impl/ast/ArrayAccessNode",
+                "gg/moonflower/molangcompiler/impl/MolangUtil",
                 "clampAndWrapIndex",
                 "(II)I",
                 false
@@ -27,7 +27,7 @@ public record BinaryConditionalNode(Node condition, Node branch) implements Node
 
     @Override
     public boolean isConstant() {
-        return this.condition.isConstant();
+        return this.condition.isConstant() && this.branch.isConstant();
     }
 
     @Override
@@ -52,9 +52,7 @@ public record BinaryConditionalNode(Node condition, Node branch) implements Node
             return;
         }
         Label label_end = new Label();
-        this.condition.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
-        compiler.unwrapBool(method);
-        method.visitJumpInsn(Opcodes.IFEQ, label_end);
+        this.condition.writeBytecodeAsBranch(method, compiler, environment, breakLabel, continueLabel, null, label_end);
         {
             BytecodeEnvironment localEnvironment = environment.copy();
             this.branch.writeBytecode(method, compiler, localEnvironment, breakLabel, continueLabel);
@@ -1,6 +1,8 @@
 package gg.moonflower.molangcompiler.impl.ast;
 
+import gg.moonflower.molangcompiler.api.MolangValue;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -33,6 +35,32 @@ public enum BinaryOperation {
         return this.value;
     }
 
+    /**
+     * Determines the type of value this operation produces from the static types of the operands.
+     *
+     * @param left  The static type of the left operand, or <code>null</code> if unknown
+     * @param right The static type of the right operand, or <code>null</code> if unknown
+     * @return The type of the result, or <code>null</code> if it can only be known at runtime
+     * @see Node#getStaticType()
+     */
+    public @Nullable MolangValue.Type getResultType(@Nullable MolangValue.Type left, @Nullable MolangValue.Type right) {
+        return switch (this) {
+            // Strings are concatenated with anything
+            case ADD -> isNotString(left) && isNotString(right) ? MolangValue.Type.FLOAT : null;
+            // Strings are only removed from other strings
+            case SUBTRACT -> isNotString(left) || isNotString(right) ? MolangValue.Type.FLOAT : null;
+            // Strings are repeated by floats
+            case MULTIPLY -> isNotString(left) ? MolangValue.Type.FLOAT : null;
+            case DIVIDE -> MolangValue.Type.FLOAT;
+            case AND, OR, EQUALS, NOT_EQUALS, LESS_EQUALS, LESS, GREATER_EQUALS, GREATER -> MolangValue.Type.BOOLEAN;
+            case NULL_COALESCING -> null;
+        };
+    }
+
+    private static boolean isNotString(@Nullable MolangValue.Type type) {
+        return type != null && type != MolangValue.Type.STRING;
+    }
+
     @Override
     public String toString() {
         return this.value;
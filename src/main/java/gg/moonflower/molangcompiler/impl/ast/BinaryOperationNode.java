@@ -35,9 +35,15 @@ public record BinaryOperationNode(BinaryOperation operator, Node left, Node righ
         return true;
     }
 
+    @Override
+    public @Nullable MolangValue.Type getStaticType() {
+        return this.operator.getResultType(this.left.getStaticType(), this.right.getStaticType());
+    }
+
     private float evaluateFloat(BytecodeEnvironment environment) throws MolangException {
         MolangValue leftValue = this.left.evaluate(environment);
-        MolangValue rightValue = this.right.evaluate(environment);
+        // The right operand of ?? is only evaluated if the left operand is null, which a constant never is
+        MolangValue rightValue = this.operator == BinaryOperation.NULL_COALESCING ? MolangValue.NULL : this.right.evaluate(environment);
 
         // For string comparisons, handle EQUALS and NOT_EQUALS specially
         if ((this.operator == BinaryOperation.EQUALS || this.operator == BinaryOperation.NOT_EQUALS) &&
@@ -59,8 +65,8 @@ public record BinaryOperationNode(BinaryOperation operator, Node left, Node righ
             case SUBTRACT -> left - right;
             case MULTIPLY -> left * right;
             case DIVIDE -> left / right;
-            case AND -> left != 0 && right != 0 ? 1.0f : 0.0f;
-            case OR -> left != 0 || right != 0 ? 1.0f : 0.0f;
+            case AND -> leftValue.asBoolean() && rightValue.asBoolean() ? 1.0f : 0.0f;
+            case OR -> leftValue.asBoolean() || rightValue.asBoolean() ? 1.0f : 0.0f;
             case LESS -> left < right ? 1.0f : 0.0f;
             case LESS_EQUALS -> left <= right ? 1.0f : 0.0f;
             case GREATER -> left > right ? 1.0f : 0.0f;
@@ -74,6 +80,9 @@ public record BinaryOperationNode(BinaryOperation operator, Node left, Node righ
 
     @Override
     public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
+        if (this.operator == BinaryOperation.NULL_COALESCING) {
+            return this.left.evaluate(environment);
+        }
         return MolangValue.of(this.evaluateFloat(environment));
     }
 
@@ -96,4 +105,14 @@ public record BinaryOperationNode(BinaryOperation operator, Node left, Node righ
         compiler.writeBinaryOperationAsFloat(method, environment, breakLabel, continueLabel,
                 left, right, operator);
     }
+
+    @Override
+    public void writeBytecodeAsBranch(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException {
+        if (compiler.isOptimizationEnabled() && this.isConstant()) {
+            Node.super.writeBytecodeAsBranch(method, compiler, environment, breakLabel, continueLabel, trueLabel, falseLabel);
+            return;
+        }
+        compiler.writeBinaryOperationAsBranch(method, environment, breakLabel, continueLabel,
+                left, right, operator, trueLabel, falseLabel);
+    }
 }
@@ -0,0 +1,84 @@
+package gg.moonflower.molangcompiler.impl.ast;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeEnvironment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.Set;
+
+/**
+ * Computes a float expression that appears more than once the first time it is reached, and loads the stored result
+ * every other time. The environment forgets the result when any variable in the expression is set.
+ *
+ * @param value     The deterministic float expression to compute
+ * @param key       The key identifying the expression in the environment
+ * @param variables The names of the variables read by the expression
+ * @author Ocelot
+ * @see gg.moonflower.molangcompiler.impl.compiler.MolangSubexpressions
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public record CachedNode(Node value, String key, Set<String> variables) implements Node {
+
+    @Override
+    public String toString() {
+        return this.value.toString();
+    }
+
+    @Override
+    public boolean isConstant() {
+        return this.value.isConstant();
+    }
+
+    @Override
+    public boolean hasValue() {
+        return true;
+    }
+
+    @Override
+    public MolangValue.Type getStaticType() {
+        return MolangValue.Type.FLOAT;
+    }
+
+    @Override
+    public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
+        return this.value.evaluate(environment);
+    }
+
+    @Override
+    public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        this.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+        compiler.wrapFloat(method);
+    }
+
+    @Override
+    public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        Integer index = environment.getExpressionIndex(this.key);
+        if (index != null) {
+            method.visitVarInsn(Opcodes.FLOAD, index);
+            return;
+        }
+
+        this.value.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+        method.visitInsn(Opcodes.DUP);
+        method.visitVarInsn(Opcodes.FSTORE, environment.allocateExpression(this.key, this.variables));
+    }
+
+    /**
+     * Computes and stores the expression without leaving the result on the stack. Nothing is written if the result is already stored.
+     */
+    public void writeStore(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (environment.getExpressionIndex(this.key) != null) {
+            return;
+        }
+
+        this.value.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+        method.visitVarInsn(Opcodes.FSTORE, environment.allocateExpression(this.key, this.variables));
+    }
+}
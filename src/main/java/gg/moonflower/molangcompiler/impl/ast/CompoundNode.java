@@ -47,9 +47,40 @@ public record CompoundNode(Node... nodes) implements Node {
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
         for (Node node : this.nodes) {
             node.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+            // Nothing after an exit can run, so it must not load or mark any variables
+            if (exits(node)) {
+                break;
+            }
         }
     }
 
+    /**
+     * Checks whether the node always leaves the current block, so none of the nodes after it are reachable.
+     *
+     * @param node The node to check
+     * @return Whether every path through the node ends in a <code>return</code>, <code>break</code>, or <code>continue</code>
+     */
+    public static boolean exits(Node node) {
+        if (node instanceof ReturnNode || node instanceof BreakNode || node instanceof ContinueNode) {
+            return true;
+        }
+        if (node instanceof ScopeNode scope) {
+            return exits(scope.node());
+        }
+        if (node instanceof CompoundNode compound) {
+            for (Node child : compound.nodes()) {
+                if (exits(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            return exits(ternary.left()) && exits(ternary.right());
+        }
+        return false;
+    }
+
     @Override
     public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
         throw new MolangSyntaxException("Cannot write a compound node as float");
@@ -37,6 +37,11 @@ public record ConstNode(MolangValue value) implements Node {
         return true;
     }
 
+    @Override
+    public MolangValue.Type getStaticType() {
+        return this.value.getType();
+    }
+
     @Override
     public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
         return this.value;
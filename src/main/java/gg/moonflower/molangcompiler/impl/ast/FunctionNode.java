@@ -1,10 +1,14 @@
 package gg.moonflower.molangcompiler.impl.ast;
 
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeEnvironment;
+import gg.moonflower.molangcompiler.impl.compiler.MolangIntrinsics;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
@@ -23,6 +27,22 @@ import java.util.stream.Collectors;
 @ApiStatus.Internal
 public record FunctionNode(String object, String function, Node... arguments) implements Node {
 
+    /**
+     * Looks up the function with an inline cache, see {@link gg.moonflower.molangcompiler.impl.MolangCallSites}.
+     */
+    private static final Handle FUNCTION_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "gg/moonflower/molangcompiler/impl/MolangCallSites",
+            "bootstrapFunction",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/invoke/CallSite;",
+            false
+    );
+
+    /**
+     * The most arguments {@link gg.moonflower.molangcompiler.impl.MolangUtil#invokeFloatFunction} accepts.
+     */
+    private static final int MAX_FLOAT_ARGUMENTS = 4;
+
     @Override
     public String toString() {
         return this.object + "." + this.function + "(" + Arrays.stream(this.arguments).map(Node::toString).collect(Collectors.joining(", ")) + ")";
@@ -40,63 +60,150 @@ public record FunctionNode(String object, String function, Node... arguments) im
 
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (this.writeIntrinsic(method, compiler, environment, breakLabel, continueLabel, false)) {
+            return;
+        }
+
+        this.writeFunction(method, environment);
+
+        // Arguments are passed directly, so nested calls can't overwrite each other
+        compiler.writeIntConst(method, this.arguments.length);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "gg/moonflower/molangcompiler/api/MolangValue");
+        for (int i = 0; i < this.arguments.length; i++) {
+            Node node = this.arguments[i];
+            method.visitInsn(Opcodes.DUP);
+            compiler.writeIntConst(method, i);
+            if (compiler.isOptimizationEnabled() && node.isConstant()) {
+                compiler.writeConst(method, node.evaluate(environment));
+            } else {
+                node.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+            }
+            method.visitInsn(Opcodes.AASTORE);
+        }
+        this.invokeFunction(method);
+    }
+
+    @Override
+    public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (this.writeIntrinsic(method, compiler, environment, breakLabel, continueLabel, true)) {
+            return;
+        }
+        if (this.arguments.length > MAX_FLOAT_ARGUMENTS || !this.hasFloatArguments(compiler, environment)) {
+            Node.super.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            return;
+        }
+
+        // Every argument is a float, so float functions can be called without boxing
+        this.writeFunction(method, environment);
+        this.writeFloatArguments(method, compiler, environment, breakLabel, continueLabel);
+        this.invokeFloatFunction(method);
+    }
+
+    /**
+     * Calls the member declared as an intrinsic for this function directly if the object is its binding.
+     *
+     * @return Whether the function is an intrinsic
+     */
+    private boolean writeIntrinsic(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, boolean asFloat) throws MolangException {
+        MolangIntrinsic intrinsic = compiler.getIntrinsic(this.object, this.function);
+        if (intrinsic == null || !MolangIntrinsics.canAccess(intrinsic, false, this.arguments.length) || !this.hasFloatArguments(compiler, environment)) {
+            return false;
+        }
+
         int objectIndex = environment.getObjectIndex(method, this.object);
+        this.writeFloatArguments(method, compiler, environment, breakLabel, continueLabel);
 
-        // Function
-        method.visitVarInsn(Opcodes.ALOAD, objectIndex);
-        method.visitLdcInsn(this.function);
-        method.visitLdcInsn(this.function + "$" + this.arguments.length);
-        method.visitMethodInsn(
-                Opcodes.INVOKESTATIC,
-                "gg/moonflower/molangcompiler/impl/MolangUtil",
-                "getFunction",
-                "(Lgg/moonflower/molangcompiler/api/object/MolangObject;Ljava/lang/String;Ljava/lang/String;)Lgg/moonflower/molangcompiler/api/MolangExpression;",
-                false
-        );
-        int expressionIndex = environment.allocateVariable(this.object + "." + this.function + "$" + this.arguments.length);
-        method.visitVarInsn(Opcodes.ASTORE, expressionIndex);
+        // Every argument is evaluated before any are stored, so nested calls to the same function can share the locals
+        int[] locals = new int[this.arguments.length];
+        for (int i = locals.length - 1; i >= 0; i--) {
+            locals[i] = environment.allocateVariable(this.object + "." + this.function + "$" + locals.length + "[" + i + "]");
+            method.visitVarInsn(Opcodes.FSTORE, locals[i]);
+        }
+
+        Label fallback = new Label();
+        Label end = new Label();
+        MolangIntrinsics.write(method, compiler, objectIndex, intrinsic, locals, asFloat, fallback);
+        method.visitJumpInsn(Opcodes.GOTO, end);
 
-        // Parameters
+        // Any other object is called normally
+        method.visitLabel(fallback);
+        this.writeFunction(method, environment);
+        if (asFloat && locals.length <= MAX_FLOAT_ARGUMENTS) {
+            for (int local : locals) {
+                method.visitVarInsn(Opcodes.FLOAD, local);
+            }
+            this.invokeFloatFunction(method);
+        } else {
+            compiler.writeIntConst(method, locals.length);
+            method.visitTypeInsn(Opcodes.ANEWARRAY, "gg/moonflower/molangcompiler/api/MolangValue");
+            for (int i = 0; i < locals.length; i++) {
+                method.visitInsn(Opcodes.DUP);
+                compiler.writeIntConst(method, i);
+                method.visitVarInsn(Opcodes.FLOAD, locals[i]);
+                compiler.wrapFloat(method);
+                method.visitInsn(Opcodes.AASTORE);
+            }
+            this.invokeFunction(method);
+            if (asFloat) {
+                compiler.unwrapFloat(method);
+            }
+        }
+        method.visitLabel(end);
+        return true;
+    }
+
+    private boolean hasFloatArguments(BytecodeCompiler compiler, BytecodeEnvironment environment) throws MolangException {
         for (Node node : this.arguments) {
-            boolean full = !compiler.isOptimizationEnabled() || !node.isConstant();
-            if (full) {
-                node.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+            if (compiler.isOptimizationEnabled() && node.isConstant() ? !node.evaluate(environment).isFloat() : node.getStaticType() != MolangValue.Type.FLOAT) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            method.visitVarInsn(Opcodes.ALOAD, environment.getRuntimeIndex());
-            if (full) {
-                method.visitInsn(Opcodes.SWAP);
+    private void writeFloatArguments(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        for (Node node : this.arguments) {
+            if (compiler.isOptimizationEnabled() && node.isConstant()) {
+                compiler.writeFloatConst(method, node.evaluate(environment).asFloat());
             } else {
-                compiler.writeConst(method, node.evaluate(environment));
+                node.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
             }
-            method.visitMethodInsn(
-                    Opcodes.INVOKEINTERFACE,
-                    "gg/moonflower/molangcompiler/api/MolangEnvironment",
-                    "loadParameter",
-                    "(Lgg/moonflower/molangcompiler/api/MolangValue;)V",
-                    true
-            );
         }
+    }
 
-        // Resolve Function
-        method.visitVarInsn(Opcodes.ALOAD, expressionIndex);
-        method.visitVarInsn(Opcodes.ALOAD, environment.getRuntimeIndex());
+    private void invokeFunction(MethodNode method) {
         method.visitMethodInsn(
-                Opcodes.INVOKEINTERFACE,
-                "gg/moonflower/molangcompiler/api/MolangExpression",
-                "get",
-                "(Lgg/moonflower/molangcompiler/api/MolangEnvironment;)Lgg/moonflower/molangcompiler/api/MolangValue;",
-                true
+                Opcodes.INVOKESTATIC,
+                "gg/moonflower/molangcompiler/impl/MolangUtil",
+                "invokeFunction",
+                "(Lgg/moonflower/molangcompiler/api/MolangExpression;Lgg/moonflower/molangcompiler/api/MolangEnvironment;[Lgg/moonflower/molangcompiler/api/MolangValue;)Lgg/moonflower/molangcompiler/api/MolangValue;",
+                false
         );
+    }
 
-        // Clear parameters
-        method.visitVarInsn(Opcodes.ALOAD, environment.getRuntimeIndex());
+    private void invokeFloatFunction(MethodNode method) {
         method.visitMethodInsn(
-                Opcodes.INVOKEINTERFACE,
-                "gg/moonflower/molangcompiler/api/MolangEnvironment",
-                "clearParameters",
-                "()V",
-                true
+                Opcodes.INVOKESTATIC,
+                "gg/moonflower/molangcompiler/impl/MolangUtil",
+                "invokeFloatFunction",
+                "(Lgg/moonflower/molangcompiler/api/MolangExpression;Lgg/moonflower/molangcompiler/api/MolangEnvironment;" + "F".repeat(this.arguments.length) + ")F",
+                false
         );
     }
+
+    /**
+     * Pushes the function followed by the runtime.
+     */
+    private void writeFunction(MethodNode method, BytecodeEnvironment environment) {
+        int objectIndex = environment.getObjectIndex(method, this.object);
+        method.visitVarInsn(Opcodes.ALOAD, objectIndex);
+        method.visitInvokeDynamicInsn(
+                "getFunction",
+                "(Lgg/moonflower/molangcompiler/api/object/MolangObject;)Lgg/moonflower/molangcompiler/api/MolangExpression;",
+                FUNCTION_BOOTSTRAP,
+                this.function,
+                this.function + "$" + this.arguments.length
+        );
+        method.visitVarInsn(Opcodes.ALOAD, environment.getRuntimeIndex());
+    }
 }
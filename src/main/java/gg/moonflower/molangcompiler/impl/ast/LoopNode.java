@@ -10,15 +10,25 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.util.Set;
+
 /**
  * Runs the body based on the number of iterations requested.
  *
  * @param iterations The number of iterations to loop
  * @param body       The body of the loop
+ * @param invariants Expressions in the body that are the same in every iteration. These are computed once before the loop.
+ *                   They are also part of the body, so they are not children of this node
  * @author Buddy
  */
 @ApiStatus.Internal
-public record LoopNode(Node iterations, Node body) implements Node {
+public record LoopNode(Node iterations, Node body, CachedNode[] invariants) implements Node {
+
+    private static final CachedNode[] NO_INVARIANTS = new CachedNode[0];
+
+    public LoopNode(Node iterations, Node body) {
+        this(iterations, body, NO_INVARIANTS);
+    }
 
     @Override
     public String toString() {
@@ -37,6 +47,23 @@ public record LoopNode(Node iterations, Node body) implements Node {
 
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        for (CachedNode invariant : this.invariants) {
+            invariant.writeStore(method, compiler, environment, breakLabel, continueLabel);
+        }
+
+        // Expressions computed before the loop are stale in the next iteration if the body sets their variables,
+        // and expressions computed in the body may be skipped by break or continue
+        Set<String> expressions = environment.getExpressions();
+        NodeTraversal.forEach(this.body, node -> {
+            if (node instanceof VariableSetNode set) {
+                environment.invalidateExpressions(set.name());
+            }
+        });
+        this.writeLoop(method, compiler, environment, breakLabel, continueLabel);
+        environment.retainExpressions(expressions);
+    }
+
+    private void writeLoop(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
         boolean bodyHasValue = this.body.hasValue();
 
         if (this.iterations.isConstant()) {
@@ -57,6 +57,11 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
         return true;
     }
 
+    @Override
+    public MolangValue.Type getStaticType() {
+        return MolangValue.Type.FLOAT;
+    }
+
     @Override
     public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
         float[] values = new float[this.arguments.length];
@@ -99,19 +104,29 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
 
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment env, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        switch (this.function) {
+            case PI -> compiler.writeConst(method, MolangValue.MATH_PI);
+            case E -> compiler.writeConst(method, MolangValue.MATH_E);
+            default -> {
+                this.writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
+                compiler.wrapFloat(method);
+            }
+        }
+    }
+
+    @Override
+    public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment env, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
         switch (this.function) {
             // Single-argument Float
             case ABS -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", this.function.getName(), "(F)F", false);
-                compiler.wrapFloat(method);
             }
             // Double-argument Float
             case MAX, MIN -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", this.function.getName(), "(FF)F", false);
-                compiler.wrapFloat(method);
             }
             // Single-argument Double, converted to degrees
             case ACOS, ASIN, ATAN -> {
@@ -121,7 +136,6 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitInsn(Opcodes.D2F);
                 compiler.writeFloatConst(method, RADIANS_TO_DEGREES);
                 method.visitInsn(Opcodes.FMUL);
-                compiler.wrapFloat(method);
             }
             // Single-argument Double
             case CEIL, EXP, FLOOR, LN, SQRT -> {
@@ -129,7 +143,6 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitInsn(Opcodes.F2D);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", this.function.getName(), "(D)D", false);
                 method.visitInsn(Opcodes.D2F);
-                compiler.wrapFloat(method);
             }
             // Single-argument Double, converted to radians
             case COS, SIN -> {
@@ -139,17 +152,21 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitInsn(Opcodes.F2D);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", this.function.getName(), "(D)D", false);
                 method.visitInsn(Opcodes.D2F);
-                compiler.wrapFloat(method);
             }
             // Double-argument Double
             case POW -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
+                if (compiler.isOptimizationEnabled() && this.arguments[1] instanceof ConstNode exponent && exponent.value().isFloat() && exponent.value().getFloat() == 2.0F) {
+                    // The square of a float is exact as a double, so Math.pow rounds to the same float as multiplying
+                    method.visitInsn(Opcodes.DUP);
+                    method.visitInsn(Opcodes.FMUL);
+                    return;
+                }
                 method.visitInsn(Opcodes.F2D);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitInsn(Opcodes.F2D);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", this.function.getName(), "(DD)D", false);
                 method.visitInsn(Opcodes.D2F);
-                compiler.wrapFloat(method);
             }
             // Convert to degrees
             case ATAN2 -> {
@@ -161,29 +178,21 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitInsn(Opcodes.D2F);
                 compiler.writeFloatConst(method, RADIANS_TO_DEGREES);
                 method.visitInsn(Opcodes.FMUL);
-                compiler.wrapFloat(method);
             }
             // Single-argument Float->Int
             case ROUND -> {
                 this.arguments[0].writeBytecodeAsRoundedFloat(method, compiler, env, breakLabel, continueLabel);
-                compiler.wrapFloat(method);
             }
             // Operations
             case MOD -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitInsn(Opcodes.FREM);
-                compiler.wrapFloat(method);
-            }
-            case PI -> {
-                compiler.writeConst(method, MolangValue.MATH_PI);
-            }
-            case E -> {
-                compiler.writeConst(method, MolangValue.MATH_E);
             }
+            case PI -> compiler.writeFloatConst(method, (float) Math.PI);
+            case E -> compiler.writeFloatConst(method, (float) Math.E);
             case TRUNC -> {
                 this.arguments[0].writeBytecodeAsTruncatedFloat(method, compiler, env, breakLabel, continueLabel);
-                compiler.wrapFloat(method);
             }
             // Custom
             case CLAMP -> {
@@ -191,7 +200,6 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[2].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "clamp", "(FFF)F", false);
-                compiler.wrapFloat(method);
             }
             case DIE_ROLL -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
@@ -199,7 +207,6 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[2].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "dieRoll", "(IFF)F", false);
-                compiler.wrapFloat(method);
             }
             case DIE_ROLL_INTEGER -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
@@ -210,37 +217,31 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitInsn(Opcodes.F2I);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "dieRollInt", "(III)I", false);
                 method.visitInsn(Opcodes.I2F);
-                compiler.wrapFloat(method);
             }
             case HERMITE_BLEND -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "hermiteBlend", "(F)F", false);
-                compiler.wrapFloat(method);
             }
             case LERP -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[2].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "lerp", "(FFF)F", false);
-                compiler.wrapFloat(method);
             }
             case LERPROTATE -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[2].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "lerpRotate", "(FFF)F", false);
-                compiler.wrapFloat(method);
             }
             case MIN_ANGLE -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "wrapDegrees", "(F)F", false);
-                compiler.wrapFloat(method);
             }
             case RANDOM -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "random", "(FF)F", false);
-                compiler.wrapFloat(method);
             }
             case RANDOM_INTEGER -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
@@ -252,18 +253,15 @@ public record MathNode(MathOperation function, Node... arguments) implements Nod
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "random", "(FF)F", false);
                 method.visitInsn(Opcodes.F2I);
                 method.visitInsn(Opcodes.I2F);
-                compiler.wrapFloat(method);
             }
             case SIGN -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "signum", "(F)F", false);
-                compiler.wrapFloat(method);
             }
             case TRIANGLE_WAVE -> {
                 this.arguments[0].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 this.arguments[1].writeBytecodeAsFloat(method, compiler, env, breakLabel, continueLabel);
                 method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "triangleWave", "(FF)F", false);
-                compiler.wrapFloat(method);
             }
         }
     }
@@ -33,6 +33,12 @@ public record NegateNode(Node value) implements Node {
         return true;
     }
 
+    @Override
+    public @Nullable MolangValue.Type getStaticType() {
+        // Every type is negated into itself
+        return this.value.getStaticType();
+    }
+
     @Override
     public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
         return this.value.evaluate(environment).negate();
@@ -45,6 +51,12 @@ public record NegateNode(Node value) implements Node {
             return;
         }
 
+        if (this.value.getStaticType() == MolangValue.Type.FLOAT) {
+            this.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            compiler.wrapFloat(method);
+            return;
+        }
+
         this.value.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
         method.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
                 "gg/moonflower/molangcompiler/api/MolangValue",
@@ -60,7 +72,12 @@ public record NegateNode(Node value) implements Node {
             compiler.writeFloatConst(method, this.evaluate(environment).asFloat());
             return;
         }
-        writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+        if (this.value.getStaticType() == MolangValue.Type.FLOAT) {
+            this.value.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            method.visitInsn(Opcodes.FNEG);
+            return;
+        }
+        Node.super.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
     }
 
     @Override
@@ -69,7 +86,7 @@ public record NegateNode(Node value) implements Node {
             compiler.writeFloatConst(method, (int) this.evaluate(environment).asFloat());
             return;
         }
-        writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+        Node.super.writeBytecodeAsTruncatedFloat(method, compiler, environment, breakLabel, continueLabel);
     }
 
     @Override
@@ -78,6 +95,6 @@ public record NegateNode(Node value) implements Node {
             compiler.writeFloatConst(method, Math.round(this.evaluate(environment).asFloat()));
             return;
         }
-        writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+        Node.super.writeBytecodeAsRoundedFloat(method, compiler, environment, breakLabel, continueLabel);
     }
 }
@@ -58,6 +58,20 @@ public interface Node {
      */
     boolean hasValue();
 
+    /**
+     * Determines the type of value this node always produces without evaluating it.
+     * <p>
+     * This lets the compiler use primitive float operations when the string behavior of an operator can never apply.
+     * For example, {@code math.sin(q.a) * 2} is always a float, but {@code q.a * 2} repeats {@code q.a} if it is a string.
+     * Optimized constant comparisons are folded into floats, so {@link MolangValue.Type#BOOLEAN} only guarantees the value is not a string.
+     *
+     * @return The type of the value produced by this node, or <code>null</code> if it can only be known at runtime
+     * @since 4.1.0
+     */
+    default @Nullable MolangValue.Type getStaticType() {
+        return null;
+    }
+
     /**
      * Evaluates this node at compile-time to produce a constant condition.
      * <p>
@@ -103,6 +117,40 @@ public interface Node {
         compiler.unwrapFloat(method);
     }
 
+    /**
+     * Generates bytecode that jumps based on {@link MolangValue#asBoolean()} of this node instead of pushing its value.
+     * <p>
+     * Conditions are written this way so comparisons and logical operators jump directly instead of creating a boolean
+     * {@link MolangValue} and unwrapping it again. At least one label must be set.
+     *
+     * @param method        The method node to append bytecode instructions to
+     * @param compiler      The compiler writing the method
+     * @param environment   The bytecode compilation environment for variable allocation and tracking
+     * @param breakLabel    Jump target for break statements, or null if not inside a loop
+     * @param continueLabel Jump target for continue statements, or null if not inside a loop
+     * @param trueLabel     Jump target if this node is true, or null to continue after this node
+     * @param falseLabel    Jump target if this node is false, or null to continue after this node
+     * @throws MolangException If bytecode generation fails due to syntax errors or unsupported operations
+     * @since 4.1.0
+     */
+    default void writeBytecodeAsBranch(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException {
+        if (compiler.isOptimizationEnabled() && this.isConstant()) {
+            Label target = this.evaluate(environment).asBoolean() ? trueLabel : falseLabel;
+            if (target != null) {
+                method.visitJumpInsn(Opcodes.GOTO, target);
+            }
+            return;
+        }
+        if (this.getStaticType() == MolangValue.Type.FLOAT) {
+            this.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            compiler.writeFloatAsBranch(method, trueLabel, falseLabel);
+            return;
+        }
+        this.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+        compiler.unwrapBool(method);
+        compiler.writeBranch(method, Opcodes.IFNE, trueLabel, falseLabel);
+    }
+
     default void writeBytecodeAsTruncatedFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
         writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
         method.visitInsn(Opcodes.F2I);
@@ -0,0 +1,192 @@
+package gg.moonflower.molangcompiler.impl.ast;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Generic access to the children of AST nodes, used by passes that inspect or rewrite a whole tree.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class NodeTraversal {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private NodeTraversal() {
+    }
+
+    /**
+     * Retrieves the direct children of a node in evaluation order.
+     *
+     * @param node The node to get the children of
+     * @return The children of the node. Modifying the array does not change the node
+     */
+    public static Node[] getChildren(Node node) {
+        if (node instanceof VariableSetNode set) {
+            return new Node[]{set.value()};
+        }
+        if (node instanceof BinaryOperationNode binary) {
+            return new Node[]{binary.left(), binary.right()};
+        }
+        if (node instanceof UnaryOperationNode unary) {
+            return new Node[]{unary.node()};
+        }
+        if (node instanceof NegateNode negate) {
+            return new Node[]{negate.value()};
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            return new Node[]{ternary.condition(), ternary.left(), ternary.right()};
+        }
+        if (node instanceof BinaryConditionalNode conditional) {
+            return new Node[]{conditional.condition(), conditional.branch()};
+        }
+        if (node instanceof MathNode math) {
+            return math.arguments().clone();
+        }
+        if (node instanceof FunctionNode function) {
+            return function.arguments().clone();
+        }
+        if (node instanceof CompoundNode compound) {
+            return compound.nodes().clone();
+        }
+        if (node instanceof ScopeNode scope) {
+            return new Node[]{scope.node()};
+        }
+        if (node instanceof ReturnNode returnNode) {
+            return new Node[]{returnNode.value()};
+        }
+        if (node instanceof LoopNode loop) {
+            return new Node[]{loop.iterations(), loop.body()};
+        }
+        if (node instanceof ArrayLiteralNode array) {
+            return array.elements().clone();
+        }
+        if (node instanceof ArrayAccessNode access) {
+            return new Node[]{access.array(), access.index()};
+        }
+        if (node instanceof CachedNode cached) {
+            return new Node[]{cached.value()};
+        }
+        // Constants, variables, break, continue, and this have no children
+        return NO_CHILDREN;
+    }
+
+    /**
+     * Creates a copy of a node with different children.
+     *
+     * @param node     The node to copy
+     * @param children The new children in the same order as {@link #getChildren(Node)}
+     * @return A node of the same type with the new children
+     */
+    public static Node withChildren(Node node, Node[] children) {
+        if (node instanceof VariableSetNode set) {
+            return new VariableSetNode(set.object(), set.name(), children[0], set.returnValue());
+        }
+        if (node instanceof BinaryOperationNode binary) {
+            return new BinaryOperationNode(binary.operator(), children[0], children[1]);
+        }
+        if (node instanceof UnaryOperationNode unary) {
+            return new UnaryOperationNode(unary.operator(), children[0]);
+        }
+        if (node instanceof NegateNode) {
+            return new NegateNode(children[0]);
+        }
+        if (node instanceof TernaryOperationNode) {
+            return new TernaryOperationNode(children[0], children[1], children[2]);
+        }
+        if (node instanceof BinaryConditionalNode) {
+            return new BinaryConditionalNode(children[0], children[1]);
+        }
+        if (node instanceof MathNode math) {
+            return new MathNode(math.function(), children);
+        }
+        if (node instanceof FunctionNode function) {
+            return new FunctionNode(function.object(), function.function(), children);
+        }
+        if (node instanceof CompoundNode) {
+            return new CompoundNode(children);
+        }
+        if (node instanceof ScopeNode) {
+            return new ScopeNode(children[0]);
+        }
+        if (node instanceof ReturnNode) {
+            return new ReturnNode(children[0]);
+        }
+        if (node instanceof LoopNode loop) {
+            return new LoopNode(children[0], children[1], loop.invariants());
+        }
+        if (node instanceof ArrayLiteralNode) {
+            return new ArrayLiteralNode(children);
+        }
+        if (node instanceof ArrayAccessNode) {
+            return new ArrayAccessNode(children[0], children[1]);
+        }
+        if (node instanceof CachedNode cached) {
+            return new CachedNode(children[0], cached.key(), cached.variables());
+        }
+        return node;
+    }
+
+    /**
+     * Rewrites a tree from the bottom up. The function is called with each node after its children have been rewritten.
+     *
+     * @param node     The root of the tree to rewrite
+     * @param function The function to replace each node with
+     * @return The rewritten tree
+     */
+    public static Node transform(Node node, UnaryOperator<Node> function) {
+        Node[] children = getChildren(node);
+        if (children.length > 0) {
+            boolean changed = false;
+            for (int i = 0; i < children.length; i++) {
+                Node child = transform(children[i], function);
+                changed |= child != children[i];
+                children[i] = child;
+            }
+            if (changed) {
+                node = withChildren(node, children);
+            }
+        }
+        return function.apply(node);
+    }
+
+    /**
+     * Lists the names an expression looks up in its environment, in the format used by
+     * {@link gg.moonflower.molangcompiler.api.MolangExpression#getReferences()}. Temporary variables are not included.
+     *
+     * @param node The root of the tree to search
+     * @return Every variable as <code>object.name</code> and every function as <code>object.name(arguments)</code>
+     */
+    public static String[] getReferences(Node node) {
+        Set<String> references = new LinkedHashSet<>();
+        forEach(node, child -> {
+            if (child instanceof VariableGetNode get && !"temp".equals(get.object())) {
+                references.add(get.object() + "." + get.name());
+            } else if (child instanceof VariableSetNode set && !"temp".equals(set.object())) {
+                references.add(set.object() + "." + set.name());
+            } else if (child instanceof FunctionNode function) {
+                references.add(function.object() + "." + function.function() + "(" + function.arguments().length + ")");
+            }
+        });
+        return references.toArray(String[]::new);
+    }
+
+    /**
+     * Visits every node in a tree, parents before their children.
+     *
+     * @param node     The root of the tree to visit
+     * @param consumer The consumer to pass each node to
+     */
+    public static void forEach(Node node, Consumer<Node> consumer) {
+        consumer.accept(node);
+        for (Node child : getChildren(node)) {
+            forEach(child, consumer);
+        }
+    }
+}
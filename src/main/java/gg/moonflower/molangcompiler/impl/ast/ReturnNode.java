@@ -41,6 +41,11 @@ public record ReturnNode(Node value) implements Node {
 
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (compiler.returnsFloat(method)) {
+            this.writeFloatReturn(method, compiler, environment, breakLabel, continueLabel);
+            return;
+        }
+
         // Write the condition to return
         if (compiler.isOptimizationEnabled() && this.isConstant()) {
             compiler.writeConst(method, this.evaluate(environment));
@@ -53,4 +58,18 @@ public record ReturnNode(Node value) implements Node {
         environment.writeModifiedVariables(method);
         method.visitInsn(Opcodes.ARETURN);
     }
-}
\ No newline at end of file
+
+    private void writeFloatReturn(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        // Write the condition to return as a primitive
+        if (compiler.isOptimizationEnabled() && this.isConstant()) {
+            compiler.writeFloatConst(method, this.evaluate(environment).asFloat());
+        } else if (this.value.hasValue()) {
+            this.value.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+        } else {
+            this.value.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+            compiler.writeFloatConst(method, 0.0F);
+        }
+        environment.writeModifiedVariables(method);
+        method.visitInsn(Opcodes.FRETURN);
+    }
+}
@@ -28,7 +28,7 @@ public record TernaryOperationNode(Node condition, Node left, Node right) implem
 
     @Override
     public boolean isConstant() {
-        return this.condition.isConstant();
+        return this.condition.isConstant() && this.left.isConstant() && this.right.isConstant();
     }
 
     @Override
@@ -41,37 +41,53 @@ public record TernaryOperationNode(Node condition, Node left, Node right) implem
         return this.condition.evaluate(environment).asBoolean() ? this.left.evaluate(environment) : this.right.evaluate(environment);
     }
 
+    @Override
+    public @Nullable MolangValue.Type getStaticType() {
+        MolangValue.Type left = this.left.getStaticType();
+        MolangValue.Type right = this.right.getStaticType();
+        if (left == right) {
+            return left;
+        }
+        // Either branch may be a boolean folded into a float
+        if ((left == MolangValue.Type.FLOAT || left == MolangValue.Type.BOOLEAN) && (right == MolangValue.Type.FLOAT || right == MolangValue.Type.BOOLEAN)) {
+            return MolangValue.Type.BOOLEAN;
+        }
+        return null;
+    }
+
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        this.writeBytecode(method, compiler, environment, breakLabel, continueLabel, false);
+    }
+
+    @Override
+    public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (!this.hasValue()) {
+            Node.super.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            return;
+        }
+        this.writeBytecode(method, compiler, environment, breakLabel, continueLabel, true);
+    }
+
+    private void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, boolean asFloat) throws MolangException {
         Label label_right = new Label();
         Label label_end = new Label();
 
         if (compiler.isOptimizationEnabled() && this.condition.isConstant()) {
             if (this.condition.evaluate(environment).asBoolean()) {
-                this.left.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
-                if (this.left.hasValue() && !this.hasValue()) {
-                    method.visitInsn(Opcodes.POP);
-                }
+                this.writeBranch(this.left, method, compiler, environment, breakLabel, continueLabel, asFloat);
             } else {
-                this.right.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
-                if (this.right.hasValue() && !this.hasValue()) {
-                    method.visitInsn(Opcodes.POP);
-                }
+                this.writeBranch(this.right, method, compiler, environment, breakLabel, continueLabel, asFloat);
             }
             return;
         }
 
-        this.condition.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
-        compiler.unwrapBool(method);
-        method.visitJumpInsn(Opcodes.IFEQ, label_right);
+        this.condition.writeBytecodeAsBranch(method, compiler, environment, breakLabel, continueLabel, null, label_right);
 
         // [left]
         {
             BytecodeEnvironment localEnvironment = environment.copy();
-            this.left.writeBytecode(method, compiler, localEnvironment, breakLabel, continueLabel);
-            if (this.left.hasValue() && !this.hasValue()) {
-                method.visitInsn(Opcodes.POP);
-            }
+            this.writeBranch(this.left, method, compiler, localEnvironment, breakLabel, continueLabel, asFloat);
             localEnvironment.writeModifiedVariables(method);
         }
         method.visitJumpInsn(Opcodes.GOTO, label_end);
@@ -80,13 +96,21 @@ public record TernaryOperationNode(Node condition, Node left, Node right) implem
         method.visitLabel(label_right);
         {
             BytecodeEnvironment localEnvironment = environment.copy();
-            this.right.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
-            if (this.right.hasValue() && !this.hasValue()) {
-                method.visitInsn(Opcodes.POP);
-            }
+            this.writeBranch(this.right, method, compiler, localEnvironment, breakLabel, continueLabel, asFloat);
             localEnvironment.writeModifiedVariables(method);
         }
 
         method.visitLabel(label_end);
     }
+
+    private void writeBranch(Node branch, MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, boolean asFloat) throws MolangException {
+        if (asFloat) {
+            branch.writeBytecodeAsFloat(method, compiler, environment, breakLabel, continueLabel);
+            return;
+        }
+        branch.writeBytecode(method, compiler, environment, breakLabel, continueLabel);
+        if (branch.hasValue() && !this.hasValue()) {
+            method.visitInsn(Opcodes.POP);
+        }
+    }
 }
@@ -34,6 +34,15 @@ public record UnaryOperationNode(UnaryOperation operator, Node node) implements
         return true;
     }
 
+    @Override
+    public @Nullable MolangValue.Type getStaticType() {
+        MolangValue.Type type = this.node.getStaticType();
+        if (type == null || type == MolangValue.Type.NULL) {
+            return type;
+        }
+        return MolangValue.Type.BOOLEAN;
+    }
+
     @Override
     public MolangValue evaluate(BytecodeEnvironment environment) throws MolangException {
         MolangValue value = this.node.evaluate(environment);
@@ -50,4 +59,15 @@ public record UnaryOperationNode(UnaryOperation operator, Node node) implements
                 node, operator);
     }
 
+    @Override
+    public void writeBytecodeAsBranch(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException {
+        // The flip of null is still null, which is false, so the labels can only be swapped if the operand is never null
+        MolangValue.Type type = this.node.getStaticType();
+        if (this.operator == UnaryOperation.FLIP && !this.isConstant() && type != null && type != MolangValue.Type.NULL) {
+            this.node.writeBytecodeAsBranch(method, compiler, environment, breakLabel, continueLabel, falseLabel, trueLabel);
+            return;
+        }
+        Node.super.writeBytecodeAsBranch(method, compiler, environment, breakLabel, continueLabel, trueLabel, falseLabel);
+    }
+
 }
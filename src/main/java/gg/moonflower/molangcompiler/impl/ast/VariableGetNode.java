@@ -1,8 +1,11 @@
 package gg.moonflower.molangcompiler.impl.ast;
 
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
 import gg.moonflower.molangcompiler.impl.compiler.BytecodeEnvironment;
+import gg.moonflower.molangcompiler.impl.compiler.MolangIntrinsics;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Label;
@@ -14,10 +17,15 @@ import org.objectweb.asm.tree.MethodNode;
  *
  * @param object The object the variable is stored in
  * @param name   The name of the variable
+ * @param type   The type the host declared the variable as, or <code>null</code> if it can be any value
  * @author Ocelot
  */
 @ApiStatus.Internal
-public record VariableGetNode(String object, String name) implements Node {
+public record VariableGetNode(String object, String name, @Nullable MolangValue.Type type) implements Node {
+
+    public VariableGetNode(String object, String name) {
+        this(object, name, null);
+    }
 
     @Override
     public String toString() {
@@ -34,9 +42,66 @@ public record VariableGetNode(String object, String name) implements Node {
         return true;
     }
 
+    @Override
+    public @Nullable MolangValue.Type getStaticType() {
+        return this.type;
+    }
+
     @Override
     public void writeBytecode(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (this.writeIntrinsic(method, compiler, environment, this.type == MolangValue.Type.FLOAT)) {
+            if (this.type == MolangValue.Type.FLOAT) {
+                compiler.wrapFloat(method);
+            }
+            return;
+        }
+        this.writeLoad(method, environment);
+    }
+
+    private void writeLoad(MethodNode method, BytecodeEnvironment environment) {
+        int index = environment.loadVariable(method, this.object, this.name);
+        method.visitVarInsn(Opcodes.ALOAD, index);
+        if (this.type == MolangValue.Type.FLOAT) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", "toFloatValue", "(Lgg/moonflower/molangcompiler/api/MolangValue;)Lgg/moonflower/molangcompiler/api/MolangValue;", false);
+        }
+    }
+
+    @Override
+    public void writeBytecodeAsFloat(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel) throws MolangException {
+        if (this.writeIntrinsic(method, compiler, environment, true)) {
+            return;
+        }
+
+        // The float value is the same whether the hint converted it or not
         int index = environment.loadVariable(method, this.object, this.name);
         method.visitVarInsn(Opcodes.ALOAD, index);
+        compiler.unwrapFloat(method);
+    }
+
+    /**
+     * Reads the member declared as an intrinsic for this variable directly if the object is its binding.
+     *
+     * @return Whether the variable is an intrinsic
+     */
+    private boolean writeIntrinsic(MethodNode method, BytecodeCompiler compiler, BytecodeEnvironment environment, boolean asFloat) {
+        MolangIntrinsic intrinsic = compiler.getIntrinsic(this.object, this.name);
+        // Values written earlier in the expression are only in the local until the expression finishes
+        if (intrinsic == null || !MolangIntrinsics.canAccess(intrinsic, true, 0) || environment.getVariableIndex(this.object + "." + this.name) != null) {
+            return false;
+        }
+
+        Label fallback = new Label();
+        Label end = new Label();
+        MolangIntrinsics.write(method, compiler, environment.getObjectIndex(method, this.object), intrinsic, new int[0], asFloat, fallback);
+        method.visitJumpInsn(Opcodes.GOTO, end);
+
+        // Loads in one branch can't be reused after it, so any other object is read without keeping the value
+        method.visitLabel(fallback);
+        this.writeLoad(method, environment.copy());
+        if (asFloat) {
+            compiler.unwrapFloat(method);
+        }
+        method.visitLabel(end);
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -57,6 +57,7 @@ public record VariableSetNode(String object,
         int index = environment.allocateVariable(this.object + "." + this.name);
         method.visitVarInsn(Opcodes.ASTORE, index);
         environment.markDirty(this.object, this.name);
+        environment.invalidateExpressions(this.name);
     }
 
     @Override
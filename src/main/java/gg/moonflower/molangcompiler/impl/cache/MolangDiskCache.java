@@ -0,0 +1,367 @@
+package gg.moonflower.molangcompiler.impl.cache;
+
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangVersion;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompiler;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of generated class bytes, so expressions compiled in a previous run can be defined without lexing, parsing, or generating code.
+ * <p>
+ * The cache directory contains two files:
+ * <ul>
+ *     <li>{@code index.bin} is a memory-mapped open addressing hash table from a 128-bit key to a record in the data file</li>
+ *     <li>{@code classes.bin} is an append-only list of records containing the key, class name, and class bytes</li>
+ * </ul>
+ * Every record repeats its key, so a damaged or stale index can only ever cause a cache miss.
+ * <p>
+ * Only one process can write to a cache directory at a time. Other processes open the cache as read-only.
+ * Within a process, all compilers using the same directory share a single instance. The files stay open until every
+ * compiler that opened the directory has closed it.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public class MolangDiskCache implements Closeable {
+
+    private static final Map<Path, MolangDiskCache> OPEN_CACHES = new ConcurrentHashMap<>();
+
+    private static final int MAGIC = 0x4D4C4E47; // MLNG
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int RECORD_HEADER_SIZE = 22;
+
+    private final Path path;
+    private final FileChannel indexChannel;
+    private final FileChannel dataChannel;
+    private final boolean readOnly;
+    /**
+     * The number of times the cache was opened and not closed yet. Guarded by {@link #OPEN_CACHES}.
+     */
+    private int references;
+    private boolean closed;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+    private long dataEnd;
+
+    private MolangDiskCache(Path path, FileChannel indexChannel, FileChannel dataChannel, boolean readOnly) throws IOException {
+        this.path = path;
+        this.indexChannel = indexChannel;
+        this.dataChannel = dataChannel;
+        this.readOnly = readOnly;
+        this.dataEnd = dataChannel.size();
+
+        if (!this.readIndex() && !readOnly) {
+            // The index is missing, from another format, or damaged, so start over
+            this.dataChannel.truncate(0);
+            this.dataEnd = 0;
+            this.createIndex(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * Opens the cache in the specified directory, creating it if it doesn't exist.
+     * Every call must be matched by a call to {@link #close()}.
+     *
+     * @param directory The directory to store the cache in
+     * @return The cache for that directory
+     * @throws IOException If the cache files could not be opened
+     */
+    public static MolangDiskCache open(Path directory) throws IOException {
+        Path path = directory.toAbsolutePath().normalize();
+        synchronized (OPEN_CACHES) {
+            MolangDiskCache cache = OPEN_CACHES.get(path);
+            if (cache == null) {
+                Files.createDirectories(path);
+                FileChannel indexChannel = FileChannel.open(path.resolve("index.bin"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileChannel dataChannel = FileChannel.open(path.resolve("classes.bin"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                boolean readOnly;
+                try {
+                    FileLock lock = indexChannel.tryLock();
+                    readOnly = lock == null;
+                } catch (OverlappingFileLockException e) {
+                    readOnly = true;
+                }
+                cache = new MolangDiskCache(path, indexChannel, dataChannel, readOnly);
+                OPEN_CACHES.put(path, cache);
+            }
+            cache.references++;
+            return cache;
+        }
+    }
+
+    /**
+     * Releases one use of the cache. Once every use is released, the files are closed and the lock on the directory is
+     * released, so another process can write to it. A closed cache never returns classes and ignores new ones.
+     *
+     * @throws IOException If the files could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN_CACHES) {
+            if (this.references == 0 || --this.references > 0) {
+                return;
+            }
+            OPEN_CACHES.remove(this.path, this);
+        }
+
+        synchronized (this) {
+            this.closed = true;
+            this.index = null;
+            try {
+                this.dataChannel.close();
+            } finally {
+                // Closing the channel also releases the lock
+                this.indexChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the key for the result of compiling a source.
+     *
+     * @param source  The source code of the expression
+     * @param version The MoLang version used to parse and compile the source
+     * @param flags   The flags the expression is compiled with
+     * @return A key that changes whenever the source, version, flags, or {@link BytecodeCompiler#CODEGEN_VERSION} changes
+     */
+    public static Key key(String source, MolangVersion version, CompilerFlags flags) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        digest.update((FORMAT_VERSION + ";" + BytecodeCompiler.CODEGEN_VERSION + ";" + version.getVersion() + ";" + flags + ";").getBytes(StandardCharsets.UTF_8));
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        long high = hash.getLong();
+        long low = hash.getLong();
+        // Zero marks an empty slot in the index
+        return new Key(high, high == 0 && low == 0 ? 1 : low);
+    }
+
+    /**
+     * Retrieves the class previously stored for a key.
+     *
+     * @param key The key of the expression
+     * @return The stored class or <code>null</code> if the key is not in the cache
+     */
+    public synchronized @Nullable BytecodeCompiler.GeneratedClass get(Key key) {
+        if (this.closed) {
+            return null;
+        }
+
+        try {
+            if (this.readOnly && (this.index == null || this.index.getInt(8) != this.capacity)) {
+                // Another process created or grew the index since it was mapped
+                this.readIndex();
+            }
+            if (this.index == null) {
+                return null;
+            }
+
+            int slot = this.findSlot(key);
+            if (this.index.getLong(slot) == 0 && this.index.getLong(slot + 8) == 0) {
+                return null;
+            }
+            return this.readRecord(key, this.index.getLong(slot + 16), this.index.getInt(slot + 24));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a generated class. Failures to write are ignored, since the class can always be generated again.
+     *
+     * @param key            The key of the expression
+     * @param generatedClass The class generated for the expression
+     */
+    public synchronized void put(Key key, BytecodeCompiler.GeneratedClass generatedClass) {
+        if (this.readOnly || this.closed || this.index == null) {
+            return;
+        }
+
+        try {
+            int slot = this.findSlot(key);
+            if (this.index.getLong(slot) != 0 || this.index.getLong(slot + 8) != 0) {
+                return;
+            }
+
+            byte[] name = generatedClass.name().getBytes(StandardCharsets.UTF_8);
+            byte[] data = generatedClass.data();
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + name.length + data.length);
+            record.putInt(record.capacity());
+            record.putLong(key.high());
+            record.putLong(key.low());
+            record.putShort((short) name.length);
+            record.put(name);
+            record.put(data);
+            record.flip();
+
+            long offset = this.dataEnd;
+            while (record.hasRemaining()) {
+                this.dataChannel.write(record, offset + record.position());
+            }
+            this.dataEnd += record.capacity();
+
+            // Only publish the slot once the record is fully written
+            this.index.putLong(slot + 16, offset);
+            this.index.putInt(slot + 24, record.capacity());
+            this.index.putLong(slot + 8, key.low());
+            this.index.putLong(slot, key.high());
+            this.size++;
+            this.index.putInt(12, this.size);
+
+            if (this.size * 2 > this.capacity) {
+                this.resize(this.capacity * 2);
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private int findSlot(Key key) {
+        int mask = this.capacity - 1;
+        int slot = (int) (key.low() ^ (key.low() >>> 32)) & mask;
+        while (true) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long high = this.index.getLong(position);
+            long low = this.index.getLong(position + 8);
+            if ((high == 0 && low == 0) || (high == key.high() && low == key.low())) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private @Nullable BytecodeCompiler.GeneratedClass readRecord(Key key, long offset, int length) throws IOException {
+        if (offset < 0 || length < RECORD_HEADER_SIZE || offset + length > this.dataChannel.size()) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        while (record.hasRemaining()) {
+            if (this.dataChannel.read(record, offset + record.position()) < 0) {
+                return null;
+            }
+        }
+        record.flip();
+
+        if (record.getInt() != length || record.getLong() != key.high() || record.getLong() != key.low()) {
+            return null;
+        }
+        int nameLength = Short.toUnsignedInt(record.getShort());
+        if (nameLength > record.remaining()) {
+            return null;
+        }
+        byte[] name = new byte[nameLength];
+        record.get(name);
+        byte[] data = new byte[record.remaining()];
+        record.get(data);
+        return new BytecodeCompiler.GeneratedClass(new String(name, StandardCharsets.UTF_8), data);
+    }
+
+    /**
+     * Maps the existing index file.
+     *
+     * @return Whether the index is valid
+     */
+    private boolean readIndex() throws IOException {
+        long fileSize = this.indexChannel.size();
+        if (fileSize < HEADER_SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        this.indexChannel.read(header, 0);
+        header.flip();
+        int capacity = header.getInt(8);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION || capacity < INITIAL_CAPACITY || Integer.bitCount(capacity) != 1) {
+            return false;
+        }
+        long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        if (fileSize < size) {
+            return false;
+        }
+
+        if (this.index == null || this.capacity != capacity) {
+            this.index = this.indexChannel.map(this.readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, size);
+            this.capacity = capacity;
+        }
+        this.size = this.index.getInt(12);
+        return true;
+    }
+
+    private void createIndex(int capacity) throws IOException {
+        this.index = this.indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        for (int i = HEADER_SIZE; i < this.index.capacity(); i += 8) {
+            this.index.putLong(i, 0);
+        }
+        this.capacity = capacity;
+        this.size = 0;
+        this.index.putInt(0, MAGIC);
+        this.index.putInt(4, FORMAT_VERSION);
+        this.index.putInt(8, capacity);
+        this.index.putInt(12, 0);
+    }
+
+    private void resize(int capacity) throws IOException {
+        long[] highs = new long[this.size];
+        long[] lows = new long[this.size];
+        long[] offsets = new long[this.size];
+        int[] lengths = new int[this.size];
+        int count = 0;
+        for (int i = 0; i < this.capacity && count < this.size; i++) {
+            int position = HEADER_SIZE + i * SLOT_SIZE;
+            long high = this.index.getLong(position);
+            long low = this.index.getLong(position + 8);
+            if (high != 0 || low != 0) {
+                highs[count] = high;
+                lows[count] = low;
+                offsets[count] = this.index.getLong(position + 16);
+                lengths[count] = this.index.getInt(position + 24);
+                count++;
+            }
+        }
+
+        this.createIndex(capacity);
+        for (int i = 0; i < count; i++) {
+            int position = this.findSlot(new Key(highs[i], lows[i]));
+            this.index.putLong(position + 16, offsets[i]);
+            this.index.putInt(position + 24, lengths[i]);
+            this.index.putLong(position + 8, lows[i]);
+            this.index.putLong(position, highs[i]);
+        }
+        this.size = count;
+        this.index.putInt(12, count);
+    }
+
+    /**
+     * A 128-bit hash identifying the result of a compilation.
+     *
+     * @param high The upper 64 bits of the hash
+     * @param low  The lower 64 bits of the hash
+     */
+    public record Key(long high, long low) {
+    }
+}
@@ -0,0 +1,151 @@
+package gg.moonflower.molangcompiler.impl.cache;
+
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangCacheStats;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangVersion;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least-recently-used cache of compiled expressions.
+ * <p>
+ * Entries are weighed by the length of their source, so a few huge scripts cannot push out
+ * thousands of small animation expressions. The cache is evicted when either the number of entries
+ * or the total weight exceeds the configured maximum.
+ * <p>
+ * All operations are synchronized on the cache. Lookups and insertions are only a few map operations,
+ * so the lock is never held during compilation.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public class MolangExpressionCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 1 << 20;
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final LinkedHashMap<Key, MolangExpression> entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private long weight;
+
+    /**
+     * Creates a new cache with the specified bounds.
+     *
+     * @param maximumSize   The maximum number of expressions to keep
+     * @param maximumWeight The maximum number of source characters to keep
+     */
+    public MolangExpressionCache(int maximumSize, long maximumWeight) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size must be at least 0");
+        }
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must be at least 0");
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75F, true);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Retrieves a previously compiled expression and records a hit or miss.
+     *
+     * @param key The key of the expression
+     * @return The cached expression or <code>null</code> if it has not been compiled yet
+     */
+    public @Nullable MolangExpression get(Key key) {
+        MolangExpression expression;
+        synchronized (this) {
+            expression = this.entries.get(key);
+        }
+        if (expression != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+        return expression;
+    }
+
+    /**
+     * Inserts a compiled expression into the cache. If another thread compiled the same key in the meantime,
+     * the existing expression is kept and returned so all callers share a single instance.
+     *
+     * @param key        The key of the expression
+     * @param expression The compiled expression
+     * @return The expression that is now associated with the key
+     */
+    public MolangExpression put(Key key, MolangExpression expression) {
+        long entryWeight = key.weight();
+        if (entryWeight > this.maximumWeight || this.maximumSize == 0) {
+            return expression;
+        }
+
+        synchronized (this) {
+            MolangExpression existing = this.entries.putIfAbsent(key, expression);
+            if (existing != null) {
+                return existing;
+            }
+
+            this.weight += entryWeight;
+            Iterator<Map.Entry<Key, MolangExpression>> iterator = this.entries.entrySet().iterator();
+            while ((this.entries.size() > this.maximumSize || this.weight > this.maximumWeight) && iterator.hasNext()) {
+                Key eldest = iterator.next().getKey();
+                iterator.remove();
+                this.weight -= eldest.weight();
+                this.evictions.increment();
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Removes all entries from the cache. Statistics are kept.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * @return A snapshot of the current cache statistics
+     */
+    public MolangCacheStats stats() {
+        int size;
+        long weight;
+        synchronized (this) {
+            size = this.entries.size();
+            weight = this.weight;
+        }
+        return new MolangCacheStats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), size, weight);
+    }
+
+    /**
+     * Uniquely identifies the result of a compilation.
+     *
+     * @param source  The source code of the expression
+     * @param version The MoLang version used to parse and compile the source
+     * @param flags   The flags the expression was compiled with
+     */
+    public record Key(String source, MolangVersion version, CompilerFlags flags) {
+
+        /**
+         * @return The weight of this entry in the cache
+         */
+        public long weight() {
+            return Math.max(1, this.source.length());
+        }
+    }
+}
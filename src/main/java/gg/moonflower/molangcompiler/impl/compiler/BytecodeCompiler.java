@@ -4,6 +4,7 @@ import gg.moonflower.molangcompiler.api.CompilerFlag;
 import gg.moonflower.molangcompiler.api.CompilerFlags;
 import gg.moonflower.molangcompiler.api.MolangExpression;
 import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import gg.moonflower.molangcompiler.impl.ast.BinaryOperation;
@@ -12,9 +13,18 @@ import gg.moonflower.molangcompiler.impl.ast.UnaryOperation;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodNode;
 
-import java.util.regex.Pattern;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Compiles MoLang AST nodes into Java bytecode for high-performance expression evaluation.
@@ -43,13 +53,39 @@ import java.util.regex.Pattern;
 @ApiStatus.Internal
 public abstract class BytecodeCompiler extends ClassLoader {
 
-    protected static final Pattern DASH = Pattern.compile("-");
+    /**
+     * Hidden classes are defined in the same package and class loader as this lookup.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String HIDDEN_CLASS_PACKAGE = BytecodeCompiler.class.getPackageName().replace('.', '/') + "/";
+    /**
+     * The largest number of expressions that can be packed into a single class.
+     * This keeps the dispatch method of a batch class well below the 64KB method size limit.
+     */
+    public static final int MAX_BATCH_SIZE = 4096;
+    /**
+     * The version of the code generated by the compilers. This is part of every class name and persistent cache key,
+     * so it must be incremented whenever the bytecode generated for the same source changes, or when any library method
+     * called by generated code changes.
+     */
+    public static final int CODEGEN_VERSION = 18;
+
+    static {
+        // Expressions are defined from many threads at once during parallel compilation
+        registerAsParallelCapable();
+    }
 
     protected final ThreadLocal<BytecodeEnvironment> environment;
     protected final CompilerFlags flags;
     protected final boolean enableOptimization;
     protected final boolean writeClasses;
     protected final boolean printClasses;
+    protected final boolean hiddenClasses;
+    private final Map<String, Boolean> visibleClasses;
+    /**
+     * The hash of the bytes of every class defined by this loader, so a loaded class is only reused for identical bytes.
+     */
+    private final Map<String, byte[]> definedClasses;
 
     /**
      * Creates a new bytecode compiler with the specified flags and parent class loader.
@@ -64,6 +100,9 @@ public abstract class BytecodeCompiler extends ClassLoader {
         this.environment = environment;
         this.writeClasses = flags.contains(CompilerFlag.WRITE_CLASSES);
         this.printClasses = flags.contains(CompilerFlag.PRINT_CLASSES);
+        this.hiddenClasses = flags.contains(CompilerFlag.HIDDEN_CLASSES);
+        this.visibleClasses = new ConcurrentHashMap<>();
+        this.definedClasses = new ConcurrentHashMap<>();
     }
 
     /**
@@ -81,17 +120,70 @@ public abstract class BytecodeCompiler extends ClassLoader {
      * If the {@link CompilerFlag#WRITE_CLASSES} is set, the generated class file
      * will be written to disk for debugging purposes.
      *
-     * @param node The AST node to compile
+     * @param node   The AST node to compile
+     * @param source The source the node was parsed from. This names the class and is used in error messages
      * @return A compiled MolangExpression that can be evaluated with a MolangEnvironment
      * @throws MolangSyntaxException if bytecode generation fails
      */
-    public abstract MolangExpression build(Node node) throws MolangSyntaxException;
+    public abstract MolangExpression build(Node node, String source) throws MolangSyntaxException;
+
+    /**
+     * Generates the class for an AST node without defining it. Unlike {@link #build(Node, String)}, constant nodes are always compiled into a class.
+     *
+     * @param node   The AST node to compile
+     * @param source The source the node was parsed from
+     * @return The name and bytes of the generated class
+     * @throws MolangSyntaxException if bytecode generation fails
+     */
+    public GeneratedClass generate(Node node, String source) throws MolangSyntaxException {
+        return this.generate(node, source, this.createClassName("Expression", source));
+    }
+
+    /**
+     * Generates the class for an AST node with a specific name without defining it.
+     *
+     * @param node      The AST node to compile
+     * @param source    The source the node was parsed from
+     * @param className The internal name of the class to generate
+     * @return The name and bytes of the generated class
+     * @throws MolangSyntaxException if bytecode generation fails
+     */
+    public abstract GeneratedClass generate(Node node, String source, String className) throws MolangSyntaxException;
+
+    /**
+     * Defines and instantiates a class previously created by {@link #generate(Node, String)}.
+     *
+     * @param generatedClass The class to define
+     * @return A new instance of the expression
+     * @throws MolangSyntaxException if the class could not be defined
+     */
+    public MolangExpression define(GeneratedClass generatedClass) throws MolangSyntaxException {
+        try {
+            return (MolangExpression) this.defineExpressionClass(generatedClass.name(), generatedClass.data()).getConstructor().newInstance();
+        } catch (Throwable t) {
+            throw new MolangSyntaxException("Failed to define expression class " + generatedClass.name(), t);
+        }
+    }
+
+    /**
+     * Compiles many AST nodes at once, packing up to {@code batchSize} expressions into each generated class.
+     * <p>
+     * Each expression becomes a static method of a batch class. The returned expressions are small instances of that class
+     * that dispatch to their method. Batches that would exceed the class file limits are split until they fit.
+     * <p>
+     * A node that fails to compile does not prevent the rest of the batch from compiling.
+     *
+     * @param nodes     The AST nodes to compile
+     * @param sources   The source each node was parsed from, used in error messages
+     * @param batchSize The maximum number of expressions to put in a single class
+     * @return The compiled expressions and errors in the same order as the nodes
+     */
+    public abstract Batch buildAll(List<Node> nodes, List<String> sources, int batchSize);
 
     /**
      * Writes bytecode instructions to push a constant MolangValue onto the stack.
      * <p>
-     * This method generates appropriate instructions based on the value's type (float, string, or boolean),
-     * calling the corresponding {@link MolangValue#of} factory method.
+     * The value is created at most once per class, so evaluating a literal does not allocate.
      *
      * @param method The method node to write instructions to
      * @param value  The constant value to push onto the stack
@@ -151,6 +243,47 @@ public abstract class BytecodeCompiler extends ClassLoader {
             MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
             Node left, Node right, BinaryOperation op) throws MolangException;
 
+    /**
+     * Writes bytecode that jumps based on the boolean result of a binary operation instead of pushing it.
+     *
+     * @param method        The method node to write instructions to
+     * @param environment   The bytecode environment for compilation context
+     * @param breakLabel    Label for break statements (null if not in a loop)
+     * @param continueLabel Label for continue statements (null if not in a loop)
+     * @param left          The left operand node
+     * @param right         The right operand node
+     * @param op            The binary operation to perform
+     * @param trueLabel     The label to jump to if the result is true, or null to continue after the operation
+     * @param falseLabel    The label to jump to if the result is false, or null to continue after the operation
+     * @throws MolangException if bytecode generation fails or the operation is unsupported
+     * @see Node#writeBytecodeAsBranch(MethodNode, BytecodeCompiler, BytecodeEnvironment, Label, Label, Label, Label)
+     * @since 4.1.0
+     */
+    public abstract void writeBinaryOperationAsBranch(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException;
+
+    /**
+     * Consumes the operands of a jump instruction on the stack and jumps to one of the labels.
+     *
+     * @param method     The method node to write instructions to
+     * @param trueOpcode The jump instruction that jumps if the condition is true
+     * @param trueLabel  The label to jump to if the condition is true, or null to continue after the jump
+     * @param falseLabel The label to jump to if the condition is false, or null to continue after the jump
+     * @since 4.1.0
+     */
+    public abstract void writeBranch(MethodNode method, int trueOpcode, @Nullable Label trueLabel, @Nullable Label falseLabel);
+
+    /**
+     * Consumes a primitive float on the stack and jumps to one of the labels based on {@link MolangValue#asBoolean()}.
+     *
+     * @param method     The method node to write instructions to
+     * @param trueLabel  The label to jump to if the float is true, or null to continue after the jump
+     * @param falseLabel The label to jump to if the float is false, or null to continue after the jump
+     * @since 4.1.0
+     */
+    public abstract void writeFloatAsBranch(MethodNode method, @Nullable Label trueLabel, @Nullable Label falseLabel);
+
     /**
      * Writes bytecode to convert a MolangValue on the stack to a primitive float.
      * <p>
@@ -172,13 +305,149 @@ public abstract class BytecodeCompiler extends ClassLoader {
     /**
      * Writes bytecode to convert a primitive float on the stack to a MolangValue.
      * <p>
-     * Generates a call to {@link MolangValue#of(float)}.
+     * Generates a call to {@link MolangValue#of(float)}, which only allocates for floats outside the shared cache.
      *
      * @param m The method node to write instructions to
      */
     public abstract void wrapFloat(MethodNode m);
 
+    /**
+     * Checks whether the method being generated returns a primitive float instead of a MolangValue.
+     * Nodes that return early must convert their value to match.
+     *
+     * @param method The method being written
+     * @return Whether the method returns a float
+     */
+    public boolean returnsFloat(MethodNode method) {
+        return Type.getReturnType(method.desc).getSort() == Type.FLOAT;
+    }
+
     public boolean isOptimizationEnabled() {
         return enableOptimization;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the intrinsic declared for a name in the compiler flags, if generated classes can link against it.
+     *
+     * @param object The object the name is in
+     * @param name   The name of the value or function
+     * @return The intrinsic or <code>null</code> if the name must be looked up normally
+     * @see CompilerFlags#withIntrinsics(String, java.util.Collection)
+     */
+    public @Nullable MolangIntrinsic getIntrinsic(String object, String name) {
+        MolangIntrinsic intrinsic = this.flags.getIntrinsic(object, name);
+        if (intrinsic == null || !this.isVisible(intrinsic.binding()) || !this.isVisible(intrinsic.owner())) {
+            return null;
+        }
+        return intrinsic;
+    }
+
+    private boolean isVisible(String internalName) {
+        return this.visibleClasses.computeIfAbsent(internalName, unused -> {
+            // Hidden classes resolve other classes through the loader of the lookup that defines them
+            ClassLoader loader = this.hiddenClasses ? BytecodeCompiler.class.getClassLoader() : this;
+            try {
+                Class.forName(internalName.replace('/', '.'), false, loader);
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Creates the internal name for a generated class from a hash of its contents.
+     * The same contents compiled with the same flags and {@link #CODEGEN_VERSION} always produce the same name.
+     * <p>
+     * The content must be the original source text. Printed ASTs do not escape string literals, so two different
+     * expressions can print the same.
+     * <p>
+     * Hidden classes must be in the same package as the lookup that defines them, so they are placed next to this class.
+     *
+     * @param prefix  The simple name to start the class name with
+     * @param content The source that uniquely identifies the class contents
+     * @return The internal class name
+     */
+    public String createClassName(String prefix, String content) {
+        MessageDigest digest = sha256();
+        digest.update((CODEGEN_VERSION + ";" + this.getClass().getName() + ";" + this.flags + ";" + prefix + ";").getBytes(StandardCharsets.UTF_8));
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+
+        String name = prefix + "_" + HexFormat.of().formatHex(digest.digest(), 0, 16);
+        return this.hiddenClasses ? HIDDEN_CLASS_PACKAGE + name : name;
+    }
+
+    /**
+     * Defines a generated class. If {@link CompilerFlag#HIDDEN_CLASSES} is set, the class is defined as a hidden class
+     * that can be unloaded as soon as it is unreachable. Otherwise, it is defined by this class loader and lives as long as the compiler.
+     *
+     * @param name The internal name of the class
+     * @param data The class file bytes
+     * @return The defined class
+     * @throws IllegalAccessException If the hidden class could not be defined
+     */
+    protected Class<?> defineExpressionClass(String name, byte[] data) throws IllegalAccessException {
+        if (this.hiddenClasses) {
+            return LOOKUP.defineHiddenClass(data, true).lookupClass();
+        }
+
+        // Class names are derived from their contents, so an existing class with the same name can be reused if it has the same bytes
+        String className = name.replace('/', '.');
+        byte[] hash = sha256().digest(data);
+        synchronized (this.getClassLoadingLock(className)) {
+            Class<?> loaded = this.findLoadedClass(className);
+            if (loaded == null) {
+                this.definedClasses.put(className, hash);
+                return this.defineClass(className, data, 0, data.length);
+            }
+            if (Arrays.equals(hash, this.definedClasses.get(className))) {
+                return loaded;
+            }
+        }
+
+        // A different class with the same name, for example one read from a disk cache written by another build.
+        // It gets a loader of its own so that both classes keep working
+        return new IsolatedClassLoader(this).define(className, data);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * The output of {@link #buildAll(List, List, int)}. For every index, either the expression or the error is set.
+     *
+     * @param expressions The compiled expressions
+     * @param errors      The reason each expression failed to compile
+     * @param classSizes  The size in bytes of each defined class
+     */
+    public record Batch(MolangExpression[] expressions, MolangSyntaxException[] errors, List<Integer> classSizes) {
+    }
+
+    /**
+     * A generated class that has not been defined yet.
+     *
+     * @param name The internal name of the class
+     * @param data The class file bytes
+     */
+    public record GeneratedClass(String name, byte[] data) {
+    }
+
+    /**
+     * Defines a single class that clashes with a class already defined by the compiler.
+     */
+    private static final class IsolatedClassLoader extends ClassLoader {
+
+        private IsolatedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] data) {
+            return this.defineClass(name, data, 0, data.length);
+        }
+    }
+}
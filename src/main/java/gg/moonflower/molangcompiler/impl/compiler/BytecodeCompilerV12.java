@@ -7,23 +7,36 @@ import gg.moonflower.molangcompiler.api.MolangValue;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import gg.moonflower.molangcompiler.impl.ast.BinaryOperation;
+import gg.moonflower.molangcompiler.impl.ast.BinaryOperationNode;
+import gg.moonflower.molangcompiler.impl.ast.CompoundNode;
 import gg.moonflower.molangcompiler.impl.ast.Node;
+import gg.moonflower.molangcompiler.impl.ast.NodeTraversal;
+import gg.moonflower.molangcompiler.impl.ast.ReturnNode;
 import gg.moonflower.molangcompiler.impl.ast.UnaryOperation;
+import gg.moonflower.molangcompiler.impl.ast.VariableSetNode;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassTooLargeException;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.util.TraceClassVisitor;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
 
 /**
  * Version 12 implementation of the bytecode compiler.
@@ -37,10 +50,43 @@ import java.util.UUID;
 @ApiStatus.Internal
 public class BytecodeCompilerV12 extends BytecodeCompiler {
 
+    /**
+     * Constant values are loaded with ConstantDynamic, which requires Java 11 class files.
+     */
+    private static final int CLASS_VERSION = Opcodes.V11;
+    private static final String EXPRESSION = "gg/moonflower/molangcompiler/api/MolangExpression";
+    private static final String VALUE = "gg/moonflower/molangcompiler/api/MolangValue";
+    private static final String VALUE_DESCRIPTOR = "Lgg/moonflower/molangcompiler/api/MolangValue;";
+    private static final String GET_DESCRIPTOR = "(Lgg/moonflower/molangcompiler/api/MolangEnvironment;)" + VALUE_DESCRIPTOR;
+    private static final String GET_FLOAT_DESCRIPTOR = "(Lgg/moonflower/molangcompiler/api/MolangEnvironment;)F";
+    private static final String REFERENCES_DESCRIPTOR = "()[Ljava/lang/String;";
+    private static final List<String> GET_EXCEPTIONS = List.of("gg/moonflower/molangcompiler/api/exception/MolangRuntimeException");
+    /**
+     * Creates a constant by calling a method handle with the static arguments. The result is stored in the constant pool entry,
+     * so the method is only called the first time the instruction runs.
+     */
+    private static final Handle CONSTANT_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/ConstantBootstraps",
+            "invoke",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)Ljava/lang/Object;",
+            false
+    );
+
+    /**
+     * Environment for the static methods of batch classes. There is no {@code this}, so the runtime is the first local.
+     */
+    protected final ThreadLocal<BytecodeEnvironment> staticEnvironment;
+
+    static {
+        registerAsParallelCapable();
+    }
+
     public BytecodeCompilerV12(CompilerFlags flags, ClassLoader parent) {
         super(flags, parent,
                 ThreadLocal.withInitial(() -> new BytecodeEnvironmentV12(0, 1, 2))
         );
+        this.staticEnvironment = ThreadLocal.withInitial(() -> new BytecodeEnvironmentV12(-1, 0, 1));
     }
 
     /**
@@ -58,24 +104,37 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
      * If the {@link CompilerFlag#OPTIMIZE} is set, the generated class file
      * will be written to disk for debugging purposes.
      *
-     * @param node The AST node to compile
+     * @param node   The AST node to compile
+     * @param source The source the node was parsed from
      * @return A compiled MolangExpression that can be evaluated with a MolangEnvironment
      * @throws MolangSyntaxException if bytecode generation fails
      */
-    public MolangExpression build(Node node) throws MolangSyntaxException {
+    public MolangExpression build(Node node, String source) throws MolangSyntaxException {
+        if (isOptimizationEnabled() && node.isConstant()) {
+            BytecodeEnvironment environment = this.environment.get();
+            environment.reset();
+            try {
+                return MolangExpression.of(node.evaluate(environment));
+            } catch (Throwable t) {
+                throw new MolangSyntaxException("Failed to convert expression '" + source + "' to bytecode", t);
+            }
+        }
+        return this.define(this.generate(node, source));
+    }
+
+    @Override
+    public GeneratedClass generate(Node node, String source, String className) throws MolangSyntaxException {
         BytecodeEnvironment environment = this.environment.get();
         environment.reset();
         try {
-            if (isOptimizationEnabled() && node.isConstant()) {
-                return MolangExpression.of(node.evaluate(environment));
-            }
+            String compiledSource = node.toString();
 
             ClassNode classNode = new ClassNode(Opcodes.ASM5);
-            classNode.version = Opcodes.V1_8;
+            classNode.version = CLASS_VERSION;
             classNode.superName = "java/lang/Object";
-            classNode.name = "Expression_" + DASH.matcher(UUID.randomUUID().toString()).replaceAll("");
+            classNode.name = className;
             classNode.access = Opcodes.ACC_PUBLIC;
-            classNode.interfaces.add(MolangExpression.class.getName().replaceAll("\\.", "/"));
+            classNode.interfaces.add(EXPRESSION);
 
             MethodNode init = new MethodNode();
             init.access = Opcodes.ACC_PUBLIC;
@@ -89,16 +148,32 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
             MethodNode method = new MethodNode();
             method.access = Opcodes.ACC_PUBLIC;
             method.name = "get";
-            method.desc = "(Lgg/moonflower/molangcompiler/api/MolangEnvironment;)Lgg/moonflower/molangcompiler/api/MolangValue;";
-            method.exceptions = List.of("gg/moonflower/molangcompiler/api/exception/MolangRuntimeException");
-            node.writeBytecode(method, this, environment, null, null);
-            // Write modified variables before wrapping and returning
-            environment.writeModifiedVariables(method);
-            // The node has written a MolangValue to the stack
-            method.visitInsn(Opcodes.ARETURN);
+            method.desc = GET_DESCRIPTOR;
+            method.exceptions = GET_EXCEPTIONS;
+            Node optimized = this.optimize(node);
+            this.writeExpression(method, environment, optimized);
             classNode.methods.add(method);
 
-            String compiledSource = node.toString();
+            if (hasFloatResult(optimized)) {
+                MethodNode floatMethod = new MethodNode();
+                floatMethod.access = Opcodes.ACC_PUBLIC;
+                floatMethod.name = "getFloat";
+                floatMethod.desc = GET_FLOAT_DESCRIPTOR;
+                floatMethod.exceptions = GET_EXCEPTIONS;
+                environment.reset();
+                this.writeFloatExpression(floatMethod, environment, optimized);
+                classNode.methods.add(floatMethod);
+            }
+
+            String[] references = NodeTraversal.getReferences(optimized);
+            if (references.length > 0) {
+                MethodNode getReferences = new MethodNode();
+                getReferences.access = Opcodes.ACC_PUBLIC;
+                getReferences.name = "getReferences";
+                getReferences.desc = REFERENCES_DESCRIPTOR;
+                writeReferences(getReferences, references);
+                classNode.methods.add(getReferences);
+            }
 
             MethodNode equals = new MethodNode();
             Label equalsFail = new Label();
@@ -108,7 +183,7 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
             equals.desc = "(Ljava/lang/Object;)Z";
 
             equals.visitVarInsn(Opcodes.ALOAD, 1);
-            equals.visitTypeInsn(Opcodes.INSTANCEOF, "gg/moonflower/molangcompiler/api/MolangExpression");
+            equals.visitTypeInsn(Opcodes.INSTANCEOF, EXPRESSION);
             equals.visitJumpInsn(Opcodes.IFEQ, equalsFail); // if !(obj instanceof MolangExpression) goto equalsFail
 
             equals.visitLdcInsn(compiledSource);
@@ -144,73 +219,426 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
             toString.visitInsn(Opcodes.ARETURN);
             classNode.methods.add(toString);
 
+            return new GeneratedClass(classNode.name, this.writeClass(classNode));
+        } catch (Throwable t) {
+            throw new MolangSyntaxException("Failed to convert expression '" + source + "' to bytecode", t);
+        }
+    }
+
+    @Override
+    public Batch buildAll(List<Node> nodes, List<String> sources, int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        int count = nodes.size();
+        MolangExpression[] expressions = new MolangExpression[count];
+        MolangSyntaxException[] errors = new MolangSyntaxException[count];
+        List<Integer> classSizes = new ArrayList<>();
+
+        // Generate every method up front so a single bad expression only fails itself
+        BytecodeEnvironment environment = this.staticEnvironment.get();
+        List<BatchMethod> methods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Node node = nodes.get(i);
+            environment.reset();
+            try {
+                if (isOptimizationEnabled() && node.isConstant()) {
+                    expressions[i] = MolangExpression.of(node.evaluate(environment));
+                    continue;
+                }
 
-            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
-            if (printClasses) {
-                TraceClassVisitor tcv = new TraceClassVisitor(cw, new PrintWriter(System.out));
-                classNode.accept(tcv);
-            } else {
-                classNode.accept(cw);
+                MethodNode method = new MethodNode();
+                method.access = Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC;
+                method.desc = GET_DESCRIPTOR;
+                method.exceptions = GET_EXCEPTIONS;
+                Node optimized = this.optimize(node);
+                this.writeExpression(method, environment, optimized);
+
+                MethodNode floatMethod = null;
+                if (hasFloatResult(optimized)) {
+                    floatMethod = new MethodNode();
+                    floatMethod.access = Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC;
+                    floatMethod.desc = GET_FLOAT_DESCRIPTOR;
+                    floatMethod.exceptions = GET_EXCEPTIONS;
+                    environment.reset();
+                    this.writeFloatExpression(floatMethod, environment, optimized);
+                }
+                methods.add(new BatchMethod(i, sources.get(i), node.toString(), method, floatMethod, NodeTraversal.getReferences(optimized)));
+            } catch (Throwable t) {
+                // Printing a node recurses over the whole tree, which can overflow the stack again for huge expressions
+                errors[i] = new MolangSyntaxException("Failed to convert expression '" + sources.get(i) + "' to bytecode", t);
             }
-            byte[] data = cw.toByteArray();
+        }
+
+        for (int i = 0; i < methods.size(); i += batchSize) {
+            this.defineBatch(methods.subList(i, Math.min(methods.size(), i + batchSize)), expressions, errors, classSizes);
+        }
+        return new Batch(expressions, errors, classSizes);
+    }
 
-            if (this.writeClasses) {
-                Path path = Paths.get(classNode.name + ".class");
-                if (!Files.exists(path)) {
-                    Files.createFile(path);
+    /**
+     * Defines a single class holding all the specified methods. If the class is too large to be defined,
+     * it is split in half or the method that is too large is removed.
+     */
+    private void defineBatch(List<BatchMethod> methods, MolangExpression[] expressions, MolangSyntaxException[] errors, List<Integer> classSizes) {
+        ClassNode classNode = this.createBatchClass(methods);
+        byte[] data;
+        try {
+            data = this.writeClass(classNode);
+        } catch (MethodTooLargeException e) {
+            int index = methods.size();
+            for (int i = 0; i < methods.size(); i++) {
+                BatchMethod method = methods.get(i);
+                if (method.method.name.equals(e.getMethodName()) || (method.floatMethod != null && method.floatMethod.name.equals(e.getMethodName()))) {
+                    index = i;
+                    break;
                 }
-                Files.write(path, data);
             }
+            if (index == methods.size()) {
+                // The dispatch method itself is too large, so the batch has to be split
+                this.splitBatch(methods, expressions, errors, classSizes, e);
+                return;
+            }
+
+            BatchMethod method = methods.get(index);
+            errors[method.index] = new MolangSyntaxException("Failed to convert expression '" + method.source + "' to bytecode", e);
+            List<BatchMethod> remaining = new ArrayList<>(methods);
+            remaining.remove(index);
+            if (!remaining.isEmpty()) {
+                this.defineBatch(remaining, expressions, errors, classSizes);
+            }
+            return;
+        } catch (ClassTooLargeException e) {
+            this.splitBatch(methods, expressions, errors, classSizes, e);
+            return;
+        } catch (Throwable t) {
+            for (BatchMethod method : methods) {
+                errors[method.index] = new MolangSyntaxException("Failed to convert expression '" + method.source + "' to bytecode", t);
+            }
+            return;
+        }
 
-            return (MolangExpression) this.defineClass(classNode.name, data, 0, data.length).getConstructor().newInstance();
+        try {
+            Constructor<?> constructor = this.defineExpressionClass(classNode.name, data).getConstructor(int.class, String.class);
+            for (int i = 0; i < methods.size(); i++) {
+                BatchMethod method = methods.get(i);
+                expressions[method.index] = (MolangExpression) constructor.newInstance(i, method.printed);
+            }
+            classSizes.add(data.length);
         } catch (Throwable t) {
-            throw new MolangSyntaxException("Failed to convert expression '" + node + "' to bytecode", t);
+            for (BatchMethod method : methods) {
+                errors[method.index] = new MolangSyntaxException("Failed to convert expression '" + method.source + "' to bytecode", t);
+            }
+        }
+    }
+
+    private void splitBatch(List<BatchMethod> methods, MolangExpression[] expressions, MolangSyntaxException[] errors, List<Integer> classSizes, Throwable cause) {
+        if (methods.size() == 1) {
+            BatchMethod method = methods.get(0);
+            errors[method.index] = new MolangSyntaxException("Failed to convert expression '" + method.source + "' to bytecode", cause);
+            return;
+        }
+        int half = methods.size() / 2;
+        this.defineBatch(methods.subList(0, half), expressions, errors, classSizes);
+        this.defineBatch(methods.subList(half, methods.size()), expressions, errors, classSizes);
+    }
+
+    /**
+     * Creates a class with one static method per expression. Instances store the index of their method
+     * and the source used for equals(), hashCode(), and toString().
+     */
+    private ClassNode createBatchClass(List<BatchMethod> methods) {
+        ClassNode classNode = new ClassNode(Opcodes.ASM5);
+        classNode.version = CLASS_VERSION;
+        classNode.superName = "java/lang/Object";
+        StringBuilder content = new StringBuilder();
+        for (BatchMethod method : methods) {
+            content.append(method.source).append('\0');
+        }
+        classNode.name = this.createClassName("ExpressionBatch", content.toString());
+        classNode.access = Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL;
+        classNode.interfaces.add(EXPRESSION);
+        classNode.fields.add(new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "index", "I", null, null));
+        classNode.fields.add(new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "source", "Ljava/lang/String;", null, null));
+
+        MethodNode init = new MethodNode();
+        init.access = Opcodes.ACC_PUBLIC;
+        init.name = "<init>";
+        init.desc = "(ILjava/lang/String;)V";
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ILOAD, 1);
+        init.visitFieldInsn(Opcodes.PUTFIELD, classNode.name, "index", "I");
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 2);
+        init.visitFieldInsn(Opcodes.PUTFIELD, classNode.name, "source", "Ljava/lang/String;");
+        init.visitInsn(Opcodes.RETURN);
+        classNode.methods.add(init);
+
+        // get(runtime) -> switch (this.index) { case i: return e<i>(runtime); }
+        MethodNode get = new MethodNode();
+        get.access = Opcodes.ACC_PUBLIC;
+        get.name = "get";
+        get.desc = GET_DESCRIPTOR;
+        get.exceptions = GET_EXCEPTIONS;
+        Label[] cases = new Label[methods.size()];
+        for (int i = 0; i < cases.length; i++) {
+            cases[i] = new Label();
+        }
+        Label fail = new Label();
+        get.visitVarInsn(Opcodes.ALOAD, 0);
+        get.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "index", "I");
+        get.visitTableSwitchInsn(0, cases.length - 1, fail, cases);
+        for (int i = 0; i < cases.length; i++) {
+            MethodNode method = methods.get(i).method;
+            method.name = "e" + i;
+            classNode.methods.add(method);
+
+            get.visitLabel(cases[i]);
+            get.visitVarInsn(Opcodes.ALOAD, 1);
+            get.visitMethodInsn(Opcodes.INVOKESTATIC, classNode.name, method.name, GET_DESCRIPTOR, false);
+            get.visitInsn(Opcodes.ARETURN);
+        }
+        get.visitLabel(fail);
+        get.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalStateException");
+        get.visitInsn(Opcodes.DUP);
+        get.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+        get.visitInsn(Opcodes.ATHROW);
+        classNode.methods.add(get);
+
+        // getFloat(runtime) -> switch (this.index) { case i: return f<i>(runtime); }, or e<i>(runtime).asFloat() if there is no float method
+        if (methods.stream().anyMatch(method -> method.floatMethod != null)) {
+            MethodNode getFloat = new MethodNode();
+            getFloat.access = Opcodes.ACC_PUBLIC;
+            getFloat.name = "getFloat";
+            getFloat.desc = GET_FLOAT_DESCRIPTOR;
+            getFloat.exceptions = GET_EXCEPTIONS;
+            Label[] floatCases = new Label[methods.size()];
+            for (int i = 0; i < floatCases.length; i++) {
+                floatCases[i] = new Label();
+            }
+            Label floatFail = new Label();
+            getFloat.visitVarInsn(Opcodes.ALOAD, 0);
+            getFloat.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "index", "I");
+            getFloat.visitTableSwitchInsn(0, floatCases.length - 1, floatFail, floatCases);
+            for (int i = 0; i < floatCases.length; i++) {
+                BatchMethod method = methods.get(i);
+                getFloat.visitLabel(floatCases[i]);
+                getFloat.visitVarInsn(Opcodes.ALOAD, 1);
+                if (method.floatMethod != null) {
+                    method.floatMethod.name = "f" + i;
+                    classNode.methods.add(method.floatMethod);
+                    getFloat.visitMethodInsn(Opcodes.INVOKESTATIC, classNode.name, method.floatMethod.name, GET_FLOAT_DESCRIPTOR, false);
+                } else {
+                    getFloat.visitMethodInsn(Opcodes.INVOKESTATIC, classNode.name, method.method.name, GET_DESCRIPTOR, false);
+                    unwrapFloat(getFloat);
+                }
+                getFloat.visitInsn(Opcodes.FRETURN);
+            }
+            getFloat.visitLabel(floatFail);
+            getFloat.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalStateException");
+            getFloat.visitInsn(Opcodes.DUP);
+            getFloat.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+            getFloat.visitInsn(Opcodes.ATHROW);
+            classNode.methods.add(getFloat);
         }
+
+        // getReferences() -> switch (this.index) { case i: return new String[]{...}; }
+        if (methods.stream().anyMatch(method -> method.references.length > 0)) {
+            MethodNode getReferences = new MethodNode();
+            getReferences.access = Opcodes.ACC_PUBLIC;
+            getReferences.name = "getReferences";
+            getReferences.desc = REFERENCES_DESCRIPTOR;
+            Label[] referenceCases = new Label[methods.size()];
+            for (int i = 0; i < referenceCases.length; i++) {
+                referenceCases[i] = new Label();
+            }
+            Label referenceFail = new Label();
+            getReferences.visitVarInsn(Opcodes.ALOAD, 0);
+            getReferences.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "index", "I");
+            getReferences.visitTableSwitchInsn(0, referenceCases.length - 1, referenceFail, referenceCases);
+            for (int i = 0; i < referenceCases.length; i++) {
+                getReferences.visitLabel(referenceCases[i]);
+                writeReferences(getReferences, methods.get(i).references);
+            }
+            getReferences.visitLabel(referenceFail);
+            getReferences.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalStateException");
+            getReferences.visitInsn(Opcodes.DUP);
+            getReferences.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+            getReferences.visitInsn(Opcodes.ATHROW);
+            classNode.methods.add(getReferences);
+        }
+
+        MethodNode equals = new MethodNode();
+        Label equalsFail = new Label();
+        equals.access = Opcodes.ACC_PUBLIC;
+        equals.name = "equals";
+        equals.desc = "(Ljava/lang/Object;)Z";
+        equals.visitVarInsn(Opcodes.ALOAD, 1);
+        equals.visitTypeInsn(Opcodes.INSTANCEOF, EXPRESSION);
+        equals.visitJumpInsn(Opcodes.IFEQ, equalsFail); // if !(obj instanceof MolangExpression) return false
+        equals.visitVarInsn(Opcodes.ALOAD, 0);
+        equals.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "source", "Ljava/lang/String;");
+        equals.visitVarInsn(Opcodes.ALOAD, 1);
+        equals.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "toString", "()Ljava/lang/String;", false);
+        equals.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+        equals.visitInsn(Opcodes.IRETURN);
+        equals.visitLabel(equalsFail);
+        writeIntConst(equals, 0);
+        equals.visitInsn(Opcodes.IRETURN);
+        classNode.methods.add(equals);
+
+        MethodNode hashCode = new MethodNode();
+        hashCode.access = Opcodes.ACC_PUBLIC;
+        hashCode.name = "hashCode";
+        hashCode.desc = "()I";
+        hashCode.visitVarInsn(Opcodes.ALOAD, 0);
+        hashCode.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "source", "Ljava/lang/String;");
+        hashCode.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false);
+        hashCode.visitInsn(Opcodes.IRETURN);
+        classNode.methods.add(hashCode);
+
+        MethodNode toString = new MethodNode();
+        toString.access = Opcodes.ACC_PUBLIC;
+        toString.name = "toString";
+        toString.desc = "()Ljava/lang/String;";
+        toString.visitVarInsn(Opcodes.ALOAD, 0);
+        toString.visitFieldInsn(Opcodes.GETFIELD, classNode.name, "source", "Ljava/lang/String;");
+        toString.visitInsn(Opcodes.ARETURN);
+        classNode.methods.add(toString);
+
+        return classNode;
+    }
+
+    /**
+     * Returns a new array of the references used by an expression, see {@link MolangExpression#getReferences()}.
+     */
+    private void writeReferences(MethodNode method, String[] references) {
+        writeIntConst(method, references.length);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < references.length; i++) {
+            method.visitInsn(Opcodes.DUP);
+            writeIntConst(method, i);
+            method.visitLdcInsn(references[i]);
+            method.visitInsn(Opcodes.AASTORE);
+        }
+        method.visitInsn(Opcodes.ARETURN);
+    }
+
+    private Node optimize(Node node) {
+        return this.isOptimizationEnabled() ? optimizeTree(node) : node;
+    }
+
+    /**
+     * Applies the optimizations that rewrite the AST before any bytecode is written. The interpreter resolves the same
+     * tree, so tiered expressions give the same results before and after they are compiled.
+     *
+     * @param node The node to optimize
+     * @return The optimized node
+     */
+    public static Node optimizeTree(Node node) {
+        return MolangLoopInvariants.apply(MolangSubexpressions.apply(MolangDeadCode.apply(MolangSimplifier.apply(node))));
+    }
+
+    /**
+     * Writes the body of an expression method. The node leaves its value on the stack,
+     * then all modified variables are saved before returning it.
+     */
+
+    private void writeExpression(MethodNode method, BytecodeEnvironment environment, Node node) throws MolangException {
+        node.writeBytecode(method, this, environment, null, null);
+        // Write modified variables before wrapping and returning
+        environment.writeModifiedVariables(method);
+        // The node has written a MolangValue to the stack
+        method.visitInsn(Opcodes.ARETURN);
+    }
+
+    /**
+     * Writes the body of a {@link MolangExpression#getFloat} method. This is the same as {@link #writeExpression},
+     * but the value is left on the stack as a primitive float so numeric results are never wrapped.
+     */
+    private void writeFloatExpression(MethodNode method, BytecodeEnvironment environment, Node node) throws MolangException {
+        if (node.hasValue()) {
+            node.writeBytecodeAsFloat(method, this, environment, null, null);
+        } else {
+            // Statements return from inside the node, so this only has to keep the method valid
+            node.writeBytecode(method, this, environment, null, null);
+            this.writeFloatConst(method, 0.0F);
+        }
+        environment.writeModifiedVariables(method);
+        method.visitInsn(Opcodes.FRETURN);
+    }
+
+    /**
+     * Checks whether the last value of the node can be a number. Expressions known to produce strings or arrays gain nothing
+     * from a float method, so they use the default <code>get(environment).asFloat()</code> to keep the class small.
+     */
+    private static boolean hasFloatResult(Node node) {
+        if (node instanceof CompoundNode compound) {
+            node = compound.nodes()[compound.nodes().length - 1];
+        }
+        if (node instanceof ReturnNode returnNode) {
+            node = returnNode.value();
+        }
+        MolangValue.Type type = node.getStaticType();
+        return type == null || type == MolangValue.Type.FLOAT || type == MolangValue.Type.BOOLEAN;
+    }
+
+    /**
+     * Converts the class into bytes, printing and writing it to disk if requested by the compiler flags.
+     */
+    private byte[] writeClass(ClassNode classNode) throws IOException {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        if (printClasses) {
+            TraceClassVisitor tcv = new TraceClassVisitor(cw, new PrintWriter(System.out));
+            classNode.accept(tcv);
+        } else {
+            classNode.accept(cw);
+        }
+        byte[] data = cw.toByteArray();
+
+        if (this.writeClasses) {
+            Path path = Paths.get(classNode.name + ".class");
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (!Files.exists(path)) {
+                Files.createFile(path);
+            }
+            Files.write(path, data);
+        }
+        return data;
+    }
+
+    /**
+     * A generated expression method. The source names the class and error messages, and the printed node is returned by toString().
+     */
+    private record BatchMethod(int index, String source, String printed, MethodNode method, @Nullable MethodNode floatMethod, String[] references) {
     }
 
     /**
      * Writes bytecode instructions to push a constant MolangValue onto the stack.
      * <p>
-     * This method generates appropriate instructions based on the value's type (float, string, or boolean),
-     * calling the corresponding {@link MolangValue#of} factory method.
+     * Floats and strings are loaded from a ConstantDynamic entry that calls the corresponding {@link MolangValue#of}
+     * factory method the first time it is executed, so evaluating a literal never allocates. Booleans and null load the
+     * shared {@link MolangValue#TRUE}, {@link MolangValue#FALSE}, and {@link MolangValue#NULL} instances instead.
      *
      * @param method The method node to write instructions to
      * @param value  The constant value to push onto the stack
      */
     public void writeConst(MethodNode method, MolangValue value) {
-        String owner = "gg/moonflower/molangcompiler/api/MolangValue";
-
         switch (value.getType()) {
-            case FLOAT -> {
-                writeFloatConst(method, value.getFloat());
-                method.visitMethodInsn(
-                        Opcodes.INVOKESTATIC,
-                        owner,
-                        "of",
-                        "(F)Lgg/moonflower/molangcompiler/api/MolangValue;",
-                        false
-                );
-            }
-            case STRING -> {
-                method.visitLdcInsn(value.getString());
-                method.visitMethodInsn(
-                        Opcodes.INVOKESTATIC,
-                        owner,
-                        "of",
-                        "(Ljava/lang/String;)Lgg/moonflower/molangcompiler/api/MolangValue;",
-                        false
-                );
-            }
-            case BOOLEAN -> {
-                method.visitLdcInsn(value.getBoolean());
-                method.visitMethodInsn(
-                        Opcodes.INVOKESTATIC,
-                        owner,
-                        "of",
-                        "(Z)Lgg/moonflower/molangcompiler/api/MolangValue;",
-                        false
-                );
-            }
+            case FLOAT -> method.visitLdcInsn(new ConstantDynamic("float", VALUE_DESCRIPTOR, CONSTANT_BOOTSTRAP,
+                    new Handle(Opcodes.H_INVOKESTATIC, VALUE, "of", "(F)" + VALUE_DESCRIPTOR, false),
+                    value.getFloat()));
+            case STRING -> method.visitLdcInsn(new ConstantDynamic("string", VALUE_DESCRIPTOR, CONSTANT_BOOTSTRAP,
+                    new Handle(Opcodes.H_INVOKESTATIC, VALUE, "of", "(Ljava/lang/String;)" + VALUE_DESCRIPTOR, false),
+                    value.getString()));
+            // Booleans and null are shared instances, so they can be loaded without creating a value
+            case BOOLEAN -> method.visitFieldInsn(Opcodes.GETSTATIC, VALUE, value.getBoolean() ? "TRUE" : "FALSE", VALUE_DESCRIPTOR);
+            case NULL -> method.visitFieldInsn(Opcodes.GETSTATIC, VALUE, "NULL", VALUE_DESCRIPTOR);
         }
     }
 
@@ -224,7 +652,8 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
      * @param value  The float constant to push
      */
     public void writeFloatConst(MethodNode method, float value) {
-        if (value == 0.0f) {
+        // FCONST_0 is positive zero, so -0 has to be loaded like any other value
+        if (Float.floatToRawIntBits(value) == 0) {
             method.visitInsn(Opcodes.FCONST_0);
         } else if (value == 1.0f) {
             method.visitInsn(Opcodes.FCONST_1);
@@ -273,6 +702,9 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
      *   <li>Evaluates the right operand and pushes it onto the stack</li>
      *   <li>Calls the appropriate MolangValue operation method (e.g., internalAdd, internalMultiply)</li>
      * </ol>
+     * Arithmetic that {@link Node#getStaticType()} proves is numeric and comparisons are instead written as float
+     * instructions, so only the result is wrapped. The right operand of <code>&&</code>, <code>||</code>, and
+     * <code>??</code> is only evaluated if the left operand does not decide the result.
      *
      * @param method        The method node to write instructions to
      * @param environment   The bytecode environment for compilation context
@@ -286,6 +718,37 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
     public void writeBinaryOperation(
             MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
             Node left, Node right, BinaryOperation op) throws MolangException {
+        MolangValue.Type leftType = left.getStaticType();
+        MolangValue.Type rightType = right.getStaticType();
+        switch (op) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE -> {
+                // Arithmetic that can't see a string is the same as doing the float math and wrapping the result
+                if (op.getResultType(leftType, rightType) == MolangValue.Type.FLOAT) {
+                    this.writeBinaryOperationAsFloat(method, environment, breakLabel, continueLabel, left, right, op);
+                    this.wrapFloat(method);
+                    return;
+                }
+            }
+            case LESS, LESS_EQUALS, GREATER, GREATER_EQUALS -> {
+                this.writeComparison(method, environment, breakLabel, continueLabel, left, right, op, false);
+                return;
+            }
+            case EQUALS, NOT_EQUALS -> {
+                if (leftType == MolangValue.Type.FLOAT || rightType == MolangValue.Type.FLOAT) {
+                    this.writeComparison(method, environment, breakLabel, continueLabel, left, right, op, false);
+                    return;
+                }
+            }
+            case AND, OR -> {
+                this.writeLogicalOperation(method, environment, breakLabel, continueLabel, left, right, op, false);
+                return;
+            }
+            case NULL_COALESCING -> {
+                this.writeNullCoalescing(method, environment, breakLabel, continueLabel, left, right);
+                return;
+            }
+        }
+
         // push left
         left.writeBytecode(method, this, environment, breakLabel, continueLabel);
         // push right
@@ -335,12 +798,347 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
         );
     }
 
+    /**
+     * Writes bytecode to perform a binary operation and leave the result on the stack as a primitive float.
+     * <p>
+     * Operations that only use the float value of their operands are written as plain float instructions.
+     * Operations that behave differently for strings use float instructions when {@link Node#getStaticType()} proves
+     * neither operand can be a string, and otherwise call a helper in {@link gg.moonflower.molangcompiler.impl.MolangUtil}
+     * that only allocates in the string case.
+     *
+     * @param method        The method node to write instructions to
+     * @param environment   The bytecode environment for compilation context
+     * @param breakLabel    Label for break statements (null if not in a loop)
+     * @param continueLabel Label for continue statements (null if not in a loop)
+     * @param left          The left operand node
+     * @param right         The right operand node
+     * @param op            The binary operation to perform
+     * @throws MolangException if bytecode generation fails or the operation is unsupported
+     */
     public void writeBinaryOperationAsFloat(
             MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
             Node left, Node right, BinaryOperation op) throws MolangException {
-        writeBinaryOperation(method, environment, breakLabel, continueLabel, left, right, op);
-        // Unwrap the result back to a float
-        unwrapFloat(method);
+        MolangValue.Type leftType = left.getStaticType();
+        MolangValue.Type rightType = right.getStaticType();
+        switch (op) {
+            case ADD, SUBTRACT, MULTIPLY -> {
+                if (op.getResultType(leftType, rightType) == MolangValue.Type.FLOAT) {
+                    left.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                    right.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                    method.visitInsn(switch (op) {
+                        case ADD -> Opcodes.FADD;
+                        case SUBTRACT -> Opcodes.FSUB;
+                        default -> Opcodes.FMUL;
+                    });
+                    return;
+                }
+
+                // Only the operands known to be floats can skip being wrapped
+                boolean leftFloat = op == BinaryOperation.ADD && leftType == MolangValue.Type.FLOAT;
+                boolean rightFloat = op != BinaryOperation.SUBTRACT && rightType == MolangValue.Type.FLOAT;
+                if (leftFloat) {
+                    left.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                } else {
+                    left.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                }
+                if (rightFloat) {
+                    right.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                } else {
+                    right.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                }
+
+                String methodName = switch (op) {
+                    case ADD -> "addFloat";
+                    case SUBTRACT -> "subtractFloat";
+                    default -> "multiplyFloat";
+                };
+                String descriptor = "(" + (leftFloat ? "F" : VALUE_DESCRIPTOR) + (rightFloat ? "F" : VALUE_DESCRIPTOR) + ")F";
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/impl/MolangUtil", methodName, descriptor, false);
+            }
+            case DIVIDE -> {
+                left.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                float reciprocal = this.isOptimizationEnabled() ? getExactReciprocal(right) : Float.NaN;
+                if (!Float.isNaN(reciprocal)) {
+                    // x / 4 is exactly x * 0.25
+                    this.writeFloatConst(method, reciprocal);
+                    method.visitInsn(Opcodes.FMUL);
+                    return;
+                }
+                right.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+                method.visitInsn(Opcodes.FDIV);
+            }
+            case LESS, LESS_EQUALS, GREATER, GREATER_EQUALS ->
+                    this.writeComparison(method, environment, breakLabel, continueLabel, left, right, op, true);
+            case AND, OR -> this.writeLogicalOperation(method, environment, breakLabel, continueLabel, left, right, op, true);
+            case EQUALS, NOT_EQUALS -> {
+                if (leftType == MolangValue.Type.FLOAT || rightType == MolangValue.Type.FLOAT) {
+                    this.writeComparison(method, environment, breakLabel, continueLabel, left, right, op, true);
+                    return;
+                }
+
+                left.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                right.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "gg/moonflower/molangcompiler/api/MolangValue", "equalsValue", "(Ljava/lang/Object;)Z", false);
+                this.writeCondition(method, op == BinaryOperation.EQUALS ? Opcodes.IFEQ : Opcodes.IFNE, true);
+            }
+            default -> {
+                writeBinaryOperation(method, environment, breakLabel, continueLabel, left, right, op);
+                // Unwrap the result back to a float
+                unwrapFloat(method);
+            }
+        }
+    }
+
+    /**
+     * Dividing by a power of two gives exactly the same result as multiplying by its reciprocal, as long as the reciprocal is a normal float.
+     *
+     * @return The reciprocal of the constant divisor, or {@link Float#NaN} if the division has to be kept
+     */
+    private static float getExactReciprocal(Node divisor) {
+        MolangValue constant = MolangSimplifier.getConstant(divisor);
+        if (constant == null || !constant.isFloat()) {
+            return Float.NaN;
+        }
+        float value = constant.getFloat();
+        int exponent = Math.getExponent(value);
+        if ((Float.floatToRawIntBits(value) & 0x007FFFFF) != 0 || exponent < Float.MIN_EXPONENT || exponent >= Float.MAX_EXPONENT) {
+            return Float.NaN;
+        }
+        return 1.0F / value;
+    }
+
+    /**
+     * Compares the float values of both operands and pushes the result as a float if <code>asFloat</code> is set, or as
+     * one of the shared boolean {@link MolangValue} instances otherwise.
+     */
+    private void writeComparison(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op, boolean asFloat) throws MolangException {
+        int falseOpcode = this.writeCompare(method, environment, breakLabel, continueLabel, left, right, op);
+        this.writeCondition(method, falseOpcode, asFloat);
+    }
+
+    /**
+     * Compares the float values of both operands, leaving an int on the stack.
+     *
+     * @return The jump instruction that jumps if the comparison is false
+     */
+    private int writeCompare(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op) throws MolangException {
+        left.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+        right.writeBytecodeAsFloat(method, this, environment, breakLabel, continueLabel);
+        // NaN must compare false, so the comparison instruction depends on the direction
+        switch (op) {
+            case LESS -> {
+                method.visitInsn(Opcodes.FCMPG);
+                return Opcodes.IFGE;
+            }
+            case LESS_EQUALS -> {
+                method.visitInsn(Opcodes.FCMPG);
+                return Opcodes.IFGT;
+            }
+            case GREATER -> {
+                method.visitInsn(Opcodes.FCMPL);
+                return Opcodes.IFLE;
+            }
+            case GREATER_EQUALS -> {
+                method.visitInsn(Opcodes.FCMPL);
+                return Opcodes.IFLT;
+            }
+            // MolangValue#equalsValue compares a float with any other value using Float.compare
+            case EQUALS, NOT_EQUALS -> {
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "compare", "(FF)I", false);
+                return op == BinaryOperation.EQUALS ? Opcodes.IFNE : Opcodes.IFEQ;
+            }
+            default -> throw new IllegalArgumentException("Unsupported comparison: " + op);
+        }
+    }
+
+    /**
+     * Pushes the result of <code>&&</code> or <code>||</code> as a float if <code>asFloat</code> is set, or as one of
+     * the shared boolean {@link MolangValue} instances otherwise.
+     */
+    private void writeLogicalOperation(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op, boolean asFloat) throws MolangException {
+        Label falseLabel = new Label();
+        Label endLabel = new Label();
+        this.writeLogicalBranch(method, environment, breakLabel, continueLabel, left, right, op, null, falseLabel);
+        this.writeBoolean(method, true, asFloat);
+        method.visitJumpInsn(Opcodes.GOTO, endLabel);
+        method.visitLabel(falseLabel);
+        this.writeBoolean(method, false, asFloat);
+        method.visitLabel(endLabel);
+    }
+
+    /**
+     * Jumps to the label matching the result of <code>left op right</code>.
+     * <p>
+     * <code>a && b</code> is false as soon as <code>a</code> is false, and <code>a || b</code> is true as soon as
+     * <code>a</code> is true. The right operand may not run, so it is written in a copy of the environment.
+     */
+    private void writeLogicalBranch(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException {
+        // If the result the left operand decides continues after the operation, it skips over the right operand
+        Label decidedLabel = op == BinaryOperation.OR ? trueLabel : falseLabel;
+        Label endLabel = null;
+        if (decidedLabel == null) {
+            endLabel = new Label();
+            decidedLabel = endLabel;
+        }
+        if (op == BinaryOperation.OR) {
+            left.writeBytecodeAsBranch(method, this, environment, breakLabel, continueLabel, decidedLabel, null);
+        } else {
+            left.writeBytecodeAsBranch(method, this, environment, breakLabel, continueLabel, null, decidedLabel);
+        }
+
+        BytecodeEnvironment localEnvironment = environment.copy();
+        if (setsVariables(right)) {
+            // Variables set in the copy have to be written back before jumping out of it
+            right.writeBytecode(method, this, localEnvironment, breakLabel, continueLabel);
+            this.unwrapBool(method);
+            localEnvironment.writeModifiedVariables(method);
+            this.writeBranch(method, Opcodes.IFNE, trueLabel, falseLabel);
+        } else {
+            right.writeBytecodeAsBranch(method, this, localEnvironment, breakLabel, continueLabel, trueLabel, falseLabel);
+        }
+
+        if (endLabel != null) {
+            method.visitLabel(endLabel);
+        }
+    }
+
+    /**
+     * Pushes the left value unless it is null, in which case the right operand is evaluated and pushed instead.
+     */
+    private void writeNullCoalescing(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right) throws MolangException {
+        Label endLabel = new Label();
+        left.writeBytecode(method, this, environment, breakLabel, continueLabel);
+        method.visitInsn(Opcodes.DUP);
+        // MolangValue#NULL is the only null value
+        method.visitFieldInsn(Opcodes.GETSTATIC, "gg/moonflower/molangcompiler/api/MolangValue", "NULL", VALUE_DESCRIPTOR);
+        method.visitJumpInsn(Opcodes.IF_ACMPNE, endLabel);
+        method.visitInsn(Opcodes.POP);
+        {
+            BytecodeEnvironment localEnvironment = environment.copy();
+            right.writeBytecode(method, this, localEnvironment, breakLabel, continueLabel);
+            localEnvironment.writeModifiedVariables(method);
+        }
+        method.visitLabel(endLabel);
+    }
+
+    private static boolean setsVariables(Node node) {
+        boolean[] sets = new boolean[1];
+        NodeTraversal.forEach(node, child -> sets[0] |= child instanceof VariableSetNode);
+        return sets[0];
+    }
+
+    @Override
+    public void writeBinaryOperationAsBranch(
+            MethodNode method, BytecodeEnvironment environment, @Nullable Label breakLabel, @Nullable Label continueLabel,
+            Node left, Node right, BinaryOperation op, @Nullable Label trueLabel, @Nullable Label falseLabel) throws MolangException {
+        MolangValue.Type leftType = left.getStaticType();
+        MolangValue.Type rightType = right.getStaticType();
+        switch (op) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE -> {
+                if (op.getResultType(leftType, rightType) == MolangValue.Type.FLOAT) {
+                    this.writeBinaryOperationAsFloat(method, environment, breakLabel, continueLabel, left, right, op);
+                    this.writeFloatAsBranch(method, trueLabel, falseLabel);
+                    return;
+                }
+            }
+            case LESS, LESS_EQUALS, GREATER, GREATER_EQUALS -> {
+                int falseOpcode = this.writeCompare(method, environment, breakLabel, continueLabel, left, right, op);
+                this.writeBranch(method, invertJump(falseOpcode), trueLabel, falseLabel);
+                return;
+            }
+            case EQUALS, NOT_EQUALS -> {
+                if (leftType == MolangValue.Type.FLOAT || rightType == MolangValue.Type.FLOAT) {
+                    int falseOpcode = this.writeCompare(method, environment, breakLabel, continueLabel, left, right, op);
+                    this.writeBranch(method, invertJump(falseOpcode), trueLabel, falseLabel);
+                    return;
+                }
+
+                left.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                right.writeBytecode(method, this, environment, breakLabel, continueLabel);
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "gg/moonflower/molangcompiler/api/MolangValue", "equalsValue", "(Ljava/lang/Object;)Z", false);
+                this.writeBranch(method, op == BinaryOperation.EQUALS ? Opcodes.IFNE : Opcodes.IFEQ, trueLabel, falseLabel);
+                return;
+            }
+            case AND, OR -> {
+                this.writeLogicalBranch(method, environment, breakLabel, continueLabel, left, right, op, trueLabel, falseLabel);
+                return;
+            }
+        }
+
+        this.writeBinaryOperation(method, environment, breakLabel, continueLabel, left, right, op);
+        this.unwrapBool(method);
+        this.writeBranch(method, Opcodes.IFNE, trueLabel, falseLabel);
+    }
+
+    @Override
+    public void writeBranch(MethodNode method, int trueOpcode, @Nullable Label trueLabel, @Nullable Label falseLabel) {
+        if (trueLabel == null) {
+            method.visitJumpInsn(invertJump(trueOpcode), Objects.requireNonNull(falseLabel, "falseLabel"));
+            return;
+        }
+        method.visitJumpInsn(trueOpcode, trueLabel);
+        if (falseLabel != null) {
+            method.visitJumpInsn(Opcodes.GOTO, falseLabel);
+        }
+    }
+
+    @Override
+    public void writeFloatAsBranch(MethodNode method, @Nullable Label trueLabel, @Nullable Label falseLabel) {
+        // Floats are true if they are at least 1, and FCMPL makes NaN false
+        method.visitInsn(Opcodes.FCONST_1);
+        method.visitInsn(Opcodes.FCMPL);
+        this.writeBranch(method, Opcodes.IFGE, trueLabel, falseLabel);
+    }
+
+    /**
+     * Finds the jump instruction with the opposite condition. Each conditional jump opcode is paired with its opposite.
+     */
+    private static int invertJump(int opcode) {
+        return switch (opcode) {
+            case Opcodes.IFEQ -> Opcodes.IFNE;
+            case Opcodes.IFNE -> Opcodes.IFEQ;
+            case Opcodes.IFLT -> Opcodes.IFGE;
+            case Opcodes.IFGE -> Opcodes.IFLT;
+            case Opcodes.IFGT -> Opcodes.IFLE;
+            case Opcodes.IFLE -> Opcodes.IFGT;
+            case Opcodes.IF_ACMPEQ -> Opcodes.IF_ACMPNE;
+            case Opcodes.IF_ACMPNE -> Opcodes.IF_ACMPEQ;
+            default -> throw new IllegalArgumentException("Not a conditional jump: " + opcode);
+        };
+    }
+
+    /**
+     * Consumes the int on the stack with the specified jump instruction, and pushes false if it jumps or true if it doesn't.
+     * The result is pushed as <code>0</code> or <code>1</code> if <code>asFloat</code> is set, otherwise as
+     * {@link MolangValue#FALSE} or {@link MolangValue#TRUE}.
+     */
+    private void writeCondition(MethodNode method, int falseOpcode, boolean asFloat) {
+        Label falseLabel = new Label();
+        Label endLabel = new Label();
+        method.visitJumpInsn(falseOpcode, falseLabel);
+        this.writeBoolean(method, true, asFloat);
+        method.visitJumpInsn(Opcodes.GOTO, endLabel);
+        method.visitLabel(falseLabel);
+        this.writeBoolean(method, false, asFloat);
+        method.visitLabel(endLabel);
+    }
+
+    private void writeBoolean(MethodNode method, boolean value, boolean asFloat) {
+        if (asFloat) {
+            method.visitInsn(value ? Opcodes.FCONST_1 : Opcodes.FCONST_0);
+        } else {
+            method.visitFieldInsn(Opcodes.GETSTATIC, "gg/moonflower/molangcompiler/api/MolangValue", value ? "TRUE" : "FALSE", VALUE_DESCRIPTOR);
+        }
     }
 
     /**
@@ -368,7 +1166,7 @@ public class BytecodeCompilerV12 extends BytecodeCompiler {
     /**
      * Writes bytecode to convert a primitive float on the stack to a MolangValue.
      * <p>
-     * Generates a call to {@link MolangValue#of(float)}.
+     * Generates a call to {@link MolangValue#of(float)}, which only allocates for floats outside the shared cache.
      *
      * @param m The method node to write instructions to
      */
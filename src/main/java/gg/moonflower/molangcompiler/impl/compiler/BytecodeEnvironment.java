@@ -3,8 +3,11 @@ package gg.moonflower.molangcompiler.impl.compiler;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import lombok.Getter;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.util.Set;
+
 /**
  * Manages compilation state and local variable allocation during bytecode generation.
  * <p>
@@ -125,5 +128,47 @@ public abstract class BytecodeEnvironment {
 
     public abstract Integer getVariableIndex(String variable);
 
+    /**
+     * Retrieves the local variable index of a float expression that has already been computed in this environment.
+     *
+     * @param expression The key of the expression
+     * @return The index the float result is stored in, or <code>null</code> if it has to be computed again
+     * @since 4.1.0
+     */
+    public abstract @Nullable Integer getExpressionIndex(String expression);
+
+    /**
+     * Allocates a space for the float result of an expression, which can then be reused until one of its variables is set.
+     *
+     * @param expression The key of the expression
+     * @param variables  The names of the variables the expression reads
+     * @return The index the float result can be stored in
+     * @since 4.1.0
+     */
+    public abstract int allocateExpression(String expression, Set<String> variables);
+
+    /**
+     * Forgets every computed expression that reads a variable with the specified name, including in the environments this was copied from.
+     *
+     * @param name The name of the variable that was set
+     * @since 4.1.0
+     */
+    public abstract void invalidateExpressions(String name);
+
+    /**
+     * @return The keys of all expressions that are currently computed in this environment
+     * @since 4.1.0
+     */
+    public abstract Set<String> getExpressions();
+
+    /**
+     * Forgets every computed expression that is not in the specified set.
+     * This is used to stop expressions computed in code that may not run from being reused after it.
+     *
+     * @param expressions The keys of the expressions to keep
+     * @since 4.1.0
+     */
+    public abstract void retainExpressions(Set<String> expressions);
+
     public abstract BytecodeEnvironment copy();
 }
@@ -2,6 +2,9 @@ package gg.moonflower.molangcompiler.impl.compiler;
 
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
 
@@ -10,14 +13,43 @@ import java.util.*;
 @ApiStatus.Internal
 public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
 
+    /**
+     * Loads the {@link gg.moonflower.molangcompiler.impl.object.MolangSlots slot} of a variable name when the class is linked.
+     */
+    private static final Handle SLOT_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "gg/moonflower/molangcompiler/impl/object/MolangSlots",
+            "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/String;)I",
+            false
+    );
+    private static final Handle VARIABLE_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "gg/moonflower/molangcompiler/impl/MolangCallSites",
+            "bootstrapVariable",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/invoke/CallSite;",
+            false
+    );
+    private static final Handle OBJECT_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "gg/moonflower/molangcompiler/impl/MolangCallSites",
+            "bootstrapObject",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/invoke/CallSite;",
+            false
+    );
+
     protected final Map<String, Integer> variables;
     protected final Set<String> modifiedVariables;
-
+    protected final Map<String, Set<String>> expressions;
+    @Nullable
+    protected final BytecodeEnvironmentV12 parent;
 
     public BytecodeEnvironmentV12(BytecodeEnvironmentV12 other) {
         super(other.thisIndex, other.runtimeIndex, other.variableStartIndex);
         this.variables = new HashMap<>(other.variables);
         this.modifiedVariables = new LinkedHashSet<>(other.modifiedVariables);
+        this.expressions = new HashMap<>(other.expressions);
+        this.parent = other;
     }
 
     public BytecodeEnvironmentV12(int thisIndex,
@@ -26,6 +58,8 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
         super(thisIndex, runtimeIndex, variableStartIndex);
         this.variables = new HashMap<>();
         this.modifiedVariables = new LinkedHashSet<>();
+        this.expressions = new HashMap<>();
+        this.parent = null;
     }
 
 
@@ -37,6 +71,7 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
     public void reset() {
         this.variables.clear();
         this.modifiedVariables.clear();
+        this.expressions.clear();
     }
 
     /**
@@ -48,7 +83,8 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
      * The generated bytecode performs:
      * <ol>
      *   <li>Get the object (query, temp, etc.) containing the variable</li>
-     *   <li>Call {@code object.get(name)} to retrieve the MolangExpression</li>
+     *   <li>Retrieve the MolangExpression with an inline cached {@code object.get(name)}, see
+     *   {@link gg.moonflower.molangcompiler.impl.MolangCallSites}</li>
      *   <li>Call {@code runtime.resolve(expression)} to evaluate it</li>
      *   <li>Store the result in a local variable</li>
      * </ol>
@@ -71,13 +107,11 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
         // Get variable
         int objectIndex = this.getObjectIndex(method, object);
         method.visitVarInsn(Opcodes.ALOAD, objectIndex);
-        method.visitLdcInsn(name);
-        method.visitMethodInsn(
-                Opcodes.INVOKEINTERFACE,
-                "gg/moonflower/molangcompiler/api/object/MolangObject",
+        method.visitInvokeDynamicInsn(
                 "get",
-                "(Ljava/lang/String;)Lgg/moonflower/molangcompiler/api/MolangExpression;",
-                true
+                "(Lgg/moonflower/molangcompiler/api/object/MolangObject;)Lgg/moonflower/molangcompiler/api/MolangExpression;",
+                VARIABLE_BOOTSTRAP,
+                name
         );
 
         method.visitMethodInsn(
@@ -124,7 +158,7 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
      *   <li>{@code query}, {@code q} → {@code runtime.getQuery()}</li>
      *   <li>{@code global} → {@code runtime.getGlobal()}</li>
      *   <li>{@code variable}, {@code v} → {@code runtime.getVariable()}</li>
-     *   <li>Other names → {@code runtime.get(name)}</li>
+     *   <li>Other names → {@code runtime.get(name)}, cached by the runtime</li>
      * </ul>
      *
      * @param method The method node to generate bytecode in
@@ -169,19 +203,41 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
                     "()Lgg/moonflower/molangcompiler/api/object/MolangObject;",
                     true);
         } else {
-            method.visitLdcInsn(object);
-            method.visitMethodInsn(
-                    Opcodes.INVOKEINTERFACE,
-                    "gg/moonflower/molangcompiler/api/MolangEnvironment",
+            method.visitInvokeDynamicInsn(
                     "get",
-                    "(Ljava/lang/String;)Lgg/moonflower/molangcompiler/api/object/MolangObject;",
-                    true);
+                    "(Lgg/moonflower/molangcompiler/api/MolangEnvironment;)Lgg/moonflower/molangcompiler/api/object/MolangObject;",
+                    OBJECT_BOOTSTRAP,
+                    object);
         }
         method.visitVarInsn(Opcodes.ASTORE, index);
 
         return index;
     }
 
+    /**
+     * Checks whether the specified object is backed by {@link gg.moonflower.molangcompiler.impl.object.MolangVariableStorage}
+     * in a {@link gg.moonflower.molangcompiler.api.MolangRuntime}, so variables in it can be accessed by slot.
+     *
+     * @param object The object name
+     * @return Whether variables in the object should be accessed by slot
+     */
+    private static boolean isStorage(String object) {
+        return "query".equalsIgnoreCase(object) || "q".equalsIgnoreCase(object) ||
+                "global".equalsIgnoreCase(object) ||
+                "variable".equalsIgnoreCase(object) || "v".equalsIgnoreCase(object);
+    }
+
+    /**
+     * Loads the slot of a variable name onto the stack. The slot is looked up when the class is linked, so it is never
+     * stored in the class file.
+     *
+     * @param method The method to insert code into
+     * @param name   The variable name
+     */
+    private static void loadSlot(MethodNode method, String name) {
+        method.visitLdcInsn(new ConstantDynamic("slot", "I", SLOT_BOOTSTRAP, name));
+    }
+
     /**
      * Loads whether the specified object has the specified variable onto the stack.
      *
@@ -253,15 +309,28 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
             int objectIndex = this.getObjectIndex(method, parts[0]);
 
             method.visitVarInsn(Opcodes.ALOAD, objectIndex);
-            method.visitLdcInsn(parts[1]);
-            method.visitVarInsn(Opcodes.ALOAD, index);
-            method.visitMethodInsn(
-                    Opcodes.INVOKESTATIC,
-                    "gg/moonflower/molangcompiler/impl/MolangUtil",
-                    "setValue",
-                    "(Lgg/moonflower/molangcompiler/api/object/MolangObject;Ljava/lang/String;Lgg/moonflower/molangcompiler/api/MolangValue;)V",
-                    false
-            );
+            if (isStorage(parts[0])) {
+                loadSlot(method, parts[1]);
+                method.visitLdcInsn(parts[1]);
+                method.visitVarInsn(Opcodes.ALOAD, index);
+                method.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        "gg/moonflower/molangcompiler/impl/MolangUtil",
+                        "setValue",
+                        "(Lgg/moonflower/molangcompiler/api/object/MolangObject;ILjava/lang/String;Lgg/moonflower/molangcompiler/api/MolangValue;)V",
+                        false
+                );
+            } else {
+                method.visitLdcInsn(parts[1]);
+                method.visitVarInsn(Opcodes.ALOAD, index);
+                method.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        "gg/moonflower/molangcompiler/impl/MolangUtil",
+                        "setValue",
+                        "(Lgg/moonflower/molangcompiler/api/object/MolangObject;Ljava/lang/String;Lgg/moonflower/molangcompiler/api/MolangValue;)V",
+                        false
+                );
+            }
         }
         this.modifiedVariables.clear();
     }
@@ -270,6 +339,35 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
         return variables.get(variable);
     }
 
+    @Override
+    public @Nullable Integer getExpressionIndex(String expression) {
+        return this.expressions.containsKey(expression) ? this.variables.get(expression) : null;
+    }
+
+    @Override
+    public int allocateExpression(String expression, Set<String> variables) {
+        this.expressions.put(expression, variables);
+        return this.allocateVariable(expression);
+    }
+
+    @Override
+    public void invalidateExpressions(String name) {
+        // Branches run in a copy, but setting a variable there still changes it for the code after the branch
+        for (BytecodeEnvironmentV12 environment = this; environment != null; environment = environment.parent) {
+            environment.expressions.values().removeIf(variables -> variables.contains(name));
+        }
+    }
+
+    @Override
+    public Set<String> getExpressions() {
+        return new HashSet<>(this.expressions.keySet());
+    }
+
+    @Override
+    public void retainExpressions(Set<String> expressions) {
+        this.expressions.keySet().retainAll(expressions);
+    }
+
     @Override
     public BytecodeEnvironment copy() {
         return new BytecodeEnvironmentV12(this);
@@ -293,7 +391,8 @@ public class BytecodeEnvironmentV12 extends BytecodeEnvironment {
     public String toString() {
         return "BytecodeEnvironment[" +
                 "variables=" + variables + ", " +
-                "modifiedVariables=" + modifiedVariables + ']';
+                "modifiedVariables=" + modifiedVariables + ", " +
+                "expressions=" + expressions.keySet() + ']';
     }
 
 }
@@ -0,0 +1,215 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.impl.object.MolangAccessor;
+import org.jetbrains.annotations.ApiStatus;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Generates {@link MolangAccessor} implementations for {@link gg.moonflower.molangcompiler.api.bridge.MolangBinding}.
+ * <p>
+ * Each binding gets a single hidden class that switches over the index of the member, so every member is read with a
+ * direct field access or call instead of going through a lambda or method handle per member.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangAccessors {
+
+    private static final String ACCESSOR = Type.getInternalName(MolangAccessor.class);
+    private static final String VALUE = Type.getInternalName(MolangValue.class);
+    private static final String VALUE_DESCRIPTOR = Type.getDescriptor(MolangValue.class);
+
+    private MolangAccessors() {
+    }
+
+    /**
+     * Checks if values of the specified type can be read and written by an accessor.
+     *
+     * @param type The type of the field or the return type of the method
+     * @return Whether the type is a number, <code>boolean</code>, {@link String}, or {@link MolangValue}
+     */
+    public static boolean isSupported(Class<?> type) {
+        return type == float.class ||
+                type == double.class ||
+                type == int.class ||
+                type == long.class ||
+                type == boolean.class ||
+                type == String.class ||
+                type == MolangValue.class;
+    }
+
+    /**
+     * Defines an accessor as a hidden nestmate of the lookup class.
+     *
+     * @param lookup    A lookup with full privilege access. The accessor can access the same members as it
+     * @param type      The class the members are accessed through
+     * @param members   The fields and methods without parameters to access, in index order
+     * @param variables Whether each member can be written. Only fields can be variables
+     * @return A new accessor
+     * @throws ReflectiveOperationException If the accessor could not be defined
+     */
+    public static MolangAccessor define(MethodHandles.Lookup lookup, Class<?> type, List<Member> members, boolean[] variables) throws ReflectiveOperationException {
+        String packageName = lookup.lookupClass().getPackageName().replace('.', '/');
+        ClassNode classNode = new ClassNode();
+        classNode.visit(Opcodes.V17,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                (packageName.isEmpty() ? "" : packageName + "/") + type.getSimpleName() + "$MolangAccessor",
+                null,
+                "java/lang/Object",
+                new String[]{ACCESSOR});
+
+        MethodNode init = new MethodNode(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        classNode.methods.add(init);
+
+        classNode.methods.add(writeGet(type, members, false));
+        classNode.methods.add(writeGet(type, members, true));
+        classNode.methods.add(writeSet(type, members, variables));
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        classNode.accept(cw);
+        Class<?> accessor = lookup.defineHiddenClass(cw.toByteArray(), true, MethodHandles.Lookup.ClassOption.NESTMATE).lookupClass();
+        return (MolangAccessor) accessor.getConstructor().newInstance();
+    }
+
+    private static MethodNode writeGet(Class<?> type, List<Member> members, boolean asFloat) {
+        MethodNode method = new MethodNode(Opcodes.ACC_PUBLIC, asFloat ? "getFloat" : "get", "(Ljava/lang/Object;I)" + (asFloat ? "F" : VALUE_DESCRIPTOR), null, null);
+        Label invalid = new Label();
+        Label[] labels = new Label[members.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new Label();
+        }
+        writeSwitch(method, labels, invalid);
+
+        for (int i = 0; i < labels.length; i++) {
+            Member member = members.get(i);
+            method.visitLabel(labels[i]);
+            writeInstance(method, type, member);
+            Class<?> valueType;
+            if (member instanceof Field field) {
+                method.visitFieldInsn(Modifier.isStatic(field.getModifiers()) ? Opcodes.GETSTATIC : Opcodes.GETFIELD, Type.getInternalName(type), field.getName(), Type.getDescriptor(field.getType()));
+                valueType = field.getType();
+            } else {
+                Method getter = (Method) member;
+                boolean isStatic = Modifier.isStatic(getter.getModifiers());
+                method.visitMethodInsn(isStatic ? Opcodes.INVOKESTATIC : type.isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL, Type.getInternalName(type), getter.getName(), Type.getMethodDescriptor(getter), type.isInterface());
+                valueType = getter.getReturnType();
+            }
+
+            if (asFloat) {
+                writeFloat(method, valueType);
+                method.visitInsn(Opcodes.FRETURN);
+            } else {
+                writeValue(method, valueType);
+                method.visitInsn(Opcodes.ARETURN);
+            }
+        }
+
+        writeInvalid(method, invalid);
+        return method;
+    }
+
+    private static MethodNode writeSet(Class<?> type, List<Member> members, boolean[] variables) {
+        MethodNode method = new MethodNode(Opcodes.ACC_PUBLIC, "set", "(Ljava/lang/Object;I" + VALUE_DESCRIPTOR + ")V", null, null);
+        Label invalid = new Label();
+        Label[] labels = new Label[members.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = variables[i] ? new Label() : invalid;
+        }
+        writeSwitch(method, labels, invalid);
+
+        for (int i = 0; i < labels.length; i++) {
+            if (!variables[i]) {
+                continue;
+            }
+
+            Field field = (Field) members.get(i);
+            method.visitLabel(labels[i]);
+            writeInstance(method, type, field);
+            method.visitVarInsn(Opcodes.ALOAD, 3);
+            Class<?> valueType = field.getType();
+            if (valueType == boolean.class) {
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VALUE, "asBoolean", "()Z", false);
+            } else if (valueType == String.class) {
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VALUE, "asString", "()Ljava/lang/String;", false);
+            } else if (valueType != MolangValue.class) {
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VALUE, "asFloat", "()F", false);
+                if (valueType == double.class) {
+                    method.visitInsn(Opcodes.F2D);
+                } else if (valueType == int.class) {
+                    method.visitInsn(Opcodes.F2I);
+                } else if (valueType == long.class) {
+                    method.visitInsn(Opcodes.F2L);
+                }
+            }
+            method.visitFieldInsn(Modifier.isStatic(field.getModifiers()) ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD, Type.getInternalName(type), field.getName(), Type.getDescriptor(valueType));
+            method.visitInsn(Opcodes.RETURN);
+        }
+
+        writeInvalid(method, invalid);
+        return method;
+    }
+
+    private static void writeSwitch(MethodNode method, Label[] labels, Label invalid) {
+        if (labels.length > 0) {
+            method.visitVarInsn(Opcodes.ILOAD, 2);
+            method.visitTableSwitchInsn(0, labels.length - 1, invalid, labels);
+        }
+    }
+
+    private static void writeInstance(MethodNode method, Class<?> type, Member member) {
+        if (!Modifier.isStatic(member.getModifiers())) {
+            method.visitVarInsn(Opcodes.ALOAD, 1);
+            method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+        }
+    }
+
+    private static void writeValue(MethodNode method, Class<?> type) {
+        if (type == boolean.class) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, VALUE, "of", "(Z)" + VALUE_DESCRIPTOR, false);
+        } else if (type == String.class) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, VALUE, "of", "(Ljava/lang/String;)" + VALUE_DESCRIPTOR, false);
+        } else if (type != MolangValue.class) {
+            writeFloat(method, type);
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, VALUE, "of", "(F)" + VALUE_DESCRIPTOR, false);
+        }
+    }
+
+    private static void writeFloat(MethodNode method, Class<?> type) {
+        if (type == double.class) {
+            method.visitInsn(Opcodes.D2F);
+        } else if (type == int.class || type == boolean.class) {
+            method.visitInsn(Opcodes.I2F);
+        } else if (type == long.class) {
+            method.visitInsn(Opcodes.L2F);
+        } else if (type == String.class || type == MolangValue.class) {
+            writeValue(method, type);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VALUE, "asFloat", "()F", false);
+        }
+    }
+
+    private static void writeInvalid(MethodNode method, Label invalid) {
+        method.visitLabel(invalid);
+        method.visitTypeInsn(Opcodes.NEW, "java/lang/IndexOutOfBoundsException");
+        method.visitInsn(Opcodes.DUP);
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IndexOutOfBoundsException", "<init>", "(I)V", false);
+        method.visitInsn(Opcodes.ATHROW);
+    }
+}
@@ -0,0 +1,316 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.impl.ast.*;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Removes code that can never run and stores to temp variables that are never read.
+ * <p>
+ * Statements after <code>return</code>, <code>break</code>, or <code>continue</code> are removed, as are branches
+ * and loops with constant conditions. Temp variables are never written back to the runtime, so a store is dead if
+ * the variable is set again or the expression ends on every path before it is read. Variables are only considered
+ * set by a store that always runs, since branches are written in a copy of the environment. Reading a temp variable that
+ * was never set throws, so a store is only removed if every temp variable it reads is already set on every path to it.
+ * <p>
+ * Object loads are written by the statements that need them, so removing a statement also removes its load.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangDeadCode {
+
+    private static final Node EMPTY = new CompoundNode();
+
+    private MolangDeadCode() {
+    }
+
+    /**
+     * Removes all dead code from the specified tree.
+     *
+     * @param node The expression to remove dead code from
+     * @return The expression without dead code
+     */
+    public static Node apply(Node node) {
+        Node reachable = NodeTraversal.transform(node, MolangDeadCode::removeUnreachable);
+        return eliminateStatement(reachable, new HashSet<>(), Set.of(), null);
+    }
+
+    private static Node removeUnreachable(Node node) {
+        if (node instanceof BinaryConditionalNode conditional) {
+            MolangValue condition = MolangSimplifier.getConstant(conditional.condition());
+            if (condition == null) {
+                return node;
+            }
+            if (!condition.asBoolean()) {
+                return EMPTY;
+            }
+            // The condition is always written without a value, so the branch can only replace it if it has none
+            return conditional.branch().hasValue() ? node : conditional.branch();
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            MolangValue condition = MolangSimplifier.getConstant(ternary.condition());
+            if (condition == null) {
+                return node;
+            }
+            Node branch = condition.asBoolean() ? ternary.left() : ternary.right();
+            return branch.hasValue() == ternary.hasValue() ? branch : node;
+        }
+        if (node instanceof LoopNode loop) {
+            MolangValue iterations = MolangSimplifier.getConstant(loop.iterations());
+            return iterations != null && (int) iterations.asFloat() <= 0 ? EMPTY : node;
+        }
+        if (node instanceof ScopeNode scope) {
+            return isEmpty(scope.node()) ? EMPTY : node;
+        }
+        if (node instanceof CompoundNode compound) {
+            List<Node> nodes = new ArrayList<>(compound.nodes().length);
+            for (Node child : compound.nodes()) {
+                if (!isEmpty(child)) {
+                    nodes.add(child);
+                }
+                if (CompoundNode.exits(child)) {
+                    break;
+                }
+            }
+            return nodes.size() == compound.nodes().length ? node : keepValue(compound, nodes);
+        }
+        return node;
+    }
+
+    /**
+     * Removes dead stores from a node in a position where its value is not used.
+     *
+     * @param node     The node to remove stores from
+     * @param live     The temp variables read after the node. This is updated to the variables read before it
+     * @param assigned The temp variables set on every path before the node
+     * @param loop     The targets of <code>break</code> and <code>continue</code>, or <code>null</code> outside a loop
+     * @return The node without dead stores, or an empty node if the whole node was removed
+     */
+    private static Node eliminateStatement(Node node, Set<String> live, Set<String> assigned, @Nullable LoopTargets loop) {
+        if (node instanceof VariableSetNode set && isTemp(set.object()) && !set.returnValue() && !live.contains(set.name()) && isPure(set.value(), assigned)) {
+            return EMPTY;
+        }
+        return eliminate(node, live, assigned, loop);
+    }
+
+    private static Node eliminate(Node node, Set<String> live, Set<String> assigned, @Nullable LoopTargets loop) {
+        if (node instanceof CompoundNode compound) {
+            Node[] nodes = compound.nodes();
+            List<Set<String>> assignedBefore = new ArrayList<>(nodes.length);
+            for (Node child : nodes) {
+                assignedBefore.add(assigned);
+                assigned = getAssigned(child, assigned);
+            }
+
+            List<Node> kept = new ArrayList<>(nodes.length);
+            boolean changed = false;
+            for (int i = nodes.length - 1; i >= 0; i--) {
+                Node child = eliminateStatement(nodes[i], live, assignedBefore.get(i), loop);
+                changed |= child != nodes[i];
+                if (!isEmpty(child)) {
+                    kept.add(child);
+                }
+            }
+            if (!changed) {
+                return node;
+            }
+            Collections.reverse(kept);
+            return keepValue(compound, kept);
+        }
+        if (node instanceof VariableSetNode set && isTemp(set.object())) {
+            if (set.returnValue() && !live.contains(set.name())) {
+                return eliminate(set.value(), live, assigned, loop);
+            }
+            live.remove(set.name());
+            Node value = eliminate(set.value(), live, assigned, loop);
+            return value == set.value() ? node : new VariableSetNode(set.object(), set.name(), value, set.returnValue());
+        }
+        if (node instanceof VariableGetNode get) {
+            if (isTemp(get.object())) {
+                live.add(get.name());
+            }
+            return node;
+        }
+        if (node instanceof ReturnNode returnNode) {
+            // Temp variables are gone once the expression returns
+            live.clear();
+            Node value = eliminate(returnNode.value(), live, assigned, loop);
+            return value == returnNode.value() ? node : new ReturnNode(value);
+        }
+        if (node instanceof BreakNode || node instanceof ContinueNode) {
+            if (loop != null) {
+                live.clear();
+                live.addAll(node instanceof BreakNode ? loop.exit() : loop.next());
+            }
+            return node;
+        }
+        if (node instanceof ScopeNode scope) {
+            Node child = eliminateBranch(scope.node(), live, assigned, loop);
+            if (isEmpty(child)) {
+                return EMPTY;
+            }
+            return child == scope.node() ? node : new ScopeNode(child);
+        }
+        if (node instanceof BinaryConditionalNode conditional) {
+            Node branch = eliminateBranch(conditional.branch(), live, assigned, loop);
+            Node condition = eliminate(conditional.condition(), live, assigned, loop);
+            if (isEmpty(branch) && isPure(condition, assigned)) {
+                return EMPTY;
+            }
+            return branch == conditional.branch() && condition == conditional.condition() ? node : new BinaryConditionalNode(condition, branch);
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            Set<String> leftLive = new HashSet<>(live);
+            Node right = eliminateBranch(ternary.right(), live, assigned, loop);
+            Node left = eliminateBranch(ternary.left(), leftLive, assigned, loop);
+            live.addAll(leftLive);
+            Node condition = eliminate(ternary.condition(), live, assigned, loop);
+            return left == ternary.left() && right == ternary.right() && condition == ternary.condition() ? node : new TernaryOperationNode(condition, left, right);
+        }
+        if (node instanceof LoopNode loopNode) {
+            return eliminateLoop(loopNode, live, assigned, loop);
+        }
+        if (node instanceof BinaryOperationNode binary && isShortCircuit(binary.operator())) {
+            // The right operand only runs if the left operand does not decide the result
+            Set<String> rightLive = new HashSet<>(live);
+            Node right = eliminate(binary.right(), rightLive, assigned, loop);
+            live.addAll(rightLive);
+            Node left = eliminate(binary.left(), live, assigned, loop);
+            return left == binary.left() && right == binary.right() ? node : new BinaryOperationNode(binary.operator(), left, right);
+        }
+
+        // Every other node evaluates its children in order in the same environment
+        Node[] children = NodeTraversal.getChildren(node);
+        boolean changed = false;
+        for (int i = children.length - 1; i >= 0; i--) {
+            Node child = eliminate(children[i], live, assigned, loop);
+            changed |= child != children[i];
+            children[i] = child;
+        }
+        return changed ? NodeTraversal.withChildren(node, children) : node;
+    }
+
+    /**
+     * Removes dead stores from a node written in a copy of the environment. Stores in the branch may not run, so they
+     * never hide a read after the branch from the stores before it.
+     */
+    private static Node eliminateBranch(Node node, Set<String> live, Set<String> assigned, @Nullable LoopTargets loop) {
+        Set<String> branchLive = new HashSet<>(live);
+        Node result = eliminateStatement(node, branchLive, assigned, loop);
+        live.addAll(branchLive);
+        return result;
+    }
+
+    private static Node eliminateLoop(LoopNode loopNode, Set<String> live, Set<String> assigned, @Nullable LoopTargets outer) {
+        // Iterate until the variables live at the start of the next iteration stop changing
+        Set<String> exit = Set.copyOf(live);
+        Set<String> next = new HashSet<>(live);
+        Node body;
+        while (true) {
+            Set<String> bodyLive = new HashSet<>(next);
+            // Stores in earlier iterations are not counted, since the first iteration runs without them
+            body = eliminateStatement(loopNode.body(), bodyLive, assigned, new LoopTargets(exit, next));
+            if (next.containsAll(bodyLive)) {
+                break;
+            }
+            next.addAll(bodyLive);
+        }
+
+        // The body may not run if the loop has no iterations or breaks early
+        live.addAll(next);
+        Node iterations = eliminate(loopNode.iterations(), live, assigned, outer);
+        if (isEmpty(body) && isPure(iterations, assigned)) {
+            return EMPTY;
+        }
+        return body == loopNode.body() && iterations == loopNode.iterations() ? loopNode : new LoopNode(iterations, body, loopNode.invariants());
+    }
+
+    /**
+     * Creates a compound node with the remaining nodes. The last node decides whether a compound node has a value, so
+     * an empty node is added to the end if the new last node would give it a value the original did not have. If the
+     * new last node has no value when the original did, the original is kept.
+     */
+    private static Node keepValue(CompoundNode original, List<Node> nodes) {
+        boolean hasValue = !nodes.isEmpty() && nodes.get(nodes.size() - 1).hasValue();
+        if (original.hasValue() && !hasValue) {
+            return original;
+        }
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+        if (!original.hasValue() && hasValue) {
+            nodes.add(EMPTY);
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new CompoundNode(nodes.toArray(Node[]::new));
+    }
+
+    /**
+     * Adds the temp variables a statement always sets to the variables set before it. Only stores that run whenever the
+     * statement completes are counted, so stores in branches and loops are ignored.
+     *
+     * @param node     The statement
+     * @param assigned The temp variables set on every path before the statement
+     * @return The temp variables set on every path after the statement
+     */
+    private static Set<String> getAssigned(Node node, Set<String> assigned) {
+        if (node instanceof VariableSetNode set) {
+            assigned = getAssigned(set.value(), assigned);
+            if (!isTemp(set.object()) || assigned.contains(set.name())) {
+                return assigned;
+            }
+            Set<String> result = new HashSet<>(assigned);
+            result.add(set.name());
+            return result;
+        }
+        if (node instanceof ScopeNode scope) {
+            return getAssigned(scope.node(), assigned);
+        }
+        if (node instanceof CompoundNode compound) {
+            for (Node child : compound.nodes()) {
+                assigned = getAssigned(child, assigned);
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Checks whether the node can be removed without changing anything other than its value.
+     * Reads of other objects are kept, since they resolve host expressions and decide where each variable is first loaded.
+     * Reads of temp variables are only removed if the variable is set, since reading an unset temp variable throws.
+     */
+    private static boolean isPure(Node node, Set<String> assigned) {
+        if (node instanceof VariableGetNode get) {
+            return isTemp(get.object()) && assigned.contains(get.name());
+        }
+        if (!(node instanceof ConstNode || node instanceof BinaryOperationNode || node instanceof UnaryOperationNode ||
+                node instanceof NegateNode || node instanceof MathNode || node instanceof TernaryOperationNode)) {
+            return false;
+        }
+        for (Node child : NodeTraversal.getChildren(node)) {
+            if (!isPure(child, assigned)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isShortCircuit(BinaryOperation operation) {
+        return operation == BinaryOperation.AND || operation == BinaryOperation.OR || operation == BinaryOperation.NULL_COALESCING;
+    }
+
+    private static boolean isTemp(String object) {
+        return "temp".equals(object);
+    }
+
+    private static boolean isEmpty(Node node) {
+        return node instanceof CompoundNode compound && compound.nodes().length == 0;
+    }
+
+    private record LoopTargets(Set<String> exit, Set<String> next) {
+    }
+}
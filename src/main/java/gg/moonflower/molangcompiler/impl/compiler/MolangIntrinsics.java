@@ -0,0 +1,122 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
+import org.jetbrains.annotations.ApiStatus;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Writes direct accesses to the members declared with {@link CompilerFlags#withIntrinsics(String, java.util.Collection)}.
+ * <p>
+ * Every access is guarded by an <code>instanceof</code> check against the binding class. The caller writes the normal
+ * lookup after the fallback label, so objects that are not the binding behave exactly as before.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangIntrinsics {
+
+    private MolangIntrinsics() {
+    }
+
+    /**
+     * Checks if an intrinsic can replace an access with the specified number of arguments.
+     *
+     * @param intrinsic The intrinsic to check
+     * @param variable  Whether the access is a variable read instead of a function call
+     * @param arguments The number of arguments passed, which must all be floats
+     * @return Whether {@link #write} supports the intrinsic
+     */
+    public static boolean canAccess(MolangIntrinsic intrinsic, boolean variable, int arguments) {
+        if (variable ? intrinsic.function() : arguments > 0 && !intrinsic.function()) {
+            return false;
+        }
+
+        Type returnType;
+        if (isField(intrinsic)) {
+            returnType = Type.getType(intrinsic.descriptor());
+        } else {
+            Type[] parameters = Type.getArgumentTypes(intrinsic.descriptor());
+            if (parameters.length != arguments) {
+                return false;
+            }
+            for (Type parameter : parameters) {
+                if (!isNumber(parameter)) {
+                    return false;
+                }
+            }
+            returnType = Type.getReturnType(intrinsic.descriptor());
+        }
+        return isNumber(returnType) || returnType.getSort() == Type.BOOLEAN;
+    }
+
+    /**
+     * Writes the guard and the access. If the object is the binding, the result is left on the stack and execution
+     * continues after the written code. Otherwise, execution jumps to the fallback label with an empty stack.
+     *
+     * @param method      The method to write to
+     * @param compiler    The compiler writing the method
+     * @param objectIndex The local holding the object the intrinsic is accessed through
+     * @param intrinsic   The intrinsic to access
+     * @param arguments   The locals holding each argument as a float
+     * @param asFloat     Whether to leave a float instead of a {@link gg.moonflower.molangcompiler.api.MolangValue}
+     * @param fallback    The label to jump to if the object is not the binding
+     */
+    public static void write(MethodNode method, BytecodeCompiler compiler, int objectIndex, MolangIntrinsic intrinsic, int[] arguments, boolean asFloat, Label fallback) {
+        method.visitVarInsn(Opcodes.ALOAD, objectIndex);
+        method.visitTypeInsn(Opcodes.INSTANCEOF, intrinsic.binding());
+        method.visitJumpInsn(Opcodes.IFEQ, fallback);
+
+        if (!intrinsic.isStatic()) {
+            method.visitVarInsn(Opcodes.ALOAD, objectIndex);
+            method.visitTypeInsn(Opcodes.CHECKCAST, intrinsic.binding());
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, intrinsic.binding(), "instance", "()L" + intrinsic.owner() + ";", false);
+        }
+
+        Type returnType;
+        if (isField(intrinsic)) {
+            method.visitFieldInsn(intrinsic.isStatic() ? Opcodes.GETSTATIC : Opcodes.GETFIELD, intrinsic.owner(), intrinsic.member(), intrinsic.descriptor());
+            returnType = Type.getType(intrinsic.descriptor());
+        } else {
+            Type[] parameters = Type.getArgumentTypes(intrinsic.descriptor());
+            for (int i = 0; i < parameters.length; i++) {
+                method.visitVarInsn(Opcodes.FLOAD, arguments[i]);
+                switch (parameters[i].getSort()) {
+                    case Type.DOUBLE -> method.visitInsn(Opcodes.F2D);
+                    case Type.INT -> method.visitInsn(Opcodes.F2I);
+                    case Type.LONG -> method.visitInsn(Opcodes.F2L);
+                }
+            }
+            method.visitMethodInsn(intrinsic.isStatic() ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL, intrinsic.owner(), intrinsic.member(), intrinsic.descriptor(), false);
+            returnType = Type.getReturnType(intrinsic.descriptor());
+        }
+
+        if (returnType.getSort() == Type.BOOLEAN && !asFloat) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "gg/moonflower/molangcompiler/api/MolangValue", "of", "(Z)Lgg/moonflower/molangcompiler/api/MolangValue;", false);
+            return;
+        }
+        switch (returnType.getSort()) {
+            case Type.DOUBLE -> method.visitInsn(Opcodes.D2F);
+            case Type.INT, Type.BOOLEAN -> method.visitInsn(Opcodes.I2F);
+            case Type.LONG -> method.visitInsn(Opcodes.L2F);
+        }
+        if (!asFloat) {
+            compiler.wrapFloat(method);
+        }
+    }
+
+    private static boolean isField(MolangIntrinsic intrinsic) {
+        return intrinsic.descriptor().charAt(0) != '(';
+    }
+
+    private static boolean isNumber(Type type) {
+        return switch (type.getSort()) {
+            case Type.FLOAT, Type.DOUBLE, Type.INT, Type.LONG -> true;
+            default -> false;
+        };
+    }
+}
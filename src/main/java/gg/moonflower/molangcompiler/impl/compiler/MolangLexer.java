@@ -1,13 +1,12 @@
 package gg.moonflower.molangcompiler.impl.compiler;
 
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
-import gg.moonflower.molangcompiler.impl.reader.StringReader;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Lexical analyzer (tokenizer) that converts MoLang source code into a sequence of tokens.
@@ -16,7 +15,7 @@ import java.util.regex.Pattern;
  * breaks it down into a flat array of tokens, each representing a meaningful unit of the language
  * (keywords, operators, identifiers, literals, etc.).
  * <p>
- * The lexer uses regular expressions to match token patterns and supports:
+ * The lexer is a single-pass scanner that reads one character at a time and supports:
  * <ul>
  *   <li>Keywords: {@code return}, {@code loop}, {@code if}, {@code else}, {@code break}, {@code continue}</li>
  *   <li>Literals: numbers, strings (single or double quoted), booleans</li>
@@ -25,6 +24,9 @@ import java.util.regex.Pattern;
  *   <li>Special symbols: parentheses, braces, dot notation, semicolons</li>
  * </ul>
  * <p>
+ * Tokens do not copy the input. Each token stores its offsets into the source and only creates a
+ * string when {@link Token#value()} is first requested.
+ * <p>
  * The lexer automatically inserts semicolons after closing braces to simplify parsing.
  *
  * @author Ocelot
@@ -33,121 +35,404 @@ import java.util.regex.Pattern;
 @ApiStatus.Internal
 public final class MolangLexer {
 
+    private static final Token[] EMPTY = new Token[0];
+
     /**
      * Tokenizes the input string into an array of tokens.
+     *
+     * @param input The MoLang source code to tokenize
+     * @return An array of tokens representing the input
+     * @throws MolangSyntaxException if an unknown token is encountered
+     */
+    public static Token[] createTokens(String input) throws MolangSyntaxException {
+        return createTokens((CharSequence) input);
+    }
+
+    /**
+     * Tokenizes the input characters into an array of tokens.
+     * <p>
+     * The array is wrapped rather than copied, so it must not be modified while the tokens are in use.
+     *
+     * @param input The MoLang source code to tokenize
+     * @return An array of tokens representing the input
+     * @throws MolangSyntaxException if an unknown token is encountered
+     * @since 4.1.0
+     */
+    public static Token[] createTokens(char[] input) throws MolangSyntaxException {
+        return createTokens(CharBuffer.wrap(input));
+    }
+
+    /**
+     * Tokenizes the input sequence into an array of tokens.
      * <p>
      * This method performs lexical analysis by:
      * <ol>
-     *   <li>Removing newlines and tabs</li>
-     *   <li>Skipping spaces</li>
-     *   <li>Matching token patterns using regex</li>
+     *   <li>Skipping whitespace</li>
+     *   <li>Scanning the token that starts at the next character</li>
      *   <li>Automatically inserting semicolons after closing braces</li>
      * </ol>
      *
      * @param input The MoLang source code to tokenize
      * @return An array of tokens representing the input
      * @throws MolangSyntaxException if an unknown token is encountered
+     * @since 4.1.0
      */
-    public static Token[] createTokens(String input) throws MolangSyntaxException {
-        StringReader reader = new StringReader(input);
+    public static Token[] createTokens(CharSequence input) throws MolangSyntaxException {
+        Scanner scanner = new Scanner(input);
         List<Token> tokens = new ArrayList<>();
+        TokenType lastType = null;
 
-        while (reader.canRead()) {
-            reader.skipWhitespace();
-            Token token = getToken(reader);
-            if (token == null) {
-                continue;
+        while (scanner.skipWhitespace()) {
+            int start = scanner.cursor;
+            TokenType type = scanner.next();
+            if (type == null) {
+                throw new MolangSyntaxException("Unknown Token", input.toString(), start);
             }
-            if (!tokens.isEmpty()) {
-                Token lastToken = tokens.get(tokens.size() - 1);
-                // Insert semicolon after scopes
-                if (lastToken.type == TokenType.RIGHT_BRACE && token.type != TokenType.SEMICOLON) {
-                    tokens.add(new Token(TokenType.SEMICOLON, ";"));
-                }
+            // Insert semicolon after scopes
+            if (lastType == TokenType.RIGHT_BRACE && type != TokenType.SEMICOLON) {
+                tokens.add(new Token(TokenType.SEMICOLON, ";"));
             }
-            tokens.add(token);
+            tokens.add(new Token(type, input, start, scanner.cursor));
+            lastType = type;
         }
 
-        return tokens.toArray(Token[]::new);
+        return tokens.toArray(EMPTY);
     }
 
     /**
-     * Attempts to match a token at the current position in the reader.
-     * <p>
-     * This method iterates through all token types and tries to match their regex patterns
-     * against the remaining input. The first matching pattern wins.
-     *
-     * @param reader The string reader positioned at the token to match
-     * @return The matched token, or null if no pattern matches
+     * Character-at-a-time cursor over the source. Each call to {@link #next()} consumes exactly one token.
      */
-    private static Token getToken(StringReader reader) throws MolangSyntaxException {
-        String word = reader.getString().substring(reader.getCursor());
-        if (word.isBlank()) {
+    private static final class Scanner {
+
+        private final CharSequence input;
+        private final int length;
+        private int cursor;
+
+        private Scanner(CharSequence input) {
+            this.input = input;
+            this.length = input.length();
+        }
+
+        /**
+         * Skips whitespace before the next token.
+         *
+         * @return Whether there are any characters left to scan
+         */
+        private boolean skipWhitespace() {
+            while (this.cursor < this.length && Character.isWhitespace(this.input.charAt(this.cursor))) {
+                this.cursor++;
+            }
+            return this.cursor < this.length;
+        }
+
+        /**
+         * Scans the token at the cursor and moves the cursor past it.
+         *
+         * @return The type of token scanned or <code>null</code> if no token starts at the cursor
+         */
+        private @Nullable TokenType next() {
+            int start = this.cursor;
+            char c = this.input.charAt(start);
+            if (isIdentifierStart(c)) {
+                int end = start + 1;
+                while (end < this.length && isIdentifierPart(this.input.charAt(end))) {
+                    end++;
+                }
+                this.cursor = end;
+                return keyword(this.input, start, end - start);
+            }
+            if (isDigit(c)) {
+                int end = start + 1;
+                while (end < this.length && isDigit(this.input.charAt(end))) {
+                    end++;
+                }
+                this.cursor = end;
+                return TokenType.NUMERAL;
+            }
+
+            switch (c) {
+                case '"', '\'' -> {
+                    return this.string(c);
+                }
+                case '?' -> {
+                    return this.pair('?', TokenType.NULL_COALESCING, TokenType.SPECIAL);
+                }
+                case '+' -> {
+                    return this.pair('+', TokenType.INCREMENT, TokenType.BINARY_OPERATION);
+                }
+                case '-' -> {
+                    return this.pair('-', TokenType.DECREMENT, TokenType.BINARY_OPERATION);
+                }
+                case '*', '/' -> {
+                    this.cursor++;
+                    return TokenType.BINARY_OPERATION;
+                }
+                case '<', '>', '&', '|', '!', ':' -> {
+                    this.cursor++;
+                    return TokenType.SPECIAL;
+                }
+                case '(' -> {
+                    this.cursor++;
+                    return TokenType.LEFT_PARENTHESIS;
+                }
+                case ')' -> {
+                    this.cursor++;
+                    return TokenType.RIGHT_PARENTHESIS;
+                }
+                case '{' -> {
+                    this.cursor++;
+                    return TokenType.LEFT_BRACE;
+                }
+                case '}' -> {
+                    this.cursor++;
+                    return TokenType.RIGHT_BRACE;
+                }
+                case '[' -> {
+                    this.cursor++;
+                    return TokenType.LEFT_BRACKET;
+                }
+                case ']' -> {
+                    this.cursor++;
+                    return TokenType.RIGHT_BRACKET;
+                }
+                case '.' -> {
+                    this.cursor++;
+                    return TokenType.DOT;
+                }
+                case ',' -> {
+                    this.cursor++;
+                    return TokenType.COMMA;
+                }
+                case '=' -> {
+                    this.cursor++;
+                    return TokenType.EQUAL;
+                }
+                case ';' -> {
+                    this.cursor++;
+                    return TokenType.SEMICOLON;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        private TokenType pair(char second, TokenType doubleType, TokenType singleType) {
+            if (this.cursor + 1 < this.length && this.input.charAt(this.cursor + 1) == second) {
+                this.cursor += 2;
+                return doubleType;
+            }
+            this.cursor++;
+            return singleType;
+        }
+
+        /**
+         * Scans a quoted string. A backslash escapes any character except a line terminator.
+         * Strings that are not closed on the same logical line are not tokens.
+         */
+        private @Nullable TokenType string(char quote) {
+            int end = this.cursor + 1;
+            while (end < this.length) {
+                char c = this.input.charAt(end);
+                if (c == quote) {
+                    this.cursor = end + 1;
+                    return TokenType.STRING;
+                }
+                if (c == '\\') {
+                    if (end + 1 >= this.length || isLineTerminator(this.input.charAt(end + 1))) {
+                        return null;
+                    }
+                    end += 2;
+                    continue;
+                }
+                end++;
+            }
             return null;
         }
-        for (TokenType type : TokenType.values()) {
-            Matcher matcher = type.pattern.matcher(word);
-            if (matcher.find() && matcher.start() == 0) {
-                reader.skip(matcher.end());
-                return new Token(type, word.substring(0, matcher.end()));
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isIdentifierStart(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return isIdentifierStart(c) || isDigit(c);
+        }
+
+        private static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+
+        private static TokenType keyword(CharSequence input, int start, int length) {
+            return switch (length) {
+                case 2 -> matches(input, start, "if") ? TokenType.IF : TokenType.ALPHANUMERIC;
+                case 4 -> switch (input.charAt(start)) {
+                    case 'l' -> matches(input, start, "loop") ? TokenType.LOOP : TokenType.ALPHANUMERIC;
+                    case 'e' -> matches(input, start, "else") ? TokenType.ELSE : TokenType.ALPHANUMERIC;
+                    case 't' -> matches(input, start, "this") ? TokenType.THIS : matches(input, start, "true") ? TokenType.TRUE : TokenType.ALPHANUMERIC;
+                    default -> TokenType.ALPHANUMERIC;
+                };
+                case 5 -> matches(input, start, "break") ? TokenType.BREAK : matches(input, start, "false") ? TokenType.FALSE : TokenType.ALPHANUMERIC;
+                case 6 -> matches(input, start, "return") ? TokenType.RETURN : TokenType.ALPHANUMERIC;
+                case 8 -> matches(input, start, "continue") ? TokenType.CONTINUE : TokenType.ALPHANUMERIC;
+                default -> TokenType.ALPHANUMERIC;
+            };
+        }
+
+        private static boolean matches(CharSequence input, int start, String keyword) {
+            for (int i = 0; i < keyword.length(); i++) {
+                if (input.charAt(start + i) != keyword.charAt(i)) {
+                    return false;
+                }
             }
+            return true;
         }
-        throw new MolangSyntaxException("Unknown Token", reader.getString(), reader.getCursor());
     }
 
     /**
-     * Represents a single token with its type and the actual text from the source code.
+     * Represents a single token with its type and the range of source code it was read from.
+     * <p>
+     * Tokens inserted by the lexer, such as the semicolon after a scope, are not backed by the source
+     * and report offsets into their own value instead.
      *
-     * @param type  The classification of this token
-     * @param value The raw text that was matched for this token
+     * @author Ocelot
+     * @since 1.0.0
      */
-    public record Token(TokenType type, String value) {
+    public static final class Token {
+
+        private final TokenType type;
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        private String value;
+
+        /**
+         * Creates a token that is a slice of the source.
+         *
+         * @param type   The classification of this token
+         * @param source The source the token was read from
+         * @param start  The index of the first character of the token
+         * @param end    The index after the last character of the token
+         * @since 4.1.0
+         */
+        public Token(TokenType type, CharSequence source, int start, int end) {
+            this.type = type;
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Creates a token with an explicit value that is not backed by any source.
+         *
+         * @param type  The classification of this token
+         * @param value The raw text of this token
+         */
+        public Token(TokenType type, String value) {
+            this(type, value, 0, value.length());
+            this.value = value;
+        }
+
+        /**
+         * @return The classification of this token
+         */
+        public TokenType type() {
+            return this.type;
+        }
+
+        /**
+         * @return The raw text that was matched for this token
+         */
+        public String value() {
+            if (this.value == null) {
+                this.value = this.source.subSequence(this.start, this.end).toString();
+            }
+            return this.value;
+        }
+
+        /**
+         * @return The index of the first character of this token in the source
+         * @since 4.1.0
+         */
+        public int start() {
+            return this.start;
+        }
+
+        /**
+         * @return The index after the last character of this token in the source
+         * @since 4.1.0
+         */
+        public int end() {
+            return this.end;
+        }
+
+        /**
+         * @return The number of characters in this token
+         * @since 4.1.0
+         */
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Token token)) {
+                return false;
+            }
+            return this.type == token.type && this.value().equals(token.value());
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + this.value().hashCode();
+        }
+
         @Override
         public String toString() {
-            return this.type + "[" + this.value + "]";
+            return this.type + "[" + this.value() + "]";
         }
     }
 
     /**
      * Enumeration of all token types supported by the MoLang lexer.
      * <p>
-     * Each token type is associated with a regex pattern used for matching.
-     * The order of enum values matters, as they are tried in sequence during tokenization.
+     * Keywords are only recognized when they are not followed by another identifier character,
+     * otherwise they are read as part of an {@link #ALPHANUMERIC} identifier.
      */
     public enum TokenType {
-        RETURN("return(?![A-Za-z0-9_])"),
-        LOOP("loop(?![A-Za-z0-9_])"),
-        CONTINUE("continue(?![A-Za-z0-9_])"),
-        BREAK("break(?![A-Za-z0-9_])"),
-        IF("if(?![A-Za-z0-9_])"),
-        ELSE("else(?![A-Za-z0-9_])"),
-        THIS("this(?![A-Za-z0-9_])"),
-        TRUE("true(?![A-Za-z0-9_])"),
-        FALSE("false(?![A-Za-z0-9_])"),
-        STRING("\"([^\"\\\\]|\\\\.)*\"|'([^'\\\\]|\\\\.)*'"),
-        NUMERAL("\\d+"),
-        ALPHANUMERIC("[A-Za-z_][A-Za-z0-9_]*"),
-        NULL_COALESCING("\\?\\?"),
-        INCREMENT("\\+\\+"),
-        DECREMENT("\\-\\-"),
-        SPECIAL("[<>&|!?:]"),
-        BINARY_OPERATION("[-+*/]"),
-        LEFT_PARENTHESIS("\\("),
-        RIGHT_PARENTHESIS("\\)"),
-        LEFT_BRACE("\\{"),
-        RIGHT_BRACE("\\}"),
-        LEFT_BRACKET("\\["),
-        RIGHT_BRACKET("\\]"),
-        DOT("\\."),
-        COMMA("\\,"),
-        EQUAL("="),
-        SEMICOLON(";");
-
-        private final Pattern pattern;
-
-        TokenType(String regex) {
-            this.pattern = Pattern.compile(regex);
-        }
+        RETURN,
+        LOOP,
+        CONTINUE,
+        BREAK,
+        IF,
+        ELSE,
+        THIS,
+        TRUE,
+        FALSE,
+        STRING,
+        NUMERAL,
+        ALPHANUMERIC,
+        NULL_COALESCING,
+        INCREMENT,
+        DECREMENT,
+        SPECIAL,
+        BINARY_OPERATION,
+        LEFT_PARENTHESIS,
+        RIGHT_PARENTHESIS,
+        LEFT_BRACE,
+        RIGHT_BRACE,
+        LEFT_BRACKET,
+        RIGHT_BRACKET,
+        DOT,
+        COMMA,
+        EQUAL,
+        SEMICOLON;
 
         /**
          * Checks if this token type can be part of a variable name.
@@ -0,0 +1,177 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.impl.ast.*;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves deterministic float expressions that are the same in every iteration of a loop in front of the loop.
+ * <p>
+ * An expression is invariant if it does not read any variable set in the loop body. Each one is replaced with a
+ * {@link CachedNode} and added to {@link LoopNode#invariants()}, so it is computed once before the loop and loaded by
+ * every iteration, including every copy of an unrolled body.
+ * <p>
+ * Variable loads can throw or resolve host expressions, so only expressions that always run in the first iteration,
+ * before anything with an effect, are moved. The body is walked in evaluation order and stops at the first statement
+ * that may <code>break</code>, <code>continue</code>, or <code>return</code>, and after the first function call or store
+ * to a variable that is not a temp variable. Temp variables are never written back, so nothing can observe a store to
+ * one if a moved expression throws. Conditional branches and the right side of <code>&&</code>, <code>||</code>, and
+ * <code>??</code> are skipped. Loops without constant iterations always run the body at least
+ * once, and loops with no iterations are removed by {@link MolangDeadCode} first.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangLoopInvariants {
+
+    private MolangLoopInvariants() {
+    }
+
+    /**
+     * Moves invariant expressions out of every loop in the specified tree.
+     *
+     * @param node The expression to optimize
+     * @return The expression with invariant expressions computed before each loop
+     */
+    public static Node apply(Node node) {
+        return NodeTraversal.transform(node, child -> child instanceof LoopNode loop ? hoist(loop) : child);
+    }
+
+    private static Node hoist(LoopNode loop) {
+        Set<String> written = new HashSet<>();
+        NodeTraversal.forEach(loop.body(), node -> {
+            if (node instanceof VariableSetNode set) {
+                written.add(set.name());
+            }
+        });
+
+        Map<String, CachedNode> invariants = new LinkedHashMap<>();
+        for (CachedNode invariant : loop.invariants()) {
+            invariants.put(invariant.key(), invariant);
+        }
+        Hoister hoister = new Hoister(written, invariants);
+        Node body = hoister.visit(loop.body());
+        if (invariants.size() == loop.invariants().length) {
+            return loop;
+        }
+        return new LoopNode(loop.iterations(), body, invariants.values().toArray(CachedNode[]::new));
+    }
+
+    /**
+     * Checks whether the node may leave the current iteration or have an effect, so nothing after it can be moved.
+     */
+    private static boolean mayStop(Node node) {
+        boolean[] stops = new boolean[1];
+        NodeTraversal.forEach(node, child -> stops[0] |= child instanceof BreakNode || child instanceof ContinueNode || child instanceof ReturnNode || hasEffect(child));
+        return stops[0];
+    }
+
+    /**
+     * Checks whether the node itself calls a function or stores to a variable that is written back.
+     */
+    private static boolean hasEffect(Node node) {
+        return node instanceof FunctionNode || node instanceof VariableSetNode set && !"temp".equals(set.object());
+    }
+
+    private static final class Hoister {
+
+        private final Set<String> written;
+        private final Map<String, CachedNode> invariants;
+        private boolean stopped;
+
+        private Hoister(Set<String> written, Map<String, CachedNode> invariants) {
+            this.written = written;
+            this.invariants = invariants;
+        }
+
+        /**
+         * Replaces invariant expressions in the parts of the node that always run.
+         */
+        private Node visit(Node node) {
+            if (this.stopped) {
+                return node;
+            }
+            if (this.isInvariant(node)) {
+                CachedNode cached = node instanceof CachedNode cachedNode ? cachedNode : MolangSubexpressions.cache(node);
+                this.invariants.putIfAbsent(cached.key(), cached);
+                return cached;
+            }
+            if (node instanceof BreakNode || node instanceof ContinueNode) {
+                this.stopped = true;
+                return node;
+            }
+            if (node instanceof ReturnNode returnNode) {
+                Node value = this.visit(returnNode.value());
+                this.stopped = true;
+                return value == returnNode.value() ? node : new ReturnNode(value);
+            }
+            if (node instanceof BinaryConditionalNode conditional) {
+                Node condition = this.visit(conditional.condition());
+                this.stopped |= mayStop(conditional.branch());
+                return condition == conditional.condition() ? node : new BinaryConditionalNode(condition, conditional.branch());
+            }
+            if (node instanceof TernaryOperationNode ternary) {
+                Node condition = this.visit(ternary.condition());
+                this.stopped |= mayStop(ternary.left()) || mayStop(ternary.right());
+                return condition == ternary.condition() ? node : new TernaryOperationNode(condition, ternary.left(), ternary.right());
+            }
+            if (node instanceof BinaryOperationNode binary && isShortCircuit(binary.operator())) {
+                Node left = this.visit(binary.left());
+                this.stopped |= mayStop(binary.right());
+                return left == binary.left() ? node : new BinaryOperationNode(binary.operator(), left, binary.right());
+            }
+            if (hasEffect(node)) {
+                // Arguments and values run before the call or store, but nothing after it may be moved in front of it
+                Node result = this.visitChildren(node);
+                this.stopped = true;
+                return result;
+            }
+            if (node instanceof LoopNode loop) {
+                // The inner invariants always run before the inner loop, but the body may stop after any iteration
+                Node iterations = this.visit(loop.iterations());
+                for (CachedNode invariant : loop.invariants()) {
+                    if (this.isInvariant(invariant)) {
+                        this.invariants.putIfAbsent(invariant.key(), invariant);
+                    }
+                }
+                this.stopped |= mayStop(loop.body());
+                return iterations == loop.iterations() ? node : new LoopNode(iterations, loop.body(), loop.invariants());
+            }
+
+            // Every other node evaluates its children in order
+            return this.visitChildren(node);
+        }
+
+        private Node visitChildren(Node node) {
+            Node[] children = NodeTraversal.getChildren(node);
+            boolean changed = false;
+            for (int i = 0; i < children.length; i++) {
+                Node child = this.visit(children[i]);
+                changed |= child != children[i];
+                children[i] = child;
+            }
+            return changed ? NodeTraversal.withChildren(node, children) : node;
+        }
+
+        private boolean isInvariant(Node node) {
+            if (node instanceof CachedNode cached) {
+                return cached.variables().stream().noneMatch(this.written::contains);
+            }
+            if (!MolangSubexpressions.isCandidate(node)) {
+                return false;
+            }
+            boolean[] reads = new boolean[1];
+            NodeTraversal.forEach(node, child -> reads[0] |= child instanceof VariableGetNode get && this.written.contains(get.name()));
+            return !reads[0];
+        }
+
+        private static boolean isShortCircuit(BinaryOperation operation) {
+            return operation == BinaryOperation.AND || operation == BinaryOperation.OR || operation == BinaryOperation.NULL_COALESCING;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.impl.ast.*;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Rewrites operations into cheaper operations that always produce the same value.
+ * <p>
+ * Every rule has to hold for all values MoLang allows, so most only apply when {@link Node#getStaticType()} proves the
+ * operand is a float. For example, <code>x * 1</code> repeats <code>x</code> once if it is a string, and
+ * <code>x + 0</code> is never removed because it turns <code>-0</code> into <code>0</code>. Rules that need the float
+ * value of an operand regardless of its type are applied while writing bytecode instead.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangSimplifier {
+
+    private static final MolangValue ONE = MolangValue.of(1.0F);
+
+    private MolangSimplifier() {
+    }
+
+    /**
+     * Simplifies every operation in the specified tree.
+     *
+     * @param node The expression to simplify
+     * @return The simplified expression
+     */
+    public static Node apply(Node node) {
+        return NodeTraversal.transform(node, MolangSimplifier::simplify);
+    }
+
+    private static Node simplify(Node node) {
+        // Constants are folded when they are written
+        if (node.isConstant()) {
+            return node;
+        }
+        if (node instanceof BinaryOperationNode binary) {
+            return simplifyBinary(binary);
+        }
+        if (node instanceof MathNode math) {
+            return simplifyMath(math);
+        }
+        if (node instanceof NegateNode negate) {
+            // -(-x) = x
+            if (negate.value() instanceof NegateNode inner && isFloat(inner.value())) {
+                return inner.value();
+            }
+            return node;
+        }
+        if (node instanceof UnaryOperationNode unary) {
+            // !!x = x if x is already a boolean, or null for !!!x
+            if (unary.operator() == UnaryOperation.FLIP && unary.node() instanceof UnaryOperationNode inner &&
+                    inner.operator() == UnaryOperation.FLIP && isBoolean(inner.node())) {
+                return inner.node();
+            }
+            return node;
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            // !c ? a : b = c ? b : a, but the flip of null is still null so it would take the other branch
+            if (ternary.condition() instanceof UnaryOperationNode flip && flip.operator() == UnaryOperation.FLIP &&
+                    !flip.isConstant() && isNotNull(flip.node())) {
+                return new TernaryOperationNode(flip.node(), ternary.right(), ternary.left());
+            }
+            return node;
+        }
+        return node;
+    }
+
+    private static Node simplifyBinary(BinaryOperationNode binary) {
+        Node left = binary.left();
+        Node right = binary.right();
+        switch (binary.operator()) {
+            case MULTIPLY -> {
+                // x * 1 = 1 * x = x
+                if (isConstant(right, 1.0F) && isFloat(left)) {
+                    return left;
+                }
+                if (isConstant(left, 1.0F) && isFloat(right)) {
+                    return right;
+                }
+                // x * -1 = -1 * x = -x
+                if (isConstant(right, -1.0F) && isFloat(left)) {
+                    return negate(left);
+                }
+                if (isConstant(left, -1.0F) && isFloat(right)) {
+                    return negate(right);
+                }
+            }
+            case DIVIDE -> {
+                // x / 1 = x
+                if (isConstant(right, 1.0F) && isFloat(left)) {
+                    return left;
+                }
+                // x / -1 = -x
+                if (isConstant(right, -1.0F) && isFloat(left)) {
+                    return negate(left);
+                }
+            }
+            case SUBTRACT -> {
+                // x - 0 = x
+                if (isConstant(right, 0.0F) && isFloat(left)) {
+                    return left;
+                }
+            }
+        }
+        return binary;
+    }
+
+    private static Node simplifyMath(MathNode math) {
+        if (math.function() == MathOperation.POW) {
+            Node base = math.arguments()[0];
+            Node exponent = math.arguments()[1];
+            // x^1 = x
+            if (isConstant(exponent, 1.0F) && isFloat(base)) {
+                return base;
+            }
+            // x^0 = 1, even for NaN
+            if (isConstant(exponent, 0.0F) && MolangSubexpressions.isDeterministic(base)) {
+                return new ConstNode(ONE);
+            }
+        }
+        return math;
+    }
+
+    /**
+     * Negates a float node. This also removes double negation from nodes created by other rules.
+     */
+    private static Node negate(Node node) {
+        return node instanceof NegateNode inner ? inner.value() : new NegateNode(node);
+    }
+
+    /**
+     * Checks whether the node is a constant float with exactly the specified value. This is <code>false</code> for <code>-0</code> when checking for <code>0</code>.
+     */
+    private static boolean isConstant(Node node, float value) {
+        MolangValue constant = getConstant(node);
+        return constant != null && constant.isFloat() && Float.compare(constant.getFloat(), value) == 0;
+    }
+
+    /**
+     * Evaluates a constant node, such as a literal or <code>-1</code>.
+     *
+     * @param node The node to evaluate
+     * @return The value of the node, or <code>null</code> if it is not constant
+     */
+    static @Nullable MolangValue getConstant(Node node) {
+        if (node instanceof ConstNode constNode) {
+            return constNode.value();
+        }
+        if (!node.isConstant()) {
+            return null;
+        }
+        try {
+            return node.evaluate(null);
+        } catch (MolangException e) {
+            return null;
+        }
+    }
+
+    private static boolean isFloat(Node node) {
+        return node.getStaticType() == MolangValue.Type.FLOAT;
+    }
+
+    private static boolean isNotNull(Node node) {
+        MolangValue.Type type = node.getStaticType();
+        return type != null && type != MolangValue.Type.NULL;
+    }
+
+    /**
+     * Checks whether the node always produces one of the shared boolean values, or null for a flip.
+     */
+    private static boolean isBoolean(Node node) {
+        if (node.isConstant()) {
+            // Constant comparisons are folded into floats
+            return false;
+        }
+        if (node instanceof UnaryOperationNode unary) {
+            return unary.operator() == UnaryOperation.FLIP;
+        }
+        if (node instanceof BinaryOperationNode binary) {
+            return switch (binary.operator()) {
+                case AND, OR, LESS, LESS_EQUALS, GREATER, GREATER_EQUALS, EQUALS, NOT_EQUALS -> true;
+                default -> false;
+            };
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.impl.ast.*;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common subexpression elimination for a single expression.
+ * <p>
+ * Animation expressions often repeat the same math, for example {@code math.sin(q.anim_time * 90) * 2 + math.sin(q.anim_time * 90)}.
+ * Every deterministic float expression that appears more than once is wrapped in a {@link CachedNode}, which stores the
+ * result in a local variable the first time it is computed and loads it after that.
+ * <p>
+ * Expressions are identified by their source, the same way compiled classes are. An expression is deterministic if it
+ * only contains constants, variables, operators, and math functions where {@link MathOperation#isDeterministic()} is true.
+ * Function calls are never cached because they may have side effects.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangSubexpressions {
+
+    private static final String KEY_PREFIX = "$cse:";
+
+    private MolangSubexpressions() {
+    }
+
+    /**
+     * Wraps every repeated deterministic float expression in a {@link CachedNode}.
+     *
+     * @param node The expression to optimize
+     * @return The expression with repeated expressions cached, or the same node if nothing is repeated
+     */
+    public static Node apply(Node node) {
+        Map<String, Integer> counts = new HashMap<>();
+        NodeTraversal.forEach(node, child -> {
+            if (isCandidate(child)) {
+                counts.merge(child.toString(), 1, Integer::sum);
+            }
+        });
+        if (counts.values().stream().noneMatch(count -> count > 1)) {
+            return node;
+        }
+
+        return NodeTraversal.transform(node, child -> {
+            if (!isCandidate(child)) {
+                return child;
+            }
+            String source = child.toString();
+            if (counts.getOrDefault(source, 0) < 2) {
+                return child;
+            }
+            return cache(child);
+        });
+    }
+
+    /**
+     * Wraps a node in a {@link CachedNode} that shares its result with every other cached node with the same source.
+     *
+     * @param node The deterministic float expression to cache
+     * @return A cached node computing the expression
+     */
+    static CachedNode cache(Node node) {
+        Set<String> variables = new HashSet<>();
+        NodeTraversal.forEach(node, n -> {
+            if (n instanceof VariableGetNode get) {
+                variables.add(get.name());
+            }
+        });
+        return new CachedNode(node, KEY_PREFIX + node, Set.copyOf(variables));
+    }
+
+    static boolean isCandidate(Node node) {
+        // Loading a constant or variable is already cheaper than loading a cached result
+        if (!(node instanceof MathNode || node instanceof BinaryOperationNode || node instanceof NegateNode || node instanceof UnaryOperationNode)) {
+            return false;
+        }
+        return !node.isConstant() && node.getStaticType() == MolangValue.Type.FLOAT && isDeterministic(node);
+    }
+
+    static boolean isDeterministic(Node node) {
+        if (node instanceof MathNode math) {
+            if (!math.function().isDeterministic()) {
+                return false;
+            }
+        } else if (!(node instanceof BinaryOperationNode || node instanceof NegateNode || node instanceof UnaryOperationNode || node instanceof CachedNode ||
+                node instanceof ConstNode || node instanceof VariableGetNode)) {
+            return false;
+        }
+
+        for (Node child : NodeTraversal.getChildren(node)) {
+            if (!isDeterministic(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package gg.moonflower.molangcompiler.impl.compiler;
+
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.impl.ast.Node;
+import gg.moonflower.molangcompiler.impl.ast.NodeTraversal;
+import gg.moonflower.molangcompiler.impl.ast.VariableGetNode;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Applies the variable types declared by the host to a parsed AST.
+ * <p>
+ * Every read of a variable declared with {@link CompilerFlags#withFloatHints(String...)} is replaced with a
+ * {@link VariableGetNode} that knows its type. {@link Node#getStaticType()} then carries the type up through the
+ * operations using the variable, so the compiler can write them as primitive float instructions.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangTypeHints {
+
+    private MolangTypeHints() {
+    }
+
+    /**
+     * Applies the type hints in the specified flags to a node.
+     *
+     * @param node  The node to apply hints to
+     * @param flags The flags to get the hints from
+     * @return The node with the hints applied, or the same node if there are no hints
+     */
+    public static Node apply(Node node, CompilerFlags flags) {
+        if (flags.getFloatHints().isEmpty()) {
+            return node;
+        }
+        return NodeTraversal.transform(node, child -> {
+            if (child instanceof VariableGetNode get && get.type() == null && flags.hasFloatHint(get.object(), get.name())) {
+                return new VariableGetNode(get.object(), get.name(), MolangValue.Type.FLOAT);
+            }
+            return child;
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The state of a single evaluation of an interpreted expression.
+ * <p>
+ * Slots hold the same values as the local variables of the compiled code. The state replaces the jumps used by
+ * {@code break}, {@code continue}, and {@code return}. Every instruction that runs other instructions
+ * stops as soon as the state is no longer {@link #NORMAL}.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+final class Frame {
+
+    static final int NORMAL = 0;
+    static final int BREAK = 1;
+    static final int CONTINUE = 2;
+    static final int RETURN = 3;
+
+    private static final Object[] NO_SLOTS = new Object[0];
+
+    final MolangEnvironment runtime;
+    final Object[] slots;
+    int state;
+    @Nullable
+    MolangValue returnValue;
+
+    Frame(MolangEnvironment runtime, int slotCount) {
+        this.runtime = runtime;
+        this.slots = slotCount > 0 ? new Object[slotCount] : NO_SLOTS;
+        this.state = NORMAL;
+    }
+}
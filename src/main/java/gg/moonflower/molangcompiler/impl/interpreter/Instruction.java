@@ -0,0 +1,33 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A node that has been resolved against an {@link InterpreterEnvironment}. All variable slots, constants, and branches
+ * are decided when the instruction is created, so executing it only does the work the compiled code would.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+@FunctionalInterface
+interface Instruction {
+
+    /**
+     * An instruction that does nothing and has no value.
+     */
+    Instruction NONE = frame -> null;
+
+    /**
+     * Executes this instruction.
+     *
+     * @param frame The frame of the current evaluation
+     * @return The value this instruction leaves on the stack in the compiled code or <code>null</code> if it has no value
+     * @throws MolangException If any error occurs while evaluating
+     */
+    @Nullable
+    MolangValue execute(Frame frame) throws MolangException;
+}
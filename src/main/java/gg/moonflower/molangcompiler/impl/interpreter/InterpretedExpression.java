@@ -0,0 +1,69 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * An expression evaluated by {@link MolangInterpreter}. Equality is based on the source, the same as compiled expressions.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class InterpretedExpression implements MolangExpression {
+
+    private final String source;
+    private final Instruction body;
+    private final Instruction writeBack;
+    private final int slotCount;
+    private final String[] references;
+
+    InterpretedExpression(String source, Instruction body, Instruction writeBack, int slotCount, String[] references) {
+        this.source = source;
+        this.body = body;
+        this.writeBack = writeBack;
+        this.slotCount = slotCount;
+        this.references = references;
+    }
+
+    @Override
+    public MolangValue get(MolangEnvironment environment) throws MolangRuntimeException {
+        Frame frame = new Frame(environment, this.slotCount);
+        try {
+            MolangValue value = this.body.execute(frame);
+            if (frame.state == Frame.RETURN) {
+                return frame.returnValue;
+            }
+            this.writeBack.execute(frame);
+            return value;
+        } catch (MolangRuntimeException e) {
+            throw e;
+        } catch (MolangException e) {
+            throw new MolangRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String[] getReferences() {
+        return this.references.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MolangExpression && this.source.equals(obj.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.source.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
@@ -0,0 +1,298 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.MolangUtil;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeEnvironmentV12;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Allocates frame slots for MoLang variables while resolving instructions.
+ * <p>
+ * This follows {@link BytecodeEnvironmentV12}. Variables are loaded from their object the first time they are used
+ * in compilation order, modifications are only written back at the same points, and copies for branches and scopes
+ * allocate the same slot numbers. The only intended differences are where the compiled code would fail to verify:
+ * variables whose store never ran are skipped when writing back, and a slot read before the code that fills it ran,
+ * like after a <code>continue</code> in an earlier iteration, loads the value from its object again instead of reading
+ * <code>null</code>. Results only match when the interpreter resolves the same
+ * AST the compiler wrote, so any optimization that rewrites the AST has to run before both.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+final class InterpreterEnvironment {
+
+    private final Map<String, Integer> variables;
+    private final Set<String> modifiedVariables;
+    private final Map<String, Set<String>> expressions;
+    @Nullable
+    private final InterpreterEnvironment parent;
+    /**
+     * The number of slots needed by the frame. This is shared with every copy.
+     */
+    private final int[] slotCount;
+
+    InterpreterEnvironment() {
+        this.variables = new HashMap<>();
+        this.modifiedVariables = new LinkedHashSet<>();
+        this.expressions = new HashMap<>();
+        this.parent = null;
+        this.slotCount = new int[1];
+    }
+
+    private InterpreterEnvironment(InterpreterEnvironment other) {
+        this.variables = new HashMap<>(other.variables);
+        this.modifiedVariables = new LinkedHashSet<>(other.modifiedVariables);
+        this.expressions = new HashMap<>(other.expressions);
+        this.parent = other;
+        this.slotCount = other.slotCount;
+    }
+
+    /**
+     * Creates an instruction that loads a MoLang variable. The first load in an environment resolves the variable from its object and stores it in a slot.
+     *
+     * @param object The object name (e.g., "query", "temp", "variable")
+     * @param name   The variable name within the object
+     * @return An instruction with the value of the variable
+     */
+    Instruction loadVariable(String object, String name) {
+        String key = object + "." + name;
+        Integer index = this.variables.get(key);
+        if (index != null) {
+            int slot = index;
+            // Don't allocate a slot for the object here, since that would change the slots of everything after
+            ObjectGetter getter = getter(object);
+            ObjectLoader loader = this.variables.containsKey(object) ? this.getObject(object) : frame -> getter.get(frame.runtime);
+            return frame -> {
+                MolangValue value = (MolangValue) frame.slots[slot];
+                if (value == null) {
+                    value = frame.runtime.resolve(loader.load(frame).get(name));
+                    frame.slots[slot] = value;
+                }
+                return value;
+            };
+        }
+
+        ObjectLoader loader = this.getObject(object);
+        int slot = this.allocateVariable(key);
+        return frame -> {
+            MolangValue value = frame.runtime.resolve(loader.load(frame).get(name));
+            frame.slots[slot] = value;
+            return value;
+        };
+    }
+
+    /**
+     * Allocates a slot for a new variable, but doesn't initialize it.
+     *
+     * @param name The full name of the variable, including any objects it may be in
+     * @return The slot the variable is stored in
+     */
+    int allocateVariable(String name) {
+        Integer index = this.variables.get(name);
+        if (index != null) {
+            return index;
+        }
+
+        index = this.variables.size();
+        this.variables.put(name, index);
+        this.slotCount[0] = Math.max(this.slotCount[0], index + 1);
+        return index;
+    }
+
+    /**
+     * Retrieves a loader for a MoLang object. The first loader in an environment retrieves the object from the runtime and stores it in a slot.
+     *
+     * @param object The object name (e.g., "query", "temp", "variable")
+     * @return A loader for the object
+     */
+    ObjectLoader getObject(String object) {
+        ObjectGetter getter = getter(object);
+        Integer index = this.variables.get(object);
+        if (index != null) {
+            int slot = index;
+            return frame -> {
+                MolangObject value = (MolangObject) frame.slots[slot];
+                if (value == null) {
+                    value = getter.get(frame.runtime);
+                    frame.slots[slot] = value;
+                }
+                return value;
+            };
+        }
+
+        int slot = this.allocateVariable(object);
+        return frame -> {
+            MolangObject value = getter.get(frame.runtime);
+            frame.slots[slot] = value;
+            return value;
+        };
+    }
+
+    private static ObjectGetter getter(String object) {
+        if ("context".equalsIgnoreCase(object) || "c".equalsIgnoreCase(object)) {
+            return MolangEnvironment::getContext;
+        }
+        if ("query".equalsIgnoreCase(object) || "q".equalsIgnoreCase(object)) {
+            return MolangEnvironment::getQuery;
+        }
+        if ("global".equalsIgnoreCase(object)) {
+            return MolangEnvironment::getGlobal;
+        }
+        if ("variable".equalsIgnoreCase(object) || "v".equalsIgnoreCase(object)) {
+            return MolangEnvironment::getVariable;
+        }
+        return runtime -> runtime.get(object);
+    }
+
+    /**
+     * @param name The full name of the variable
+     * @return The slot of the variable or <code>null</code> if it has not been allocated
+     */
+    @Nullable
+    Integer getVariableIndex(String name) {
+        return this.variables.get(name);
+    }
+
+    /**
+     * Marks the specified variable as requiring an update before returning.
+     *
+     * @param object The name of the object the variable is in
+     * @param name   The name of the variable to mark dirty
+     */
+    void markDirty(String object, String name) {
+        // Don't try to save temporary variables
+        if ("temp".equals(object)) {
+            return;
+        }
+        this.modifiedVariables.add(object + "." + name);
+    }
+
+    /**
+     * Creates an instruction that writes all modified variables back into their objects.
+     *
+     * @return The instruction to run at the point the compiled code writes variables
+     * @throws MolangSyntaxException If any error occurs with the format of the variables
+     */
+    Instruction writeModifiedVariables() throws MolangSyntaxException {
+        if (this.modifiedVariables.isEmpty()) {
+            return Instruction.NONE;
+        }
+
+        int count = this.modifiedVariables.size();
+        ObjectLoader[] objects = new ObjectLoader[count];
+        String[] names = new String[count];
+        int[] slots = new int[count];
+        int i = 0;
+        for (String name : this.modifiedVariables) {
+            Integer index = this.variables.get(name);
+            if (index == null) {
+                throw new MolangSyntaxException("Unknown variable index: " + name);
+            }
+
+            String[] parts = name.split("\\.", 2);
+            if (parts.length != 2) {
+                throw new MolangSyntaxException("Expected 2 variable parts for " + name + ", got " + parts.length);
+            }
+
+            objects[i] = this.getObject(parts[0]);
+            names[i] = parts[1];
+            slots[i] = index;
+            i++;
+        }
+        this.modifiedVariables.clear();
+
+        return frame -> {
+            for (int j = 0; j < count; j++) {
+                // A store that can never run, like one after both branches of a ternary exit, leaves its slot empty
+                MolangValue value = (MolangValue) frame.slots[slots[j]];
+                if (value != null) {
+                    MolangUtil.setValue(objects[j].load(frame), names[j], value);
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * @param expression The key of a cached expression
+     * @return The slot the result of the expression is stored in or <code>null</code> if it has not been computed yet
+     */
+    @Nullable
+    Integer getExpressionIndex(String expression) {
+        return this.expressions.containsKey(expression) ? this.variables.get(expression) : null;
+    }
+
+    /**
+     * Allocates a slot for the result of a cached expression.
+     *
+     * @param expression The key of the expression
+     * @param variables  The names of the variables read by the expression
+     * @return The slot to store the result in
+     */
+    int allocateExpression(String expression, Set<String> variables) {
+        this.expressions.put(expression, variables);
+        return this.allocateVariable(expression);
+    }
+
+    /**
+     * Forgets the results of all cached expressions that read the specified variable.
+     *
+     * @param name The name of the variable that was set
+     */
+    void invalidateExpressions(String name) {
+        // Branches run in a copy, but setting a variable there still changes it for the code after the branch
+        for (InterpreterEnvironment environment = this; environment != null; environment = environment.parent) {
+            environment.expressions.values().removeIf(variables -> variables.contains(name));
+        }
+    }
+
+    /**
+     * @return The keys of all cached expressions with a stored result
+     */
+    Set<String> getExpressions() {
+        return new HashSet<>(this.expressions.keySet());
+    }
+
+    /**
+     * Forgets the results of all cached expressions except the specified ones.
+     *
+     * @param expressions The keys of the expressions to keep
+     */
+    void retainExpressions(Set<String> expressions) {
+        this.expressions.keySet().retainAll(expressions);
+    }
+
+    /**
+     * @return The number of slots needed to evaluate everything resolved with this environment and its copies
+     */
+    int getSlotCount() {
+        return this.slotCount[0];
+    }
+
+    InterpreterEnvironment copy() {
+        return new InterpreterEnvironment(this);
+    }
+
+    /**
+     * Loads a MoLang object, either from its slot or from the runtime.
+     */
+    @FunctionalInterface
+    interface ObjectLoader {
+
+        MolangObject load(Frame frame) throws MolangException;
+    }
+
+    @FunctionalInterface
+    private interface ObjectGetter {
+
+        MolangObject get(MolangEnvironment runtime) throws MolangException;
+    }
+}
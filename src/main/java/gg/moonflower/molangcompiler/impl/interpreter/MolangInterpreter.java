@@ -0,0 +1,592 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.CompilerFlag;
+import gg.moonflower.molangcompiler.api.CompilerFlags;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.impl.MolangUtil;
+import gg.moonflower.molangcompiler.impl.ast.*;
+import gg.moonflower.molangcompiler.impl.compiler.BytecodeCompilerV12;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluates MoLang AST nodes without generating any classes.
+ * <p>
+ * Each node is resolved once into an {@link Instruction} tree. Resolution makes the same decisions as
+ * {@link BytecodeCompilerV12} does while writing bytecode: which values are folded into constants,
+ * which variables are loaded into slots, and where modified variables are written back. Evaluating an interpreted expression
+ * therefore calls the environment in exactly the same order as the compiled expression would.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public class MolangInterpreter {
+
+    private static final float RADIANS_TO_DEGREES = (float) (180 / Math.PI);
+    private static final float DEGREES_TO_RADIANS = (float) (Math.PI / 180);
+
+    private final boolean enableOptimization;
+
+    public MolangInterpreter(CompilerFlags flags) {
+        this.enableOptimization = flags.contains(CompilerFlag.OPTIMIZE);
+    }
+
+    /**
+     * Creates an expression that interprets the specified node.
+     * If optimization is enabled and the node is constant, a constant expression is returned instead.
+     *
+     * @param node The AST node to interpret
+     * @return An expression that evaluates the node
+     * @throws MolangSyntaxException If the node cannot be evaluated
+     */
+    public MolangExpression build(Node node) throws MolangSyntaxException {
+        if (this.enableOptimization && node.isConstant()) {
+            try {
+                return MolangExpression.of(node.evaluate(null));
+            } catch (Throwable t) {
+                throw new MolangSyntaxException("Failed to interpret expression '" + node + "'", t);
+            }
+        }
+        return this.interpret(node);
+    }
+
+    /**
+     * Creates an expression that interprets the specified node, even if it is constant.
+     * If optimization is enabled, the node is rewritten with {@link BytecodeCompilerV12#optimizeTree(Node)} first.
+     *
+     * @param node The AST node to interpret
+     * @return An expression that evaluates the node
+     * @throws MolangSyntaxException If the node cannot be evaluated
+     */
+    public InterpretedExpression interpret(Node node) throws MolangSyntaxException {
+        InterpreterEnvironment environment = new InterpreterEnvironment();
+        try {
+            Instruction body = this.resolve(this.enableOptimization ? BytecodeCompilerV12.optimizeTree(node) : node, environment, false);
+            Instruction writeBack = environment.writeModifiedVariables();
+            return new InterpretedExpression(node.toString(), body, writeBack, environment.getSlotCount(), NodeTraversal.getReferences(node));
+        } catch (Throwable t) {
+            throw new MolangSyntaxException("Failed to interpret expression '" + node + "'", t);
+        }
+    }
+
+    private Instruction resolve(Node node, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        if (node instanceof ConstNode constNode) {
+            MolangValue value = constNode.value();
+            return frame -> value;
+        }
+        if (node instanceof VariableGetNode get) {
+            Instruction load = environment.loadVariable(get.object(), get.name());
+            if (get.type() == MolangValue.Type.FLOAT) {
+                return frame -> MolangUtil.toFloatValue(load.execute(frame));
+            }
+            return load;
+        }
+        if (node instanceof VariableSetNode set) {
+            return this.resolveSet(set, environment, loop);
+        }
+        if (node instanceof BinaryOperationNode binary) {
+            return this.resolveBinary(binary, environment, loop);
+        }
+        if (node instanceof UnaryOperationNode unary) {
+            if (unary.isConstant()) {
+                return constant(unary);
+            }
+            Instruction value = this.resolve(unary.node(), environment, loop);
+            return frame -> value.execute(frame).internalFlip();
+        }
+        if (node instanceof NegateNode negate) {
+            if (this.enableOptimization && negate.isConstant()) {
+                return constant(negate);
+            }
+            Instruction value = this.resolve(negate.value(), environment, loop);
+            return frame -> value.execute(frame).negate();
+        }
+        if (node instanceof MathNode math) {
+            return this.resolveMath(math, environment, loop);
+        }
+        if (node instanceof FunctionNode function) {
+            return this.resolveFunction(function, environment, loop);
+        }
+        if (node instanceof CompoundNode compound) {
+            return this.resolveCompound(compound, environment, loop);
+        }
+        if (node instanceof ScopeNode scope) {
+            InterpreterEnvironment scopeEnvironment = environment.copy();
+            Instruction body = this.resolve(scope.node(), scopeEnvironment, loop);
+            Instruction writeBack = scopeEnvironment.writeModifiedVariables();
+            return frame -> {
+                MolangValue value = body.execute(frame);
+                if (frame.state != Frame.NORMAL) {
+                    return null;
+                }
+                writeBack.execute(frame);
+                return value;
+            };
+        }
+        if (node instanceof ReturnNode returnNode) {
+            return this.resolveReturn(returnNode, environment, loop);
+        }
+        if (node instanceof BinaryConditionalNode conditional) {
+            return this.resolveConditional(conditional, environment, loop);
+        }
+        if (node instanceof TernaryOperationNode ternary) {
+            return this.resolveTernary(ternary, environment, loop);
+        }
+        if (node instanceof LoopNode loopNode) {
+            return this.resolveLoop(loopNode, environment, loop);
+        }
+        if (node instanceof CachedNode cached) {
+            Integer index = environment.getExpressionIndex(cached.key());
+            if (index != null) {
+                int slot = index;
+                return frame -> (MolangValue) frame.slots[slot];
+            }
+            return this.resolveCached(cached, environment, loop);
+        }
+        if (node instanceof BreakNode) {
+            if (!loop) {
+                throw new MolangSyntaxException("Cannot break outside of loop");
+            }
+            return frame -> {
+                frame.state = Frame.BREAK;
+                return null;
+            };
+        }
+        if (node instanceof ContinueNode) {
+            if (!loop) {
+                throw new MolangSyntaxException("Cannot continue outside of loop");
+            }
+            return frame -> {
+                frame.state = Frame.CONTINUE;
+                return null;
+            };
+        }
+        if (node instanceof ThisNode) {
+            Integer index = environment.getVariableIndex("this");
+            if (index != null) {
+                int slot = index;
+                return frame -> {
+                    MolangValue value = (MolangValue) frame.slots[slot];
+                    return value != null ? value : frame.runtime.getThis();
+                };
+            }
+            int slot = environment.allocateVariable("this");
+            return frame -> {
+                MolangValue value = frame.runtime.getThis();
+                frame.slots[slot] = value;
+                return value;
+            };
+        }
+        if (node instanceof ArrayLiteralNode arrayLiteral) {
+            Instruction[] elements = this.resolveAll(arrayLiteral.elements(), environment, loop);
+            return frame -> {
+                MolangValue[] values = new MolangValue[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = elements[i].execute(frame);
+                }
+                return MolangValue.of(values);
+            };
+        }
+        if (node instanceof ArrayAccessNode arrayAccess) {
+            Instruction array = this.resolve(arrayAccess.array(), environment, loop);
+            Instruction index = this.resolveFloat(arrayAccess.index(), environment, loop);
+            return frame -> {
+                MolangValue[] values = array.execute(frame).getArray();
+                int i = (int) index.execute(frame).asFloat();
+                return values[MolangUtil.clampAndWrapIndex(i, values.length)];
+            };
+        }
+        throw new MolangException("Not implemented (" + node.getClass().getSimpleName() + " " + node + ")");
+    }
+
+    /**
+     * Resolves a node whose value is only used as a float. This only differs from {@link #resolve} where the compiled code folds constants.
+     */
+    private Instruction resolveFloat(Node node, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        if (this.enableOptimization && node.isConstant() && (node instanceof BinaryOperationNode || node instanceof NegateNode)) {
+            return constant(node);
+        }
+        return this.resolve(node, environment, loop);
+    }
+
+    private Instruction[] resolveAll(Node[] nodes, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        Instruction[] instructions = new Instruction[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            instructions[i] = this.resolve(nodes[i], environment, loop);
+        }
+        return instructions;
+    }
+
+    private Instruction resolveSet(VariableSetNode set, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        // The compiled code loads the object before the value if it isn't loaded yet
+        InterpreterEnvironment.ObjectLoader object = !"temp".equals(set.object()) && environment.getVariableIndex(set.object()) == null ? environment.getObject(set.object()) : null;
+        Instruction value = this.resolve(set.value(), environment, loop);
+        int slot = environment.allocateVariable(set.object() + "." + set.name());
+        environment.markDirty(set.object(), set.name());
+        environment.invalidateExpressions(set.name());
+
+        boolean returnValue = set.returnValue();
+        if (object != null) {
+            return frame -> {
+                object.load(frame);
+                MolangValue result = value.execute(frame);
+                frame.slots[slot] = result;
+                return returnValue ? result : null;
+            };
+        }
+        return frame -> {
+            MolangValue result = value.execute(frame);
+            frame.slots[slot] = result;
+            return returnValue ? result : null;
+        };
+    }
+
+    private Instruction resolveBinary(BinaryOperationNode binary, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        if (this.enableOptimization && binary.isConstant()) {
+            return constant(binary);
+        }
+
+        Instruction left = this.resolve(binary.left(), environment, loop);
+        if (binary.operator() == BinaryOperation.AND || binary.operator() == BinaryOperation.OR || binary.operator() == BinaryOperation.NULL_COALESCING) {
+            return this.resolveShortCircuit(binary, left, environment, loop);
+        }
+        Instruction right = this.resolve(binary.right(), environment, loop);
+        return switch (binary.operator()) {
+            case ADD -> frame -> left.execute(frame).internalAdd(right.execute(frame));
+            case SUBTRACT -> frame -> left.execute(frame).internalSubtract(right.execute(frame));
+            case MULTIPLY -> frame -> left.execute(frame).internalMultiply(right.execute(frame));
+            case DIVIDE -> frame -> left.execute(frame).internalDivide(right.execute(frame));
+            case LESS -> frame -> left.execute(frame).internalLess(right.execute(frame));
+            case EQUALS -> frame -> left.execute(frame).internalEquals(right.execute(frame));
+            case NOT_EQUALS -> frame -> left.execute(frame).internalNotEquals(right.execute(frame));
+            case GREATER -> frame -> left.execute(frame).internalGreater(right.execute(frame));
+            case LESS_EQUALS -> frame -> left.execute(frame).internalLessEquals(right.execute(frame));
+            case GREATER_EQUALS -> frame -> left.execute(frame).internalGreaterEquals(right.execute(frame));
+            default -> throw new IllegalArgumentException("Unsupported operation: " + binary.operator());
+        };
+    }
+
+    /**
+     * The right operand is only evaluated if the left operand does not decide the result, so it is resolved like a branch.
+     */
+    private Instruction resolveShortCircuit(BinaryOperationNode binary, Instruction left, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        InterpreterEnvironment localEnvironment = environment.copy();
+        Instruction right = this.resolve(binary.right(), localEnvironment, loop);
+        Instruction writeBack = localEnvironment.writeModifiedVariables();
+        return switch (binary.operator()) {
+            case AND -> frame -> {
+                if (!left.execute(frame).asBoolean()) {
+                    return MolangValue.FALSE;
+                }
+                MolangValue value = right.execute(frame);
+                writeBack.execute(frame);
+                return MolangValue.of(value.asBoolean());
+            };
+            case OR -> frame -> {
+                if (left.execute(frame).asBoolean()) {
+                    return MolangValue.TRUE;
+                }
+                MolangValue value = right.execute(frame);
+                writeBack.execute(frame);
+                return MolangValue.of(value.asBoolean());
+            };
+            default -> frame -> {
+                MolangValue value = left.execute(frame);
+                if (value.getType() != MolangValue.Type.NULL) {
+                    return value;
+                }
+                value = right.execute(frame);
+                writeBack.execute(frame);
+                return value;
+            };
+        };
+    }
+
+    private Instruction resolveMath(MathNode math, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        Node[] arguments = math.arguments();
+        Instruction[] args = new Instruction[arguments.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = this.resolveFloat(arguments[i], environment, loop);
+        }
+        Instruction a = args.length > 0 ? args[0] : null;
+        Instruction b = args.length > 1 ? args[1] : null;
+        Instruction c = args.length > 2 ? args[2] : null;
+
+        return switch (math.function()) {
+            case ABS -> frame -> MolangValue.of(Math.abs(a.execute(frame).asFloat()));
+            case MAX -> frame -> MolangValue.of(Math.max(a.execute(frame).asFloat(), b.execute(frame).asFloat()));
+            case MIN -> frame -> MolangValue.of(Math.min(a.execute(frame).asFloat(), b.execute(frame).asFloat()));
+            case ACOS -> frame -> MolangValue.of((float) Math.acos(a.execute(frame).asFloat()) * RADIANS_TO_DEGREES);
+            case ASIN -> frame -> MolangValue.of((float) Math.asin(a.execute(frame).asFloat()) * RADIANS_TO_DEGREES);
+            case ATAN -> frame -> MolangValue.of((float) Math.atan(a.execute(frame).asFloat()) * RADIANS_TO_DEGREES);
+            case CEIL -> frame -> MolangValue.of((float) Math.ceil(a.execute(frame).asFloat()));
+            case EXP -> frame -> MolangValue.of((float) Math.exp(a.execute(frame).asFloat()));
+            case FLOOR -> frame -> MolangValue.of((float) Math.floor(a.execute(frame).asFloat()));
+            case LN -> frame -> MolangValue.of((float) Math.log(a.execute(frame).asFloat()));
+            case SQRT -> frame -> MolangValue.of((float) Math.sqrt(a.execute(frame).asFloat()));
+            case COS -> frame -> MolangValue.of((float) Math.cos(a.execute(frame).asFloat() * DEGREES_TO_RADIANS));
+            case SIN -> frame -> MolangValue.of((float) Math.sin(a.execute(frame).asFloat() * DEGREES_TO_RADIANS));
+            case POW -> frame -> MolangValue.of((float) Math.pow(a.execute(frame).asFloat(), b.execute(frame).asFloat()));
+            case ATAN2 -> frame -> MolangValue.of((float) Math.atan2(a.execute(frame).asFloat(), b.execute(frame).asFloat()) * RADIANS_TO_DEGREES);
+            case ROUND -> frame -> MolangValue.of((float) Math.round(a.execute(frame).asFloat()));
+            case MOD -> frame -> MolangValue.of(a.execute(frame).asFloat() % b.execute(frame).asFloat());
+            case PI -> frame -> MolangValue.MATH_PI;
+            case E -> frame -> MolangValue.MATH_E;
+            case TRUNC -> frame -> MolangValue.of((float) (int) a.execute(frame).asFloat());
+            case CLAMP -> frame -> MolangValue.of(MolangUtil.clamp(a.execute(frame).asFloat(), b.execute(frame).asFloat(), c.execute(frame).asFloat()));
+            case DIE_ROLL -> frame -> MolangValue.of(MolangUtil.dieRoll((int) a.execute(frame).asFloat(), b.execute(frame).asFloat(), c.execute(frame).asFloat()));
+            case DIE_ROLL_INTEGER -> frame -> MolangValue.of((float) MolangUtil.dieRollInt((int) a.execute(frame).asFloat(), (int) b.execute(frame).asFloat(), (int) c.execute(frame).asFloat()));
+            case HERMITE_BLEND -> frame -> MolangValue.of(MolangUtil.hermiteBlend(a.execute(frame).asFloat()));
+            case LERP -> frame -> MolangValue.of(MolangUtil.lerp(a.execute(frame).asFloat(), b.execute(frame).asFloat(), c.execute(frame).asFloat()));
+            case LERPROTATE -> frame -> MolangValue.of(MolangUtil.lerpRotate(a.execute(frame).asFloat(), b.execute(frame).asFloat(), c.execute(frame).asFloat()));
+            case MIN_ANGLE -> frame -> MolangValue.of(MolangUtil.wrapDegrees(a.execute(frame).asFloat()));
+            case RANDOM -> frame -> MolangValue.of(MolangUtil.random(a.execute(frame).asFloat(), b.execute(frame).asFloat()));
+            case RANDOM_INTEGER -> frame -> MolangValue.of((float) (int) MolangUtil.random((int) a.execute(frame).asFloat(), (int) b.execute(frame).asFloat()));
+            case SIGN -> frame -> MolangValue.of(Math.signum(a.execute(frame).asFloat()));
+            case TRIANGLE_WAVE -> frame -> MolangValue.of(MolangUtil.triangleWave(a.execute(frame).asFloat(), b.execute(frame).asFloat()));
+        };
+    }
+
+    private Instruction resolveFunction(FunctionNode function, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        InterpreterEnvironment.ObjectLoader object = environment.getObject(function.object());
+        String name = function.function();
+        String fullKey = name + "$" + function.arguments().length;
+        environment.allocateVariable(function.object() + "." + fullKey);
+
+        Node[] arguments = function.arguments();
+        Instruction[] parameters = new Instruction[arguments.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Node argument = arguments[i];
+            parameters[i] = this.enableOptimization && argument.isConstant() ? constant(argument) : this.resolve(argument, environment, loop);
+        }
+
+        return frame -> {
+            MolangExpression expression = MolangUtil.getFunction(object.load(frame), name, fullKey);
+            MolangValue[] values = new MolangValue[parameters.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parameters[i].execute(frame);
+            }
+            return MolangUtil.invokeFunction(expression, frame.runtime, values);
+        };
+    }
+
+    private Instruction resolveCompound(CompoundNode compound, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        // Matches the compiled code, which stops writing nodes after the first exit
+        Node[] children = compound.nodes();
+        int count = children.length;
+        for (int i = 0; i < children.length; i++) {
+            if (CompoundNode.exits(children[i])) {
+                count = i + 1;
+                break;
+            }
+        }
+        Instruction[] nodes = this.resolveAll(count == children.length ? children : Arrays.copyOf(children, count), environment, loop);
+        return frame -> {
+            // The compiled code leaves every value on the stack, so the last one is the value of the compound
+            MolangValue result = null;
+            for (Instruction node : nodes) {
+                MolangValue value = node.execute(frame);
+                if (frame.state != Frame.NORMAL) {
+                    return null;
+                }
+                if (value != null) {
+                    result = value;
+                }
+            }
+            return result;
+        };
+    }
+
+    private Instruction resolveReturn(ReturnNode returnNode, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        Instruction value;
+        if (this.enableOptimization && returnNode.isConstant()) {
+            value = constant(returnNode);
+        } else {
+            value = this.resolve(returnNode.value(), environment, loop);
+            if (!returnNode.value().hasValue()) {
+                Instruction statement = value;
+                MolangValue zero = ConstNode.ZERO_FLOAT_NODE.value();
+                value = frame -> {
+                    statement.execute(frame);
+                    return zero;
+                };
+            }
+        }
+
+        Instruction result = value;
+        Instruction writeBack = environment.writeModifiedVariables();
+        return frame -> {
+            MolangValue returnValue = result.execute(frame);
+            if (frame.state != Frame.NORMAL) {
+                return null;
+            }
+            writeBack.execute(frame);
+            frame.returnValue = returnValue;
+            frame.state = Frame.RETURN;
+            return null;
+        };
+    }
+
+    private Instruction resolveConditional(BinaryConditionalNode conditional, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        if (this.enableOptimization && conditional.condition().isConstant()) {
+            // The branch is written directly without discarding its value
+            return conditional.condition().evaluate(null).asBoolean() ? this.resolve(conditional.branch(), environment, loop) : Instruction.NONE;
+        }
+
+        Instruction condition = this.resolve(conditional.condition(), environment, loop);
+        InterpreterEnvironment localEnvironment = environment.copy();
+        Instruction branch = this.resolve(conditional.branch(), localEnvironment, loop);
+        Instruction writeBack = localEnvironment.writeModifiedVariables();
+        return frame -> {
+            if (condition.execute(frame).asBoolean()) {
+                branch.execute(frame);
+                if (frame.state == Frame.NORMAL) {
+                    writeBack.execute(frame);
+                }
+            }
+            return null;
+        };
+    }
+
+    private Instruction resolveTernary(TernaryOperationNode ternary, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        boolean hasValue = ternary.hasValue();
+        if (this.enableOptimization && ternary.condition().isConstant()) {
+            Node branch = ternary.condition().evaluate(null).asBoolean() ? ternary.left() : ternary.right();
+            Instruction value = this.resolve(branch, environment, loop);
+            return hasValue ? value : frame -> {
+                value.execute(frame);
+                return null;
+            };
+        }
+
+        Instruction condition = this.resolve(ternary.condition(), environment, loop);
+
+        InterpreterEnvironment leftEnvironment = environment.copy();
+        Instruction left = this.resolve(ternary.left(), leftEnvironment, loop);
+        Instruction leftWriteBack = leftEnvironment.writeModifiedVariables();
+
+        InterpreterEnvironment rightEnvironment = environment.copy();
+        Instruction right = this.resolve(ternary.right(), rightEnvironment, loop);
+        Instruction rightWriteBack = rightEnvironment.writeModifiedVariables();
+
+        return frame -> {
+            boolean result = condition.execute(frame).asBoolean();
+            MolangValue value = (result ? left : right).execute(frame);
+            if (frame.state != Frame.NORMAL) {
+                return null;
+            }
+            (result ? leftWriteBack : rightWriteBack).execute(frame);
+            return hasValue ? value : null;
+        };
+    }
+
+    /**
+     * Resolves an expression that is computed once and stored until one of its variables is set.
+     */
+    private Instruction resolveCached(CachedNode cached, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        Instruction value = this.resolveFloat(cached.value(), environment, loop);
+        int slot = environment.allocateExpression(cached.key(), cached.variables());
+        return frame -> {
+            MolangValue result = MolangUtil.toFloatValue(value.execute(frame));
+            frame.slots[slot] = result;
+            return result;
+        };
+    }
+
+    private Instruction resolveLoop(LoopNode loopNode, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        // Invariants are computed before the loop, unless they are already stored
+        List<Instruction> invariants = new ArrayList<>(loopNode.invariants().length);
+        for (CachedNode invariant : loopNode.invariants()) {
+            if (environment.getExpressionIndex(invariant.key()) == null) {
+                invariants.add(this.resolveCached(invariant, environment, loop));
+            }
+        }
+
+        // Expressions computed before the loop are stale in the next iteration if the body sets their variables,
+        // and expressions computed in the body may be skipped by break or continue
+        Set<String> expressions = environment.getExpressions();
+        NodeTraversal.forEach(loopNode.body(), node -> {
+            if (node instanceof VariableSetNode set) {
+                environment.invalidateExpressions(set.name());
+            }
+        });
+        Instruction body = this.resolveLoopBody(loopNode, environment, loop);
+        environment.retainExpressions(expressions);
+
+        if (invariants.isEmpty()) {
+            return body;
+        }
+        Instruction[] stores = invariants.toArray(Instruction[]::new);
+        return frame -> {
+            for (Instruction store : stores) {
+                store.execute(frame);
+            }
+            return body.execute(frame);
+        };
+    }
+
+    private Instruction resolveLoopBody(LoopNode loopNode, InterpreterEnvironment environment, boolean loop) throws MolangException {
+        if (loopNode.iterations().isConstant()) {
+            int iterations = (int) loopNode.iterations().evaluate(null).asFloat();
+            if (iterations < 128) {
+                // The compiled code unrolls the loop, so each iteration is resolved separately
+                Instruction[] bodies = new Instruction[Math.max(iterations, 0)];
+                for (int i = 0; i < bodies.length; i++) {
+                    bodies[i] = this.resolve(loopNode.body(), environment, true);
+                }
+                return frame -> {
+                    for (Instruction body : bodies) {
+                        body.execute(frame);
+                        if (frame.state != Frame.NORMAL) {
+                            if (frame.state == Frame.CONTINUE) {
+                                frame.state = Frame.NORMAL;
+                                continue;
+                            }
+                            if (frame.state == Frame.BREAK) {
+                                frame.state = Frame.NORMAL;
+                            }
+                            break;
+                        }
+                    }
+                    return null;
+                };
+            }
+        }
+
+        Instruction iterations = this.resolveFloat(loopNode.iterations(), environment, loop);
+        Instruction body = this.resolve(loopNode.body(), environment, true);
+        return frame -> {
+            int count = (int) iterations.execute(frame).asFloat();
+            // The body always runs once, the same as the compiled code
+            int i = 0;
+            do {
+                body.execute(frame);
+                if (frame.state != Frame.NORMAL) {
+                    if (frame.state == Frame.BREAK) {
+                        frame.state = Frame.NORMAL;
+                        break;
+                    }
+                    if (frame.state == Frame.RETURN) {
+                        break;
+                    }
+                    frame.state = Frame.NORMAL;
+                }
+                i++;
+            } while (count > i);
+            return null;
+        };
+    }
+
+    private static Instruction constant(Node node) throws MolangException {
+        MolangValue value = node.evaluate(null);
+        return frame -> value;
+    }
+}
@@ -0,0 +1,141 @@
+package gg.moonflower.molangcompiler.impl.interpreter;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangTierUpEvent;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.impl.ast.Node;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * An expression that is interpreted until it has been evaluated enough times, then replaces itself with the compiled expression.
+ * <p>
+ * The invocation count is deliberately not synchronized. Lost updates from concurrent evaluation only delay compilation slightly,
+ * and compilation is guaranteed to start at most once.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class TieredExpression implements MolangExpression {
+
+    private final String source;
+    private final InterpretedExpression interpreted;
+    private final Compiler compiler;
+    private final int threshold;
+    private final boolean background;
+    private final Consumer<MolangTierUpEvent> listener;
+    private final AtomicBoolean tierUpStarted;
+    @Nullable
+    private Node node;
+    private volatile MolangExpression target;
+    private int invocations;
+
+    /**
+     * @param node        The node to compile once the expression is hot
+     * @param interpreted The interpreted form of the node
+     * @param compiler    The function to compile the node with
+     * @param threshold   The number of evaluations before the node is compiled
+     * @param background  Whether to compile on {@link java.util.concurrent.ForkJoinPool#commonPool()} instead of the evaluating thread
+     * @param listener    The listener to notify after compilation
+     */
+    public TieredExpression(Node node, InterpretedExpression interpreted, Compiler compiler, int threshold, boolean background, Consumer<MolangTierUpEvent> listener) {
+        this.source = interpreted.toString();
+        this.interpreted = interpreted;
+        this.compiler = compiler;
+        this.threshold = threshold;
+        this.background = background;
+        this.listener = listener;
+        this.tierUpStarted = new AtomicBoolean();
+        this.node = node;
+        this.target = interpreted;
+    }
+
+    @Override
+    public MolangValue get(MolangEnvironment environment) throws MolangRuntimeException {
+        return this.getTarget().get(environment);
+    }
+
+    @Override
+    public float getFloat(MolangEnvironment environment) throws MolangRuntimeException {
+        return this.getTarget().getFloat(environment);
+    }
+
+    @Override
+    public String[] getReferences() {
+        return this.interpreted.getReferences();
+    }
+
+    private MolangExpression getTarget() {
+        MolangExpression target = this.target;
+        if (target == this.interpreted && ++this.invocations >= this.threshold) {
+            this.tierUp();
+            target = this.target;
+        }
+        return target;
+    }
+
+    private void tierUp() {
+        if (!this.tierUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        int invocations = this.invocations;
+        if (this.background) {
+            CompletableFuture.runAsync(() -> this.compile(invocations));
+        } else {
+            this.compile(invocations);
+        }
+    }
+
+    private void compile(int invocations) {
+        Node node = this.node;
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            this.target = this.compiler.compile(node);
+            this.node = null;
+        } catch (Throwable t) {
+            error = t;
+        }
+        this.listener.accept(new MolangTierUpEvent(this.source, invocations, System.nanoTime() - start, this.background, error));
+    }
+
+    /**
+     * @return Whether this expression has been replaced by its compiled form
+     */
+    public boolean isCompiled() {
+        return this.target != this.interpreted;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MolangExpression && this.source.equals(obj.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.source.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+
+    /**
+     * Compiles the node of a tiered expression.
+     */
+    @FunctionalInterface
+    public interface Compiler {
+
+        MolangExpression compile(Node node) throws MolangSyntaxException;
+    }
+}
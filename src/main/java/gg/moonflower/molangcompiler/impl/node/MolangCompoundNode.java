@@ -6,6 +6,8 @@ import gg.moonflower.molangcompiler.api.MolangValue;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.Arrays;
+
 /**
  * @author Ocelot
  */
@@ -24,6 +26,11 @@ public record MolangCompoundNode(MolangExpression... expressions) implements Mol
         return MolangValue.of(0.0f);
     }
 
+    @Override
+    public String[] getReferences() {
+        return Arrays.stream(this.expressions).flatMap(expression -> Arrays.stream(expression.getReferences())).distinct().toArray(String[]::new);
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
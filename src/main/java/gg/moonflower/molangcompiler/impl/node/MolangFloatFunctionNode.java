@@ -0,0 +1,98 @@
+package gg.moonflower.molangcompiler.impl.node;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangJavaFunction;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Calls a function that takes and returns primitive floats.
+ * <p>
+ * Compiled expressions call the <code>invokeFloat</code> method with the same number of arguments as the function
+ * without boxing anything. Every other call goes through {@link MolangJavaFunction.Context} like any other function.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public abstract sealed class MolangFloatFunctionNode extends MolangFunctionNode {
+
+    private MolangFloatFunctionNode(int params, MolangJavaFunction consumer) {
+        super(params, consumer);
+    }
+
+    public static final class Of0 extends MolangFloatFunctionNode {
+
+        private final MolangJavaFunction.Float0 function;
+
+        public Of0(MolangJavaFunction.Float0 function) {
+            super(0, context -> MolangValue.of(function.apply()));
+            this.function = function;
+        }
+
+        @Override
+        public float invokeFloat() throws MolangRuntimeException {
+            return this.function.apply();
+        }
+    }
+
+    public static final class Of1 extends MolangFloatFunctionNode {
+
+        private final MolangJavaFunction.Float1 function;
+
+        public Of1(MolangJavaFunction.Float1 function) {
+            super(1, context -> MolangValue.of(function.apply(context.get(0).asFloat())));
+            this.function = function;
+        }
+
+        @Override
+        public float invokeFloat(float a) throws MolangRuntimeException {
+            return this.function.apply(a);
+        }
+    }
+
+    public static final class Of2 extends MolangFloatFunctionNode {
+
+        private final MolangJavaFunction.Float2 function;
+
+        public Of2(MolangJavaFunction.Float2 function) {
+            super(2, context -> MolangValue.of(function.apply(context.get(0).asFloat(), context.get(1).asFloat())));
+            this.function = function;
+        }
+
+        @Override
+        public float invokeFloat(float a, float b) throws MolangRuntimeException {
+            return this.function.apply(a, b);
+        }
+    }
+
+    public static final class Of3 extends MolangFloatFunctionNode {
+
+        private final MolangJavaFunction.Float3 function;
+
+        public Of3(MolangJavaFunction.Float3 function) {
+            super(3, context -> MolangValue.of(function.apply(context.get(0).asFloat(), context.get(1).asFloat(), context.get(2).asFloat())));
+            this.function = function;
+        }
+
+        @Override
+        public float invokeFloat(float a, float b, float c) throws MolangRuntimeException {
+            return this.function.apply(a, b, c);
+        }
+    }
+
+    public static final class Of4 extends MolangFloatFunctionNode {
+
+        private final MolangJavaFunction.Float4 function;
+
+        public Of4(MolangJavaFunction.Float4 function) {
+            super(4, context -> MolangValue.of(function.apply(context.get(0).asFloat(), context.get(1).asFloat(), context.get(2).asFloat(), context.get(3).asFloat())));
+            this.function = function;
+        }
+
+        @Override
+        public float invokeFloat(float a, float b, float c, float d) throws MolangRuntimeException {
+            return this.function.apply(a, b, c, d);
+        }
+    }
+}
@@ -7,7 +7,15 @@ import gg.moonflower.molangcompiler.api.bridge.MolangJavaFunction;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.Arrays;
+
 /**
+ * Calls a {@link MolangJavaFunction}.
+ * <p>
+ * Compiled expressions pass arguments to {@link #invoke(MolangValue[])} or one of the <code>invokeFloat</code> methods
+ * directly. {@link #get(MolangEnvironment)} reads the arguments from the environment parameters for callers that still
+ * load them there.
+ *
  * @author Ocelot
  */
 @ApiStatus.Internal
@@ -21,23 +29,56 @@ public class MolangFunctionNode implements MolangExpression {
         this.consumer = consumer;
     }
 
+    /**
+     * @return The number of parameters the function requires or <code>-1</code> if it accepts any number
+     */
+    public int getParameters() {
+        return this.params;
+    }
+
+    /**
+     * Calls this function. Extra arguments are ignored if the function takes a fixed number of parameters.
+     *
+     * @param arguments The arguments to pass. The array may be kept by the function, so it must not be reused
+     * @return The result of the function
+     * @throws MolangRuntimeException If there are not enough arguments or the function fails
+     */
+    public MolangValue invoke(MolangValue[] arguments) throws MolangRuntimeException {
+        if (this.params >= 0 && arguments.length != this.params) {
+            if (arguments.length < this.params) {
+                throw new MolangRuntimeException("Function requires " + this.params + " parameters");
+            }
+            arguments = Arrays.copyOf(arguments, this.params);
+        }
+        return this.consumer.resolve(new MolangJavaFunction.Context(arguments));
+    }
+
+    public float invokeFloat() throws MolangRuntimeException {
+        return this.invoke(new MolangValue[0]).asFloat();
+    }
+
+    public float invokeFloat(float a) throws MolangRuntimeException {
+        return this.invoke(new MolangValue[]{MolangValue.of(a)}).asFloat();
+    }
+
+    public float invokeFloat(float a, float b) throws MolangRuntimeException {
+        return this.invoke(new MolangValue[]{MolangValue.of(a), MolangValue.of(b)}).asFloat();
+    }
+
+    public float invokeFloat(float a, float b, float c) throws MolangRuntimeException {
+        return this.invoke(new MolangValue[]{MolangValue.of(a), MolangValue.of(b), MolangValue.of(c)}).asFloat();
+    }
+
+    public float invokeFloat(float a, float b, float c, float d) throws MolangRuntimeException {
+        return this.invoke(new MolangValue[]{MolangValue.of(a), MolangValue.of(b), MolangValue.of(c), MolangValue.of(d)}).asFloat();
+    }
+
     @Override
     public MolangValue get(MolangEnvironment environment) throws MolangRuntimeException {
-        MolangValue[] parameters;
-        if (this.params < 0) {
-            parameters = new MolangValue[environment.getParameters()];
-            for (int i = 0; i < parameters.length; i++) {
-                parameters[i] = environment.getParameter(i);
-            }
-        } else {
-            parameters = new MolangValue[this.params];
-            for (int i = 0; i < parameters.length; i++) {
-                if (!environment.hasParameter(i)) {
-                    throw new MolangRuntimeException("Function requires " + parameters.length + " parameters");
-                }
-                parameters[i] = environment.getParameter(i);
-            }
+        MolangValue[] parameters = new MolangValue[environment.getParameters()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = environment.getParameter(i);
         }
-        return this.consumer.resolve(new MolangJavaFunction.Context(parameters));
+        return this.invoke(parameters);
     }
 }
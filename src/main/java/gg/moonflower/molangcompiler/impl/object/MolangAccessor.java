@@ -0,0 +1,43 @@
+package gg.moonflower.molangcompiler.impl.object;
+
+import gg.moonflower.molangcompiler.api.MolangValue;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Reads and writes the members of a host class by index. Implementations are generated once per
+ * {@link gg.moonflower.molangcompiler.api.bridge.MolangBinding} and shared by every object bound with it.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public interface MolangAccessor {
+
+    /**
+     * Reads a member.
+     *
+     * @param instance The object to read from. Ignored for static members
+     * @param index    The index of the member in the binding
+     * @return The value of the member
+     */
+    MolangValue get(Object instance, int index);
+
+    /**
+     * Reads a member as a float without creating a value for numbers.
+     *
+     * @param instance The object to read from. Ignored for static members
+     * @param index    The index of the member in the binding
+     * @return The value of the member as a float
+     */
+    float getFloat(Object instance, int index);
+
+    /**
+     * Writes a variable.
+     *
+     * @param instance The object to write to. Ignored for static members
+     * @param index    The index of the variable in the binding
+     * @param value    The new value
+     * @throws IndexOutOfBoundsException If the member is not a variable
+     */
+    void set(Object instance, int index, MolangValue value);
+}
@@ -0,0 +1,156 @@
+package gg.moonflower.molangcompiler.impl.object;
+
+import gg.moonflower.molangcompiler.api.MolangEnvironment;
+import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangBinding;
+import gg.moonflower.molangcompiler.api.bridge.MolangVariable;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.MolangUtil;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * An object created by {@link MolangBinding#bind(Object)}.
+ * <p>
+ * Expressions for members are only created the first time a name is looked up, so binding an object that is never
+ * read only allocates the object itself. Compiled expressions key their caches
+ * by {@link #binding()}, so every object bound with the same binding shares one cache entry and looks members up by
+ * index.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangBoundObject implements MolangObject {
+
+    private final MolangBinding<?> binding;
+    private final MolangAccessor accessor;
+    private final Object instance;
+    private MolangExpression[] expressions;
+
+    public MolangBoundObject(MolangBinding<?> binding, Object instance) {
+        this.binding = binding;
+        this.accessor = binding.getAccessor();
+        this.instance = instance;
+    }
+
+    /**
+     * @return The binding this object was created with
+     */
+    public MolangBinding<?> binding() {
+        return this.binding;
+    }
+
+    /**
+     * Retrieves the expression for a member.
+     *
+     * @param index The {@link MolangBinding#indexOf(String) index} of the member
+     * @return The expression reading the member from this object
+     */
+    public MolangExpression getIndex(int index) {
+        MolangExpression[] expressions = this.expressions;
+        if (expressions == null) {
+            expressions = this.expressions = new MolangExpression[this.binding.getNames().size()];
+        }
+        MolangExpression expression = expressions[index];
+        if (expression == null) {
+            expression = this.binding.isVariable(index) ? new Variable(this, index) : new Query(this, index);
+            expressions[index] = expression;
+        }
+        return expression;
+    }
+
+    @Override
+    public MolangExpression get(String name) throws MolangRuntimeException {
+        int index = this.binding.indexOf(name);
+        if (index == -1) {
+            throw new MolangRuntimeException("Unknown MoLang expression: " + name);
+        }
+        return this.getIndex(index);
+    }
+
+    @Override
+    public void set(String name, MolangExpression value) throws MolangRuntimeException {
+        throw new MolangRuntimeException("Cannot set values to " + this.binding.getType().getSimpleName());
+    }
+
+    @Override
+    public void remove(String name) throws MolangRuntimeException {
+        throw new MolangRuntimeException("Cannot remove values from " + this.binding.getType().getSimpleName());
+    }
+
+    @Override
+    public boolean has(String name) {
+        return this.binding.indexOf(name) != -1;
+    }
+
+    @Override
+    public Collection<String> getKeys() {
+        return this.binding.getNames();
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "MolangBoundObject[type=" + this.binding.getType().getName() + ", instance=" + this.instance + "]";
+    }
+
+    private record Query(MolangBoundObject object, int index) implements MolangExpression {
+
+        @Override
+        public MolangValue get(MolangEnvironment environment) {
+            return this.object.accessor.get(this.object.instance, this.index);
+        }
+
+        @Override
+        public float getFloat(MolangEnvironment environment) {
+            return this.object.accessor.getFloat(this.object.instance, this.index);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return MolangUtil.toString(this.object.accessor.get(this.object.instance, this.index));
+        }
+    }
+
+    private record Variable(MolangBoundObject object, int index) implements MolangExpression, MolangVariable {
+
+        @Override
+        public MolangValue get(MolangEnvironment environment) {
+            return this.getValue();
+        }
+
+        @Override
+        public float getFloat(MolangEnvironment environment) {
+            return this.object.accessor.getFloat(this.object.instance, this.index);
+        }
+
+        @Override
+        public MolangValue getValue() {
+            return this.object.accessor.get(this.object.instance, this.index);
+        }
+
+        @Override
+        public void setValue(MolangValue value) {
+            this.object.accessor.set(this.object.instance, this.index, value);
+        }
+
+        @Override
+        public MolangVariable copy() {
+            return this;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return MolangUtil.toString(this.getValue());
+        }
+    }
+}
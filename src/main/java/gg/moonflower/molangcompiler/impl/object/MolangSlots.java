@@ -0,0 +1,117 @@
+package gg.moonflower.molangcompiler.impl.object;
+
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every variable and object name a fixed integer slot for the lifetime of the JVM.
+ * <p>
+ * Compiled expressions look up the slot of each name once, when the class is linked, and access {@link MolangVariableStorage}
+ * by slot after that. Slots are never written to class files, so cached and ahead-of-time compiled classes stay valid
+ * across restarts.
+ * <p>
+ * Slots are never released, since a linked class may use any of them until it is unloaded. Every distinct variable
+ * name that is set or compiled keeps one entry here for the lifetime of the JVM, so names should come from a bounded
+ * set and not, for example, include entity ids. The number of slots only costs the entries in this map. Storages only
+ * keep tables for the slots they contain.
+ * <p>
+ * Names compiled into expressions are bounded by the code that uses them, so they always get a slot. Names only set
+ * from Java go through {@link #assign(String)}, which stops assigning slots after {@link #MAX_ASSIGNED} names so a
+ * leak like that fails instead of growing forever.
+ *
+ * @author Ocelot
+ * @since 4.1.0
+ */
+@ApiStatus.Internal
+public final class MolangSlots {
+
+    /**
+     * The number of slots after which {@link #assign(String)} rejects new names.
+     */
+    public static final int MAX_ASSIGNED = 1 << 16;
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    /**
+     * Objects are numbered separately so the object cache in each runtime stays small.
+     */
+    private static final Map<String, Integer> OBJECT_SLOTS = new ConcurrentHashMap<>();
+
+    private MolangSlots() {
+    }
+
+    private static int get(Map<String, Integer> slots, String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            return slots.computeIfAbsent(name, unused -> slots.size());
+        }
+    }
+
+    /**
+     * Retrieves the slot of a name, assigning the next free slot if the name has never been seen.
+     *
+     * @param name The name of the variable
+     * @return The slot of the variable
+     */
+    public static int get(String name) {
+        return get(SLOTS, name);
+    }
+
+    /**
+     * Retrieves the slot of a name set from outside compiled code, assigning the next free slot if the name has never
+     * been seen and fewer than {@link #MAX_ASSIGNED} slots are in use.
+     *
+     * @param name The name of the variable
+     * @return The slot of the variable
+     * @throws MolangRuntimeException If the name needs a new slot and too many names have been assigned
+     */
+    public static int assign(String name) throws MolangRuntimeException {
+        Integer slot = SLOTS.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        if (SLOTS.size() >= MAX_ASSIGNED) {
+            throw new MolangRuntimeException("Too many distinct variable names to set " + name + ", variable names should not contain ids");
+        }
+        return get(SLOTS, name);
+    }
+
+    /**
+     * Retrieves the slot of an object name, assigning the next free slot if the name has never been seen.
+     *
+     * @param name The lowercase name of the object
+     * @return The slot of the object
+     */
+    public static int getObject(String name) {
+        return get(OBJECT_SLOTS, name);
+    }
+
+    /**
+     * Retrieves the slot of a name without assigning one.
+     *
+     * @param name The name of the variable
+     * @return The slot of the variable or <code>-1</code> if no slot has been assigned
+     */
+    public static int find(String name) {
+        return SLOTS.getOrDefault(name, -1);
+    }
+
+    /**
+     * Bootstrap for the ConstantDynamic entries that load slots in compiled expressions.
+     *
+     * @param lookup   Unused
+     * @param name     Unused
+     * @param type     Always <code>int</code>
+     * @param variable The name of the variable
+     * @return The slot of the variable
+     */
+    public static int bootstrap(MethodHandles.Lookup lookup, String name, Class<?> type, String variable) {
+        return get(variable);
+    }
+}
@@ -1,68 +1,175 @@
 package gg.moonflower.molangcompiler.impl.object;
 
 import gg.moonflower.molangcompiler.api.MolangExpression;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.bridge.MolangVariable;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import gg.moonflower.molangcompiler.api.object.MolangObject;
+import gg.moonflower.molangcompiler.impl.node.MolangConstantNode;
 import gg.moonflower.molangcompiler.impl.node.MolangFunctionNode;
+import gg.moonflower.molangcompiler.impl.node.MolangVariableNode;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Stores values in an array laid out by a {@link Shape}.
+ * <p>
+ * Every storage that had the same names added in the same order shares one shape, so the table from
+ * {@link MolangSlots slot} to array index exists once instead of once per storage. Compiled expressions read and write
+ * by slot, which is an array lookup instead of hashing the name.
+ *
  * @author Ocelot
  */
 @ApiStatus.Internal
 public class MolangVariableStorage implements MolangObject {
 
-    private final Map<String, MolangExpression> storage;
+    private static final MolangExpression[] EMPTY = new MolangExpression[0];
+
     private final boolean allowMethods;
+    private Shape shape;
+    private MolangExpression[] values;
 
     public MolangVariableStorage(boolean allowMethods) {
-        this.storage = new HashMap<>();
         this.allowMethods = allowMethods;
+        this.shape = Shape.ROOT;
+        this.values = EMPTY;
     }
 
     public MolangVariableStorage(MolangVariableStorage copy) {
-        this.storage = new HashMap<>(copy.storage);
         this.allowMethods = copy.allowMethods;
+        this.shape = copy.shape;
+        this.values = Arrays.copyOf(copy.values, copy.shape.names.length);
     }
 
     public void clear() {
-        this.storage.clear();
+        this.shape = Shape.ROOT;
+        this.values = EMPTY;
+    }
+
+    /**
+     * Retrieves the value in the specified slot.
+     *
+     * @param slot The slot of the variable
+     * @return The value or {@link MolangExpression#NULL} if the variable is not set
+     */
+    public MolangExpression get(int slot) {
+        int index = this.shape.indexOf(slot);
+        return index != -1 ? this.values[index] : MolangExpression.NULL;
+    }
+
+    /**
+     * Retrieves the value at an index in the current shape.
+     *
+     * @param index The index returned by {@link #indexOf(String)} while the storage had the same shape
+     * @return The value
+     */
+    public MolangExpression getIndex(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Retrieves the index of a name in the current shape.
+     *
+     * @param name The name of the variable
+     * @return The index of the variable or <code>-1</code> if the variable is not set
+     */
+    public int indexOf(String name) {
+        return this.shape.indexOf(MolangSlots.find(name));
+    }
+
+    /**
+     * Retrieves the shape of this storage. Storages with the same shape have the same variables at the same indices.
+     *
+     * @return An object identifying the layout of this storage
+     */
+    public Object getShape() {
+        return this.shape;
+    }
+
+    /**
+     * Sets the value in the specified slot, updating the existing variable if there is one.
+     *
+     * @param slot  The slot of the variable
+     * @param name  The name of the variable, used if the variable has to be added
+     * @param value The new value
+     * @see gg.moonflower.molangcompiler.impl.MolangUtil#setValue(MolangObject, String, MolangValue)
+     */
+    public void setValue(int slot, String name, MolangValue value) {
+        int index = this.shape.indexOf(slot);
+        if (index == -1) {
+            this.add(slot, name, new MolangVariableNode(MolangVariable.create(value)));
+        } else if (this.values[index] instanceof MolangVariable variable) {
+            variable.setValue(value);
+        } else {
+            this.values[index] = new MolangConstantNode(value);
+        }
+    }
+
+    private void add(int slot, String name, MolangExpression value) {
+        int index = this.shape.names.length;
+        this.shape = this.shape.with(slot, name);
+        if (index >= this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(4, index * 2));
+        }
+        this.values[index] = value;
     }
 
     @Override
-    public void set(String name, MolangExpression value) throws MolangRuntimeException {
+    public void set(String name, @Nullable MolangExpression value) throws MolangRuntimeException {
         if (!this.allowMethods && value instanceof MolangFunctionNode) {
             throw new MolangRuntimeException("Cannot set functions on objects that do not allow functions");
         }
-        this.storage.put(name, value);
+        if (value == null) {
+            value = MolangExpression.NULL;
+        }
+        int slot = MolangSlots.assign(name);
+        int index = this.shape.indexOf(slot);
+        if (index == -1) {
+            this.add(slot, name, value);
+        } else {
+            this.values[index] = value;
+        }
     }
 
     @Override
     public void remove(String name) throws MolangRuntimeException {
-        this.storage.remove(name);
+        int index = this.indexOf(name);
+        if (index == -1) {
+            return;
+        }
+
+        // Removing is rare, so rebuild the storage from the root shape
+        Shape old = this.shape;
+        MolangExpression[] oldValues = this.values;
+        this.clear();
+        for (int i = 0; i < old.names.length; i++) {
+            if (i != index) {
+                this.add(old.slots[i], old.names[i], oldValues[i]);
+            }
+        }
     }
 
     @Override
     public MolangExpression get(String name) throws MolangRuntimeException {
-        MolangExpression expression = this.storage.get(name);
-        if (expression != null) {
-            return expression;
-        }
-        return MolangExpression.NULL;
+        return this.get(MolangSlots.find(name));
     }
 
     @Override
     public boolean has(String name) {
-        return this.storage.containsKey(name);
+        return this.indexOf(name) != -1;
     }
 
     @Override
     public Collection<String> getKeys() {
-        return this.storage.keySet();
+        return List.of(this.shape.names);
     }
 
     @Override
@@ -73,15 +180,141 @@ public class MolangVariableStorage implements MolangObject {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder("MoLang Object\n");
-        for (Map.Entry<String, MolangExpression> entry : this.storage.entrySet()) {
-            builder.append('\t').append(entry.getKey());
-            if (entry.getValue() instanceof MolangFunctionNode) {
+        for (int i = 0; i < this.shape.names.length; i++) {
+            builder.append('\t').append(this.shape.names[i]);
+            if (this.values[i] instanceof MolangFunctionNode) {
                 builder.append("()");
             } else {
-                builder.append('=').append(entry.getValue());
+                builder.append('=').append(this.values[i]);
             }
             builder.append('\n');
         }
         return builder.toString();
     }
+
+    /**
+     * The names in a storage and the index each one is stored at. Shapes are immutable, and adding a name returns the
+     * same shape for the same parent as long as that shape is still used.
+     * <p>
+     * Only {@link #ROOT} is held forever. Every other shape is held by the storages that have it, by compiled
+     * expressions that cached it, and by the shapes added to it, but only weakly by its parent, so shapes for layouts
+     * that are no longer used are collected. A shape's table only covers its own slots, so its size doesn't depend on how many names
+     * {@link MolangSlots} has assigned.
+     */
+    private static final class Shape {
+
+        private static final Shape ROOT = new Shape(null, new String[0], new int[0]);
+        /**
+         * Slot ranges up to this many times the number of names use a table, wider ones use a binary search.
+         */
+        private static final int MAX_SPREAD = 4;
+
+        /**
+         * Keeps the path from {@link #ROOT} alive, so adding the same names again finds this shape while it is used.
+         */
+        @Nullable
+        private final Shape parent;
+        private final String[] names;
+        private final int[] slots;
+        /**
+         * The lowest slot in this shape.
+         */
+        private final int base;
+        /**
+         * The index of each slot from {@link #base} plus one, so missing slots are zero. This is <code>null</code> if
+         * the slots are too far apart.
+         */
+        private final int[] indices;
+        /**
+         * The slots in ascending order and the index of each one, used if there is no table.
+         */
+        private final int[] sortedSlots;
+        private final int[] sortedIndices;
+        private final Map<Integer, WeakReference<Shape>> transitions;
+        /**
+         * The number of transitions at which entries of collected shapes are removed next.
+         */
+        private int purgeSize;
+
+        private Shape(@Nullable Shape parent, String[] names, int[] slots) {
+            this.parent = parent;
+            this.names = names;
+            this.slots = slots;
+            this.transitions = new ConcurrentHashMap<>();
+            this.purgeSize = 16;
+
+            int min = Integer.MAX_VALUE;
+            int max = -1;
+            for (int slot : slots) {
+                min = Math.min(min, slot);
+                max = Math.max(max, slot);
+            }
+            this.base = Math.max(min, 0);
+
+            int range = max - this.base + 1;
+            if (range <= Math.max(slots.length * MAX_SPREAD, 16)) {
+                this.indices = new int[Math.max(range, 0)];
+                for (int i = 0; i < slots.length; i++) {
+                    this.indices[slots[i] - this.base] = i + 1;
+                }
+                this.sortedSlots = null;
+                this.sortedIndices = null;
+            } else {
+                Integer[] order = new Integer[slots.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparingInt(i -> slots[i]));
+                this.indices = null;
+                this.sortedSlots = new int[slots.length];
+                this.sortedIndices = new int[slots.length];
+                for (int i = 0; i < order.length; i++) {
+                    this.sortedSlots[i] = slots[order[i]];
+                    this.sortedIndices[i] = order[i];
+                }
+            }
+        }
+
+        private int indexOf(int slot) {
+            if (this.indices != null) {
+                int offset = slot - this.base;
+                return offset >= 0 && offset < this.indices.length ? this.indices[offset] - 1 : -1;
+            }
+            int i = Arrays.binarySearch(this.sortedSlots, slot);
+            return i >= 0 ? this.sortedIndices[i] : -1;
+        }
+
+        private Shape with(int slot, String name) {
+            Shape shape = this.getTransition(slot);
+            if (shape != null) {
+                return shape;
+            }
+            synchronized (this.transitions) {
+                shape = this.getTransition(slot);
+                if (shape != null) {
+                    return shape;
+                }
+
+                // Drop the entries of shapes that were collected whenever the map has doubled since the last time
+                if (this.transitions.size() >= this.purgeSize) {
+                    this.transitions.values().removeIf(reference -> reference.get() == null);
+                    this.purgeSize = Math.max(16, this.transitions.size() * 2);
+                }
+
+                int size = this.names.length;
+                String[] names = Arrays.copyOf(this.names, size + 1);
+                int[] slots = Arrays.copyOf(this.slots, size + 1);
+                names[size] = name;
+                slots[size] = slot;
+                shape = new Shape(this, names, slots);
+                this.transitions.put(slot, new WeakReference<>(shape));
+                return shape;
+            }
+        }
+
+        private @Nullable Shape getTransition(int slot) {
+            WeakReference<Shape> reference = this.transitions.get(slot);
+            return reference != null ? reference.get() : null;
+        }
+    }
 }
@@ -70,7 +70,7 @@ public class TokenReader extends StringReader {
     public int getCursorOffset() {
         int offset = 0;
         for (int i = 0; i <= Math.min(this.cursor, this.tokens.length - 1); i++) {
-            offset += this.tokens[i].value().length();
+            offset += this.tokens[i].length();
         }
         return offset;
     }
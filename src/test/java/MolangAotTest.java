@@ -0,0 +1,124 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.aot.MolangAotCompiler;
+import gg.moonflower.molangcompiler.api.aot.MolangAotLoader;
+import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MolangAotTest {
+
+    private static final Map<String, String> SOURCES = new LinkedHashMap<>();
+
+    static {
+        SOURCES.put("animations/walk", "math.sin(q.anim_time * 90) * 30");
+        SOURCES.put("animations/idle", "v.a = q.anim_time * 2; return v.a + 1;");
+        SOURCES.put("animations/copy", "math.sin(q.anim_time * 90) * 30");
+        SOURCES.put("constant", "4 * 4 + 2");
+        SOURCES.put("array", "t.a = [1, 2, 3]; return t.a[4];");
+    }
+
+    @Test
+    void testCompileAndLoad() throws Exception {
+        Path output = Files.createTempDirectory("molang-aot");
+        MolangAotCompiler compiler = new MolangAotCompiler(CompilerFlags.DEFAULT, MolangVersion.LATEST, "test.molang.generated");
+        Assertions.assertTrue(compiler.compile(SOURCES, output).isEmpty());
+        Assertions.assertTrue(Files.exists(output.resolve(MolangAotLoader.INDEX_RESOURCE)));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()}, MolangAotTest.class.getClassLoader())) {
+            MolangAotLoader loader = MolangAotLoader.load(classLoader);
+            Assertions.assertEquals(SOURCES.keySet(), loader.getNames());
+            Assertions.assertNull(loader.get("missing"));
+
+            MolangCompiler runtimeCompiler = MolangCompiler.create(CompilerFlags.DEFAULT);
+            MolangEnvironment environment = MolangRuntime.runtime().setQuery("anim_time", 1).create();
+            for (Map.Entry<String, String> entry : SOURCES.entrySet()) {
+                MolangExpression expression = loader.get(entry.getKey());
+                Assertions.assertNotNull(expression);
+                Assertions.assertTrue(expression.getClass().getName().startsWith("test.molang.generated."));
+                Assertions.assertEquals(environment.resolve(runtimeCompiler.compile(entry.getValue())), environment.resolve(expression), entry.getKey());
+            }
+
+            Assertions.assertSame(loader.get("animations/walk"), loader.get("animations/copy"));
+            Assertions.assertSame(loader.get("animations/idle"), loader.getBySource("v.a = q.anim_time * 2; return v.a + 1;"));
+        }
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        Path output = Files.createTempDirectory("molang-aot");
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("valid", "q.anim_time + 1");
+        sources.put("invalid", "q.a # 2");
+
+        MolangAotCompiler compiler = new MolangAotCompiler(CompilerFlags.DEFAULT, MolangVersion.LATEST, "test.molang.generated");
+        Map<String, MolangSyntaxException> errors = compiler.compile(sources, output);
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(errors.containsKey("invalid"));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()}, MolangAotTest.class.getClassLoader())) {
+            MolangAotLoader loader = MolangAotLoader.load(classLoader);
+            Assertions.assertNotNull(loader.get("valid"));
+            Assertions.assertNull(loader.get("invalid"));
+        }
+    }
+
+    @Test
+    void testCollectSources() throws Exception {
+        Path directory = Files.createTempDirectory("molang-sources");
+        Files.createDirectories(directory.resolve("animations"));
+        Files.writeString(directory.resolve("animations/walk.molang"), "q.anim_time");
+        Files.writeString(directory.resolve("idle.molang"), "1");
+        Files.writeString(directory.resolve("readme.txt"), "ignored");
+
+        Assertions.assertEquals(Map.of("animations/walk", "q.anim_time", "idle", "1"), MolangAotCompiler.collectSources(directory));
+    }
+
+    @Test
+    void testLoadWithoutAsm() throws Exception {
+        Map<String, String> sources = new LinkedHashMap<>(SOURCES);
+        sources.put("loop", "t.a = 0; loop(4, { t.a += 2; (t.a > 6) ? break; }); return t.a;");
+        sources.put("dynamic_loop", "t.a = 0; t.i = 0; loop(q.count, { t.i += 1; (t.i == 2) ? continue; t.a += t.i; }); return t.a;");
+        sources.put("function", "math.clamp(math.sin(90) * 4, 0, 3) + math.abs(q.offset)");
+        sources.put("string", "t.s = 'walk'; return t.s == 'walk' ? 5 : 1;");
+
+        Map<String, Float> expected = new LinkedHashMap<>();
+        expected.put("array", 2.0F);
+        expected.put("loop", 8.0F);
+        expected.put("dynamic_loop", 13.0F);
+        expected.put("function", 5.0F);
+        expected.put("string", 5.0F);
+
+        Path output = Files.createTempDirectory("molang-aot");
+        MolangAotCompiler compiler = new MolangAotCompiler(CompilerFlags.DEFAULT, MolangVersion.LATEST, "test.molang.generated");
+        Assertions.assertTrue(compiler.compile(sources, output).isEmpty());
+
+        // Only the library classes and the generated output are visible, so any use of ASM fails to load
+        URL library = MolangAotLoader.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{library, output.toUri().toURL()}, ClassLoader.getPlatformClassLoader())) {
+            Assertions.assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("org.objectweb.asm.Opcodes"));
+
+            Class<?> loaderClass = classLoader.loadClass(MolangAotLoader.class.getName());
+            Object loader = loaderClass.getMethod("load", ClassLoader.class).invoke(null, classLoader);
+
+            Object builder = classLoader.loadClass(MolangRuntime.class.getName()).getMethod("runtime").invoke(null);
+            builder.getClass().getMethod("setQuery", String.class, float.class).invoke(builder, "count", 5.0F);
+            builder.getClass().getMethod("setQuery", String.class, float.class).invoke(builder, "offset", -2.0F);
+            Object environment = builder.getClass().getMethod("create").invoke(builder);
+            Class<?> environmentClass = classLoader.loadClass(MolangEnvironment.class.getName());
+            Class<?> expressionClass = classLoader.loadClass(MolangExpression.class.getName());
+            for (Map.Entry<String, Float> entry : expected.entrySet()) {
+                Object expression = loaderClass.getMethod("get", String.class).invoke(loader, entry.getKey());
+                Assertions.assertNotNull(expression, entry.getKey());
+                Object value = environmentClass.getMethod("resolve", expressionClass).invoke(environment, expression);
+                Assertions.assertEquals((float) entry.getValue(), (float) value.getClass().getMethod("asFloat").invoke(value), entry.getKey());
+            }
+        }
+    }
+}
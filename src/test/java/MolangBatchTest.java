@@ -0,0 +1,154 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class MolangBatchTest {
+
+    @Test
+    void testCompileAll() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create();
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("sin", "math.sin(q.anim_time * 90)");
+        sources.put("constant", "4 * 2");
+        sources.put("variables", "v.a = q.anim_time; v.a = v.a * 2; return v.a;");
+        sources.put("string", "q.anim_time > 1 ? 'big' : 'small'");
+
+        MolangBatchResult<String> result = compiler.compileAll(sources);
+        Assertions.assertFalse(result.hasErrors());
+        Assertions.assertEquals(List.copyOf(sources.keySet()), List.copyOf(result.expressions().keySet()));
+        Assertions.assertEquals(1, result.classCount());
+        Assertions.assertTrue(result.totalClassSize() > 0);
+
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 2).create();
+        MolangEnvironment environment = runtime;
+        Assertions.assertEquals(0.0F, environment.resolve(result.expressions().get("sin")).asFloat(), 0.0001F);
+        Assertions.assertEquals(8.0F, environment.resolve(result.expressions().get("constant")).asFloat());
+        Assertions.assertEquals(4.0F, environment.resolve(result.expressions().get("variables")).asFloat());
+        Assertions.assertEquals(4.0F, runtime.getVariable().get("a").get(runtime).asFloat());
+        Assertions.assertEquals("big", environment.resolve(result.expressions().get("string")).asString());
+        Assertions.assertEquals(List.of("v.a", "q.anim_time"), List.of(result.expressions().get("variables").getReferences()));
+        Assertions.assertEquals(0, result.expressions().get("constant").getReferences().length);
+
+        // Batched expressions share the compiled expression cache
+        Assertions.assertSame(result.expressions().get("sin"), compiler.compile("math.sin(q.anim_time * 90)"));
+    }
+
+    @Test
+    void testBatchSize() {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE));
+        Map<Integer, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < 600; i++) {
+            sources.put(i, "q.value * " + i);
+        }
+
+        MolangBatchResult<Integer> result = compiler.compileAll(sources, MolangVersion.LATEST, 256);
+        Assertions.assertFalse(result.hasErrors());
+        Assertions.assertEquals(3, result.classCount());
+        Assertions.assertEquals(600, result.expressions().size());
+
+        MolangEnvironment environment = MolangRuntime.runtime().setQuery("value", 3).create();
+        result.expressions().forEach((index, expression) -> {
+            try {
+                Assertions.assertEquals(3.0F * index, environment.resolve(expression).asFloat());
+                Assertions.assertEquals(expression, compiler.compile("q.value * " + index));
+                Assertions.assertEquals(expression.toString(), compiler.compile("q.value * " + index).toString());
+            } catch (MolangException e) {
+                Assertions.fail(e);
+            }
+        });
+    }
+
+    @Test
+    void testErrorsInOrder() {
+        MolangCompiler compiler = MolangCompiler.create();
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("a", "q.a + 1");
+        sources.put("bad", "q.a +* 1");
+        sources.put("b", "q.b + 1");
+        sources.put("worse", "q.a # 2");
+
+        MolangBatchResult<String> result = compiler.compileAll(sources);
+        Assertions.assertEquals(List.of("a", "b"), List.copyOf(result.expressions().keySet()));
+        Assertions.assertEquals(List.of("bad", "worse"), List.copyOf(result.errors().keySet()));
+    }
+
+    @Test
+    void testMethodTooLarge() {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE));
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            terms.add("q.a" + i);
+        }
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("small", "q.a + 1");
+        sources.put("huge", String.join(" + ", terms));
+        sources.put("other", "q.b + 1");
+
+        MolangBatchResult<String> result = compiler.compileAll(sources);
+        Assertions.assertEquals(List.of("small", "other"), List.copyOf(result.expressions().keySet()));
+        Assertions.assertEquals(List.of("huge"), List.copyOf(result.errors().keySet()));
+    }
+
+    @Test
+    void testClassTooLarge() {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE));
+        Map<Integer, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < 80; i++) {
+            List<String> terms = new ArrayList<>();
+            for (int j = 0; j < 500; j++) {
+                terms.add("q.e" + i + "_" + j);
+            }
+            sources.put(i, String.join(" + ", terms));
+        }
+
+        // Every query name needs its own constant, so all expressions can't fit into a single constant pool
+        MolangBatchResult<Integer> result = compiler.compileAll(sources, MolangVersion.LATEST, 4096);
+        Assertions.assertFalse(result.hasErrors());
+        Assertions.assertTrue(result.classCount() > 1);
+        Assertions.assertEquals(80, result.expressions().size());
+    }
+
+    @Test
+    void testParallelCompileAll() {
+        MolangCompiler compiler = MolangCompiler.create();
+        Map<Integer, String> sources = new LinkedHashMap<>();
+        List<Integer> valid = new ArrayList<>();
+        List<Integer> invalid = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (i % 97 == 0) {
+                sources.put(i, "q.value * # " + i);
+                invalid.add(i);
+            } else {
+                sources.put(i, "v.a = q.value * " + i + "; return v.a + 1;");
+                valid.add(i);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MolangBatchResult<Integer> result = compiler.compileAll(sources, MolangVersion.LATEST, 64, pool);
+            Assertions.assertEquals(valid, List.copyOf(result.expressions().keySet()));
+            Assertions.assertEquals(invalid, List.copyOf(result.errors().keySet()));
+            Assertions.assertEquals(32, result.classCount());
+
+            MolangRuntime runtime = MolangRuntime.runtime().setQuery("value", 2).create();
+            result.expressions().forEach((index, expression) -> {
+                try {
+                    Assertions.assertEquals(2.0F * index + 1, runtime.resolve(expression).asFloat());
+                } catch (MolangException e) {
+                    Assertions.fail(e);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.annotation.MolangFunction;
+import gg.moonflower.molangcompiler.api.annotation.MolangQuery;
+import gg.moonflower.molangcompiler.api.annotation.MolangVariable;
+import gg.moonflower.molangcompiler.api.bridge.MolangBinding;
+import gg.moonflower.molangcompiler.api.bridge.MolangIntrinsic;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MolangBindingsTest {
+
+    private static final String[] SOURCES = {
+            "entity.health",
+            "entity.health * 2 + entity.is_on_ground",
+            "entity.is_on_ground ? entity.distance(3, 4.7) : -1",
+            "entity.twice(entity.distance(1, 2))",
+            "entity.health() + math.abs(entity.twice(-2))",
+            "entity.speed = entity.speed + 1; entity.speed",
+            "entity.reset(); entity.health",
+    };
+
+    private static final MolangBinding<Entity> BINDING = MolangBinding.builder(MethodHandles.lookup(), Entity.class)
+            .query("health", "health")
+            .query("is_on_ground", "isOnGround")
+            .query("age", "age")
+            .variable("speed", "speed")
+            .build();
+
+    @Test
+    void testGeneratedObject() throws MolangException {
+        Entity entity = new Entity();
+        MolangBindingsTest_EntityMolangBindings bindings = new MolangBindingsTest_EntityMolangBindings(entity);
+        Assertions.assertSame(entity, bindings.instance());
+        Assertions.assertTrue(bindings.has("is_on_ground"));
+        Assertions.assertFalse(bindings.has("isOnGround"));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> bindings.get("missing"));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> bindings.set("health", MolangExpression.of(1)));
+
+        // Variables and void functions are never accessed directly
+        Set<String> intrinsics = MolangBindingsTest_EntityMolangBindings.INTRINSICS.stream().map(MolangIntrinsic::name).collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of("health", "is_on_ground", "distance", "twice"), intrinsics);
+    }
+
+    @Test
+    void testIntrinsics() throws MolangException {
+        CompilerFlags intrinsicFlags = CompilerFlags.DEFAULT.withIntrinsics("entity", MolangBindingsTest_EntityMolangBindings.INTRINSICS);
+        for (CompilerFlags flags : new CompilerFlags[]{intrinsicFlags, intrinsicFlags.add(CompilerFlag.HIDDEN_CLASSES), CompilerFlags.NONE.withIntrinsics("entity", MolangBindingsTest_EntityMolangBindings.INTRINSICS)}) {
+            MolangCompiler reference = MolangCompiler.create(CompilerFlags.DEFAULT, MolangBindingsTest.class.getClassLoader());
+            MolangCompiler compiler = MolangCompiler.create(flags, MolangBindingsTest.class.getClassLoader());
+            for (String source : SOURCES) {
+                Entity expectedEntity = new Entity();
+                Entity actualEntity = new Entity();
+                MolangValue expected = createRuntime(expectedEntity).resolve(reference.compile(source));
+                MolangValue actual = createRuntime(actualEntity).resolve(compiler.compile(source));
+                Assertions.assertEquals(expected, actual, source);
+                Assertions.assertEquals(expectedEntity.speed, actualEntity.speed, source);
+                Assertions.assertEquals(createRuntime(new Entity()).resolveFloat(reference.compile(source)), createRuntime(new Entity()).resolveFloat(compiler.compile(source)), source);
+            }
+
+            // Any other object is looked up normally
+            MolangRuntime other = MolangRuntime.runtime()
+                    .loadLibrary("entity", MolangRuntime.runtime().setQuery("health", 4).setQuery("is_on_ground", true).create().getQuery())
+                    .create();
+            Assertions.assertEquals(9, other.resolveFloat(compiler.compile("entity.health * 2 + entity.is_on_ground")));
+        }
+    }
+
+    @Test
+    void testBinding() throws MolangException {
+        for (CompilerFlags flags : new CompilerFlags[]{CompilerFlags.DEFAULT, CompilerFlags.NONE}) {
+            MolangCompiler compiler = MolangCompiler.create(flags, MolangBindingsTest.class.getClassLoader());
+            MolangExpression expression = compiler.compile("entity.health * 2 + entity.is_on_ground + entity.age");
+            MolangExpression assign = compiler.compile("entity.speed = entity.speed + entity.health; entity.speed");
+
+            // More entities than a call site caches by identity
+            for (int i = 0; i < 10; i++) {
+                Entity entity = new Entity();
+                entity.health = i;
+                MolangRuntime runtime = MolangRuntime.runtime().loadLibrary("entity", BINDING.bind(entity)).create();
+                Assertions.assertEquals(i * 2 + (i > 5 ? 1 : 0) + 20, runtime.resolveFloat(expression));
+                Assertions.assertEquals(MolangValue.of(i + 0.5F), runtime.resolve(assign));
+                Assertions.assertEquals(i + 0.5F, entity.speed);
+            }
+
+            MolangRuntime runtime = MolangRuntime.runtime().loadLibrary("entity", BINDING.bind(new Entity())).create();
+            Assertions.assertEquals(MolangValue.TRUE, runtime.resolve(compiler.compile("entity.is_on_ground")));
+            Assertions.assertThrows(MolangRuntimeException.class, () -> runtime.resolve(compiler.compile("entity.health = 1")));
+        }
+
+        MolangBinding.Builder<Entity> builder = MolangBinding.builder(MethodHandles.lookup(), Entity.class);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.query("missing", "missing"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.query("Health", "health"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.query("reset", "reset"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.variable("id", "id"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MolangBinding.builder(MethodHandles.publicLookup(), Entity.class));
+    }
+
+    private static MolangRuntime createRuntime(Entity entity) {
+        return MolangRuntime.runtime().loadLibrary("entity", new MolangBindingsTest_EntityMolangBindings(entity)).create();
+    }
+
+    public static class Entity {
+
+        @MolangQuery
+        public float health = 10;
+        @MolangVariable
+        public float speed = 0.5F;
+        private final long age = 20;
+        private final int id = 1;
+
+        @MolangQuery
+        public boolean isOnGround() {
+            return this.health > 5;
+        }
+
+        @MolangFunction
+        public double distance(float x, int y) {
+            return Math.sqrt(x * x + y * y);
+        }
+
+        @MolangFunction
+        public static float twice(float value) {
+            return value * 2;
+        }
+
+        @MolangFunction
+        public void reset() {
+            this.health = 3;
+        }
+    }
+}
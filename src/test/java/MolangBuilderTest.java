@@ -1,5 +1,8 @@
+import gg.moonflower.molangcompiler.api.MolangCompiler;
 import gg.moonflower.molangcompiler.api.MolangExpression;
 import gg.moonflower.molangcompiler.api.MolangRuntime;
+import gg.moonflower.molangcompiler.api.MolangValue;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
 import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import gg.moonflower.molangcompiler.api.object.MolangObject;
 import org.junit.jupiter.api.Assertions;
@@ -33,4 +36,59 @@ public class MolangBuilderTest {
         Assertions.assertEquals(1, copy1.get("global").getKeys().size());
         Assertions.assertEquals(2, copy.get("global").getKeys().size());
     }
+
+    @Test
+    public void testVariableSlots() throws MolangException {
+        MolangExpression expression = MolangCompiler.create().compile("v.b = v.a + q.c; v.d = 2; v.b");
+        MolangRuntime first = MolangRuntime.runtime().setQuery("c", 1).setVariable("a", 2).create();
+        MolangRuntime second = MolangRuntime.runtime().setQuery("c", 10).setVariable("a", 20).create();
+
+        Assertions.assertEquals(3, first.resolve(expression).asFloat());
+        Assertions.assertEquals(30, second.resolve(expression).asFloat());
+        Assertions.assertEquals(3, first.resolve(expression).asFloat());
+
+        MolangObject variable = first.getVariable();
+        Assertions.assertEquals(3, variable.getKeys().size());
+        Assertions.assertEquals(3, first.resolve(variable.get("b")).asFloat());
+        Assertions.assertEquals(MolangExpression.NULL, variable.get("never_set"));
+
+        // Removing a variable moves the ones after it, so compiled code has to find them again
+        variable.remove("a");
+        Assertions.assertFalse(variable.has("a"));
+        Assertions.assertTrue(variable.has("d"));
+        variable.set("a", MolangExpression.of(5));
+        Assertions.assertEquals(6, first.resolve(expression).asFloat());
+        Assertions.assertEquals(2, first.resolve(variable.get("d")).asFloat());
+    }
+
+    @Test
+    public void testSparseVariableSlots() throws MolangException {
+        MolangRuntime runtime = MolangRuntime.runtime().setVariable("sparse_first", 1).create();
+        // Assign enough slots in between that the storage can't use a table
+        MolangRuntime.Builder other = MolangRuntime.runtime();
+        for (int i = 0; i < 200; i++) {
+            other.setVariable("sparse_filler_" + i, i);
+        }
+        other.create();
+
+        MolangObject variable = runtime.getVariable();
+        variable.set("sparse_last", MolangExpression.of(2));
+        MolangExpression expression = MolangCompiler.create().compile("v.sparse_first * 10 + v.sparse_last");
+        Assertions.assertEquals(12, runtime.resolve(expression).asFloat());
+        Assertions.assertFalse(variable.has("sparse_filler_0"));
+
+        variable.remove("sparse_first");
+        Assertions.assertEquals(2, runtime.resolve(expression).asFloat());
+        variable.set("sparse_first", MolangExpression.of(3));
+        Assertions.assertEquals(32, runtime.resolve(expression).asFloat());
+    }
+
+    @Test
+    public void testSetNull() throws MolangException {
+        MolangRuntime runtime = MolangRuntime.runtime().create();
+        MolangObject variable = runtime.getVariable();
+        variable.set("unset", null);
+        Assertions.assertEquals(MolangExpression.NULL, variable.get("unset"));
+        Assertions.assertEquals(MolangValue.NULL, runtime.resolve(MolangCompiler.create().compile("v.unset")));
+    }
 }
@@ -0,0 +1,97 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MolangCacheTest {
+
+    @Test
+    void testCacheHit() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create();
+        MolangExpression first = compiler.compile("q.anim_time * 2");
+        MolangExpression second = compiler.compile("q.anim_time * 2");
+
+        Assertions.assertSame(first, second);
+        MolangCacheStats stats = compiler.getCacheStats();
+        Assertions.assertEquals(1, stats.hitCount());
+        Assertions.assertEquals(1, stats.missCount());
+        Assertions.assertEquals(1, stats.size());
+    }
+
+    @Test
+    void testVersionIsPartOfKey() throws Exception {
+        MolangCompiler compiler = MolangCompiler.create();
+        MolangExpression latest = compiler.compile("q.anim_time * 2", MolangVersion.LATEST);
+        MolangExpression v12 = compiler.compile("q.anim_time * 2", MolangVersion.get(12));
+
+        Assertions.assertNotSame(latest, v12);
+        Assertions.assertEquals(2, compiler.getCacheStats().missCount());
+    }
+
+    @Test
+    void testDisableCache() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE));
+        MolangExpression first = compiler.compile("q.anim_time * 2");
+        MolangExpression second = compiler.compile("q.anim_time * 2");
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(MolangCacheStats.EMPTY, compiler.getCacheStats());
+    }
+
+    @Test
+    void testSizeEviction() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT, ClassLoader.getSystemClassLoader(), 2, Long.MAX_VALUE);
+        MolangExpression first = compiler.compile("q.a");
+        compiler.compile("q.b");
+        compiler.compile("q.a"); // q.a is now the most recently used
+        compiler.compile("q.c"); // evicts q.b
+
+        MolangCacheStats stats = compiler.getCacheStats();
+        Assertions.assertEquals(2, stats.size());
+        Assertions.assertEquals(1, stats.evictionCount());
+        Assertions.assertSame(first, compiler.compile("q.a"));
+    }
+
+    @Test
+    void testWeightEviction() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT, ClassLoader.getSystemClassLoader(), Integer.MAX_VALUE, 10);
+        compiler.compile("q.abc"); // 5
+        compiler.compile("q.def"); // 10
+        compiler.compile("q.ghi"); // 15, evicts q.abc
+        compiler.compile("q.this_is_too_long_to_cache");
+
+        MolangCacheStats stats = compiler.getCacheStats();
+        Assertions.assertEquals(2, stats.size());
+        Assertions.assertEquals(10, stats.weight());
+        Assertions.assertEquals(1, stats.evictionCount());
+    }
+
+    @Test
+    void testConcurrentCompile() throws Exception {
+        MolangCompiler compiler = MolangCompiler.create();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MolangExpression>> futures = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                int index = i % 16;
+                futures.add(executor.submit(() -> compiler.compile("q.value * " + index)));
+            }
+
+            MolangEnvironment environment = MolangRuntime.runtime().setQuery("value", 2).create();
+            for (int i = 0; i < futures.size(); i++) {
+                MolangExpression expression = futures.get(i).get();
+                Assertions.assertEquals(2.0F * (i % 16), environment.resolve(expression).asFloat());
+                Assertions.assertSame(compiler.compile("q.value * " + (i % 16)), expression);
+            }
+            Assertions.assertEquals(16, compiler.getCacheStats().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MolangDiskCacheTest {
+
+    private static final CompilerFlags FLAGS = CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE);
+
+    @Test
+    void testReuseClass() throws MolangException, IOException {
+        Path directory = Files.createTempDirectory("molang-cache");
+        MolangCompiler first = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangExpression expected = first.compile("v.a = q.anim_time * 2; return v.a + 1;");
+        long size = Files.size(directory.resolve("classes.bin"));
+        Assertions.assertTrue(size > 0);
+
+        MolangCompiler second = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangExpression expression = second.compile("v.a = q.anim_time * 2; return v.a + 1;");
+        Assertions.assertNotSame(expected.getClass(), expression.getClass());
+        Assertions.assertEquals(expected.getClass().getName(), expression.getClass().getName());
+        Assertions.assertEquals(size, Files.size(directory.resolve("classes.bin")), "Class was generated again");
+
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 3).create();
+        Assertions.assertEquals(7.0F, runtime.resolve(expression).asFloat());
+    }
+
+    @Test
+    void testFlagsChangeKey() throws MolangException, IOException {
+        Path directory = Files.createTempDirectory("molang-cache");
+        MolangCompiler optimized = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangCompiler unoptimized = MolangCompiler.create(CompilerFlags.of(CompilerFlag.DISABLE_CACHE), MolangDiskCacheTest.class.getClassLoader(), directory);
+
+        optimized.compile("q.anim_time * (2 + 2)");
+        long size = Files.size(directory.resolve("classes.bin"));
+        unoptimized.compile("q.anim_time * (2 + 2)");
+        Assertions.assertTrue(Files.size(directory.resolve("classes.bin")) > size);
+    }
+
+    @Test
+    void testManyEntries() throws MolangException, IOException {
+        Path directory = Files.createTempDirectory("molang-cache");
+        MolangCompiler first = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        for (int i = 0; i < 2000; i++) {
+            first.compile("q.anim_time * " + i);
+        }
+        long size = Files.size(directory.resolve("classes.bin"));
+
+        MolangCompiler second = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangEnvironment environment = MolangRuntime.runtime().setQuery("anim_time", 2).create();
+        for (int i = 0; i < 2000; i++) {
+            Assertions.assertEquals(i * 2.0F, environment.resolve(second.compile("q.anim_time * " + i)).asFloat());
+        }
+        Assertions.assertEquals(size, Files.size(directory.resolve("classes.bin")), "Classes were generated again");
+    }
+
+    @Test
+    void testDamagedIndex() throws MolangException, IOException {
+        Path directory = Files.createTempDirectory("molang-cache");
+        Files.write(directory.resolve("index.bin"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        Files.write(directory.resolve("classes.bin"), new byte[]{1, 2, 3});
+
+        MolangCompiler compiler = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 3).create();
+        Assertions.assertEquals(6.0F, runtime.resolve(compiler.compile("q.anim_time * 2")).asFloat());
+    }
+
+    @Test
+    void testClose() throws MolangException, IOException {
+        Path directory = Files.createTempDirectory("molang-cache");
+        Path data = directory.resolve("classes.bin");
+        MolangCompiler first = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+        MolangCompiler second = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory);
+
+        // The directory stays open while another compiler uses it
+        first.close();
+        first.close();
+        long size = Files.size(data);
+        second.compile("q.anim_time * 3");
+        Assertions.assertTrue(Files.size(data) > size);
+
+        // A closed compiler still compiles, but no longer stores classes
+        size = Files.size(data);
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 2).create();
+        Assertions.assertEquals(8.0F, runtime.resolve(first.compile("q.anim_time * 4")).asFloat());
+        Assertions.assertEquals(size, Files.size(data));
+
+        // Closing the last compiler releases the lock, so a new compiler can write to the directory again
+        second.close();
+        try (MolangCompiler third = MolangCompiler.create(FLAGS, MolangDiskCacheTest.class.getClassLoader(), directory)) {
+            third.compile("q.anim_time * 5");
+            Assertions.assertTrue(Files.size(data) > size);
+        }
+    }
+
+    @Test
+    void testDeterministicNames() throws MolangException {
+        MolangCompiler first = MolangCompiler.create(FLAGS);
+        MolangCompiler second = MolangCompiler.create(FLAGS);
+        Assertions.assertEquals(first.compile("q.anim_time + 1").getClass().getName(), second.compile("q.anim_time + 1").getClass().getName());
+        Assertions.assertNotEquals(first.compile("q.anim_time + 1").getClass().getName(), first.compile("q.anim_time + 2").getClass().getName());
+    }
+}
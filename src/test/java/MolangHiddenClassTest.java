@@ -0,0 +1,61 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MolangHiddenClassTest {
+
+    private static final CompilerFlags FLAGS = CompilerFlags.DEFAULT.add(CompilerFlag.HIDDEN_CLASSES).add(CompilerFlag.DISABLE_CACHE);
+
+    @Test
+    void testHiddenClass() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(FLAGS);
+        MolangExpression expression = compiler.compile("v.a = q.anim_time * 2; return v.a + 1;");
+        Assertions.assertTrue(expression.getClass().isHidden());
+
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 3).create();
+        Assertions.assertEquals(7.0F, runtime.resolve(expression).asFloat());
+        Assertions.assertEquals(6.0F, runtime.getVariable().get("a").get(runtime).asFloat());
+    }
+
+    @Test
+    void testHiddenBatch() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(FLAGS);
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("a", "q.anim_time + 1");
+        sources.put("b", "q.anim_time * 4");
+
+        MolangBatchResult<String> result = compiler.compileAll(sources);
+        Assertions.assertFalse(result.hasErrors());
+        Assertions.assertTrue(result.expressions().get("a").getClass().isHidden());
+
+        MolangEnvironment environment = MolangRuntime.runtime().setQuery("anim_time", 3).create();
+        Assertions.assertEquals(4.0F, environment.resolve(result.expressions().get("a")).asFloat());
+        Assertions.assertEquals(12.0F, environment.resolve(result.expressions().get("b")).asFloat());
+    }
+
+    @Test
+    void testUnload() throws MolangException, InterruptedException {
+        MolangCompiler compiler = MolangCompiler.create(FLAGS);
+        WeakReference<Class<?>> reference = compileAndRun(compiler);
+
+        // The compiler is still alive, but nothing references the expression anymore
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assertions.assertNull(reference.get(), "Hidden expression class was not unloaded");
+        Assertions.assertNotNull(compiler);
+    }
+
+    private static WeakReference<Class<?>> compileAndRun(MolangCompiler compiler) throws MolangException {
+        MolangExpression expression = compiler.compile("math.sin(q.anim_time * 90) * 2");
+        MolangEnvironment environment = MolangRuntime.runtime().setQuery("anim_time", 1).create();
+        Assertions.assertEquals(2.0F, environment.resolve(expression).asFloat(), 0.0001F);
+        return new WeakReference<>(expression.getClass());
+    }
+}
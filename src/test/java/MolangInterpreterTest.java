@@ -0,0 +1,52 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+/**
+ * Runs every test in {@link MolangTest} against the interpreter, so both backends behave identically.
+ */
+public class MolangInterpreterTest extends MolangTest {
+
+    @Override
+    protected MolangCompiler createCompiler(CompilerFlags flags) {
+        return MolangCompiler.create(flags.add(CompilerFlag.INTERPRET));
+    }
+
+    @Test
+    void testNoClassesDefined() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        MolangExpression expression = compiler.compile("t.a = 0; loop(4, { t.a += q.step; }); return t.a;");
+        Assertions.assertEquals("gg.moonflower.molangcompiler.impl.interpreter.InterpretedExpression", expression.getClass().getName());
+        Assertions.assertEquals(8, MolangRuntime.runtime().setQuery("step", 2).create().resolve(expression).asFloat());
+    }
+
+    @Test
+    void testCompileAll() {
+        MolangCompiler compiler = this.createCompiler();
+        MolangBatchResult<String> result = compiler.compileAll(Map.of("a", "q.a + 1", "b", "q.a #"));
+        Assertions.assertEquals(1, result.expressions().size());
+        Assertions.assertEquals(1, result.errors().size());
+        Assertions.assertTrue(result.classSizes().isEmpty());
+    }
+
+    @Test
+    void testUnknownFunction() throws MolangException {
+        MolangExpression expression = this.createCompiler().compile("q.missing(1)");
+        MolangEnvironment environment = MolangRuntime.runtime().create();
+        Assertions.assertThrows(MolangException.class, () -> environment.resolve(expression));
+    }
+
+    @Test
+    void testSkippedStore() throws MolangException {
+        // The compiled code can't verify this, since v.y is only stored after the continue
+        MolangExpression expression = this.createCompiler().compile("loop(2, { (q.a > 0) ? continue; v.y = q.b; }); return v.y;");
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("a", 1).setQuery("b", 2).create();
+        Assertions.assertEquals(MolangValue.NULL, runtime.resolve(expression));
+
+        runtime.getVariable().set("y", MolangExpression.of(4));
+        Assertions.assertEquals(4, runtime.resolve(expression).asFloat());
+    }
+}
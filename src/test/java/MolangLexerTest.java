@@ -77,4 +77,45 @@ public class MolangLexerTest {
         Assertions.assertEquals(5, tokens.length);
         Assertions.assertEquals(MolangLexer.TokenType.STRING, tokens[4].type());
     }
+
+    @Test
+    public void testKeywordPrefix() throws MolangSyntaxException {
+        String input = "returned if2 this_one true";
+        MolangLexer.Token[] tokens = MolangLexer.createTokens(input);
+        System.out.println(Arrays.toString(tokens));
+        Assertions.assertEquals(4, tokens.length);
+        Assertions.assertEquals(MolangLexer.TokenType.ALPHANUMERIC, tokens[0].type());
+        Assertions.assertEquals(MolangLexer.TokenType.ALPHANUMERIC, tokens[1].type());
+        Assertions.assertEquals(MolangLexer.TokenType.ALPHANUMERIC, tokens[2].type());
+        Assertions.assertEquals(MolangLexer.TokenType.TRUE, tokens[3].type());
+    }
+
+    @Test
+    public void testScopeSemicolon() throws MolangSyntaxException {
+        String input = "loop(2, {t.a = t.a + 1}) return t.a";
+        MolangLexer.Token[] tokens = MolangLexer.createTokens(input);
+        System.out.println(Arrays.toString(tokens));
+        Assertions.assertEquals(MolangLexer.TokenType.RIGHT_BRACE, tokens[14].type());
+        Assertions.assertEquals(MolangLexer.TokenType.SEMICOLON, tokens[15].type());
+        Assertions.assertEquals(MolangLexer.TokenType.RIGHT_PARENTHESIS, tokens[16].type());
+    }
+
+    @Test
+    public void testTokenOffsets() throws MolangSyntaxException {
+        String input = "  q.anim_time ?? 12";
+        MolangLexer.Token[] tokens = MolangLexer.createTokens(input.toCharArray());
+        System.out.println(Arrays.toString(tokens));
+        Assertions.assertEquals(5, tokens.length);
+        Assertions.assertEquals(4, tokens[2].start());
+        Assertions.assertEquals(13, tokens[2].end());
+        Assertions.assertEquals("anim_time", tokens[2].value());
+        Assertions.assertEquals(MolangLexer.TokenType.NULL_COALESCING, tokens[3].type());
+        Assertions.assertEquals(17, tokens[4].start());
+    }
+
+    @Test
+    public void testUnterminatedString() {
+        MolangSyntaxException exception = Assertions.assertThrows(MolangSyntaxException.class, () -> MolangLexer.createTokens("t.a = 'test"));
+        Assertions.assertTrue(exception.getMessage().contains("Unknown Token"));
+    }
 }
@@ -0,0 +1,404 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
+import gg.moonflower.molangcompiler.impl.ast.CompoundNode;
+import gg.moonflower.molangcompiler.impl.ast.LoopNode;
+import gg.moonflower.molangcompiler.impl.ast.NegateNode;
+import gg.moonflower.molangcompiler.impl.ast.Node;
+import gg.moonflower.molangcompiler.impl.ast.NodeTraversal;
+import gg.moonflower.molangcompiler.impl.ast.ReturnNode;
+import gg.moonflower.molangcompiler.impl.compiler.MolangDeadCode;
+import gg.moonflower.molangcompiler.impl.compiler.MolangLexer;
+import gg.moonflower.molangcompiler.impl.compiler.MolangLoopInvariants;
+import gg.moonflower.molangcompiler.impl.compiler.MolangParserV12;
+import gg.moonflower.molangcompiler.impl.compiler.MolangSimplifier;
+import gg.moonflower.molangcompiler.impl.compiler.MolangTypeHints;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class MolangOptimizationTest {
+
+    private static final CompilerFlags OPTIMIZED = CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE);
+    private static final CompilerFlags UNOPTIMIZED = CompilerFlags.NONE.add(CompilerFlag.DISABLE_CACHE);
+    private static final String[] FLOAT_HINTS = {"q.anim_time", "q.zero", "q.neg_zero", "q.nan", "q.inf", "q.big"};
+    /**
+     * Values that are easy to get wrong. Every float value is also available without a hint as <code>q.raw_*</code>.
+     */
+    private static final String[] VALUES = {"q.anim_time", "q.zero", "q.neg_zero", "q.nan", "q.inf", "q.big", "q.raw_neg_zero", "q.raw_nan", "q.text", "q.missing", "(q.anim_time > 1)"};
+
+    /**
+     * Checks that the optimized compiler produces the same result and variables as the unoptimized compiler and the interpreter.
+     */
+    private static void assertSameResult(String... sources) throws MolangException {
+        assertSameResult(OPTIMIZED, UNOPTIMIZED, sources);
+    }
+
+    /**
+     * Checks that each source gives the same result with every value in {@link #VALUES} in place of <code>x</code>.
+     */
+    private static void assertSameResultForValues(String... sources) throws MolangException {
+        for (String source : sources) {
+            for (String value : VALUES) {
+                String replaced = source.replace("x", value);
+                assertSameResult(OPTIMIZED.withFloatHints(FLOAT_HINTS), UNOPTIMIZED.withFloatHints(FLOAT_HINTS), replaced);
+                assertSameResult(replaced);
+            }
+        }
+    }
+
+    private static void assertSameResult(CompilerFlags optimizedFlags, CompilerFlags unoptimizedFlags, String... sources) throws MolangException {
+        MolangCompiler optimized = MolangCompiler.create(optimizedFlags);
+        MolangCompiler unoptimized = MolangCompiler.create(unoptimizedFlags);
+        MolangCompiler interpreted = MolangCompiler.create(unoptimizedFlags.add(CompilerFlag.INTERPRET));
+        for (String source : sources) {
+            MolangEnvironment expected = createRuntime();
+            MolangValue expectedValue = expected.resolve(unoptimized.compile(source));
+            for (MolangCompiler compiler : new MolangCompiler[]{optimized, interpreted}) {
+                MolangEnvironment runtime = createRuntime();
+                MolangExpression expression = compiler.compile(source);
+                Assertions.assertEquals(expectedValue, runtime.resolve(expression), source);
+                Assertions.assertEquals(expected.getVariable().toString(), runtime.getVariable().toString(), source);
+                Assertions.assertEquals(expectedValue.asFloat(), createRuntime().resolveFloat(expression), source);
+            }
+        }
+    }
+
+    /**
+     * Checks that the simplifier rewrites the source to the expected expression when the variables in {@link #FLOAT_HINTS} are floats.
+     */
+    private static void assertSimplified(String source, String expected) throws MolangException {
+        assertSimplified(source, parse(expected));
+    }
+
+    private static void assertSimplified(String source, Node expected) throws MolangException {
+        Assertions.assertEquals(expected.toString(), MolangSimplifier.apply(parse(source)).toString(), source);
+    }
+
+    private static void assertNotSimplified(String source) throws MolangException {
+        assertSimplified(source, source);
+    }
+
+    /**
+     * Checks that removing dead code from the source leaves the expected expression, and that both give the same result.
+     */
+    private static void assertDeadCodeRemoved(String source, String expected) throws MolangException {
+        Node node = new MolangParserV12().parseTokens(MolangLexer.createTokens(source));
+        Node expectedNode = new MolangParserV12().parseTokens(MolangLexer.createTokens(expected));
+        Assertions.assertEquals(unwrap(expectedNode).toString(), unwrap(MolangDeadCode.apply(node)).toString(), source);
+        assertSameResult(source, expected);
+    }
+
+    /**
+     * Checks that the expressions computed before the first loop in the source are the expected expressions, and that the source gives the same result.
+     */
+    private static void assertHoisted(String source, String... expected) throws MolangException {
+        LoopNode[] loop = new LoopNode[1];
+        NodeTraversal.forEach(MolangLoopInvariants.apply(parse(source)), node -> {
+            if (loop[0] == null && node instanceof LoopNode loopNode) {
+                loop[0] = loopNode;
+            }
+        });
+        Assertions.assertNotNull(loop[0], source);
+        String[] expectedInvariants = new String[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            expectedInvariants[i] = parse(expected[i]).toString();
+        }
+        Assertions.assertEquals(Arrays.toString(expectedInvariants), Arrays.toString(loop[0].invariants()), source);
+        assertSameResult(OPTIMIZED.withFloatHints(FLOAT_HINTS), UNOPTIMIZED.withFloatHints(FLOAT_HINTS), source);
+    }
+
+    private static Node unwrap(Node node) {
+        while (node instanceof CompoundNode compound && compound.nodes().length == 1) {
+            node = compound.nodes()[0];
+        }
+        return node;
+    }
+
+    private static Node parse(String source) throws MolangException {
+        Node node = new MolangParserV12().parseTokens(MolangLexer.createTokens(source));
+        if (node instanceof ReturnNode returnNode) {
+            node = returnNode.value();
+        }
+        return MolangTypeHints.apply(node, CompilerFlags.DEFAULT.withFloatHints(FLOAT_HINTS));
+    }
+
+    private static MolangEnvironment createRuntime() {
+        return MolangRuntime.runtime()
+                .setQuery("anim_time", 1.25F)
+                .setQuery("count", 4)
+                .setQuery("text", MolangValue.of("abc"))
+                .setQuery("zero", 0.0F)
+                .setQuery("neg_zero", -0.0F)
+                .setQuery("nan", Float.NaN)
+                .setQuery("inf", Float.POSITIVE_INFINITY)
+                .setQuery("big", 3.0E19F)
+                .setQuery("raw_neg_zero", -0.0F)
+                .setQuery("raw_nan", Float.NaN)
+                .setQuery("echo", MolangExpression.function(1, ctx -> ctx.get(0)))
+                .create();
+    }
+
+    @Test
+    void testCommonSubexpressions() throws MolangException {
+        assertSameResult(
+                "math.sin(q.anim_time * 90) * 2 + math.sin(q.anim_time * 90)",
+                "math.cos(math.sin(q.anim_time * 90)) + math.sin(q.anim_time * 90) * math.sin(q.anim_time * 90)",
+                "(q.anim_time > 1 ? math.sin(q.anim_time * 9) : 2) + math.sin(q.anim_time * 9)",
+                "(q.anim_time > 2 ? 2 : math.sin(q.anim_time * 9)) + math.sin(q.anim_time * 9)",
+                "math.random(0, 1) * 0 + math.random(0, 1) * 0 + math.abs(q.text * 2) + math.abs(q.text * 2)"
+        );
+    }
+
+    @Test
+    void testCommonSubexpressionsInvalidatedBySet() throws MolangException {
+        assertSameResult(
+                "v.a = 1; t.x = math.sin(v.a * 90); v.a = 2; return t.x + math.sin(v.a * 90);",
+                "v.a = 1; t.x = math.sin(v.a * 90); { v.a = 2; }; return t.x + math.sin(v.a * 90);",
+                "v.a = 1; t.x = math.sin(v.a * 90); (q.anim_time > 1) ? { v.a = 3; }; return t.x + math.sin(v.a * 90);",
+                "v.a = 1; t.x = math.sin(v.a * 90); q.anim_time > 1 ? 0 : { v.a = 3; }; return t.x + math.sin(v.a * 90);",
+                "v.a = 1; t.x = math.sin(v.a * 90); v.a++; return t.x + math.sin(v.a * 90);"
+        );
+    }
+
+    @Test
+    void testCommonSubexpressionsInLoops() throws MolangException {
+        assertSameResult(
+                "v.a = 1; t.s = 0; loop(3, { t.s = t.s + math.sin(v.a * 90); v.a = v.a + 1; }); return t.s + math.sin(v.a * 90);",
+                "v.a = 1; t.s = math.sin(v.a * 90); loop(q.count, { t.s = t.s + math.sin(v.a * 90); v.a = v.a + 1; }); return t.s + math.sin(v.a * 90);",
+                "t.s = q.anim_time * 0; loop(q.count, { (t.s > 1) ? break; t.s = t.s + math.cos(q.anim_time * 30); }); return math.cos(q.anim_time * 30) + t.s;",
+                "t.s = q.anim_time * 0; loop(q.count, { t.s = t.s + 1; (t.s < 3) ? continue; t.b = math.cos(q.anim_time * 30); }); return math.cos(q.anim_time * 30) + t.s;",
+                "t.s = 0; loop(200, { t.s = t.s + math.sqrt(t.s + q.count); }); return math.sqrt(t.s + q.count);"
+        );
+    }
+
+    @Test
+    void testSimplifyMultiplyByOne() throws MolangException {
+        assertSimplified("q.anim_time * 1", "q.anim_time");
+        assertSimplified("1 * math.sin(q.count)", "math.sin(q.count)");
+        assertSimplified("q.neg_zero * (2 - 1)", "q.neg_zero");
+        assertNotSimplified("q.text * 1");
+        assertNotSimplified("q.count * 1");
+        assertSameResultForValues("x * 1", "1 * x", "x * (2 - 1)");
+    }
+
+    @Test
+    void testSimplifyMultiplyByNegativeOne() throws MolangException {
+        assertSimplified("q.anim_time * -1", new NegateNode(parse("q.anim_time")));
+        assertSimplified("-q.nan", new NegateNode(parse("q.nan")));
+        assertNotSimplified("q.text * -1");
+        assertSameResultForValues("x * -1", "-1 * x");
+    }
+
+    @Test
+    void testSimplifyDivideByOne() throws MolangException {
+        assertSimplified("q.anim_time / 1", "q.anim_time");
+        assertSimplified("q.anim_time / -1", new NegateNode(parse("q.anim_time")));
+        assertNotSimplified("q.count / 1");
+        assertSameResultForValues("x / 1", "x / -1");
+    }
+
+    @Test
+    void testDivideByPowerOfTwo() throws MolangException {
+        // Written as a multiplication by the reciprocal, which is only exact for powers of two
+        assertSameResultForValues("x / 2", "x / 0.25", "x / -8", "x / 3", "x / 0", "x / -0", "x / (1 + 1)", "x / (65536 * 65536 * 65536 * 65536 * 65536 * 65536 * 65536 * 16384)", "x / (65536 * 65536 * 65536 * 65536 * 65536 * 65536 * 65536 * 32768)");
+    }
+
+    @Test
+    void testSimplifySubtractZero() throws MolangException {
+        assertSimplified("q.anim_time - 0", "q.anim_time");
+        // x + 0 turns -0 into 0, and x - -0 does the same
+        assertNotSimplified("q.neg_zero + 0");
+        assertNotSimplified("q.neg_zero - -0");
+        assertNotSimplified("q.count - 0");
+        assertSameResultForValues("x - 0", "x + 0", "x - -0", "0 - x");
+    }
+
+    @Test
+    void testSimplifyPow() throws MolangException {
+        assertSimplified("math.pow(q.anim_time, 1)", "q.anim_time");
+        assertSimplified("math.pow(q.nan, 0)", "1");
+        assertSimplified("math.pow(q.count, 0)", "1");
+        assertNotSimplified("math.pow(q.count, 1)");
+        assertNotSimplified("math.pow(math.random(0, 1), 0)");
+        assertSameResultForValues("math.pow(x, 1)", "math.pow(x, 0)", "math.pow(x, 2)", "math.pow(x, 2) + math.pow(x, 2)", "math.pow(x, -1)");
+    }
+
+    @Test
+    void testSimplifyDoubleNegate() throws MolangException {
+        // The parser writes -x as -1 * x
+        assertSimplified("-q.anim_time * -1", "q.anim_time");
+        assertSimplified("q.anim_time / -1 * -1", "q.anim_time");
+        assertNotSimplified("-q.text");
+        assertSameResultForValues("x * -1 * -1", "x / -1 * -1", "x * -1 * -1 * -1");
+    }
+
+    @Test
+    void testSimplifyDoubleFlip() throws MolangException {
+        assertSimplified("!!(q.anim_time > 1)", "q.anim_time > 1");
+        assertSimplified("!!!q.count", "!q.count");
+        // The flip of a float is a boolean
+        assertNotSimplified("!!q.anim_time");
+        assertSameResultForValues("!!x", "!!!x", "!!(x > 1)", "!!(x && 1)");
+    }
+
+    @Test
+    void testSimplifyFlippedTernary() throws MolangException {
+        assertSimplified("!(q.anim_time > 1) ? 2 : 3", "q.anim_time > 1 ? 3 : 2");
+        assertSimplified("!q.anim_time ? 2 : 3", "q.anim_time ? 3 : 2");
+        // The flip of null is null, so both would take the second branch
+        assertNotSimplified("!q.count ? 2 : 3");
+        assertSameResultForValues("!x ? 2 : 3", "!(x > 1) ? x : 3");
+    }
+
+    @Test
+    void testNotSimplified() throws MolangException {
+        // NaN and signed zeros would give a different result with math.max
+        assertNotSimplified("q.anim_time > q.zero ? q.anim_time : q.zero");
+        assertSameResultForValues("x > q.neg_zero ? x : q.neg_zero", "0 * x", "x * 0");
+    }
+
+    @Test
+    void testRemoveUnreachableStatements() throws MolangException {
+        assertDeadCodeRemoved("t.a = q.anim_time; loop(q.count, { t.a = t.a + 1; break; t.a = 5; }); return t.a;",
+                "t.a = q.anim_time; loop(q.count, { t.a = t.a + 1; break; }); return t.a;");
+        assertDeadCodeRemoved("t.a = q.anim_time; loop(q.count, { t.a = t.a + 1; { continue; }; t.a = 5; }); return t.a;",
+                "t.a = q.anim_time; loop(q.count, { t.a = t.a + 1; { continue; }; }); return t.a;");
+        assertDeadCodeRemoved("loop(q.count, { v.a = q.anim_time; { break; }; v.a = 2; }); return v.a;", "loop(q.count, { v.a = q.anim_time; { break; }; }); return v.a;");
+
+        // Unreachable code used to write back the variables set before it
+        MolangEnvironment runtime = createRuntime();
+        runtime.resolve(MolangCompiler.create(OPTIMIZED).compile("v.a = q.anim_time; loop(q.count, { break; return v.a; }); return 1;"));
+        Assertions.assertTrue(runtime.getVariable().has("a"));
+    }
+
+    @Test
+    void testRemoveConstantBranches() throws MolangException {
+        assertDeadCodeRemoved("(1) ? { v.a = q.anim_time; }; return v.a;", "{ v.a = q.anim_time; }; return v.a;");
+        assertDeadCodeRemoved("(0) ? { v.a = q.anim_time; }; return q.count;", "return q.count;");
+        assertDeadCodeRemoved("return (1 > 2) ? q.anim_time : q.count;", "return q.count;");
+        assertDeadCodeRemoved("loop(0, { v.a = q.anim_time; }); return q.count;", "return q.count;");
+        assertDeadCodeRemoved("loop(q.count, { (1) ? { break; }; t.b = q.anim_time; }); return q.count;", "loop(q.count, { { break; }; }); return q.count;");
+    }
+
+    @Test
+    void testRemoveDeadStores() throws MolangException {
+        assertDeadCodeRemoved("t.a = 1; t.a = q.anim_time; return t.a;", "t.a = q.anim_time; return t.a;");
+        assertDeadCodeRemoved("t.a = q.anim_time; t.b = t.a * 2; return q.count;", "t.a = q.anim_time; return q.count;");
+        assertDeadCodeRemoved("t.a = q.anim_time; { t.b = t.a * 2; }; return q.count;", "t.a = q.anim_time; return q.count;");
+        assertDeadCodeRemoved("t.a = q.anim_time; loop(3, { t.b = t.a; }); return q.count;", "t.a = q.anim_time; return q.count;");
+        assertDeadCodeRemoved("t.a = 2; (q.anim_time > 1) ? { t.a = 3; return t.a; }; return 1;", "(q.anim_time > 1) ? { t.a = 3; return t.a; }; return 1;");
+
+        // Stores that may be read
+        assertDeadCodeRemoved("t.a = 1; (q.anim_time > 1) ? { t.a = 2; }; return t.a;", "t.a = 1; (q.anim_time > 1) ? { t.a = 2; }; return t.a;");
+        assertDeadCodeRemoved("t.a = 0; t.b = 0; loop(q.count, { t.b = t.b + t.a; t.a = 3; }); return t.b;", "t.a = 0; t.b = 0; loop(q.count, { t.b = t.b + t.a; t.a = 3; }); return t.b;");
+        assertDeadCodeRemoved("t.a = 1; loop(q.count, { (q.anim_time > 1) ? break; t.a = 2; }); return t.a;", "t.a = 1; loop(q.count, { (q.anim_time > 1) ? break; t.a = 2; }); return t.a;");
+        assertDeadCodeRemoved("t.a = 1; t.b = 0; loop(q.count, { t.b = t.b + 1; (t.b < 3) ? continue; t.a = 2; }); return t.a;", "t.a = 1; t.b = 0; loop(q.count, { t.b = t.b + 1; (t.b < 3) ? continue; t.a = 2; }); return t.a;");
+        assertDeadCodeRemoved("v.a = 1; v.a = 2; return 1;", "v.a = 1; v.a = 2; return 1;");
+        assertDeadCodeRemoved("t.a = q.count; return 1;", "t.a = q.count; return 1;");
+        assertDeadCodeRemoved("t.a = 2; t.b = q.anim_time > 1 && t.a > 1; return t.b;", "t.a = 2; t.b = q.anim_time > 1 && t.a > 1; return t.b;");
+        assertDeadCodeRemoved("t.a = 2; return q.missing ?? t.a;", "t.a = 2; return q.missing ?? t.a;");
+    }
+
+    @Test
+    void testBranchConditions() throws MolangException {
+        assertSameResultForValues(
+                "return x > 1 ? 2 : 3;",
+                "return x <= 1.25 ? 2 : 3;",
+                "return !(x >= 1) ? 2 : 3;",
+                "return !x ? 2 : 3;",
+                "return !!x ? 2 : 3;",
+                "return x ? 2 : 3;",
+                "return x * 2 ? 2 : 3;",
+                "return x == 'abc' ? 2 : 3;",
+                "return x != 0 ? 2 : 3;",
+                "return x == x ? 2 : 3;",
+                "return (x > 1 && x < 2) ? 2 : 3;",
+                "return (x < 1 || !x) ? 2 : 3;",
+                "return (x && (x || q.anim_time)) ? 2 : 3;",
+                "t.a = 0; (x < 1) ? { t.a = 1; }; return t.a;",
+                "v.a = 0; (!(x > 1) && x != 'abc') ? { v.a = 1; }; return v.a;"
+        );
+    }
+
+    @Test
+    void testConstantLogicalOperators() throws MolangException {
+        // Constant conditions are folded into floats, so only the float value is the same
+        String[][] cases = {
+                {"0 || math.sin(1)", "0.0"},
+                {"0.5 && 1", "0.0"},
+                {"-1 || 0", "0.0"},
+                {"1 ?? q.anim_time", "1.0"},
+                {"(2 || q.anim_time) - 1", "0.0"},
+        };
+        for (CompilerFlags flags : new CompilerFlags[]{OPTIMIZED, UNOPTIMIZED, UNOPTIMIZED.add(CompilerFlag.INTERPRET)}) {
+            MolangCompiler compiler = MolangCompiler.create(flags);
+            for (String[] c : cases) {
+                Assertions.assertEquals(Float.parseFloat(c[1]), createRuntime().resolve(compiler.compile(c[0])).asFloat(), c[0]);
+            }
+        }
+        assertSameResult("return 'abc' ?? 1;");
+    }
+
+    @Test
+    void testKeepStoresOfUnsetTemps() throws MolangException {
+        // Reading a temp variable that was never set throws, so these stores are not dead
+        String[] sources = {
+                "t.t = t.t; return 1;",
+                "t.u = !t.t; return 0;",
+                "loop(2, { t.b = t.a; t.a = 1; }); return 0;",
+                "(q.count > 10) ? { t.a = 1; }; t.b = t.a; return 0;",
+        };
+        MolangCompiler optimized = MolangCompiler.create(OPTIMIZED);
+        MolangCompiler interpreted = MolangCompiler.create(OPTIMIZED.add(CompilerFlag.INTERPRET));
+        for (String source : sources) {
+            Node node = parse(source);
+            Assertions.assertEquals(unwrap(node).toString(), unwrap(MolangDeadCode.apply(node)).toString(), source);
+            Assertions.assertThrows(MolangRuntimeException.class, () -> createRuntime().resolve(optimized.compile(source)), source);
+            Assertions.assertThrows(MolangRuntimeException.class, () -> createRuntime().resolve(interpreted.compile(source)), source);
+        }
+    }
+
+    @Test
+    void testLoopInvariants() throws MolangException {
+        assertHoisted("t.s = 0; loop(4, { t.s = t.s + math.sin(q.anim_time * 90); }); return t.s;", "math.sin(q.anim_time * 90)");
+        assertHoisted("t.s = 0; loop(q.count, { t.s = t.s + math.sin(q.anim_time * 90) * t.s; }); return t.s;", "math.sin(q.anim_time * 90)");
+        assertHoisted("t.s = 0; loop(200, { t.s = t.s + q.anim_time * 2; }); return t.s;", "q.anim_time * 2");
+        assertHoisted("v.a = q.anim_time; t.s = 0; loop(3, { t.s = t.s + math.cos(v.a * 30); }); return t.s;", "math.cos(v.a * 30)");
+        assertHoisted("t.s = 0; loop(3, { t.s = t.s + 1; (t.s > (q.anim_time * 2)) ? break; }); return t.s;", "q.anim_time * 2");
+        assertHoisted("t.s = 0; loop(3, { loop(2, { t.s = t.s + math.sin(q.anim_time * 90); }); }); return t.s;", "math.sin(q.anim_time * 90)");
+
+        // Variables set in the loop
+        assertHoisted("v.a = q.anim_time; t.s = 0; loop(3, { t.s = t.s + math.cos(v.a * 30); v.a = v.a + 1; }); return t.s;");
+        assertHoisted("v.a = q.anim_time; t.s = 0; loop(3, { t.s = t.s + math.cos(v.a * 30); (t.s > 1) ? { v.a = 2; }; }); return t.s;");
+        assertHoisted("t.s = 0; loop(3, { loop(2, { t.s = t.s + math.sin(t.s * 90); }); }); return t.s;");
+
+        // Expressions that may not run
+        assertHoisted("t.s = 0; loop(3, { (t.s > 1) ? break; t.s = t.s + q.anim_time * 2; }); return t.s;");
+        assertHoisted("t.s = 0; loop(3, { t.s = t.s + 1; (t.s > 2) ? { t.s = t.s + q.anim_time * 2; }; }); return t.s;");
+        assertHoisted("t.s = q.anim_time * 0; loop(3, { t.s = t.s + 1; (t.s < 2) ? continue; t.s = t.s + q.anim_time * 2; }); return t.s;");
+        assertHoisted("t.s = 0; loop(3, { t.s = (t.s > 1) ? q.anim_time * 2 : 1; }); return t.s;");
+
+        // Expressions after a call or a store that is written back
+        assertHoisted("t.s = 0; loop(3, { v.a = q.count; t.s = t.s + math.sin(q.anim_time * 90); }); return t.s;");
+        assertHoisted("t.s = 0; loop(3, { t.s = t.s + q.echo(1); t.s = t.s + q.anim_time * 2; }); return t.s;");
+        assertHoisted("t.s = 0; loop(3, { (t.s > 1) ? { v.a = 1; }; t.s = t.s + q.anim_time * 2; }); return t.s;");
+    }
+
+    @Test
+    void testHoistingKeepsCallOrder() throws MolangException {
+        int[] calls = new int[1];
+        MolangExpression function = MolangExpression.function(1, ctx -> {
+            calls[0]++;
+            return ctx.get(0);
+        });
+        for (CompilerFlags flags : new CompilerFlags[]{OPTIMIZED, OPTIMIZED.add(CompilerFlag.INTERPRET)}) {
+            calls[0] = 0;
+            MolangExpression expression = MolangCompiler.create(flags).compile("loop(2, { v.y = q.f(1); v.z = math.sin(t.t); }); return 0;");
+            MolangEnvironment runtime = MolangRuntime.runtime().setQuery("f", function).create();
+            Assertions.assertThrows(MolangRuntimeException.class, () -> runtime.resolve(expression));
+            Assertions.assertEquals(1, calls[0], flags.toString());
+        }
+    }
+}
@@ -2,21 +2,36 @@ import com.google.common.base.Stopwatch;
 import gg.moonflower.molangcompiler.api.*;
 import gg.moonflower.molangcompiler.api.bridge.MolangVariable;
 import gg.moonflower.molangcompiler.api.exception.MolangException;
+import gg.moonflower.molangcompiler.api.exception.MolangRuntimeException;
 import gg.moonflower.molangcompiler.api.exception.MolangSyntaxException;
+import gg.moonflower.molangcompiler.api.object.MolangLibrary;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
 public class MolangTest {
 
+    /**
+     * Creates the compiler used by every test. Subclasses override this to run the whole suite against another backend.
+     */
+    protected MolangCompiler createCompiler(CompilerFlags flags) {
+        return MolangCompiler.create(flags);
+    }
+
+    protected MolangCompiler createCompiler() {
+        return this.createCompiler(CompilerFlags.DEFAULT);
+    }
+
     @Test
     void testSpeed() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         compiler.compile("0"); // load
 
         Stopwatch compileTime = Stopwatch.createStarted();
@@ -64,7 +79,7 @@ public class MolangTest {
 
     @Test
     void testSimplify() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("math.pi*2+(3/2+53)*((7)/5)");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -75,7 +90,7 @@ public class MolangTest {
 
     @Test
     void testScopes() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                         temp.a = 4;
                         temp.b = 4;
@@ -94,7 +109,7 @@ public class MolangTest {
 
     @Test
     void testReturnScopes() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                         temp.a = 4;
                         temp.b = 2;
@@ -114,7 +129,7 @@ public class MolangTest {
 
     @Test
     void testRandom() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("math.die_roll(1, 0, 10)");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -126,7 +141,7 @@ public class MolangTest {
 
     @Test
     void testGetVariable() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                 t.a = 14;
                 return v.test + t.a;
@@ -141,7 +156,7 @@ public class MolangTest {
 
     @Test
     void testSetVariable() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                 v.test = 2;
                 """);
@@ -157,7 +172,7 @@ public class MolangTest {
 
     @Test
     void testMultiple() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("v.b = 2;v.a = 3;v.ab = v.b;v.c = 1;");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -167,7 +182,7 @@ public class MolangTest {
 
     @Test
     void testCondition() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.NONE);
+        MolangCompiler compiler = this.createCompiler(CompilerFlags.NONE);
         MolangExpression expression = compiler.compile("1 > 2 ? 10 : 20");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -178,7 +193,7 @@ public class MolangTest {
 
     @Test
     void testComplexCondition() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("math.clamp(0.5 + variable.particle_random_4/7 + (variable.particle_random_3>0.2 ? 0.4 : 0), 0, 1)");
 
         MolangRuntime runtime = MolangRuntime.runtime()
@@ -194,7 +209,7 @@ public class MolangTest {
 
     @Test
     void testNegativeCondition() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("+variable.particle_random_3??0>0.2 ? -10 : -4");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -205,7 +220,7 @@ public class MolangTest {
 
     @Test
     void testNegativeCondition2() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("+variable.particle_random_3??0.3>0.2 ? -10 : -4");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -216,7 +231,7 @@ public class MolangTest {
 
     @Test
     void testWeird() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("((((-7))*((((((((variable.particle_random_3>(0.2) * (((4))) ? (-10) : -4))))))))))");
 
         MolangRuntime runtime = MolangRuntime.runtime()
@@ -240,7 +255,7 @@ public class MolangTest {
 
     @Test
     void testContainer() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("v.screen_aspect_ratio > v.aspect_ratio ? q.screen.width : q.screen.height * v.aspect_ratio");
 
         MolangRuntime runtime = MolangRuntime.runtime()
@@ -256,7 +271,7 @@ public class MolangTest {
 
     @Test
     void testImmutable() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangVariable test = MolangVariable.create(1.0f);
         MolangVariable testImmutable = test.immutable();
 
@@ -270,7 +285,7 @@ public class MolangTest {
 
     @Test
     void testCompare() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("5<5");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -281,7 +296,7 @@ public class MolangTest {
 
     @Test
     void testSign() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("math.sign(-4)");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -292,7 +307,7 @@ public class MolangTest {
 
     @Test
     void testTriangleWave() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("math.triangle_wave(23544/2, 23544)");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -303,7 +318,7 @@ public class MolangTest {
 
     @Test
     void testEqualsHashCode() throws MolangSyntaxException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression1 = compiler.compile("q.test");
         MolangExpression expression2 = compiler.compile("q.test");
 
@@ -313,16 +328,35 @@ public class MolangTest {
         Assertions.assertNotEquals("q.test", expression2);
     }
 
+    @Test
+    void testAmbiguousStringLiterals() throws MolangException {
+        // Both expressions print as q.count('a', 'b') since string literals are not escaped
+        MolangCompiler compiler = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.DISABLE_CACHE));
+        MolangRuntime runtime = MolangRuntime.runtime()
+                .setQuery("count", MolangExpression.function(ctx -> MolangValue.of(ctx.getParameters())))
+                .create();
+
+        Assertions.assertEquals(1.0F, runtime.resolve(compiler.compile("q.count('a\", \"b')")).asFloat());
+        Assertions.assertEquals(2.0F, runtime.resolve(compiler.compile("q.count('a', 'b')")).asFloat());
+
+        MolangBatchResult<Integer> batch = compiler.compileAll(Map.of(0, "q.count('a\", \"b')", 1, "q.count('a', 'b')"));
+        Assertions.assertEquals(1.0F, runtime.resolve(batch.expressions().get(0)).asFloat());
+        Assertions.assertEquals(2.0F, runtime.resolve(batch.expressions().get(1)).asFloat());
+
+        // Only class names use the source, so equality still compares the printed expressions
+        Assertions.assertEquals(compiler.compile("q.count+1"), compiler.compile("q.count + 1"));
+    }
+
     @Test
     void testAState() throws MolangSyntaxException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         compiler.compile("query.is_gliding == 1.0 ? 1.0 : 0.0");
         compiler.compile("query.is_gliding");
     }
 
     @Test
     void testBState() throws MolangSyntaxException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         compiler.compile("test.a ? 4 : 0");
     }
 
@@ -339,7 +373,7 @@ public class MolangTest {
         conditions.add(new Condition("<", MolangValue::internalLess));
         conditions.add(new Condition("<=", MolangValue::internalLessEquals));
 
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
         MolangValue b = MolangValue.of(0.0f);
@@ -357,7 +391,7 @@ public class MolangTest {
 
     @Test
     void testTrueFalse() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression trueExpression = compiler.compile("true");
         MolangExpression falseExpression = compiler.compile("false");
 
@@ -368,7 +402,7 @@ public class MolangTest {
 
     @Test
     void testLoop() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression loop = compiler.compile("""
                 temp.i = 0;
                 loop(10, {
@@ -390,7 +424,7 @@ public class MolangTest {
 
     @Test
     void testNullCoalescingLoop() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression loop = compiler.compile("""
                 loop(5, {v.test += v.test ?? 4});
                 return v.test;
@@ -402,7 +436,7 @@ public class MolangTest {
 
     @Test
     void testIf() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression loop = compiler.compile("""
                 if(true) {
                     return 4;
@@ -417,7 +451,7 @@ public class MolangTest {
 
     @Test
     void testCamelCase() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression loop = compiler.compile("q.testCamel");
 
         MolangRuntime runtime = MolangRuntime.runtime()
@@ -429,7 +463,7 @@ public class MolangTest {
 
     @Test
     void testStringLiteral() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("\"hello world\"");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -440,7 +474,7 @@ public class MolangTest {
 
     @Test
     void testStringWithEscapes() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("\"hello \\\"world\\\"\"");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -451,7 +485,7 @@ public class MolangTest {
 
     @Test
     void testSingleQuotedString() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("'hello world'");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -462,7 +496,7 @@ public class MolangTest {
 
     @Test
     void testStringEqualityTrue() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("\"purple\" == \"purple\"");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -473,7 +507,7 @@ public class MolangTest {
 
     @Test
     void testStringEqualityFalse() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("\"purple\" == \"blue\"");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -484,7 +518,7 @@ public class MolangTest {
 
     @Test
     void testStringInequalityTrue() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("'red' != 'blue'");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -495,7 +529,7 @@ public class MolangTest {
 
     @Test
     void testStringInequalityFalse() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("'red' != 'red'");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -506,7 +540,7 @@ public class MolangTest {
 
     @Test
     void testStringFunctionParameter() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression echoFunction = MolangExpression.function(1, ctx -> ctx.get(0));
 
         MolangExpression expression = compiler.compile("query.test_func('test')");
@@ -521,7 +555,7 @@ public class MolangTest {
 
     @Test
     void testComplexStringExpression() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         MolangValue teleporterColorValue = MolangValue.of("block_color");
         MolangValue purpleValue = MolangValue.of("purple");
@@ -545,7 +579,7 @@ public class MolangTest {
 
     @Test
     void testComplexStringExpression2() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         MolangValue wallPostBit = MolangValue.of("wall_post_bit");
         MolangValue wallConnectionTypeNorth = MolangValue.of("wall_connection_type_north");
@@ -575,7 +609,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceAndOr() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         // Test: 1 == 1 && 2 == 2 should be true (1.0)
         MolangExpression expr1 = compiler.compile("1 == 1 && 2 == 2");
@@ -595,9 +629,150 @@ public class MolangTest {
         Assertions.assertEquals(1.0f, runtime.resolve(expr4).asFloat());
     }
 
+    @Test
+    void testShortCircuit() throws MolangException {
+        int[] calls = new int[1];
+        MolangExpression count = MolangExpression.function(1, ctx -> {
+            calls[0]++;
+            return ctx.get(0);
+        });
+
+        String[][] cases = {
+                {"q.count(0) && q.count(1)", "0.0", "1"},
+                {"q.count(1) && q.count(1)", "1.0", "2"},
+                {"q.count(1) || q.count(0)", "1.0", "1"},
+                {"q.count(0) || q.count(1)", "1.0", "2"},
+                {"q.count(0) && q.count(1) || q.count(1) && q.count(0)", "0.0", "3"},
+                {"(q.count(1) || q.count(0)) && (q.count(0) || q.count(1))", "1.0", "3"},
+                {"q.count(1) && q.count(1) ? 2 : 3", "2.0", "2"},
+                {"q.count(0) || q.count(0) ? 2 : 3", "3.0", "2"},
+                {"q.count(4) ?? q.count(5)", "4.0", "1"},
+                {"v.missing ?? q.count(5)", "5.0", "1"},
+                {"v.a = 2; q.count(0) && (v.a > 1); return v.a;", "2.0", "1"},
+                {"v.a = 2; t.b = q.count(1) && (v.a > 1); return t.b + v.a;", "3.0", "1"},
+        };
+        for (CompilerFlags flags : new CompilerFlags[]{CompilerFlags.DEFAULT, CompilerFlags.NONE}) {
+            MolangCompiler compiler = this.createCompiler(flags);
+            for (String[] c : cases) {
+                MolangRuntime runtime = MolangRuntime.runtime()
+                        .setQuery("count", count)
+                        .create();
+                calls[0] = 0;
+                Assertions.assertEquals(Float.parseFloat(c[1]), runtime.resolve(compiler.compile(c[0])).asFloat(), c[0]);
+                Assertions.assertEquals(Integer.parseInt(c[2]), calls[0], c[0]);
+            }
+        }
+    }
+
+    @Test
+    void testLookupCaches() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        MolangExpression expression = compiler.compile("lib.value() + q.a + v.b");
+
+        // Every runtime adds the names in a different order, so the lookups see more layouts than they cache
+        List<MolangRuntime> runtimes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            MolangRuntime.Builder builder = MolangRuntime.runtime();
+            for (int j = 0; j < i; j++) {
+                builder.setQuery("extra" + j, j);
+            }
+            runtimes.add(builder.setQuery("a", i).setVariable("b", 100).loadLibrary("lib", new TestLibrary(1000)).create());
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < runtimes.size(); i++) {
+                Assertions.assertEquals(1100 + i, runtimes.get(i).resolve(expression).asFloat());
+            }
+        }
+
+        // Replacing a library is seen by the next evaluation
+        MolangRuntime runtime = runtimes.get(0);
+        runtime.edit().loadLibrary("lib", new TestLibrary(2000));
+        Assertions.assertEquals(2100, runtime.resolve(expression).asFloat());
+        runtime.edit().setVariable("b", 5);
+        Assertions.assertEquals(2005, runtime.resolve(expression).asFloat());
+    }
+
+    @Test
+    void testBind() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        MolangRuntime runtime = MolangRuntime.runtime()
+                .setQuery("a", 2)
+                .setQuery("double", MolangExpression.function(1, ctx -> MolangValue.of(ctx.get(0).asFloat() * 2)))
+                .loadLibrary("lib", new TestLibrary(10))
+                .create();
+
+        BoundExpression bound = compiler.compile("t.x = q.double(q.a); v.y = t.x + lib.value(); v.y").bind(runtime);
+        Assertions.assertEquals(14, bound.get().asFloat());
+        Assertions.assertEquals(14, bound.getFloat());
+        Assertions.assertEquals(14, runtime.getVariable().get("y").get(runtime).asFloat());
+
+        MolangRuntime other = MolangRuntime.runtime()
+                .setQuery("a", 5)
+                .setQuery("double", MolangExpression.function(1, ctx -> MolangValue.of(ctx.get(0).asFloat() * 2)))
+                .loadLibrary("lib", new TestLibrary(100))
+                .create();
+        Assertions.assertEquals(110, bound.getFloat(other));
+
+        // Missing functions and objects fail when binding instead of when evaluating
+        Assertions.assertThrows(MolangRuntimeException.class, () -> compiler.compile("q.missing(1)").bind(runtime));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> compiler.compile("q.double()").bind(runtime));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> compiler.compile("1 + missing.value()").bind(runtime));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> compiler.compile("lib.missing").bind(runtime));
+        Assertions.assertEquals(0, compiler.compile("q.not_set").bind(runtime).getFloat());
+    }
+
+    @Test
+    void testFunctionCalls() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        MolangRuntime runtime = MolangRuntime.runtime()
+                .setQuery("a", 3)
+                .setQuery("sum", MolangExpression.function(ctx -> {
+                    float sum = 0;
+                    for (int i = 0; i < ctx.getParameters(); i++) {
+                        sum += ctx.get(i).asFloat();
+                    }
+                    return MolangValue.of(sum);
+                }))
+                .setQuery("sub", MolangExpression.function(2, ctx -> MolangValue.of(ctx.get(0).asFloat() - ctx.get(1).asFloat())))
+                .setQuery("pi", MolangExpression.floatFunction(() -> 3.0F))
+                .setQuery("half", MolangExpression.floatFunction(a -> a / 2))
+                .setQuery("mad", MolangExpression.floatFunction((a, b, c) -> a * b + c))
+                .create();
+
+        // Nested calls must not see each other's arguments
+        Assertions.assertEquals(-4, runtime.resolve(compiler.compile("q.sub(q.sum(1, 2), q.sum(3, 4))")).asFloat());
+        Assertions.assertEquals(10, runtime.resolve(compiler.compile("q.sum(1, q.sum(2, q.sum(3, 4)))")).asFloat());
+
+        Assertions.assertEquals(7, runtime.resolveFloat(compiler.compile("q.mad(q.half(4), q.a, 1)")));
+        Assertions.assertEquals(7, runtime.resolve(compiler.compile("q.mad(q.half(4), q.a, 1)")).asFloat());
+        Assertions.assertEquals(8, runtime.resolveFloat(compiler.compile("q.pi() + q.half(q.sub(10, q.a * 2)) * 2 + 1")));
+        Assertions.assertEquals(2, runtime.resolveFloat(compiler.compile("q.half(q.a + 1)")));
+        Assertions.assertEquals(1, runtime.resolveFloat(compiler.compile("q.half(2, 'extra')")));
+        Assertions.assertThrows(MolangRuntimeException.class, () -> runtime.resolve(compiler.compile("q.mad(1, 2)")));
+    }
+
+    private static class TestLibrary extends MolangLibrary {
+
+        private final float value;
+
+        private TestLibrary(float value) {
+            this.value = value;
+        }
+
+        @Override
+        protected void populate(BiConsumer<String, MolangExpression> consumer) {
+            consumer.accept("value", MolangExpression.function(0, ctx -> MolangValue.of(this.value)));
+        }
+
+        @Override
+        protected String getName() {
+            return "lib";
+        }
+    }
+
     @Test
     void testOperatorPrecedenceComparison() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: 5 > 3 && 2 < 4 should be true (1.0)
@@ -619,7 +794,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceNegation() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: !0 && 1 == 1 should be true (1.0) (! has higher precedence than &&)
@@ -641,7 +816,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceArithmetic() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: 2 + 3 == 5 should be true (1.0) (arithmetic before comparison)
@@ -663,7 +838,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceMixed() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: !0 && 2 + 2 == 4 || 5 > 10 should be true (1.0)
@@ -685,7 +860,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceChaining() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: 1 < 2 && 2 < 3 && 3 < 4 should be true (1.0)
@@ -703,7 +878,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceWithVariables() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         // Test with variables: v.a == 5 && v.b == 10 should be true (1.0)
         MolangExpression expr1 = compiler.compile("v.a == 5 && v.b == 10");
@@ -728,7 +903,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedenceParentheses() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test: (1 == 1) && (2 == 2) should be true (1.0)
@@ -746,7 +921,7 @@ public class MolangTest {
 
     @Test
     void testArrayLiteral() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[1, 2, 3]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -763,7 +938,7 @@ public class MolangTest {
 
     @Test
     void testArrayAccess() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[10, 20, 30][1]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -775,7 +950,7 @@ public class MolangTest {
 
     @Test
     void testArrayWithStrings() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[\"hello\", \"world\", \"test\"]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -792,7 +967,7 @@ public class MolangTest {
 
     @Test
     void testArrayIndexWithExpression() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[100, 200, 300][1 + 1]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -804,7 +979,7 @@ public class MolangTest {
 
     @Test
     void testEmptyArray() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -817,7 +992,7 @@ public class MolangTest {
 
     @Test
     void testNestedArrayAccess() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[[1, 2], [3, 4], [5, 6]][1][0]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -829,7 +1004,7 @@ public class MolangTest {
 
     @Test
     void testArrayWithExpressions() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("[1 + 1, 2 * 3, 10 - 4]");
 
         MolangRuntime runtime = MolangRuntime.runtime().create();
@@ -846,7 +1021,7 @@ public class MolangTest {
 
     @Test
     void testArrayStoredInVariable() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                 v.my_array = [10, 20, 30, 40, 50];
                 return v.my_array[2];
@@ -861,7 +1036,7 @@ public class MolangTest {
 
     @Test
     void testArrayInVariableMultipleAccesses() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                 v.colors = ["red", "green", "blue"];
                 v.first = v.colors[0];
@@ -879,7 +1054,7 @@ public class MolangTest {
 
     @Test
     void testArrayNegativeIndexClamping() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         // Negative indices should be clamped to 0
         MolangExpression expr1 = compiler.compile("[100, 200, 300][-1]");
@@ -898,7 +1073,7 @@ public class MolangTest {
 
     @Test
     void testArrayOutOfBoundsWrapping() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         // Array has length 3, so index 3 wraps to 0, index 4 wraps to 1, etc.
         MolangExpression expr1 = compiler.compile("[10, 20, 30][3]");
@@ -927,7 +1102,7 @@ public class MolangTest {
 
     @Test
     void testArrayFloatIndexCasting() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
 
         // Float indices should be cast to int (truncated)
         MolangExpression expr1 = compiler.compile("[100, 200, 300][0.9]");
@@ -956,7 +1131,7 @@ public class MolangTest {
 
     @Test
     void testArrayVariableWithWrapping() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangExpression expression = compiler.compile("""
                 v.numbers = [5, 10, 15, 20];
                 v.a = v.numbers[0];
@@ -976,7 +1151,7 @@ public class MolangTest {
 
     @Test
     void testOperatorPrecedence() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Multiplication before addition
@@ -998,7 +1173,7 @@ public class MolangTest {
 
     @Test
     void testChainedComparisons() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // AND with parentheses to handle precedence
@@ -1018,7 +1193,7 @@ public class MolangTest {
 
     @Test
     void testLogicalOperators() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("true_val", 1.0f)
                 .setQuery("false_val", 0.0f)
@@ -1039,7 +1214,7 @@ public class MolangTest {
 
     @Test
     void testNestedTernary() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Nested ternary operators
@@ -1056,7 +1231,7 @@ public class MolangTest {
 
     @Test
     void testNullCoalescing() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("condition", 42.0f)
                 .create();
@@ -1076,7 +1251,7 @@ public class MolangTest {
 
     @Test
     void testSimpleLoop() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr = compiler.compile("""
@@ -1092,7 +1267,7 @@ public class MolangTest {
 
     @Test
     void testLoopWithBreak() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Test loop with break instead of return
@@ -1112,7 +1287,7 @@ public class MolangTest {
 
     @Test
     void testComplexIfElseChain() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("condition", 15.0f)
                 .create();
@@ -1126,7 +1301,7 @@ public class MolangTest {
 
     @Test
     void testCompoundAssignmentOperators() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr = compiler.compile("""
@@ -1144,7 +1319,7 @@ public class MolangTest {
 
     @Test
     void testIncrementDecrement() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr = compiler.compile("""
@@ -1160,7 +1335,7 @@ public class MolangTest {
 
     @Test
     void testDecimalNumbers() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr1 = compiler.compile("3.14159");
@@ -1175,7 +1350,7 @@ public class MolangTest {
 
     @Test
     void testNegativeNumbers() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr1 = compiler.compile("-5");
@@ -1193,7 +1368,7 @@ public class MolangTest {
 
     @Test
     void testUnaryPlus() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr1 = compiler.compile("+5");
@@ -1205,7 +1380,7 @@ public class MolangTest {
 
     @Test
     void testLogicalNegation() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr1 = compiler.compile("0 != 0");
@@ -1229,7 +1404,7 @@ public class MolangTest {
 
     @Test
     void testBinaryConditional() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime1 = MolangRuntime.runtime()
                 .setVariable("test", true)
                 .setVariable("moo", 1.0f)
@@ -1268,7 +1443,7 @@ public class MolangTest {
 
     @Test
     void testDotNotationInVariableNames() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("is.valid.name", 42.0f)
                 .create();
@@ -1279,7 +1454,7 @@ public class MolangTest {
 
     @Test
     void testUnderscoresInNames() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("my_variable_name", 100.0f)
                 .create();
@@ -1290,7 +1465,7 @@ public class MolangTest {
 
     @Test
     void testNumbersInVariableNames() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("var123test", 77.0f)
                 .create();
@@ -1301,7 +1476,7 @@ public class MolangTest {
 
     @Test
     void testThisKeyword() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
         runtime.setThisValue(MolangValue.of(99.0f));
 
@@ -1311,7 +1486,7 @@ public class MolangTest {
 
     @Test
     void testEmptyParentheses() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr = compiler.compile("(((5)))");
@@ -1320,7 +1495,7 @@ public class MolangTest {
 
     @Test
     void testComplexExpression() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("a", 2.0f)
                 .setQuery("b", 3.0f)
@@ -1334,7 +1509,7 @@ public class MolangTest {
 
     @Test
     void testMultilineExpressions() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         MolangExpression expr = compiler.compile("""
@@ -1349,7 +1524,7 @@ public class MolangTest {
 
     @Test
     void testVariableAliases() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime()
                 .setQuery("test", 10.0f)
                 .setVariable("test", MolangExpression.of(20.0f))
@@ -1370,7 +1545,7 @@ public class MolangTest {
 
     @Test
     void testComparisonOperators() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         Assertions.assertEquals(1.0f, runtime.resolve(compiler.compile("5 > 3")).asFloat());
@@ -1387,7 +1562,7 @@ public class MolangTest {
 
     @Test
     void testSemicolonInsertion() throws MolangException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         MolangRuntime runtime = MolangRuntime.runtime().create();
 
         // Semicolons should be automatically inserted after closing braces
@@ -1400,6 +1575,83 @@ public class MolangTest {
         Assertions.assertEquals(3.0f, runtime.resolve(expr).asFloat());
     }
 
+    @Test
+    void testResolveFloat() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        String[] sources = {
+                "math.sin(q.number * 90) * 30",
+                "q.number > 2 ? math.cos(q.number * 45) * 12 : -math.abs(q.number)",
+                "q.number - q.text + q.number / 2",
+                "q.text * 3",
+                "q.text + 1",
+                "1 + q.digits",
+                "q.digits - q.digits",
+                "q.digits == 4 && q.number != q.text",
+                "t.a = q.number; loop(3, { t.a = t.a * 2; (t.a > 20) ? break; }); return t.a;",
+                "(q.number > 1) ? { return q.text; }; return 1;",
+                "q.missing ?? 5",
+                "q.text",
+        };
+
+        for (String source : sources) {
+            MolangEnvironment runtime = MolangRuntime.runtime()
+                    .setQuery("number", 3.5F)
+                    .setQuery("text", MolangValue.of("abc"))
+                    .setQuery("digits", MolangValue.of("4"))
+                    .create();
+            MolangExpression expression = compiler.compile(source);
+            Assertions.assertEquals(runtime.resolve(expression).asFloat(), runtime.resolveFloat(expression), source);
+        }
+    }
+
+    @Test
+    void testConstantsAreReused() throws MolangException {
+        MolangCompiler compiler = this.createCompiler();
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("index", 0).create();
+
+        for (String source : new String[]{"q.index ? 0.7 : 0.3", "q.index ? 'yes' : 'no'", "v.x = q.index; return math.pi;"}) {
+            MolangExpression expression = compiler.compile(source);
+            MolangValue first = runtime.resolve(expression);
+            Assertions.assertSame(first, runtime.resolve(expression), source);
+        }
+    }
+
+    @Test
+    void testFloatHints() throws MolangException {
+        CompilerFlags flags = CompilerFlags.DEFAULT.withFloatHints("q.number", "query.digits");
+        Assertions.assertEquals(flags, CompilerFlags.DEFAULT.withFloatHints("query.number", "Q.digits"));
+        Assertions.assertNotEquals(CompilerFlags.DEFAULT, flags);
+        Assertions.assertTrue(flags.hasFloatHint("query", "number"));
+        Assertions.assertFalse(flags.hasFloatHint("variable", "number"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CompilerFlags.DEFAULT.withFloatHints("number"));
+
+        MolangCompiler compiler = this.createCompiler(flags);
+        MolangEnvironment runtime = MolangRuntime.runtime()
+                .setQuery("number", 3.5F)
+                .setQuery("digits", MolangValue.of("4"))
+                .create();
+        // Hinted variables are converted to floats, so strings are never concatenated or repeated
+        Object[][] cases = {
+                {"q.number * 2 + 1", 8.0F},
+                {"q.digits * 3", 12.0F},
+                {"q.digits + 1", 5.0F},
+                {"q.digits - q.number / 7", 3.5F},
+                {"q.number > 3 && q.number < 4", 1.0F},
+                {"q.number == 3.5", 1.0F},
+                {"q.digits != 4", 0.0F},
+                {"q.digits", 4.0F},
+        };
+
+        for (Object[] testCase : cases) {
+            String source = (String) testCase[0];
+            MolangExpression expression = compiler.compile(source);
+            MolangValue value = runtime.resolve(expression);
+            Assertions.assertFalse(value.isString(), source);
+            Assertions.assertEquals((float) testCase[1], value.asFloat(), source);
+            Assertions.assertEquals((float) testCase[1], runtime.resolveFloat(expression), source);
+        }
+    }
+
     private static final List<String> examples = List.of(
             "q.get_equipped_item_name=='milk_bucket'?0:2",
             "!v.is_holding_right?math.cos(q.life_time*180)*1.6",
@@ -1508,7 +1760,7 @@ public class MolangTest {
     }
 
     private void tryCompile(String query) throws MolangSyntaxException {
-        MolangCompiler compiler = MolangCompiler.create();
+        MolangCompiler compiler = this.createCompiler();
         compiler.compile(query);
     }
 
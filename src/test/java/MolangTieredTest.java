@@ -0,0 +1,150 @@
+import gg.moonflower.molangcompiler.api.*;
+import gg.moonflower.molangcompiler.api.exception.MolangException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class MolangTieredTest {
+
+    private static final CompilerFlags TIERED = CompilerFlags.DEFAULT.add(CompilerFlag.TIERED).withTierUpThreshold(3);
+
+    @Test
+    void testTierUp() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(TIERED);
+        List<MolangTierUpEvent> events = new CopyOnWriteArrayList<>();
+        compiler.addTierUpListener(events::add);
+
+        MolangExpression expression = compiler.compile("v.count = (v.count ?? 0) + 1; return v.count * q.scale;");
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("scale", 2).create();
+        for (int i = 1; i <= 5; i++) {
+            Assertions.assertEquals(i * 2, runtime.resolve(expression).asFloat());
+            Assertions.assertEquals(i < 3 ? 0 : 1, events.size());
+        }
+
+        MolangTierUpEvent event = events.get(0);
+        Assertions.assertTrue(event.successful());
+        Assertions.assertFalse(event.background());
+        Assertions.assertEquals(3, event.invocations());
+        Assertions.assertEquals(expression.toString(), event.source());
+    }
+
+    @Test
+    void testBackgroundTierUp() throws Exception {
+        MolangCompiler compiler = MolangCompiler.create(TIERED.add(CompilerFlag.BACKGROUND_TIER_UP));
+        List<MolangTierUpEvent> events = new CopyOnWriteArrayList<>();
+        compiler.addTierUpListener(events::add);
+
+        MolangExpression expression = compiler.compile("math.sin(q.anim_time * 90) * 30");
+        MolangRuntime runtime = MolangRuntime.runtime().setQuery("anim_time", 1).create();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (events.isEmpty() && System.nanoTime() < end) {
+            Assertions.assertEquals(30, runtime.resolve(expression).asFloat(), 0.0001F);
+        }
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertTrue(events.get(0).background());
+        Assertions.assertEquals(30, runtime.resolve(expression).asFloat(), 0.0001F);
+    }
+
+    @Test
+    void testInterpretedMatchesCompiled() throws MolangException {
+        MolangCompiler compiled = MolangCompiler.create();
+        MolangCompiler interpreted = MolangCompiler.create(CompilerFlags.DEFAULT.add(CompilerFlag.TIERED).withTierUpThreshold(Integer.MAX_VALUE));
+        String[] sources = {
+                "t.a = 0; loop(q.count, { t.a = t.a + 1; (t.a > 3) ? break; }); return t.a;",
+                "t.sum = 0; loop(10, { (t.sum > 12) ? continue; t.sum += 5; }); return t.sum;",
+                "v.x = q.count > 2 ? 4 : 8; return v.x;",
+                "t.values = [1, 2, 3]; return t.values[q.count] + math.clamp(q.count, 0, 2);",
+                "return math.pow(2, q.count) + math.trunc(-q.count / 3) + math.round(q.count / 2);",
+                "(q.count > 1) ? { v.inner = 7; }; return v.inner ?? -1;",
+        };
+
+        for (String source : sources) {
+            MolangEnvironment compiledRuntime = MolangRuntime.runtime().setQuery("count", 5).create();
+            MolangEnvironment interpretedRuntime = MolangRuntime.runtime().setQuery("count", 5).create();
+            MolangExpression expression = interpreted.compile(source);
+            Assertions.assertEquals(compiledRuntime.resolve(compiled.compile(source)), interpretedRuntime.resolve(expression), source);
+            Assertions.assertEquals(compiledRuntime.getVariable().toString(), interpretedRuntime.getVariable().toString(), source);
+        }
+    }
+
+    @Test
+    void testTierUpKeepsResults() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(TIERED);
+        String[] sources = {
+                "t.t = t.t; return v.y;",
+                "t.u = !t.t; return 0;",
+                "t.a = 2; t.b = t.a * q.count; return t.a;",
+                "v.x = 0; loop(4, { v.x = v.x + math.sin(q.count); t.c = v.x; }); return v.x;",
+        };
+
+        for (String source : sources) {
+            MolangExpression expression = compiler.compile(source);
+            MolangEnvironment runtime = MolangRuntime.runtime().setQuery("count", 5).create();
+            String expected = resolve(runtime, expression);
+            for (int i = 0; i < 5; i++) {
+                Assertions.assertEquals(expected, resolve(runtime, expression), source);
+            }
+        }
+    }
+
+    private static String resolve(MolangEnvironment runtime, MolangExpression expression) {
+        try {
+            return String.valueOf(runtime.resolve(expression));
+        } catch (MolangException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    @Test
+    void testUnreachableStores() throws MolangException {
+        String[] sources = {
+                "loop(3, {break; v.x = 2;}); return 1;",
+                "loop(3, {continue; v.x = 2;}); return v.x;",
+                "v.y = 5; loop(3, {break; return 4;}); return v.y;",
+                "v.y = 5; loop(3, {break; v.x = 3; return 4;}); return v.x + v.y;",
+                "loop(3, {(q.count > 2) ? break : continue; v.x = 2;}); return v.x;",
+        };
+        MolangCompiler[] compilers = {
+                MolangCompiler.create(CompilerFlags.DEFAULT),
+                MolangCompiler.create(CompilerFlags.NONE),
+                MolangCompiler.create(CompilerFlags.NONE.add(CompilerFlag.INTERPRET)),
+                MolangCompiler.create(TIERED),
+        };
+
+        for (String source : sources) {
+            float expected = source.startsWith("v.y") ? source.contains("v.x") ? 6 : 5 : 1;
+            for (MolangCompiler compiler : compilers) {
+                MolangExpression expression = compiler.compile(source);
+                MolangEnvironment runtime = MolangRuntime.runtime().setQuery("count", 5).setVariable("x", MolangExpression.of(1)).create();
+                for (int i = 0; i < 5; i++) {
+                    Assertions.assertEquals(expected, runtime.resolve(expression).asFloat(), source);
+                    Assertions.assertEquals(1, runtime.resolve(runtime.getVariable().get("x")).asFloat(), source);
+                }
+                if (source.startsWith("v.y")) {
+                    Assertions.assertEquals(5, runtime.resolve(runtime.getVariable().get("y")).asFloat(), source);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testConstantsAreNotTiered() throws MolangException {
+        MolangCompiler compiler = MolangCompiler.create(TIERED);
+        MolangExpression expression = compiler.compile("4 * 4 + 2");
+        Assertions.assertTrue(expression.isConstant());
+        Assertions.assertEquals(18, expression.getConstant().asFloat());
+    }
+
+    @Test
+    void testThreshold() {
+        Assertions.assertEquals(CompilerFlags.DEFAULT_TIER_UP_THRESHOLD, CompilerFlags.DEFAULT.getTierUpThreshold());
+        Assertions.assertEquals(3, TIERED.add(CompilerFlag.BACKGROUND_TIER_UP).getTierUpThreshold());
+        Assertions.assertNotEquals(TIERED, TIERED.withTierUpThreshold(4));
+        Assertions.assertEquals(TIERED, CompilerFlags.DEFAULT.add(CompilerFlag.TIERED).withTierUpThreshold(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CompilerFlags.DEFAULT.withTierUpThreshold(0));
+    }
+}
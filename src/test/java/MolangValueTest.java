@@ -0,0 +1,30 @@
+import gg.moonflower.molangcompiler.api.MolangValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MolangValueTest {
+
+    @Test
+    void testSharedInstances() {
+        Assertions.assertSame(MolangValue.TRUE, MolangValue.of(true));
+        Assertions.assertSame(MolangValue.FALSE, MolangValue.of(false));
+        Assertions.assertSame(MolangValue.TRUE, MolangValue.of(1.0F).internalLess(MolangValue.of(2.0F)));
+        Assertions.assertSame(MolangValue.of(0.0F), MolangValue.of(0.0F));
+        Assertions.assertSame(MolangValue.of(-1.0F), MolangValue.of(-1.0F));
+        Assertions.assertSame(MolangValue.of(MolangValue.DEFAULT_FLOAT_CACHE_HIGH), MolangValue.of(MolangValue.DEFAULT_FLOAT_CACHE_HIGH));
+        Assertions.assertSame(MolangValue.of(MolangValue.DEFAULT_FLOAT_CACHE_LOW), MolangValue.of(MolangValue.DEFAULT_FLOAT_CACHE_LOW));
+    }
+
+    @Test
+    void testUncachedEquality() {
+        Assertions.assertNotSame(MolangValue.of(0.5F), MolangValue.of(0.5F));
+        Assertions.assertEquals(MolangValue.of(0.5F), MolangValue.of(0.5F));
+        Assertions.assertEquals(MolangValue.of(1e9F), MolangValue.of(1e9F));
+        Assertions.assertEquals(MolangValue.of(Float.NaN), MolangValue.of(Float.NaN));
+
+        // Negative zero is a different value, so it must not be replaced by the cached zero
+        MolangValue negativeZero = MolangValue.of(-0.0F);
+        Assertions.assertNotEquals(MolangValue.of(0.0F), negativeZero);
+        Assertions.assertEquals(Float.floatToRawIntBits(-0.0F), Float.floatToRawIntBits(negativeZero.getFloat()));
+    }
+}